@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file against a baseline result file and reports regressions: scores
+ * that got worse, or allocation per operation (from the GC profiler) that grew, by more than the
+ * tolerance.  Exits with status 1 when there are regressions, so it can gate a build.
+ */
+public class BaselineComparator {
+
+  public static final double DEFAULT_TOLERANCE_PERCENT = 10.0;
+  public static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+  private double tolerancePercent = DEFAULT_TOLERANCE_PERCENT;
+
+  public static void main(String[] args) {
+    System.exit(new BaselineComparator().instanceMain(args));
+  }
+
+  public int instanceMain(String[] args) {
+    while ((args.length > 0) && (args[0].startsWith("--"))) {
+      String option = args[0];
+      args = Arrays.copyOfRange(args, 1, args.length);
+
+      if ((option.equals("--tolerance")) && (args.length > 0)) {
+        this.tolerancePercent = Double.parseDouble(args[0]);
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else {
+        return this.usage();
+      }
+    }
+
+    if (args.length != 2) {
+      return this.usage();
+    }
+
+    try {
+      Map<String, JsonObject> baseline = this.readResults(args[0]);
+      Map<String, JsonObject> current = this.readResults(args[1]);
+
+      int regressions = 0;
+      for (Map.Entry<String, JsonObject> entry : current.entrySet()) {
+        JsonObject baselineResult = baseline.get(entry.getKey());
+        if (baselineResult == null) {
+          System.out.println("NEW        " + entry.getKey());
+        } else {
+          regressions += this.compare(entry.getKey(), baselineResult, entry.getValue());
+        }
+      }
+
+      for (String key : baseline.keySet()) {
+        if (!current.containsKey(key)) {
+          System.out.println("MISSING    " + key);
+        }
+      }
+
+      System.out.println(regressions + " regression(s) beyond " + this.tolerancePercent + "%");
+
+      return (regressions > 0) ? 1 : 0;
+    } catch (Exception exc) {
+      exc.printStackTrace();
+      return 1;
+    }
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private int usage() {
+    System.err.println("Usage: BaselineComparator [--tolerance <percent>] <baseline.json>"
+                       + " <current.json>");
+    System.err.println("Both files are JMH results written with -rf json");
+    return 1;
+  }
+
+  /**
+   * Read the results of a JMH JSON result file, keyed by benchmark name and parameters.
+   */
+  private Map<String, JsonObject> readResults(String filename) throws IOException {
+    Map<String, JsonObject> result = new LinkedHashMap<>();
+
+    try (Reader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+      JsonArray runs = new JsonParser().parse(reader).getAsJsonArray();
+
+      for (JsonElement run : runs) {
+        JsonObject runObject = run.getAsJsonObject();
+        result.put(this.resultKey(runObject), runObject);
+      }
+    }
+
+    return result;
+  }
+
+  private String resultKey(JsonObject run) {
+    StringBuilder key = new StringBuilder(run.get("benchmark").getAsString());
+
+    JsonElement params = run.get("params");
+    if (params != null) {
+      // Sort the parameters so the key does not depend on the order JMH wrote them in.
+      Map<String, String> sorted = new TreeMap<>();
+      for (Map.Entry<String, JsonElement> entry : params.getAsJsonObject().entrySet()) {
+        sorted.put(entry.getKey(), entry.getValue().getAsString());
+      }
+
+      key.append(sorted);
+    }
+
+    return key.toString();
+  }
+
+  private int compare(String key, JsonObject baseline, JsonObject current) {
+    int regressions = 0;
+
+    // Throughput is better when higher; the time-based modes are better when lower.
+    boolean higherIsBetter = current.get("mode").getAsString().equals("thrpt");
+
+    double baselineScore = this.score(baseline.getAsJsonObject("primaryMetric"));
+    double currentScore = this.score(current.getAsJsonObject("primaryMetric"));
+    if (this.isRegression(baselineScore, currentScore, higherIsBetter)) {
+      regressions++;
+    }
+    this.report("SCORE", key, baselineScore, currentScore, higherIsBetter);
+
+    JsonObject baselineAlloc = this.secondaryMetric(baseline, ALLOCATION_METRIC);
+    JsonObject currentAlloc = this.secondaryMetric(current, ALLOCATION_METRIC);
+    if ((baselineAlloc != null) && (currentAlloc != null)) {
+      double baselineBytes = this.score(baselineAlloc);
+      double currentBytes = this.score(currentAlloc);
+
+      if (this.isRegression(baselineBytes, currentBytes, false)) {
+        regressions++;
+      }
+      this.report("ALLOC", key, baselineBytes, currentBytes, false);
+    }
+
+    return regressions;
+  }
+
+  /**
+   * Find a secondary metric by name; the GC profiler prefixes its metric names with a marker
+   * character that differs between JMH versions, so match on the suffix.
+   */
+  private JsonObject secondaryMetric(JsonObject run, String name) {
+    JsonObject secondaryMetrics = run.getAsJsonObject("secondaryMetrics");
+    if (secondaryMetrics == null) {
+      return null;
+    }
+
+    for (Map.Entry<String, JsonElement> entry : secondaryMetrics.entrySet()) {
+      if (entry.getKey().endsWith(name)) {
+        return entry.getValue().getAsJsonObject();
+      }
+    }
+
+    return null;
+  }
+
+  private double score(JsonObject metric) {
+    return metric.get("score").getAsDouble();
+  }
+
+  private boolean isRegression(double baseline, double current, boolean higherIsBetter) {
+    double limit = this.tolerancePercent / 100.0;
+
+    if (higherIsBetter) {
+      return current < baseline * (1.0 - limit);
+    }
+
+    return current > baseline * (1.0 + limit);
+  }
+
+  private void report(String metric, String key, double baseline, double current,
+                      boolean higherIsBetter) {
+    double changePercent = 0.0;
+    if (baseline != 0.0) {
+      changePercent = ((current - baseline) / baseline) * 100.0;
+    }
+
+    String status;
+    if (this.isRegression(baseline, current, higherIsBetter)) {
+      status = "REGRESSION";
+    } else {
+      status = "ok        ";
+    }
+
+    System.out.println(String.format("%s %-5s %s: %.3f -> %.3f (%+.1f%%)", status, metric, key,
+                                     baseline, current, changePercent));
+  }
+}
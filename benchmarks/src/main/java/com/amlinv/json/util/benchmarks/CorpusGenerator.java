@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.Random;
+
+/**
+ * Generates the documents the benchmarks run over.  Generation is deterministic for a given seed,
+ * so every run, and every revision being compared, sees the same corpus.
+ *
+ * A second, slightly different version of a document is produced by generating it again with a
+ * mutation rate: the structure comes from the same random sequence, and a separate sequence
+ * decides which leaf values change and which array elements are dropped.
+ */
+public class CorpusGenerator {
+
+  public static final long DEFAULT_SEED = 20180131L;
+
+  /**
+   * The kinds of documents in the corpus.
+   */
+  public enum Shape {
+    /** A single object with a very large number of members. */
+    WIDE,
+
+    /** Many long chains of nested objects and arrays. */
+    DEEP,
+
+    /** A large array of small records, as found in exports and logs. */
+    LARGE_ARRAY,
+
+    /** Records dominated by long strings with escapes and non-ASCII text. */
+    STRING_HEAVY
+  }
+
+  private static final String STRING_ALPHABET =
+      "abcdefghijklmnopqrstuvwxyz ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789\"\\\n\té中";
+
+  private final long seed;
+
+  private Random random;
+  private Random mutationRandom;
+  private double mutationRate;
+
+  public CorpusGenerator() {
+    this(DEFAULT_SEED);
+  }
+
+  public CorpusGenerator(long seed) {
+    this.seed = seed;
+  }
+
+  public JsonElement generate(Shape shape) {
+    return this.generate(shape, 0.0);
+  }
+
+  /**
+   * Generate the document of the given shape, changing roughly the given fraction of its leaf
+   * values and array elements.
+   */
+  public JsonElement generate(Shape shape, double mutationRate) {
+    this.random = new Random(this.seed);
+    this.mutationRandom = new Random(this.seed + 1);
+    this.mutationRate = mutationRate;
+
+    switch (shape) {
+      case WIDE:
+        return this.generateWide();
+
+      case DEEP:
+        return this.generateDeep();
+
+      case LARGE_ARRAY:
+        return this.generateLargeArray();
+
+      default:
+        return this.generateStringHeavy();
+    }
+  }
+
+  /**
+   * @return paths, in the subset the batch evaluator supports, that select a mix of single values
+   * and wildcard matches from a document of the given shape.
+   */
+  public static String[] samplePaths(Shape shape) {
+    switch (shape) {
+      case WIDE:
+        return new String[]{"$.member0", "$.member9999", "$.member19999", "$.*"};
+
+      case DEEP:
+        return new String[]{"$.chain0.next.next.next.value", "$.chain49.value", "$.*.value",
+                            "$.chain7.items[*]"};
+
+      case LARGE_ARRAY:
+        return new String[]{"$[0].id", "$[49999].name", "$[*].id", "$[*].tags[0]"};
+
+      default:
+        return new String[]{"$[0].text", "$[4999].notes[2]", "$[*].title"};
+    }
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private JsonElement generateWide() {
+    JsonObject result = new JsonObject();
+
+    int cur = 0;
+    while (cur < 20000) {
+      result.add("member" + cur, this.leaf());
+      cur++;
+    }
+
+    return result;
+  }
+
+  private JsonElement generateDeep() {
+    JsonObject result = new JsonObject();
+
+    int cur = 0;
+    while (cur < 50) {
+      result.add("chain" + cur, this.chain(200));
+      cur++;
+    }
+
+    return result;
+  }
+
+  private JsonElement chain(int depth) {
+    JsonObject link = new JsonObject();
+    link.add("value", this.leaf());
+
+    JsonArray items = new JsonArray();
+    this.addElement(items, this.leaf());
+    this.addElement(items, this.leaf());
+    link.add("items", items);
+
+    if (depth > 1) {
+      link.add("next", this.chain(depth - 1));
+    }
+
+    return link;
+  }
+
+  private JsonElement generateLargeArray() {
+    JsonArray result = new JsonArray();
+
+    int cur = 0;
+    while (cur < 50000) {
+      JsonObject record = new JsonObject();
+      record.addProperty("id", cur);
+      record.add("name", this.mutate(new JsonPrimitive("record-" + cur)));
+      record.add("value", this.leaf());
+      record.add("active", this.mutate(new JsonPrimitive(this.random.nextBoolean())));
+
+      JsonArray tags = new JsonArray();
+      int tagCount = 1 + this.random.nextInt(4);
+      while (tagCount > 0) {
+        this.addElement(tags, this.mutate(new JsonPrimitive("tag" + this.random.nextInt(50))));
+        tagCount--;
+      }
+      record.add("tags", tags);
+
+      this.addElement(result, record);
+      cur++;
+    }
+
+    return result;
+  }
+
+  private JsonElement generateStringHeavy() {
+    JsonArray result = new JsonArray();
+
+    int cur = 0;
+    while (cur < 5000) {
+      JsonObject record = new JsonObject();
+      record.add("title", this.mutate(new JsonPrimitive(this.randomString(40))));
+      record.add("text", this.mutate(new JsonPrimitive(this.randomString(1000))));
+
+      JsonArray notes = new JsonArray();
+      int noteCount = 3 + this.random.nextInt(5);
+      while (noteCount > 0) {
+        this.addElement(notes, this.mutate(new JsonPrimitive(this.randomString(100))));
+        noteCount--;
+      }
+      record.add("notes", notes);
+
+      this.addElement(result, record);
+      cur++;
+    }
+
+    return result;
+  }
+
+  private JsonElement leaf() {
+    JsonElement value;
+
+    switch (this.random.nextInt(5)) {
+      case 0:
+        value = new JsonPrimitive(this.random.nextInt(1000000));
+        break;
+
+      case 1:
+        value = new JsonPrimitive(this.random.nextDouble() * 1000.0);
+        break;
+
+      case 2:
+        value = new JsonPrimitive(this.random.nextBoolean());
+        break;
+
+      case 3:
+        value = JsonNull.INSTANCE;
+        break;
+
+      default:
+        value = new JsonPrimitive(this.randomString(12));
+        break;
+    }
+
+    return this.mutate(value);
+  }
+
+  private JsonElement mutate(JsonElement value) {
+    if (this.mutationRandom.nextDouble() < this.mutationRate) {
+      return new JsonPrimitive("changed-" + this.mutationRandom.nextInt(1000));
+    }
+
+    return value;
+  }
+
+  private void addElement(JsonArray array, JsonElement element) {
+    // The element is always generated, so the structure random sequence stays in step.
+    if (this.mutationRandom.nextDouble() >= this.mutationRate) {
+      array.add(element);
+    }
+  }
+
+  private String randomString(int length) {
+    StringBuilder result = new StringBuilder(length);
+
+    int cur = 0;
+    while (cur < length) {
+      result.append(STRING_ALPHABET.charAt(this.random.nextInt(STRING_ALPHABET.length())));
+      cur++;
+    }
+
+    return result.toString();
+  }
+}
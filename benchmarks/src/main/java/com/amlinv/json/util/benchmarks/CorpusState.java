@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.benchmarks;
+
+import com.google.gson.JsonElement;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * One document of the generated corpus, in each of the forms the benchmarks need: the tree, a
+ * slightly changed copy of the tree for the diffs, the text, and a file holding the text.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+
+  public static final double DIFF_MUTATION_RATE = 0.01;
+
+  @Param({"WIDE", "DEEP", "LARGE_ARRAY", "STRING_HEAVY"})
+  public CorpusGenerator.Shape shape;
+
+  public JsonElement document;
+  public JsonElement changedDocument;
+  public String text;
+  public Path file;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    CorpusGenerator generator = new CorpusGenerator();
+
+    this.document = generator.generate(this.shape);
+    this.changedDocument = generator.generate(this.shape, DIFF_MUTATION_RATE);
+    this.text = this.document.toString();
+
+    this.file = Files.createTempFile("json-tools-corpus-" + this.shape, ".json");
+    Files.write(this.file, this.text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(this.file);
+  }
+}
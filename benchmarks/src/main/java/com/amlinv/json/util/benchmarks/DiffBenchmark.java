@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.benchmarks;
+
+import com.amlinv.json.util.JsonDiff;
+import com.amlinv.json.util.JsonFullUnifiedDiff;
+import com.amlinv.json.util.diff.MyersArrayAligner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The diff engines, comparing each corpus document with a copy that has about one percent of its
+ * values changed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiffBenchmark {
+
+  @Benchmark
+  public long jsonDiff(CorpusState corpus) {
+    return this.runJsonDiff(new JsonDiff(), corpus);
+  }
+
+  @Benchmark
+  public long jsonDiffNoFingerprint(CorpusState corpus) {
+    JsonDiff jsonDiff = new JsonDiff();
+    jsonDiff.setFingerprintEnabled(false);
+
+    return this.runJsonDiff(jsonDiff, corpus);
+  }
+
+  @Benchmark
+  public long jsonDiffAlignArrays(CorpusState corpus) {
+    JsonDiff jsonDiff = new JsonDiff();
+    jsonDiff.setArrayAligner(new MyersArrayAligner());
+
+    return this.runJsonDiff(jsonDiff, corpus);
+  }
+
+  @Benchmark
+  public long jsonFullUnifiedDiff(CorpusState corpus) {
+    DiscardingWriter writer = new DiscardingWriter();
+
+    new JsonFullUnifiedDiff()
+        .diff(corpus.document, corpus.changedDocument, new PrintWriter(writer));
+
+    return writer.getCount();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private long runJsonDiff(JsonDiff jsonDiff, CorpusState corpus) {
+    DiscardingWriter writer = new DiscardingWriter();
+
+    jsonDiff.diff(corpus.document, corpus.changedDocument, new PrintWriter(writer));
+
+    return writer.getCount();
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.benchmarks;
+
+import java.io.Writer;
+
+/**
+ * Writer that discards its output, counting the characters so the work cannot be optimized away.
+ */
+public class DiscardingWriter extends Writer {
+
+  private long count = 0;
+
+  @Override
+  public void write(int ch) {
+    this.count++;
+  }
+
+  @Override
+  public void write(char[] buffer, int offset, int length) {
+    this.count += length;
+  }
+
+  @Override
+  public void write(String str, int offset, int length) {
+    this.count += length;
+  }
+
+  @Override
+  public void flush() {
+  }
+
+  @Override
+  public void close() {
+  }
+
+  public long getCount() {
+    return count;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.benchmarks;
+
+import com.amlinv.json.util.path.BatchJsonPathEvaluator;
+import com.amlinv.json.util.path.JsonPathMatchListener;
+import com.amlinv.json.util.path.JsonPathTrie;
+import com.amlinv.json.util.path.SimpleJsonPath;
+import com.amlinv.json.util.path.StreamingJsonPathEvaluator;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.internal.spi.json.GsonJsonProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Path evaluation as done by JsonPathUtil: the batch evaluator, JsonPath itself, and the streaming
+ * evaluator, each answering the same sample paths.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonPathBenchmark {
+
+  private JsonPathTrie trie;
+  private JsonPath[] compiledPaths;
+  private Configuration configuration;
+
+  @Setup(Level.Trial)
+  public void setup(CorpusState corpus) {
+    String[] paths = CorpusGenerator.samplePaths(corpus.shape);
+
+    this.trie = new JsonPathTrie();
+    this.compiledPaths = new JsonPath[paths.length];
+
+    int cur = 0;
+    while (cur < paths.length) {
+      this.trie.add(SimpleJsonPath.parse(paths[cur]));
+      this.compiledPaths[cur] = JsonPath.compile(paths[cur]);
+
+      cur++;
+    }
+
+    this.configuration =
+        Configuration.builder()
+            .jsonProvider(new GsonJsonProvider())
+            .options(Option.ALWAYS_RETURN_LIST)
+            .build();
+  }
+
+  @Benchmark
+  public BatchJsonPathEvaluator.Result batchEvaluate(CorpusState corpus) {
+    return new BatchJsonPathEvaluator(this.trie).evaluate(corpus.document);
+  }
+
+  @Benchmark
+  public void jsonPathRead(CorpusState corpus, Blackhole blackhole) {
+    for (JsonPath jsonPath : this.compiledPaths) {
+      JsonArray result = jsonPath.read(corpus.document, this.configuration);
+      blackhole.consume(result);
+    }
+  }
+
+  @Benchmark
+  public void streamingEvaluate(CorpusState corpus, Blackhole blackhole) throws IOException {
+    JsonReader reader = new JsonReader(new StringReader(corpus.text));
+
+    new StreamingJsonPathEvaluator(this.trie).evaluate(reader, new JsonPathMatchListener() {
+      @Override
+      public void onMatch(int pathId, JsonElement value) {
+        blackhole.consume(value);
+      }
+
+      @Override
+      public void onMissing(JsonPathTrie.Node node) {
+      }
+    });
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.benchmarks;
+
+import com.amlinv.json.util.output.JsonPathLister;
+
+import com.google.gson.stream.JsonReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The traversal behind ListElementsByJsonPath, over a parsed tree and over the token stream.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListElementsBenchmark {
+
+  @Benchmark
+  public long listTree(CorpusState corpus) {
+    DiscardingWriter writer = new DiscardingWriter();
+
+    new JsonPathLister(new PrintWriter(writer), true).list(corpus.document);
+
+    return writer.getCount();
+  }
+
+  @Benchmark
+  public long listStreaming(CorpusState corpus) throws IOException {
+    DiscardingWriter writer = new DiscardingWriter();
+
+    new JsonPathLister(new PrintWriter(writer), true)
+        .list(new JsonReader(new StringReader(corpus.text)));
+
+    return writer.getCount();
+  }
+}
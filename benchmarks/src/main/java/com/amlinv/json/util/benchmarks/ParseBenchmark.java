@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.benchmarks;
+
+import com.amlinv.json.util.input.JsonInputSource;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of input documents, as every tool does before its own work.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+  private final JsonInputSource inputSource = new JsonInputSource();
+  private final JsonInputSource structuralInputSource = new JsonInputSource();
+
+  @Setup
+  public void setup() {
+    this.inputSource.setParser(JsonInputSource.Parser.GSON);
+    this.structuralInputSource.setParser(JsonInputSource.Parser.STRUCTURAL);
+  }
+
+  @Benchmark
+  public JsonElement parseFile(CorpusState corpus) throws IOException {
+    return this.inputSource.parse(corpus.file.toString());
+  }
+
+  @Benchmark
+  public JsonElement parseFileStructural(CorpusState corpus) throws IOException {
+    return this.structuralInputSource.parse(corpus.file.toString());
+  }
+
+  @Benchmark
+  public JsonElement parseString(CorpusState corpus) {
+    return new JsonParser().parse(new StringReader(corpus.text));
+  }
+}
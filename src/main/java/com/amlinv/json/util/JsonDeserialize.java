@@ -19,63 +19,105 @@
 
 package com.amlinv.json.util;
 
+import com.amlinv.json.util.input.JsonInputSource;
+import com.amlinv.json.util.parallel.NdjsonPipeline;
+
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
 
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.Option;
 import com.jayway.jsonpath.internal.spi.json.GsonJsonProvider;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.io.Reader;
 import java.util.Arrays;
 
 /**
  * Created by art on 5/12/16.
  */
-public class JsonDeserialize {
+public class JsonDeserialize implements JsonTool {
+
+  private final JsonInputSource inputSource = new JsonInputSource();
 
   public static void main(String[] args) {
     new JsonDeserialize().instanceMain(args);
   }
 
   public void instanceMain(String[] args) {
-    if (args.length != 1) {
-      System.err.println("Usage: JsonDeserialize <filename>");
-      System.err.println("Use filename - for standard input");
-      System.exit(1);
+    int status = this.execute(args, ToolContext.system());
+    if (status != 0) {
+      System.exit(status);
+    }
+  }
+
+  @Override
+  public int execute(String[] args, ToolContext context) {
+    context.configure(this.inputSource);
+
+    boolean ndjson = false;
+    boolean ordered = true;
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    while ((args.length > 0) && (args[0].startsWith("--"))) {
+      String option = args[0];
+      args = Arrays.copyOfRange(args, 1, args.length);
+
+      if (option.equals("--ndjson")) {
+        ndjson = true;
+      } else if (option.equals("--unordered")) {
+        ordered = false;
+      } else if ((option.equals("--threads")) && (args.length > 0)) {
+        threads = Integer.parseInt(args[0]);
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else {
+        return this.dumpUsage(context.getErr());
+      }
+    }
+
+    if ((args.length != 1) || (threads < 1)) {
+      return this.dumpUsage(context.getErr());
     }
 
     try {
       String filename = args[0];
 
-      JsonElement result = this.parseInput(filename);
+      if (ndjson) {
+        PrintWriter out = new PrintWriter(context.getOut());
 
-      System.out.println(result.toString());
+        try (Reader input = this.inputSource.openReader(filename)) {
+          NdjsonPipeline pipeline = new NdjsonPipeline(threads, ordered);
+          pipeline.setKeyDictionary(this.inputSource.getKeyDictionary());
+          pipeline.process(input, (record, recordOut) -> recordOut.println(record.toString()),
+                           out);
+        }
+      } else {
+        JsonElement result = this.inputSource.parse(filename);
+
+        context.getOut().println(result.toString());
+      }
     } catch (Exception exc) {
-      exc.printStackTrace();
-      System.exit(1);
+      exc.printStackTrace(context.getErr());
+      return 1;
     }
-  }
 
-  private JsonElement parseInput(String filename) throws FileNotFoundException {
-    InputStream inputStream;
-
-    if (filename.equals("-")) {
-      inputStream = System.in;
-    } else {
-      inputStream = new FileInputStream(filename);
-    }
+    return 0;
+  }
 
-    Reader inputReader = new InputStreamReader(inputStream);
+//========================================
+// Internal Methods
+//----------------------------------------
 
-    return new JsonParser().parse(inputReader);
+  private int dumpUsage(PrintStream err) {
+    err.println("Usage: JsonDeserialize [--ndjson [--threads <n>] [--unordered]]"
+                + " <filename>");
+    err.println("Use filename - for standard input");
+    err.println("--ndjson reads one document per line and processes the lines in parallel;"
+                + " --unordered writes results as they finish instead of in input order");
+    return 1;
   }
 }
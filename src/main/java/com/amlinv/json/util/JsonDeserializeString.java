@@ -19,56 +19,52 @@
 
 package com.amlinv.json.util;
 
+import com.amlinv.json.util.input.JsonInputSource;
+
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
-
 /**
  * Created by art on 5/12/16.
  */
-public class JsonDeserializeString {
+public class JsonDeserializeString implements JsonTool {
+
+  private final JsonInputSource inputSource = new JsonInputSource();
 
   public static void main(String[] args) {
     new JsonDeserializeString().instanceMain(args);
   }
 
   public void instanceMain(String[] args) {
+    int status = this.execute(args, ToolContext.system());
+    if (status != 0) {
+      System.exit(status);
+    }
+  }
+
+  @Override
+  public int execute(String[] args, ToolContext context) {
+    context.configure(this.inputSource);
+
     if (args.length != 1) {
-      System.err.println("Usage: JsonDeserializeString <filename>");
-      System.err.println("Use filename - for standard input");
-      System.exit(1);
+      context.getErr().println("Usage: JsonDeserializeString <filename>");
+      context.getErr().println("Use filename - for standard input");
+      return 1;
     }
 
     try {
       String filename = args[0];
 
-      JsonElement result = this.parseInput(filename);
+      JsonElement result = this.inputSource.parse(filename);
 
       JsonElement secondParseResult = new JsonParser().parse(result.getAsString());
 
-      System.out.println(secondParseResult.toString());
+      context.getOut().println(secondParseResult.toString());
     } catch (Exception exc) {
-      exc.printStackTrace();
-      System.exit(1);
-    }
-  }
-
-  private JsonElement parseInput(String filename) throws FileNotFoundException {
-    InputStream inputStream;
-
-    if (filename.equals("-")) {
-      inputStream = System.in;
-    } else {
-      inputStream = new FileInputStream(filename);
+      exc.printStackTrace(context.getErr());
+      return 1;
     }
 
-    Reader inputReader = new InputStreamReader(inputStream);
-
-    return new JsonParser().parse(inputReader);
+    return 0;
   }
 }
@@ -19,82 +19,438 @@
 
 package com.amlinv.json.util;
 
+import com.amlinv.json.util.diff.ArrayEdit;
+import com.amlinv.json.util.diff.ArrayKeySpec;
+import com.amlinv.json.util.diff.DiffSummary;
+import com.amlinv.json.util.diff.JsonFingerprinter;
+import com.amlinv.json.util.diff.JsonNumberComparator;
+import com.amlinv.json.util.diff.KeyedArrayMatcher;
+import com.amlinv.json.util.diff.MemberLayoutCache;
+import com.amlinv.json.util.diff.MyersArrayAligner;
+import com.amlinv.json.util.input.JsonInputSource;
+import com.amlinv.json.util.tape.JsonTape;
+
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.io.PrintWriter;
-import java.io.Reader;
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Created by art on 7/6/16.
  */
-public class JsonDiff {
+public class JsonDiff implements JsonTool {
+
+  private final JsonInputSource inputSource = new JsonInputSource();
+
+  private boolean fingerprintEnabled = true;
+  private MyersArrayAligner arrayAligner;
+  private final KeyedArrayMatcher keyedArrayMatcher = new KeyedArrayMatcher();
+  private final MemberLayoutCache memberLayouts = new MemberLayoutCache();
+  private JsonFingerprinter fingerprinter;
+  private JsonNumberComparator numberComparator = new JsonNumberComparator();
+
+  private int parallelism = 1;
+  private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+  private DiffSummary summary;
+  private boolean stopAtFirstDifference;
+  private volatile boolean differenceFound;
+
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 1000;
 
   public static void main(String[] args) {
     new JsonDiff().instanceMain(args);
   }
 
   public void instanceMain(String[] args) {
+    int status = this.execute(args, ToolContext.system());
+    if (status != 0) {
+      System.exit(status);
+    }
+  }
+
+  @Override
+  public int execute(String[] args, ToolContext context) {
+    context.configure(this.inputSource);
+
+    boolean streaming = false;
+    boolean tape = false;
+    boolean jsonPatch = false;
+    boolean summaryMode = false;
+    boolean quiet = false;
+    boolean exitCode = false;
+    boolean alignArrays = false;
+    boolean parallel = false;
+    int alignMaxCost = MyersArrayAligner.DEFAULT_MAX_COST;
+
+    while ((args.length > 0) && (args[0].startsWith("--"))) {
+      String option = args[0];
+      args = Arrays.copyOfRange(args, 1, args.length);
+
+      if (option.equals("--streaming")) {
+        streaming = true;
+      } else if (option.equals("--tape")) {
+        tape = true;
+      } else if (option.equals("--json-patch")) {
+        jsonPatch = true;
+      } else if (option.equals("--summary")) {
+        summaryMode = true;
+      } else if (option.equals("--quiet")) {
+        quiet = true;
+        exitCode = true;
+      } else if (option.equals("--exit-code")) {
+        exitCode = true;
+      } else if ((option.equals("--numeric-tolerance")) && (args.length > 0)) {
+        this.numberComparator = new JsonNumberComparator(Double.parseDouble(args[0]));
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else if (option.equals("--no-fingerprint")) {
+        this.fingerprintEnabled = false;
+      } else if (option.equals("--align-arrays")) {
+        alignArrays = true;
+      } else if ((option.equals("--align-max-cost")) && (args.length > 0)) {
+        alignMaxCost = Integer.parseInt(args[0]);
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else if ((option.equals("--array-key")) && (args.length > 0)) {
+        this.addArrayKey(ArrayKeySpec.parse(args[0]));
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else if (option.equals("--parallel")) {
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        parallel = true;
+      } else if ((option.equals("--parallel-threshold")) && (args.length > 0)) {
+        this.parallelThreshold = Integer.parseInt(args[0]);
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else {
+        return this.dumpUsage(context.getErr());
+      }
+    }
+
+    if (alignArrays) {
+      this.arrayAligner = new MyersArrayAligner(alignMaxCost);
+    }
+
     if (args.length != 2) {
-      System.err.println("Usage: JsonDiff <filename1> <filename2>");
-      System.err.println("Use filename - for standard input");
-      System.exit(1);
+      return this.dumpUsage(context.getErr());
+    }
+
+    if ((jsonPatch) && ((streaming) || (parallel))) {
+      context.getErr().println("--json-patch cannot be combined with --streaming or --parallel");
+      return this.dumpUsage(context.getErr());
+    }
+
+    if ((streaming) &&
+        ((alignArrays) || (!this.keyedArrayMatcher.isEmpty()) || (parallel))) {
+      context.getErr().println("--streaming cannot be combined with --align-arrays, --array-key or"
+                               + " --parallel");
+      return this.dumpUsage(context.getErr());
     }
 
+    if ((tape) && ((streaming) || (jsonPatch) || (parallel))) {
+      context.getErr().println("--tape cannot be combined with --streaming, --json-patch or"
+                               + " --parallel");
+      return this.dumpUsage(context.getErr());
+    }
+
+    if ((summaryMode) && ((quiet) || (jsonPatch))) {
+      context.getErr().println("--summary cannot be combined with --quiet or --json-patch");
+      return this.dumpUsage(context.getErr());
+    }
+
+    if ((quiet) && (jsonPatch)) {
+      context.getErr().println("--quiet cannot be combined with --json-patch");
+      return this.dumpUsage(context.getErr());
+    }
+
+    DiffSummary diffSummary = null;
+    if (summaryMode) {
+      diffSummary = new DiffSummary();
+    }
+
+    this.summary = diffSummary;
+    this.stopAtFirstDifference = quiet;
+    this.differenceFound = false;
+
     try {
       String filename1 = args[0];
       String filename2 = args[1];
 
-      JsonElement first = this.parseInput(filename1);
-      JsonElement second = this.parseInput(filename2);
+      if (streaming) {
+        PrintWriter out = new PrintWriter(context.getOut());
+
+        try (JsonReader firstReader = new JsonReader(this.inputSource.openReader(filename1));
+             JsonReader secondReader = new JsonReader(this.inputSource.openReader(filename2))) {
+          new JsonStreamingDiff(this).diff(firstReader, secondReader, out);
+        }
+      } else if (tape) {
+        JsonTape first = this.inputSource.parseTape(filename1);
+        JsonTape second = this.inputSource.parseTape(filename2);
+
+        this.diff(first, second, new PrintWriter(context.getOut()));
+      } else if (jsonPatch) {
+        JsonElement first = this.inputSource.parse(filename1);
+        JsonElement second = this.inputSource.parse(filename2);
+
+        JsonPatchDiff patchDiff = new JsonPatchDiff(this);
+        patchDiff.diff(first, second, new PrintWriter(context.getOut()));
+        this.differenceFound = (patchDiff.getOperationCount() > 0);
+      } else {
+        JsonElement first = this.inputSource.parse(filename1);
+        JsonElement second = this.inputSource.parse(filename2);
 
-      this.diff(first, second, new PrintWriter(System.out));
+        this.diff(first, second, new PrintWriter(context.getOut()));
+      }
+    } catch (DifferenceFoundException differenceFoundException) {
+      // Quiet mode stops at the first difference; differenceFound is already set
     } catch (Exception exc) {
-      exc.printStackTrace();
-      System.exit(1);
+      exc.printStackTrace(context.getErr());
+      if (exitCode) {
+        return 2;
+      }
+      return 1;
+    } finally {
+      this.summary = null;
+      this.stopAtFirstDifference = false;
+    }
+
+    if (diffSummary != null) {
+      PrintWriter out = new PrintWriter(context.getOut());
+      diffSummary.print(out);
+      out.flush();
     }
+
+    if ((exitCode) && (this.differenceFound)) {
+      return 1;
+    }
+
+    return 0;
   }
 
   public void diff(JsonElement first, JsonElement second, PrintWriter out) {
-    this.diffLevel("$", first, second, out, 0);
+    // Fingerprinting visits both documents in full, which defeats stopping at the first difference
+    if (((this.fingerprintEnabled) && (!this.stopAtFirstDifference)) ||
+        (this.arrayAligner != null)) {
+      this.fingerprinter = new JsonFingerprinter();
+    }
+
+    try {
+      if ((this.parallelism > 1) && (!this.stopAtFirstDifference)) {
+        this.parallelDiff(first, second, out);
+      } else {
+        this.diffLevel("$", first, second, out, 0);
+      }
+    } finally {
+      this.fingerprinter = null;
+    }
 
     out.flush();
   }
 
+  /**
+   * Diff two documents held as tapes, with the same output as diffing their trees.  The walk is
+   * sequential; fingerprints are only used for the arrays matched by key, or aligned, which are
+   * converted into trees.
+   */
+  public void diff(JsonTape first, JsonTape second, PrintWriter out) {
+    if (((this.fingerprintEnabled) && (!this.stopAtFirstDifference)) ||
+        (this.arrayAligner != null)) {
+      this.fingerprinter = new JsonFingerprinter();
+    }
+
+    try {
+      new JsonTapeDiff(this).diff(first, second, out);
+    } finally {
+      this.fingerprinter = null;
+    }
+
+    out.flush();
+  }
+
+  /**
+   * Determine whether the two documents differ, stopping the walk at the first difference.
+   */
+  public boolean hasDifferences(JsonElement first, JsonElement second) {
+    this.stopAtFirstDifference = true;
+    this.differenceFound = false;
+
+    try {
+      this.diff(first, second, new PrintWriter(new StringWriter()));
+    } catch (DifferenceFoundException differenceFoundException) {
+      return true;
+    } finally {
+      this.stopAtFirstDifference = false;
+    }
+
+    return false;
+  }
+
+  /**
+   * Count the added, removed, and changed nodes of the two documents per top-level branch,
+   * instead of writing out the differences.
+   */
+  public DiffSummary summarize(JsonElement first, JsonElement second) {
+    DiffSummary result = new DiffSummary();
+    this.summary = result;
+    this.differenceFound = false;
+
+    try {
+      this.diff(first, second, new PrintWriter(new StringWriter()));
+    } finally {
+      this.summary = null;
+    }
+
+    return result;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Set the number of threads used to diff large objects and arrays; 1, the default, diffs
+   * sequentially.  The output is identical either way.
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  public int getParallelThreshold() {
+    return parallelThreshold;
+  }
+
+  /**
+   * Set the minimum number of members, or array elements, for which diffing is split into
+   * parallel tasks.
+   */
+  public void setParallelThreshold(int parallelThreshold) {
+    this.parallelThreshold = parallelThreshold;
+  }
+
+  public boolean isFingerprintEnabled() {
+    return fingerprintEnabled;
+  }
+
+  /**
+   * Enable skipping of identical objects and arrays based on their structural fingerprints.
+   * Enabled by default; disabling saves the memory used to cache the fingerprints.
+   */
+  public void setFingerprintEnabled(boolean fingerprintEnabled) {
+    this.fingerprintEnabled = fingerprintEnabled;
+  }
+
+  public JsonNumberComparator getNumberComparator() {
+    return numberComparator;
+  }
+
+  /**
+   * Set the comparator used for primitive values; the default compares numbers exactly by their
+   * numeric value.
+   */
+  public void setNumberComparator(JsonNumberComparator numberComparator) {
+    this.numberComparator = numberComparator;
+  }
+
+  public MyersArrayAligner getArrayAligner() {
+    return arrayAligner;
+  }
+
+  /**
+   * Set the aligner used to line up array elements, so that inserted and removed elements are
+   * reported once instead of shifting the rest of the array.  When null, the default, array
+   * elements are compared by index.
+   */
+  public void setArrayAligner(MyersArrayAligner arrayAligner) {
+    this.arrayAligner = arrayAligner;
+  }
+
+  /**
+   * Match the elements of the arrays selected by the given key specification by their key field
+   * instead of by position.  Takes precedence over the array aligner.
+   */
+  public void addArrayKey(ArrayKeySpec arrayKey) {
+    this.keyedArrayMatcher.addArrayKey(arrayKey);
+  }
+
+  KeyedArrayMatcher getKeyedArrayMatcher() {
+    return keyedArrayMatcher;
+  }
+
+  /**
+   * Drop the cached fingerprints; for the tape diff, which converts arrays into trees one at a
+   * time and then discards them.
+   */
+  void clearFingerprints() {
+    if (this.fingerprinter != null) {
+      this.fingerprinter.clear();
+    }
+  }
+
 //========================================
 // Internal Methods
 //----------------------------------------
 
-  private JsonElement parseInput(String filename) throws FileNotFoundException {
-    InputStream inputStream;
+  /**
+   * Diff one element of an object or array, identified by its position, into the given output.
+   */
+  private interface IndexedDiff {
+    void diffAt(int index, PrintWriter out);
+  }
 
-    if (filename.equals("-")) {
-      inputStream = System.in;
-    } else {
-      inputStream = new FileInputStream(filename);
-    }
+  /**
+   * Thrown from the output methods to unwind the walk at the first difference; carries no stack
+   * trace since it is expected.
+   */
+  private static class DifferenceFoundException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
 
-    Reader inputReader = new InputStreamReader(inputStream);
+    DifferenceFoundException() {
+      super(null, null, false, false);
+    }
+  }
 
-    return new JsonParser().parse(inputReader);
+  private int dumpUsage(PrintStream err) {
+    err.println("Usage: JsonDiff [--streaming | --tape | --json-patch] [--summary | --quiet]"
+                + " [--exit-code] [--numeric-tolerance <epsilon>] [--no-fingerprint]"
+                + " [--align-arrays]"
+                + " [--align-max-cost <edits>] [--array-key <jsonpath>=<field>]..."
+                + " [--parallel] [--parallel-threshold <size>] <filename1> <filename2>");
+    err.println("Use filename - for standard input");
+    err.println("--tape loads the documents into compact tapes instead of trees, using a"
+                + " fraction of the memory");
+    err.println("--json-patch writes an RFC 6902 patch that turns the first document into the"
+                + " second");
+    err.println("--numeric-tolerance treats numbers that differ by no more than epsilon as the"
+                + " same");
+    err.println("--summary counts the added, removed, and changed nodes per top-level branch");
+    err.println("--quiet prints nothing and stops at the first difference; implies --exit-code");
+    err.println("--exit-code exits with 1 when the documents differ, 0 when they are the same,"
+                + " and 2 on error");
+    return 1;
   }
 
-  private void diffLevel(String path, JsonElement first, JsonElement second, PrintWriter out,
+  /**
+   * Diff the two elements, located at the given path, writing the differences to the given
+   * output.  Package-private so the streaming diff can fall back to the tree diff for buffered
+   * members and primitive values.
+   */
+  void diffLevel(String path, JsonElement first, JsonElement second, PrintWriter out,
                          int level) {
+    if ((this.fingerprintEnabled) && (this.fingerprinter != null) &&
+        (this.fingerprinter.isSameContent(first, second))) {
+      return;
+    }
+
     String prefix = this.createLevelPrefix(level);
 
     if (first.isJsonPrimitive()) {
-      if ((!second.isJsonPrimitive() || (!first.equals(second)))) {
+      if ((!second.isJsonPrimitive()) || (!this.isSameValue(first, second))) {
         outputSimpleDiff(out, path, prefix, first, second);
       }
     } else if (first.isJsonNull()) {
@@ -123,25 +479,24 @@ public class JsonDiff {
     JsonObject firstObject = (JsonObject) first;
     JsonObject secondObject = (JsonObject) second;
 
-    Set<String> allMemberNames = new TreeSet<>();
+    String[] memberNames = this.memberLayouts.getMergedNames(firstObject, secondObject);
 
-    firstObject.entrySet().stream().map(Map.Entry::getKey).forEach(allMemberNames::add);
-    secondObject.entrySet().stream().map(Map.Entry::getKey).forEach(allMemberNames::add);
+    this.diffRange(memberNames.length, out, (index, rangeOut) -> {
+      String memberName = memberNames[index];
 
-    for (String memberName : allMemberNames) {
       JsonElement firstChild = firstObject.get(memberName);
       JsonElement secondChild = secondObject.get(memberName);
 
-      String childPath = path + "['" + memberName + "']";
+      String childPath = ArrayKeySpec.memberPath(path, memberName);
 
       if (firstChild == null) {
-        out.println("> " + prefix + "\"" + childPath + "\": " + secondChild);
+        outputOneSidedDiff(rangeOut, "> ", childPath, prefix, secondChild);
       } else if (secondChild == null) {
-        out.println("< " + prefix + "\"" + childPath + "\": " + firstChild);
+        outputOneSidedDiff(rangeOut, "< ", childPath, prefix, firstChild);
       } else {
-        diffLevel(childPath, firstChild, secondChild, out, level + 1);
+        diffLevel(childPath, firstChild, secondChild, rangeOut, level + 1);
       }
-    }
+    });
   }
 
   private void diffArraysLevel(String path, JsonElement first, JsonElement second, PrintWriter out,
@@ -149,6 +504,22 @@ public class JsonDiff {
     JsonArray firstArray = (JsonArray) first;
     JsonArray secondArray = (JsonArray) second;
 
+    String keyField = this.keyedArrayMatcher.findKeyField(path);
+    if (keyField != null) {
+      List<ArrayEdit> edits = this.keyedArrayMatcher.match(firstArray, secondArray, keyField);
+      this.outputArrayEdits(path, firstArray, secondArray, edits, out, prefix, level);
+      return;
+    }
+
+    if ((this.arrayAligner != null) && (this.fingerprinter != null)) {
+      List<ArrayEdit> edits = this.arrayAligner.align(firstArray, secondArray, this.fingerprinter);
+
+      if (edits != null) {
+        this.outputArrayEdits(path, firstArray, secondArray, edits, out, prefix, level);
+        return;
+      }
+    }
+
     JsonArray biggerArray;
     String direction;
 
@@ -164,34 +535,183 @@ public class JsonDiff {
       minSize = secondArray.size();
     }
 
-    int cur = 0;
-    while (cur < minSize) {
-      JsonElement firstEle = firstArray.get(cur);
-      JsonElement secondEle = secondArray.get(cur);
+    this.diffRange(minSize, out, (index, rangeOut) -> {
+      JsonElement firstEle = firstArray.get(index);
+      JsonElement secondEle = secondArray.get(index);
+
+      String childPath = path + "[" + index + "]";
+
+      this.diffLevel(childPath, firstEle, secondEle, rangeOut, level + 1);
+    });
 
+    int cur = minSize;
+    while (cur < maxSize) {
       String childPath = path + "[" + cur + "]";
 
-      this.diffLevel(childPath, firstEle, secondEle, out, level + 1);
+      outputOneSidedDiff(out, direction, childPath, prefix, biggerArray.get(cur));
 
       cur++;
     }
+  }
 
-    while (cur < maxSize) {
-      String childPath = path + "[" + cur + "]";
+  /**
+   * Output the differences between two aligned, or key-matched, arrays.  Removed and changed
+   * elements are reported at their index in the first array, inserted elements at their index
+   * in the second.
+   */
+  private void outputArrayEdits(String path, JsonArray firstArray, JsonArray secondArray,
+                                List<ArrayEdit> edits, PrintWriter out, String prefix, int level) {
+    this.diffRange(edits.size(), out, (index, rangeOut) -> {
+      ArrayEdit edit = edits.get(index);
+
+      switch (edit.getType()) {
+        case CHANGE:
+          this.diffLevel(path + "[" + edit.getFirstIndex() + "]",
+                         firstArray.get(edit.getFirstIndex()),
+                         secondArray.get(edit.getSecondIndex()), rangeOut, level + 1);
+          break;
+
+        case DELETE:
+          outputOneSidedDiff(rangeOut, "< ", path + "[" + edit.getFirstIndex() + "]", prefix,
+                             firstArray.get(edit.getFirstIndex()));
+          break;
+
+        case INSERT:
+          outputOneSidedDiff(rangeOut, "> ", path + "[" + edit.getSecondIndex() + "]", prefix,
+                             secondArray.get(edit.getSecondIndex()));
+          break;
+      }
+    });
+  }
 
-      out.println(direction + prefix + "\"" + childPath + "\": " + biggerArray.get(cur));
+  private void parallelDiff(JsonElement first, JsonElement second, PrintWriter out) {
+    // Fingerprint everything up-front; the tasks then only read the fingerprint cache
+    if (this.fingerprinter != null) {
+      this.fingerprinter.fingerprint(first);
+      this.fingerprinter.fingerprint(second);
+    }
 
-      cur++;
+    ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+    try {
+      pool.invoke(ForkJoinTask.adapt(() -> this.diffLevel("$", first, second, out, 0)));
+    } finally {
+      pool.shutdown();
     }
   }
 
-  private void outputSimpleDiff(PrintWriter out, String path, String prefix, JsonElement first,
-                                JsonElement second) {
+  /**
+   * Diff the elements at positions 0 through size - 1.  When running in parallel and the range
+   * is large enough, it is split into tasks that each write to their own buffer; the buffers are
+   * then written out in order, so the output is identical to the sequential diff.
+   */
+  private void diffRange(int size, PrintWriter out, IndexedDiff indexedDiff) {
+    if ((this.parallelism <= 1) || (size < this.parallelThreshold) ||
+        (!ForkJoinTask.inForkJoinPool())) {
+      int cur = 0;
+      while (cur < size) {
+        indexedDiff.diffAt(cur, out);
+        cur++;
+      }
+
+      return;
+    }
+
+    int chunkSize = Math.max(1, (size + (this.parallelism * 4) - 1) / (this.parallelism * 4));
+
+    List<ForkJoinTask<String>> tasks = new ArrayList<>();
+    int start = 0;
+    while (start < size) {
+      int chunkStart = start;
+      int chunkEnd = Math.min(size, start + chunkSize);
+
+      tasks.add(ForkJoinTask.adapt(() -> {
+        StringWriter buffer = new StringWriter();
+        PrintWriter bufferOut = new PrintWriter(buffer);
+
+        int cur = chunkStart;
+        while (cur < chunkEnd) {
+          indexedDiff.diffAt(cur, bufferOut);
+          cur++;
+        }
+
+        bufferOut.flush();
+        return buffer.toString();
+      }));
+
+      start = chunkEnd;
+    }
+
+    ForkJoinTask.invokeAll(tasks);
+
+    for (ForkJoinTask<String> task : tasks) {
+      out.print(task.join());
+    }
+  }
+
+  /**
+   * Output a changed value.  The values are written with toString(), once the difference is known
+   * to be written; package-private for the tape diff.
+   */
+  void outputSimpleDiff(PrintWriter out, String path, String prefix, Object first,
+                        Object second) {
+    if (!this.recordDifference(path, DiffSummary.Type.CHANGED)) {
+      return;
+    }
+
     out.println("< " + prefix + "\"" + path + "\": " + first);
     out.println("> " + prefix + "\"" + path + "\": " + second);
   }
 
-  private String createLevelPrefix(int level) {
+  void outputOneSidedDiff(PrintWriter out, String direction, String path, String prefix,
+                          Object element) {
+    DiffSummary.Type type;
+    if (direction.startsWith("<")) {
+      type = DiffSummary.Type.REMOVED;
+    } else {
+      type = DiffSummary.Type.ADDED;
+    }
+
+    if (!this.recordDifference(path, type)) {
+      return;
+    }
+
+    out.println(direction + prefix + "\"" + path + "\": " + element);
+  }
+
+  /**
+   * Determine whether the two elements hold the same value, comparing primitives with the number
+   * comparator.  Package-private for the JSON patch diff.
+   */
+  boolean isSameValue(JsonElement first, JsonElement second) {
+    if ((first.isJsonPrimitive()) && (second.isJsonPrimitive())) {
+      return this.numberComparator.isSame(first.getAsJsonPrimitive(), second.getAsJsonPrimitive());
+    }
+
+    return first.equals(second);
+  }
+
+  /**
+   * Note a difference at the given path, stopping the walk or counting the difference as
+   * configured.
+   *
+   * @return true if the difference should be written out.
+   */
+  private boolean recordDifference(String path, DiffSummary.Type type) {
+    this.differenceFound = true;
+
+    if (this.stopAtFirstDifference) {
+      throw new DifferenceFoundException();
+    }
+
+    if (this.summary != null) {
+      this.summary.record(path, type);
+      return false;
+    }
+
+    return true;
+  }
+
+  String createLevelPrefix(int level) {
     char[] chars = new char[level * 4];
 
     Arrays.fill(chars, ' ');
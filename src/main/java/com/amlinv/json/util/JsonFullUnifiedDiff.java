@@ -19,215 +19,457 @@
 
 package com.amlinv.json.util;
 
+import com.amlinv.json.util.diff.ArrayEdit;
+import com.amlinv.json.util.diff.ArrayKeySpec;
+import com.amlinv.json.util.diff.JsonDiffEventSink;
+import com.amlinv.json.util.diff.JsonFingerprinter;
+import com.amlinv.json.util.diff.KeyedArrayMatcher;
+import com.amlinv.json.util.diff.MemberLayoutCache;
+import com.amlinv.json.util.input.JsonInputSource;
+import com.amlinv.json.util.output.FullUnifiedJsonDiffPrinter;
+import com.amlinv.json.util.tape.JsonTape;
+
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.io.PrintWriter;
-import java.io.Reader;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 /**
  * Created by art on 7/6/16.
  */
-public class JsonFullUnifiedDiff {
+public class JsonFullUnifiedDiff implements JsonTool {
+
+  private final JsonInputSource inputSource = new JsonInputSource();
+
+  private boolean fingerprintEnabled = true;
+  private JsonFingerprinter fingerprinter;
+  private final KeyedArrayMatcher keyedArrayMatcher = new KeyedArrayMatcher();
+  private final MemberLayoutCache memberLayouts = new MemberLayoutCache();
+  private boolean tape = false;
 
   public static void main(String[] args) {
     new JsonFullUnifiedDiff().instanceMain(args);
   }
 
   public void instanceMain(String[] args) {
+    int status = this.execute(args, ToolContext.system());
+    if (status != 0) {
+      System.exit(status);
+    }
+  }
+
+  @Override
+  public int execute(String[] args, ToolContext context) {
+    context.configure(this.inputSource);
+
+    while ((args.length > 0) && (args[0].startsWith("--"))) {
+      String option = args[0];
+      args = Arrays.copyOfRange(args, 1, args.length);
+
+      if (option.equals("--no-fingerprint")) {
+        this.fingerprintEnabled = false;
+      } else if (option.equals("--tape")) {
+        this.tape = true;
+      } else if ((option.equals("--array-key")) && (args.length > 0)) {
+        this.addArrayKey(ArrayKeySpec.parse(args[0]));
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else {
+        return this.dumpUsage(context.getErr());
+      }
+    }
+
     if (args.length != 2) {
-      System.err.println("Usage: JsonFullUnifiedDiff <filename1> <filename2>");
-      System.err.println("Use filename - for standard input");
-      System.exit(1);
+      return this.dumpUsage(context.getErr());
     }
 
     try {
       String filename1 = args[0];
       String filename2 = args[1];
 
-      JsonElement first = this.parseInput(filename1);
-      JsonElement second = this.parseInput(filename2);
+      FullUnifiedJsonDiffPrinter printer = new FullUnifiedJsonDiffPrinter(context.getOut());
+
+      if (this.tape) {
+        JsonTape first = this.inputSource.parseTape(filename1);
+        JsonTape second = this.inputSource.parseTape(filename2);
 
-      this.diff(first, second, new PrintWriter(System.out));
+        this.diff(first, second, printer);
+      } else {
+        JsonElement first = this.inputSource.parse(filename1);
+        JsonElement second = this.inputSource.parse(filename2);
+
+        this.diff(first, second, printer);
+      }
+
+      printer.close();
     } catch (Exception exc) {
-      exc.printStackTrace();
-      System.exit(1);
+      exc.printStackTrace(context.getErr());
+      return 1;
     }
+
+    return 0;
   }
 
   public void diff(JsonElement first, JsonElement second, PrintWriter out) {
-    this.diffLevel(first, second, out, 0);
+    FullUnifiedJsonDiffPrinter printer = new FullUnifiedJsonDiffPrinter(out);
 
-    out.flush();
+    this.diff(first, second, printer);
+
+    printer.close();
   }
 
-//========================================
-// Internal Methods
-//----------------------------------------
+  /**
+   * Walk the differences between the two documents, passing them to the given sink in document
+   * order.
+   */
+  public void diff(JsonElement first, JsonElement second, JsonDiffEventSink sink) {
+    if (this.fingerprintEnabled) {
+      this.fingerprinter = new JsonFingerprinter();
+    }
 
-  private JsonElement parseInput(String filename) throws FileNotFoundException {
-    InputStream inputStream;
+    // Paths are only needed to select keyed arrays; skip building them otherwise
+    String rootPath = null;
+    if (!this.keyedArrayMatcher.isEmpty()) {
+      rootPath = "$";
+    }
 
-    if (filename.equals("-")) {
-      inputStream = System.in;
-    } else {
-      inputStream = new FileInputStream(filename);
+    try {
+      this.diffLevel(rootPath, first, second, sink);
+    } finally {
+      this.fingerprinter = null;
+    }
+  }
+
+  /**
+   * Walk the differences between two documents held as tapes, the same as for their trees.  The
+   * documents are walked on the tapes; only the values passed to the sink are converted into
+   * trees.
+   */
+  public void diff(JsonTape first, JsonTape second, JsonDiffEventSink sink) {
+    String rootPath = null;
+    if (!this.keyedArrayMatcher.isEmpty()) {
+      rootPath = "$";
+
+      // Keyed arrays go through the tree diff, where identical arrays keep their order
+      if (this.fingerprintEnabled) {
+        this.fingerprinter = new JsonFingerprinter();
+      }
+    }
+
+    try {
+      this.diffTapeLevel(rootPath, first, first.getRoot(), second, second.getRoot(), sink);
+    } finally {
+      this.fingerprinter = null;
     }
+  }
+
+  public boolean isFingerprintEnabled() {
+    return fingerprintEnabled;
+  }
 
-    Reader inputReader = new InputStreamReader(inputStream);
+  /**
+   * Enable printing of identical objects and arrays, as detected by their structural
+   * fingerprints, without comparing their content.  Enabled by default.
+   */
+  public void setFingerprintEnabled(boolean fingerprintEnabled) {
+    this.fingerprintEnabled = fingerprintEnabled;
+  }
 
-    return new JsonParser().parse(inputReader);
+  /**
+   * Match the elements of the arrays selected by the given key specification by their key field
+   * instead of by position.
+   */
+  public void addArrayKey(ArrayKeySpec arrayKey) {
+    this.keyedArrayMatcher.addArrayKey(arrayKey);
   }
 
-  private void diffLevel(JsonElement first, JsonElement second, PrintWriter out, int level) {
-    String prefix = this.createLevelPrefix(level);
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private int dumpUsage(PrintStream err) {
+    err.println("Usage: JsonFullUnifiedDiff [--no-fingerprint] [--tape]"
+                + " [--array-key <jsonpath>=<field>]... <filename1> <filename2>");
+    err.println("Use filename - for standard input");
+    err.println("--tape loads the documents into compact tapes instead of trees, using a"
+                + " fraction of the memory");
+    return 1;
+  }
+
+  private void diffLevel(String path, JsonElement first, JsonElement second,
+                         JsonDiffEventSink sink) {
+    if ((this.fingerprinter != null) && (this.fingerprinter.isSameContent(first, second))) {
+      sink.unchangedValue(first);
+      return;
+    }
 
     if (first.isJsonPrimitive()) {
       if ((!second.isJsonPrimitive() || (!first.equals(second)))) {
-        outputSimpleDiff(out, prefix, first, second);
+        sink.changedValue(first, second);
       } else {
-        out.println("  " + prefix + first);
+        sink.unchangedValue(first);
       }
     } else if (first.isJsonNull()) {
       if (!second.isJsonNull()) {
-        outputSimpleDiff(out, prefix, first, second);
+        sink.changedValue(first, second);
       } else {
-        out.println("  " + prefix + "null");
+        sink.unchangedValue(first);
       }
     } else if (first.isJsonObject()) {
       if (second.isJsonObject()) {
-        diffObjectsLevel(first, second, out, prefix, level);
+        diffObjectsLevel(path, first, second, sink);
       } else {
-        outputSimpleDiff(out, prefix, first, second);
+        sink.changedValue(first, second);
       }
     } else if (first.isJsonArray()) {
       if (second.isJsonArray()) {
-        diffArraysLevel(first, second, out, prefix, level);
+        diffArraysLevel(path, first, second, sink);
       } else {
-        outputSimpleDiff(out, prefix, first, second);
+        sink.changedValue(first, second);
       }
     } else {
-      outputSimpleDiff(out, prefix, first, second);
+      sink.changedValue(first, second);
     }
   }
 
-  private void diffObjectsLevel(JsonElement first, JsonElement second, PrintWriter out,
-                                String prefix, int level) {
+  private void diffObjectsLevel(String path, JsonElement first, JsonElement second,
+                                JsonDiffEventSink sink) {
     JsonObject firstObject = (JsonObject) first;
     JsonObject secondObject = (JsonObject) second;
 
-    Set<String> allMemberNames = new TreeSet<>();
-
-    firstObject.entrySet().stream().map(Map.Entry::getKey).forEach(allMemberNames::add);
-    secondObject.entrySet().stream().map(Map.Entry::getKey).forEach(allMemberNames::add);
-
-    out.println("  " + prefix + "{");
-
-    String valuePrefix = this.createLevelPrefix(level + 1);
-
-    int tot = allMemberNames.size();
-    int cur = 0;
-
-    for (String memberName : allMemberNames) {
-      cur++;
-      String optionalComma = "";
-      if (cur < tot) {
-        optionalComma = ",";
-      }
+    sink.startObject();
 
+    for (String memberName : this.memberLayouts.getMergedNames(firstObject, secondObject)) {
       JsonElement firstChild = firstObject.get(memberName);
       JsonElement secondChild = secondObject.get(memberName);
 
+      sink.startMember(memberName);
+
       if (firstChild == null) {
-        out.println("+ " + valuePrefix + "\"" + memberName + "\": " + secondChild + optionalComma);
+        sink.addedValue(secondChild);
       } else if (secondChild == null) {
-        out.println("- " + valuePrefix + "\"" + memberName + "\": " + firstChild + optionalComma);
+        sink.removedValue(firstChild);
       } else {
-        out.println("  " + valuePrefix + "\"" + memberName + "\":");
-
-        diffLevel(firstChild, secondChild, out, level + 1);
-        if (cur < tot) {
-          out.println("  " + valuePrefix + ",");
-        }
+        diffLevel(this.memberPath(path, memberName), firstChild, secondChild, sink);
       }
     }
 
-    out.println("  " + prefix + "}");
+    sink.finishObject();
   }
 
-  private void diffArraysLevel(JsonElement first, JsonElement second, PrintWriter out,
-                               String prefix, int level) {
+  private void diffArraysLevel(String path, JsonElement first, JsonElement second,
+                               JsonDiffEventSink sink) {
     JsonArray firstArray = (JsonArray) first;
     JsonArray secondArray = (JsonArray) second;
 
-    JsonArray biggerArray;
-    String direction;
-
-    int minSize = firstArray.size();
-    int maxSize = firstArray.size();
-    if (secondArray.size() > maxSize) {
-      direction = "+ ";
-      biggerArray = secondArray;
-      maxSize = secondArray.size();
-    } else {
-      direction = "- ";
-      biggerArray = firstArray;
-      minSize = secondArray.size();
+    if (path != null) {
+      String keyField = this.keyedArrayMatcher.findKeyField(path);
+      if (keyField != null) {
+        this.diffKeyedArraysLevel(path, firstArray, secondArray, keyField, sink);
+        return;
+      }
     }
 
-    out.println("  " + prefix + "[");
-    String valuePrefix = this.createLevelPrefix(level + 1);
+    int minSize = Math.min(firstArray.size(), secondArray.size());
+
+    sink.startArray();
 
     int cur = 0;
     while (cur < minSize) {
       JsonElement firstEle = firstArray.get(cur);
       JsonElement secondEle = secondArray.get(cur);
 
-      this.diffLevel(firstEle, secondEle, out, level + 1);
+      sink.startArrayMember();
+      this.diffLevel(this.indexPath(path, cur), firstEle, secondEle, sink);
 
-      if (cur < (maxSize - 1)) {
-        out.println("  " + valuePrefix + ",");
-      }
+      cur++;
+    }
+
+    while (cur < firstArray.size()) {
+      sink.startArrayMember();
+      sink.removedValue(firstArray.get(cur));
 
       cur++;
     }
 
-    while (cur < maxSize) {
-      String optionalComma = "";
-      if (cur < (maxSize - 1)) {
-        optionalComma = ",";
+    while (cur < secondArray.size()) {
+      sink.startArrayMember();
+      sink.addedValue(secondArray.get(cur));
+
+      cur++;
+    }
+
+    sink.finishArray();
+  }
+
+  /**
+   * Diff two arrays whose elements are matched by a key field.  Elements are listed in the order
+   * of the first array, followed by the elements only present in the second array.
+   */
+  private void diffKeyedArraysLevel(String path, JsonArray firstArray, JsonArray secondArray,
+                                    String keyField, JsonDiffEventSink sink) {
+    List<ArrayEdit> edits = this.keyedArrayMatcher.match(firstArray, secondArray, keyField);
+
+    sink.startArray();
+
+    for (ArrayEdit edit : edits) {
+      sink.startArrayMember();
+
+      switch (edit.getType()) {
+        case CHANGE:
+          this.diffLevel(this.indexPath(path, edit.getFirstIndex()),
+                         firstArray.get(edit.getFirstIndex()),
+                         secondArray.get(edit.getSecondIndex()), sink);
+          break;
+
+        case DELETE:
+          sink.removedValue(firstArray.get(edit.getFirstIndex()));
+          break;
+
+        case INSERT:
+          sink.addedValue(secondArray.get(edit.getSecondIndex()));
+          break;
       }
+    }
 
-      out.println(direction + valuePrefix + biggerArray.get(cur) + optionalComma);
+    sink.finishArray();
+  }
 
-      cur++;
+  private void diffTapeLevel(String path, JsonTape first, long firstNode, JsonTape second,
+                             long secondNode, JsonDiffEventSink sink) {
+    JsonTape.Type firstType = first.getType(firstNode);
+    JsonTape.Type secondType = second.getType(secondNode);
+
+    if ((firstType == JsonTape.Type.OBJECT) && (secondType == JsonTape.Type.OBJECT)) {
+      this.diffTapeObjectsLevel(path, first, firstNode, second, secondNode, sink);
+    } else if ((firstType == JsonTape.Type.ARRAY) && (secondType == JsonTape.Type.ARRAY)) {
+      this.diffTapeArraysLevel(path, first, firstNode, second, secondNode, sink);
+    } else if ((!first.isContainer(firstNode)) && (!second.isContainer(secondNode)) &&
+               (this.isSamePrimitive(first, firstNode, second, secondNode))) {
+      sink.unchangedValue(first.toJsonElement(firstNode));
+    } else {
+      sink.changedValue(first.toJsonElement(firstNode), second.toJsonElement(secondNode));
+    }
+  }
+
+  private void diffTapeObjectsLevel(String path, JsonTape first, long firstNode, JsonTape second,
+                                    long secondNode, JsonDiffEventSink sink) {
+    Map<String, Long> firstMembers = new TreeMap<>();
+    first.forEachMember(firstNode, firstMembers::put);
+
+    Map<String, Long> secondMembers = new TreeMap<>();
+    second.forEachMember(secondNode, secondMembers::put);
+
+    Set<String> allMemberNames = new TreeSet<>(firstMembers.keySet());
+    allMemberNames.addAll(secondMembers.keySet());
+
+    sink.startObject();
+
+    for (String memberName : allMemberNames) {
+      Long firstChild = firstMembers.get(memberName);
+      Long secondChild = secondMembers.get(memberName);
+
+      sink.startMember(memberName);
+
+      if (firstChild == null) {
+        sink.addedValue(second.toJsonElement(secondChild));
+      } else if (secondChild == null) {
+        sink.removedValue(first.toJsonElement(firstChild));
+      } else {
+        this.diffTapeLevel(this.memberPath(path, memberName), first, firstChild, second,
+                           secondChild, sink);
+      }
     }
 
-    out.println("  " + prefix + "]");
+    sink.finishObject();
   }
 
-  private void outputSimpleDiff(PrintWriter out, String prefix, JsonElement first,
-                                JsonElement second) {
+  private void diffTapeArraysLevel(String path, JsonTape first, long firstNode, JsonTape second,
+                                   long secondNode, JsonDiffEventSink sink) {
+    if (path != null) {
+      String keyField = this.keyedArrayMatcher.findKeyField(path);
+      if (keyField != null) {
+        this.diffLevel(path, first.toJsonElement(firstNode), second.toJsonElement(secondNode),
+                       sink);
+
+        // The converted arrays are discarded; so are their fingerprints
+        if (this.fingerprinter != null) {
+          this.fingerprinter.clear();
+        }
+        return;
+      }
+    }
+
+    long firstEnd = first.next(firstNode);
+    long secondEnd = second.next(secondNode);
+    long firstChild = first.firstChild(firstNode);
+    long secondChild = second.firstChild(secondNode);
+
+    sink.startArray();
+
+    int index = 0;
+    while ((firstChild < firstEnd) && (secondChild < secondEnd)) {
+      sink.startArrayMember();
+      this.diffTapeLevel(this.indexPath(path, index), first, firstChild, second, secondChild,
+                         sink);
+
+      firstChild = first.next(firstChild);
+      secondChild = second.next(secondChild);
+      index++;
+    }
+
+    while (firstChild < firstEnd) {
+      sink.startArrayMember();
+      sink.removedValue(first.toJsonElement(firstChild));
 
-    out.println("- " + prefix + first);
-    out.println("+ " + prefix + second);
+      firstChild = first.next(firstChild);
+    }
+
+    while (secondChild < secondEnd) {
+      sink.startArrayMember();
+      sink.addedValue(second.toJsonElement(secondChild));
+
+      secondChild = second.next(secondChild);
+    }
+
+    sink.finishArray();
   }
 
-  private String createLevelPrefix(int level) {
-    char[] chars = new char[level * 4];
+  /**
+   * Compare two primitives the way JsonPrimitive.equals() does, which for numbers with different
+   * text means by their double value.
+   */
+  private boolean isSamePrimitive(JsonTape first, long firstNode, JsonTape second,
+                                  long secondNode) {
+    if (first.isSamePrimitive(firstNode, second, secondNode)) {
+      return true;
+    }
 
-    Arrays.fill(chars, ' ');
+    return (first.getType(firstNode) == JsonTape.Type.NUMBER) &&
+           (second.getType(secondNode) == JsonTape.Type.NUMBER) &&
+           (first.toJsonElement(firstNode).equals(second.toJsonElement(secondNode)));
+  }
+
+  private String memberPath(String path, String memberName) {
+    if (path == null) {
+      return null;
+    }
+
+    return ArrayKeySpec.memberPath(path, memberName);
+  }
+
+  private String indexPath(String path, int index) {
+    if (path == null) {
+      return null;
+    }
 
-    return new String(chars);
+    return path + "[" + index + "]";
   }
 }
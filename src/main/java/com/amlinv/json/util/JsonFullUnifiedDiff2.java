@@ -19,215 +19,166 @@
 
 package com.amlinv.json.util;
 
+import com.amlinv.json.util.diff.JsonDiffEventSink;
+import com.amlinv.json.util.diff.MemberLayoutCache;
+import com.amlinv.json.util.input.JsonInputSource;
+import com.amlinv.json.util.output.FullUnifiedJsonDiffPrinter;
+
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.PrintWriter;
-import java.io.Reader;
-import java.util.Arrays;
-import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * Created by art on 7/6/16.
  */
-public class JsonFullUnifiedDiff2 {
+public class JsonFullUnifiedDiff2 implements JsonTool {
+
+  private final JsonInputSource inputSource = new JsonInputSource();
+  private final MemberLayoutCache memberLayouts = new MemberLayoutCache();
 
   public static void main(String[] args) {
     new JsonFullUnifiedDiff2().instanceMain(args);
   }
 
   public void instanceMain(String[] args) {
+    int status = this.execute(args, ToolContext.system());
+    if (status != 0) {
+      System.exit(status);
+    }
+  }
+
+  @Override
+  public int execute(String[] args, ToolContext context) {
+    context.configure(this.inputSource);
+
     if (args.length != 2) {
-      System.err.println("Usage: JsonFullUnifiedDiff2 <filename1> <filename2>");
-      System.err.println("Use filename - for standard input");
-      System.exit(1);
+      context.getErr().println("Usage: JsonFullUnifiedDiff2 <filename1> <filename2>");
+      context.getErr().println("Use filename - for standard input");
+      return 1;
     }
 
     try {
       String filename1 = args[0];
       String filename2 = args[1];
 
-      JsonElement first = this.parseInput(filename1);
-      JsonElement second = this.parseInput(filename2);
+      JsonElement first = this.inputSource.parse(filename1);
+      JsonElement second = this.inputSource.parse(filename2);
 
-      this.diff(first, second, new PrintWriter(System.out));
+      FullUnifiedJsonDiffPrinter printer = new FullUnifiedJsonDiffPrinter(context.getOut());
+
+      this.diff(first, second, printer);
+
+      printer.close();
     } catch (Exception exc) {
-      exc.printStackTrace();
-      System.exit(1);
+      exc.printStackTrace(context.getErr());
+      return 1;
     }
+
+    return 0;
   }
 
   public void diff(JsonElement first, JsonElement second, PrintWriter out) {
-    this.diffLevel(first, second, out, 0);
+    FullUnifiedJsonDiffPrinter printer = new FullUnifiedJsonDiffPrinter(out);
+
+    this.diff(first, second, printer);
+
+    printer.close();
+  }
 
-    out.flush();
+  public void diff(JsonElement first, JsonElement second, JsonDiffEventSink sink) {
+    this.diffLevel(first, second, sink);
   }
 
 //========================================
 // Internal Methods
 //----------------------------------------
 
-  private JsonElement parseInput(String filename) throws FileNotFoundException {
-    InputStream inputStream;
-
-    if (filename.equals("-")) {
-      inputStream = System.in;
-    } else {
-      inputStream = new FileInputStream(filename);
-    }
-
-    Reader inputReader = new InputStreamReader(inputStream);
-
-    return new JsonParser().parse(inputReader);
-  }
-
-  private void diffLevel(JsonElement first, JsonElement second, PrintWriter out, int level) {
-    String prefix = this.createLevelPrefix(level);
-
+  private void diffLevel(JsonElement first, JsonElement second, JsonDiffEventSink sink) {
     if (first.isJsonPrimitive()) {
       if ((!second.isJsonPrimitive() || (!first.equals(second)))) {
-        outputSimpleDiff(out, prefix, first, second);
+        sink.changedValue(first, second);
       } else {
-        out.println("  " + prefix + first);
+        sink.unchangedValue(first);
       }
     } else if (first.isJsonNull()) {
       if (!second.isJsonNull()) {
-        outputSimpleDiff(out, prefix, first, second);
+        sink.changedValue(first, second);
       } else {
-        out.println("  " + prefix + "null");
+        sink.unchangedValue(first);
       }
     } else if (first.isJsonObject()) {
       if (second.isJsonObject()) {
-        diffObjectsLevel(first, second, out, prefix, level);
+        diffObjectsLevel(first, second, sink);
       } else {
-        outputSimpleDiff(out, prefix, first, second);
+        sink.changedValue(first, second);
       }
     } else if (first.isJsonArray()) {
       if (second.isJsonArray()) {
-        diffArraysLevel(first, second, out, prefix, level);
+        diffArraysLevel(first, second, sink);
       } else {
-        outputSimpleDiff(out, prefix, first, second);
+        sink.changedValue(first, second);
       }
     } else {
-      outputSimpleDiff(out, prefix, first, second);
+      sink.changedValue(first, second);
     }
   }
 
-  private void diffObjectsLevel(JsonElement first, JsonElement second, PrintWriter out,
-                                String prefix, int level) {
+  private void diffObjectsLevel(JsonElement first, JsonElement second, JsonDiffEventSink sink) {
     JsonObject firstObject = (JsonObject) first;
     JsonObject secondObject = (JsonObject) second;
 
-    Set<String> allMemberNames = new TreeSet<>();
-
-    firstObject.entrySet().stream().map(Map.Entry::getKey).forEach(allMemberNames::add);
-    secondObject.entrySet().stream().map(Map.Entry::getKey).forEach(allMemberNames::add);
-
-    out.println("  " + prefix + "{");
-
-    String valuePrefix = this.createLevelPrefix(level + 1);
-
-    int tot = allMemberNames.size();
-    int cur = 0;
-
-    for (String memberName : allMemberNames) {
-      cur++;
-      String optionalComma = "";
-      if (cur < tot) {
-        optionalComma = ",";
-      }
+    sink.startObject();
 
+    for (String memberName : this.memberLayouts.getMergedNames(firstObject, secondObject)) {
       JsonElement firstChild = firstObject.get(memberName);
       JsonElement secondChild = secondObject.get(memberName);
 
+      sink.startMember(memberName);
+
       if (firstChild == null) {
-        out.println("+ " + valuePrefix + "\"" + memberName + "\": " + secondChild + optionalComma);
+        sink.addedValue(secondChild);
       } else if (secondChild == null) {
-        out.println("- " + valuePrefix + "\"" + memberName + "\": " + firstChild + optionalComma);
+        sink.removedValue(firstChild);
       } else {
-        out.println("  " + valuePrefix + "\"" + memberName + "\":");
-
-        diffLevel(firstChild, secondChild, out, level + 1);
-        if (cur < tot) {
-          out.println("  " + valuePrefix + ",");
-        }
+        diffLevel(firstChild, secondChild, sink);
       }
     }
 
-    out.println("  " + prefix + "}");
+    sink.finishObject();
   }
 
-  private void diffArraysLevel(JsonElement first, JsonElement second, PrintWriter out,
-                               String prefix, int level) {
+  private void diffArraysLevel(JsonElement first, JsonElement second, JsonDiffEventSink sink) {
     JsonArray firstArray = (JsonArray) first;
     JsonArray secondArray = (JsonArray) second;
 
-    JsonArray biggerArray;
-    String direction;
+    int minSize = Math.min(firstArray.size(), secondArray.size());
 
-    int minSize = firstArray.size();
-    int maxSize = firstArray.size();
-    if (secondArray.size() > maxSize) {
-      direction = "+ ";
-      biggerArray = secondArray;
-      maxSize = secondArray.size();
-    } else {
-      direction = "- ";
-      biggerArray = firstArray;
-      minSize = secondArray.size();
-    }
-
-    out.println("  " + prefix + "[");
-    String valuePrefix = this.createLevelPrefix(level + 1);
+    sink.startArray();
 
     int cur = 0;
     while (cur < minSize) {
-      JsonElement firstEle = firstArray.get(cur);
-      JsonElement secondEle = secondArray.get(cur);
-
-      this.diffLevel(firstEle, secondEle, out, level + 1);
-
-      if (cur < (maxSize - 1)) {
-        out.println("  " + valuePrefix + ",");
-      }
+      sink.startArrayMember();
+      this.diffLevel(firstArray.get(cur), secondArray.get(cur), sink);
 
       cur++;
     }
 
-    while (cur < maxSize) {
-      String optionalComma = "";
-      if (cur < (maxSize - 1)) {
-        optionalComma = ",";
-      }
-
-      out.println(direction + valuePrefix + biggerArray.get(cur) + optionalComma);
+    while (cur < firstArray.size()) {
+      sink.startArrayMember();
+      sink.removedValue(firstArray.get(cur));
 
       cur++;
     }
 
-    out.println("  " + prefix + "]");
-  }
-
-  private void outputSimpleDiff(PrintWriter out, String prefix, JsonElement first,
-                                JsonElement second) {
+    while (cur < secondArray.size()) {
+      sink.startArrayMember();
+      sink.addedValue(secondArray.get(cur));
 
-    out.println("- " + prefix + first);
-    out.println("+ " + prefix + second);
-  }
-
-  private String createLevelPrefix(int level) {
-    char[] chars = new char[level * 4];
-
-    Arrays.fill(chars, ' ');
+      cur++;
+    }
 
-    return new String(chars);
+    sink.finishArray();
   }
 }
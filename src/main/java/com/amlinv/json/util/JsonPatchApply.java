@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util;
+
+import com.amlinv.json.util.input.JsonInputSource;
+import com.amlinv.json.util.output.Utf8OutputWriter;
+import com.amlinv.json.util.patch.JsonPatchException;
+import com.amlinv.json.util.patch.JsonPatchOperation;
+import com.amlinv.json.util.patch.JsonPatchTree;
+import com.amlinv.json.util.patch.StreamingJsonPatcher;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Applies an RFC 6902 JSON Patch, such as the output of JsonDiff --json-patch, to a document and
+ * writes the result.  The document is streamed through the patch, so it is never held in memory
+ * as a whole.
+ */
+public class JsonPatchApply implements JsonTool {
+
+  private final JsonInputSource inputSource = new JsonInputSource();
+
+  public static void main(String[] args) {
+    new JsonPatchApply().instanceMain(args);
+  }
+
+  public void instanceMain(String[] args) {
+    int status = this.execute(args, ToolContext.system());
+    if (status != 0) {
+      System.exit(status);
+    }
+  }
+
+  @Override
+  public int execute(String[] args, ToolContext context) {
+    context.configure(this.inputSource);
+
+    boolean inMemory = false;
+
+    while ((args.length > 0) && (args[0].startsWith("--"))) {
+      String option = args[0];
+      args = Arrays.copyOfRange(args, 1, args.length);
+
+      if (option.equals("--in-memory")) {
+        inMemory = true;
+      } else {
+        return this.dumpUsage(context.getErr());
+      }
+    }
+
+    if ((args.length != 2) || ((args[0].equals("-")) && (args[1].equals("-")))) {
+      return this.dumpUsage(context.getErr());
+    }
+
+    try {
+      List<JsonPatchOperation> patch =
+          JsonPatchOperation.parsePatch(this.inputSource.parse(args[0]));
+
+      Writer writer = new Utf8OutputWriter(context.getOut());
+      JsonWriter out = new JsonWriter(writer);
+      out.setLenient(true);
+
+      if (inMemory) {
+        JsonElement result = new JsonPatchTree().apply(this.inputSource.parse(args[1]), patch);
+        if (result == null) {
+          throw new JsonPatchException("patch removes the whole document");
+        }
+
+        // Keep null members and write markup characters as they are, as the streaming path does
+        new GsonBuilder().serializeNulls().disableHtmlEscaping().create().toJson(result, out);
+      } else {
+        try (JsonReader in = new JsonReader(this.inputSource.openReader(args[1]))) {
+          in.setLenient(true);
+
+          new StreamingJsonPatcher().apply(in, out, patch);
+        }
+      }
+
+      writer.write(System.lineSeparator());
+      writer.flush();
+    } catch (Exception exc) {
+      exc.printStackTrace(context.getErr());
+      return 1;
+    }
+
+    return 0;
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private int dumpUsage(PrintStream err) {
+    err.println("Usage: JsonPatchApply [--in-memory] <patch-filename> <filename>");
+    err.println("Use filename - for standard input, for at most one of the two");
+    err.println("--in-memory applies the patch to the fully loaded document, for patches that"
+                + " move values backwards across the document");
+    return 1;
+  }
+}
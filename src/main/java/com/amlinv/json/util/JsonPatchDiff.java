@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util;
+
+import com.amlinv.json.util.diff.ArrayEdit;
+import com.amlinv.json.util.diff.ArrayKeySpec;
+import com.amlinv.json.util.diff.JsonFingerprinter;
+import com.amlinv.json.util.diff.KeyedArrayMatcher;
+import com.amlinv.json.util.diff.MemberLayoutCache;
+import com.amlinv.json.util.diff.MyersArrayAligner;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Diff of two JSON documents written as an RFC 6902 JSON Patch that turns the first document
+ * into the second.  Operations are written as the walk finds them, so the patch is streamed
+ * rather than built in memory.
+ *
+ * Arrays are compared by index, with the array aligner, or by key field, following the settings
+ * of the given JsonDiff.  Array indexes in the patch account for the operations before them, so
+ * the patch applies in order; keyed elements that changed position become move operations.
+ */
+public class JsonPatchDiff {
+
+  private final JsonDiff treeDiff;
+  private JsonFingerprinter fingerprinter;
+  private final MemberLayoutCache memberLayouts = new MemberLayoutCache();
+  private long operationCount;
+
+  public JsonPatchDiff(JsonDiff treeDiff) {
+    this.treeDiff = treeDiff;
+  }
+
+  public void diff(JsonElement first, JsonElement second, PrintWriter out) {
+    if ((this.treeDiff.isFingerprintEnabled()) || (this.treeDiff.getArrayAligner() != null)) {
+      this.fingerprinter = new JsonFingerprinter();
+    }
+
+    // JSONPath-style paths are only needed to select keyed arrays; skip building them otherwise
+    String rootPath = null;
+    if (!this.treeDiff.getKeyedArrayMatcher().isEmpty()) {
+      rootPath = "$";
+    }
+
+    this.operationCount = 0;
+
+    out.print("[");
+
+    try {
+      this.diffLevel(rootPath, "", first, second, out);
+    } finally {
+      this.fingerprinter = null;
+    }
+
+    if (this.operationCount > 0) {
+      out.println();
+    }
+    out.println("]");
+
+    out.flush();
+  }
+
+  /**
+   * @return number of operations written by the last diff.
+   */
+  public long getOperationCount() {
+    return operationCount;
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void diffLevel(String path, String pointer, JsonElement first, JsonElement second,
+                         PrintWriter out) {
+    if ((this.treeDiff.isFingerprintEnabled()) && (this.fingerprinter != null) &&
+        (this.fingerprinter.isSameContent(first, second))) {
+      return;
+    }
+
+    if ((first.isJsonObject()) && (second.isJsonObject())) {
+      this.diffObjectsLevel(path, pointer, (JsonObject) first, (JsonObject) second, out);
+    } else if ((first.isJsonArray()) && (second.isJsonArray())) {
+      this.diffArraysLevel(path, pointer, (JsonArray) first, (JsonArray) second, out);
+    } else if (!this.treeDiff.isSameValue(first, second)) {
+      this.writeOperation(out, "replace", pointer, second);
+    }
+  }
+
+  private void diffObjectsLevel(String path, String pointer, JsonObject first, JsonObject second,
+                                PrintWriter out) {
+    for (String memberName : this.memberLayouts.getMergedNames(first, second)) {
+      JsonElement firstChild = first.get(memberName);
+      JsonElement secondChild = second.get(memberName);
+
+      String childPointer = pointer + "/" + this.escapePointerSegment(memberName);
+
+      if (firstChild == null) {
+        this.writeOperation(out, "add", childPointer, secondChild);
+      } else if (secondChild == null) {
+        this.writeOperation(out, "remove", childPointer, null);
+      } else {
+        this.diffLevel(this.memberPath(path, memberName), childPointer, firstChild, secondChild,
+                       out);
+      }
+    }
+  }
+
+  private void diffArraysLevel(String path, String pointer, JsonArray first, JsonArray second,
+                               PrintWriter out) {
+    if (path != null) {
+      KeyedArrayMatcher keyedArrayMatcher = this.treeDiff.getKeyedArrayMatcher();
+
+      String keyField = keyedArrayMatcher.findKeyField(path);
+      if (keyField != null) {
+        List<ArrayEdit> edits = keyedArrayMatcher.match(first, second, keyField);
+        this.diffKeyedArraysLevel(path, pointer, first, second, edits, out);
+        return;
+      }
+    }
+
+    MyersArrayAligner arrayAligner = this.treeDiff.getArrayAligner();
+    if ((arrayAligner != null) && (this.fingerprinter != null)) {
+      List<ArrayEdit> edits = arrayAligner.align(first, second, this.fingerprinter);
+
+      if (edits != null) {
+        this.diffAlignedArraysLevel(path, pointer, first, second, edits, out);
+        return;
+      }
+    }
+
+    int minSize = Math.min(first.size(), second.size());
+
+    int cur = 0;
+    while (cur < minSize) {
+      this.diffLevel(this.indexPath(path, cur), pointer + "/" + cur, first.get(cur),
+                     second.get(cur), out);
+      cur++;
+    }
+
+    // Remove from the end so the indexes of the elements still to be removed do not move
+    cur = first.size() - 1;
+    while (cur >= minSize) {
+      this.writeOperation(out, "remove", pointer + "/" + cur, null);
+      cur--;
+    }
+
+    cur = minSize;
+    while (cur < second.size()) {
+      this.writeOperation(out, "add", pointer + "/" + cur, second.get(cur));
+      cur++;
+    }
+  }
+
+  /**
+   * Aligned edits are in array order, so an element of the first array sits at its original
+   * index shifted by the insertions and removals before it.
+   */
+  private void diffAlignedArraysLevel(String path, String pointer, JsonArray first,
+                                      JsonArray second, List<ArrayEdit> edits, PrintWriter out) {
+    int shift = 0;
+
+    for (ArrayEdit edit : edits) {
+      switch (edit.getType()) {
+        case CHANGE:
+          this.diffLevel(this.indexPath(path, edit.getFirstIndex()),
+                         pointer + "/" + edit.getSecondIndex(),
+                         first.get(edit.getFirstIndex()), second.get(edit.getSecondIndex()), out);
+          break;
+
+        case DELETE:
+          this.writeOperation(out, "remove", pointer + "/" + (edit.getFirstIndex() + shift), null);
+          shift--;
+          break;
+
+        case INSERT:
+          this.writeOperation(out, "add", pointer + "/" + edit.getSecondIndex(),
+                              second.get(edit.getSecondIndex()));
+          shift++;
+          break;
+      }
+    }
+  }
+
+  /**
+   * Unmatched elements of the first array are removed first.  The second array is then built up
+   * from the front: each position either receives an added element, or the matched element is
+   * moved there when other matched elements still precede it.  The number of remaining matched
+   * elements before a given one is kept in a Fenwick tree over the first array's indexes.
+   */
+  private void diffKeyedArraysLevel(String path, String pointer, JsonArray first,
+                                    JsonArray second, List<ArrayEdit> edits, PrintWriter out) {
+    int[] secondToFirst = new int[second.size()];
+    Arrays.fill(secondToFirst, -1);
+
+    int[] remaining = new int[first.size() + 1];
+
+    int cur = edits.size() - 1;
+    while (cur >= 0) {
+      ArrayEdit edit = edits.get(cur);
+
+      if (edit.getType() == ArrayEdit.Type.DELETE) {
+        this.writeOperation(out, "remove", pointer + "/" + edit.getFirstIndex(), null);
+      } else if (edit.getType() == ArrayEdit.Type.CHANGE) {
+        secondToFirst[edit.getSecondIndex()] = edit.getFirstIndex();
+        this.updateFenwick(remaining, edit.getFirstIndex(), 1);
+      }
+
+      cur--;
+    }
+
+    cur = 0;
+    while (cur < second.size()) {
+      int firstIndex = secondToFirst[cur];
+      String childPointer = pointer + "/" + cur;
+
+      if (firstIndex < 0) {
+        this.writeOperation(out, "add", childPointer, second.get(cur));
+      } else {
+        int before = this.sumFenwick(remaining, firstIndex);
+        if (before > 0) {
+          this.writeMove(out, pointer + "/" + (cur + before), childPointer);
+        }
+
+        this.updateFenwick(remaining, firstIndex, -1);
+
+        this.diffLevel(this.indexPath(path, firstIndex), childPointer, first.get(firstIndex),
+                       second.get(cur), out);
+      }
+
+      cur++;
+    }
+  }
+
+  private void updateFenwick(int[] tree, int index, int delta) {
+    int pos = index + 1;
+    while (pos < tree.length) {
+      tree[pos] += delta;
+      pos += pos & (-pos);
+    }
+  }
+
+  /**
+   * @return sum of the entries before the given index.
+   */
+  private int sumFenwick(int[] tree, int index) {
+    int sum = 0;
+    int pos = index;
+    while (pos > 0) {
+      sum += tree[pos];
+      pos -= pos & (-pos);
+    }
+
+    return sum;
+  }
+
+  private void writeOperation(PrintWriter out, String op, String pointer, JsonElement value) {
+    this.startOperation(out);
+
+    out.print("{\"op\":\"");
+    out.print(op);
+    out.print("\",\"path\":");
+    out.print(new JsonPrimitive(pointer));
+    if (value != null) {
+      out.print(",\"value\":");
+      out.print(value);
+    }
+    out.print("}");
+  }
+
+  private void writeMove(PrintWriter out, String from, String pointer) {
+    this.startOperation(out);
+
+    out.print("{\"op\":\"move\",\"from\":");
+    out.print(new JsonPrimitive(from));
+    out.print(",\"path\":");
+    out.print(new JsonPrimitive(pointer));
+    out.print("}");
+  }
+
+  private void startOperation(PrintWriter out) {
+    if (this.operationCount > 0) {
+      out.print(",");
+    }
+    out.println();
+    out.print("  ");
+
+    this.operationCount++;
+  }
+
+  private String escapePointerSegment(String name) {
+    if ((name.indexOf('~') < 0) && (name.indexOf('/') < 0)) {
+      return name;
+    }
+
+    return name.replace("~", "~0").replace("/", "~1");
+  }
+
+  private String memberPath(String path, String memberName) {
+    if (path == null) {
+      return null;
+    }
+
+    return ArrayKeySpec.memberPath(path, memberName);
+  }
+
+  private String indexPath(String path, int index) {
+    if (path == null) {
+      return null;
+    }
+
+    return path + "[" + index + "]";
+  }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util;
+
+import com.amlinv.json.util.diff.ArrayKeySpec;
+import com.amlinv.json.util.diff.MyersArrayAligner;
+import com.amlinv.json.util.patch.JsonPatchOperation;
+import com.amlinv.json.util.patch.JsonPatchTree;
+import com.amlinv.json.util.patch.StreamingJsonPatcher;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the JSON Patch written for two documents turns the first into the second, applied
+ * in memory and streamed.
+ */
+public class JsonPatchDiffTest {
+
+  // Pointers escape ~ and /; JSONPath-style paths quote the rest
+  private static final String[] NAMES = { "a", "b", "id", "a/b", "m~n", "~1", "/", "", "it's" };
+
+  private static final String[] NUMBERS = { "0", "1", "1.0", "2", "-3.5", "1e2" };
+
+  private JsonParser parser;
+  private Random random;
+
+  /**
+   * Setup common test data and interactions.
+   */
+  @Before
+  public void setupTest() throws Exception {
+    this.parser = new JsonParser();
+    this.random = new Random(42);
+  }
+
+  @Test
+  public void testIdenticalDocuments() {
+    String document = "{\"a\": [1, {\"b\": null}], \"c\": \"d\"}";
+
+    assertEquals("[]" + System.lineSeparator(), this.diff(new JsonDiff(), document, document));
+  }
+
+  @Test
+  public void testOperations() {
+    String expected = String.join(System.lineSeparator(),
+        "[",
+        "  {\"op\":\"replace\",\"path\":\"/a~1b\",\"value\":2},",
+        "  {\"op\":\"replace\",\"path\":\"/m~0n/0\",\"value\":2},",
+        "  {\"op\":\"remove\",\"path\":\"/m~0n/1\"},",
+        "  {\"op\":\"add\",\"path\":\"/q\",\"value\":null},",
+        "  {\"op\":\"remove\",\"path\":\"/x/y\"}",
+        "]",
+        "");
+
+    assertEquals(expected,
+                 this.diff(new JsonDiff(), "{\"a/b\":1,\"m~n\":[1,2],\"x\":{\"y\":\"z\"}}",
+                           "{\"a/b\":2,\"m~n\":[2],\"x\":{},\"q\":null}"));
+  }
+
+  @Test
+  public void testEscapedNames() throws IOException {
+    this.assertRoundTrip(JsonDiff::new,
+                         "{\"~\": 1, \"/\": {\"~1\": [1, 2]}, \"\": {\"a/b~c\": 3}}",
+                         "{\"~\": 2, \"/\": {\"~1\": [1]}, \"\": {\"a/b~c\": 4, \"~0/\": 5}}");
+  }
+
+  @Test
+  public void testArraysByIndex() throws IOException {
+    this.assertRoundTrip(JsonDiff::new, "[1, 2, 3, 4]", "[0, 1, 2]");
+    this.assertRoundTrip(JsonDiff::new, "[1]", "[1, [2], {\"a\": 3}]");
+    this.assertRoundTrip(JsonDiff::new, "{\"a\": [1, 2]}", "{\"a\": {\"0\": 1}}");
+  }
+
+  @Test
+  public void testAlignedArrays() throws IOException {
+    Supplier<JsonDiff> aligned = this.aligned();
+
+    this.assertRoundTrip(aligned, "[1, 2, 3, 4, 5]", "[0, 1, 3, 4, 6, 5]");
+    this.assertRoundTrip(aligned, "[{\"a\": 1}, {\"b\": 2}]", "[{\"b\": 2}, {\"a\": 1}]");
+
+    // Inserting at the front is one add, rather than rewriting every element
+    String patch = this.diff(aligned.get(), "[1, 2, 3, 4, 5]", "[0, 1, 2, 3, 4, 5]");
+    assertEquals(1, this.parser.parse(patch).getAsJsonArray().size());
+  }
+
+  @Test
+  public void testKeyedArrays() throws IOException {
+    Supplier<JsonDiff> keyed = this.keyed();
+
+    this.assertRoundTrip(keyed, "{\"k\": [{\"id\": 1, \"v\": 1}, {\"id\": 2}, {\"id\": 3}]}",
+                         "{\"k\": [{\"id\": 3}, {\"id\": 1, \"v\": 2}, {\"id\": 4}]}");
+
+    // Duplicate keys pair in order; elements without a key pair in order among themselves
+    this.assertRoundTrip(keyed, "{\"k\": [{\"id\": 1, \"v\": 1}, 7, {\"id\": 1, \"v\": 2}, 8]}",
+                         "{\"k\": [8, {\"id\": 1, \"v\": 2}, {\"id\": 1, \"v\": 1}, 9, 7]}");
+  }
+
+  @Test
+  public void testGeneratedDocumentsByIndex() throws IOException {
+    this.assertGeneratedRoundTrip(JsonDiff::new);
+  }
+
+  @Test
+  public void testGeneratedDocumentsWithoutFingerprints() throws IOException {
+    this.assertGeneratedRoundTrip(() -> {
+      JsonDiff result = new JsonDiff();
+      result.setFingerprintEnabled(false);
+      return result;
+    });
+  }
+
+  @Test
+  public void testGeneratedDocumentsWithAlignedArrays() throws IOException {
+    this.assertGeneratedRoundTrip(this.aligned());
+  }
+
+  @Test
+  public void testGeneratedDocumentsWithKeyedArrays() throws IOException {
+    this.assertGeneratedRoundTrip(this.keyed());
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private Supplier<JsonDiff> aligned() {
+    return () -> {
+      JsonDiff result = new JsonDiff();
+      result.setArrayAligner(new MyersArrayAligner());
+      return result;
+    };
+  }
+
+  private Supplier<JsonDiff> keyed() {
+    return () -> {
+      JsonDiff result = new JsonDiff();
+      result.addArrayKey(ArrayKeySpec.parse("$.*=id"));
+      result.addArrayKey(ArrayKeySpec.parse("$[*]=id"));
+      result.addArrayKey(ArrayKeySpec.parse("$.*.*=id"));
+      return result;
+    };
+  }
+
+  private void assertGeneratedRoundTrip(Supplier<JsonDiff> jsonDiffs) throws IOException {
+    int cur = 0;
+    while (cur < 1000) {
+      JsonElement first = this.value(0);
+      JsonElement second = this.mutate(first);
+
+      this.assertRoundTrip(jsonDiffs, first.toString(), second.toString());
+      cur++;
+    }
+  }
+
+  private void assertRoundTrip(Supplier<JsonDiff> jsonDiffs, String first, String second)
+      throws IOException {
+
+    String patch = this.diff(jsonDiffs.get(), first, second);
+    String message = first + " vs " + second + ": " + patch;
+
+    List<JsonPatchOperation> operations =
+        JsonPatchOperation.parsePatch(this.parser.parse(patch));
+    assertEquals(message, this.parser.parse(second),
+                 new JsonPatchTree().apply(this.parser.parse(first), operations));
+
+    StringWriter buffer = new StringWriter();
+    new StreamingJsonPatcher().apply(new JsonReader(new StringReader(first)),
+                                     new JsonWriter(buffer),
+                                     JsonPatchOperation.parsePatch(this.parser.parse(patch)));
+    assertEquals(message, this.parser.parse(second), this.parser.parse(buffer.toString()));
+  }
+
+  private String diff(JsonDiff jsonDiff, String first, String second) {
+    StringWriter buffer = new StringWriter();
+    new JsonPatchDiff(jsonDiff).diff(this.parser.parse(first), this.parser.parse(second),
+                                     new PrintWriter(buffer));
+
+    return buffer.toString();
+  }
+
+  private JsonElement value(int depth) {
+    switch (this.random.nextInt((depth > 3) ? 4 : 7)) {
+      case 0:
+        return new JsonPrimitive(NAMES[this.random.nextInt(NAMES.length)]);
+      case 1:
+        return this.parser.parse(NUMBERS[this.random.nextInt(NUMBERS.length)]);
+      case 2:
+        return new JsonPrimitive(this.random.nextBoolean());
+      case 3:
+        return JsonNull.INSTANCE;
+      case 4:
+      case 5:
+        JsonObject object = new JsonObject();
+        int members = this.random.nextInt(5);
+        while (object.entrySet().size() < members) {
+          object.add(NAMES[this.random.nextInt(NAMES.length)], this.value(depth + 1));
+        }
+        return object;
+      default:
+        JsonArray array = new JsonArray();
+        int elements = this.random.nextInt(7);
+        while (array.size() < elements) {
+          // Some elements carry an id, often repeated, for the keyed arrays
+          if (this.random.nextInt(2) == 0) {
+            JsonObject keyed = new JsonObject();
+            keyed.addProperty("id", this.random.nextInt(4));
+            keyed.add("v", this.value(depth + 1));
+            array.add(keyed);
+          } else {
+            array.add(this.value(depth + 1));
+          }
+        }
+        return array;
+    }
+  }
+
+  /**
+   * @return a copy of the given value with some of its values changed, added, removed or
+   * reordered.
+   */
+  private JsonElement mutate(JsonElement element) {
+    if (this.random.nextInt(10) == 0) {
+      return this.value(2);
+    }
+
+    if (element.isJsonObject()) {
+      JsonObject result = new JsonObject();
+      for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+        if (this.random.nextInt(8) != 0) {
+          result.add(entry.getKey(), this.mutate(entry.getValue()));
+        }
+      }
+      if (this.random.nextInt(6) == 0) {
+        result.add(NAMES[this.random.nextInt(NAMES.length)], this.value(3));
+      }
+      return result;
+    } else if (element.isJsonArray()) {
+      JsonArray result = new JsonArray();
+      for (JsonElement child : element.getAsJsonArray()) {
+        if (this.random.nextInt(6) == 0) {
+          result.add(this.value(3));
+        }
+        if (this.random.nextInt(6) != 0) {
+          result.add(this.mutate(child));
+        }
+      }
+
+      // Swap two elements now and then, for the aligner and the keyed matcher to find
+      if ((result.size() > 1) && (this.random.nextInt(3) == 0)) {
+        int from = this.random.nextInt(result.size());
+        int to = this.random.nextInt(result.size());
+        JsonElement moved = result.get(from);
+        result.set(from, result.get(to));
+        result.set(to, moved);
+      }
+      return result;
+    }
+
+    return element;
+  }
+}
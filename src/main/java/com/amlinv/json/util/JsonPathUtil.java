@@ -19,105 +19,481 @@
 
 package com.amlinv.json.util;
 
+import com.amlinv.json.util.index.IndexedJsonDocument;
+import com.amlinv.json.util.index.IndexedJsonValue;
+import com.amlinv.json.util.input.JsonInputSource;
+import com.amlinv.json.util.parallel.NdjsonPipeline;
+import com.amlinv.json.util.parallel.ParallelOutputExecutor;
+import com.amlinv.json.util.path.BatchJsonPathEvaluator;
+import com.amlinv.json.util.path.CompiledPathCache;
+import com.amlinv.json.util.path.JsonPathMatchListener;
+import com.amlinv.json.util.path.JsonPathTrie;
+import com.amlinv.json.util.path.SimpleJsonPath;
+import com.amlinv.json.util.path.StreamingJsonPathEvaluator;
+import com.amlinv.json.util.tape.JsonTapeValue;
+
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.Option;
 import com.jayway.jsonpath.internal.spi.json.GsonJsonProvider;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Created by art on 5/12/16.
  */
-public class JsonPathUtil {
+public class JsonPathUtil implements JsonTool {
+
+  // Shared by every run in the process; neither holds state between reads.
+  private static final Gson GSON = new GsonBuilder().create();
+  private static final Configuration JSON_PATH_CONFIGURATION =
+      Configuration.builder()
+          .jsonProvider(new GsonJsonProvider())
+          .options(Option.ALWAYS_RETURN_LIST)
+          .build();
 
-  private Gson gson;
-  private Configuration jsonPathConfiguration;
+  private final JsonInputSource inputSource = new JsonInputSource();
+
+  private CompiledPathCache pathCache = CompiledPathCache.getShared();
   private boolean raw = false;
+  private boolean streaming = false;
+  private boolean ndjson = false;
+  private boolean lazy = false;
+  private boolean sidecarIndex = false;
+  private boolean tape = false;
+  private boolean ordered = true;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private int parallel = 1;
+  private boolean cacheStats = false;
+
+  private List<String> paths;
+  private JsonPathTrie trie;
+  private int[] trieIds;
+  private JsonPath[] compiledPaths;
 
   public static void main(String[] args) {
     new JsonPathUtil().instanceMain(args);
   }
 
   public void instanceMain(String[] args) {
-    if ((args.length > 0) && (args[0].equals("--raw"))) {
-      args = Arrays.copyOfRange(args, 1, args.length);
-      this.raw = true;
+    int status = this.execute(args, ToolContext.system());
+    if (status != 0) {
+      System.exit(status);
     }
+  }
 
-    if (args.length < 2) {
-      System.err.println("Usage: JsonPathUtil [--raw] <filename> <path> ...");
-      System.err.println("Use filename - for standard input");
-      System.exit(1);
-    }
+  @Override
+  public int execute(String[] args, ToolContext context) {
+    context.configure(this.inputSource);
+
+    List<String> paths = new ArrayList<>();
+    List<String> inputs = new ArrayList<>();
 
     try {
-      String filename = args[0];
-      String[] paths = Arrays.copyOfRange(args, 1, args.length);
+      while ((args.length > 0) && (args[0].startsWith("--"))) {
+        String option = args[0];
+        args = Arrays.copyOfRange(args, 1, args.length);
 
-      this.init();
+        if (option.equals("--raw")) {
+          this.raw = true;
+        } else if (option.equals("--streaming")) {
+          this.streaming = true;
+        } else if (option.equals("--ndjson")) {
+          this.ndjson = true;
+        } else if (option.equals("--lazy")) {
+          this.lazy = true;
+        } else if (option.equals("--index")) {
+          this.lazy = true;
+          this.sidecarIndex = true;
+        } else if (option.equals("--tape")) {
+          this.tape = true;
+        } else if (option.equals("--unordered")) {
+          this.ordered = false;
+        } else if ((option.equals("--threads")) && (args.length > 0)) {
+          this.threads = Integer.parseInt(args[0]);
+          args = Arrays.copyOfRange(args, 1, args.length);
+        } else if ((option.equals("--parallel")) && (args.length > 0)) {
+          this.parallel = Integer.parseInt(args[0]);
+          args = Arrays.copyOfRange(args, 1, args.length);
+        } else if ((option.equals("--paths-file")) && (args.length > 0)) {
+          paths.addAll(this.readPathsFile(args[0]));
+          args = Arrays.copyOfRange(args, 1, args.length);
+        } else if ((option.equals("--input")) && (args.length > 0)) {
+          inputs.add(args[0]);
+          args = Arrays.copyOfRange(args, 1, args.length);
+        } else if ((option.equals("--input-list")) && (args.length > 0)) {
+          inputs.addAll(this.readInputList(args[0]));
+          args = Arrays.copyOfRange(args, 1, args.length);
+        } else if (option.equals("--cache-stats")) {
+          this.cacheStats = true;
+        } else {
+          return this.dumpUsage(context.getErr());
+        }
+      }
 
-      JsonElement jsonDoc = parseInput(filename);
+      // Without --input or --input-list, the first argument is the one input file.
+      boolean multipleInputs = !inputs.isEmpty();
+      if ((!multipleInputs) && (args.length > 0)) {
+        inputs.add(args[0]);
+        args = Arrays.copyOfRange(args, 1, args.length);
+      }
+
+      paths.addAll(0, Arrays.asList(args));
 
-      for (String onePath : paths) {
-        JsonPath jsonPath = JsonPath.compile(onePath);
+      if ((inputs.isEmpty()) || (paths.isEmpty()) || (this.threads < 1) || (this.parallel < 1) ||
+          ((this.streaming) && (this.ndjson)) || ((this.parallel > 1) && (this.ndjson)) ||
+          ((this.lazy) && ((this.streaming) || (this.ndjson))) ||
+          ((this.tape) && ((this.lazy) || (this.streaming) || (this.ndjson)))) {
+        return this.dumpUsage(context.getErr());
+      }
 
-        JsonArray resultList = jsonPath.read(jsonDoc, this.jsonPathConfiguration);
+      this.preparePaths(paths);
 
-        if (raw) {
-          for (JsonElement oneResult : resultList) {
-            if (oneResult.isJsonPrimitive()) {
-              System.out.println(oneResult.getAsString());
-            } else {
-              System.out.println(oneResult.toString());
+      PrintWriter out = new PrintWriter(context.getOut());
+
+      try {
+        if (this.parallel > 1) {
+          // Inputs are processed concurrently; each input's output is buffered and written whole,
+          // in argument order.
+          ParallelOutputExecutor executor = new ParallelOutputExecutor(this.parallel, true, out);
+
+          try {
+            for (String filename : inputs) {
+              executor.submit((inputOut) -> this.processInput(filename, multipleInputs, inputOut));
             }
+          } finally {
+            executor.finish();
           }
         } else {
-          System.out.println("PATH \"" + onePath + "\" " + resultList.size() + " result(s):");
-          for (JsonElement oneResult : resultList) {
-            System.out.println("\t" + oneResult.toString());
+          for (String filename : inputs) {
+            this.processInput(filename, multipleInputs, out);
           }
         }
+      } finally {
+        out.flush();
+
+        if (this.cacheStats) {
+          context.getErr().println(this.pathCache);
+        }
       }
     } catch (Exception exc) {
-      exc.printStackTrace();
-      System.exit(1);
+      exc.printStackTrace(context.getErr());
+      return 1;
+    }
+
+    return 0;
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private int dumpUsage(PrintStream err) {
+    err.println("Usage: JsonPathUtil [--raw] [--lazy | --index | --tape | --streaming | --ndjson"
+                + " [--threads <n>] [--unordered]] [--paths-file <file>] [--cache-stats]"
+                + " <filename> <path> ...");
+    err.println("       JsonPathUtil [options] [--parallel <n>] (--input <filename> |"
+                + " --input-list <file>)... <path> ...");
+    err.println("Use filename - for standard input");
+    err.println("--input-list reads the input filenames from a file, one per line; the paths"
+                + " are compiled once for all of the inputs");
+    err.println("--parallel processes up to n inputs at once; output stays in argument order");
+    err.println("--streaming evaluates the paths while reading, without loading the"
+                + " document; it supports member names, indexes and wildcards only, and"
+                + " prints each match as it is found; where an object repeats a member name, a"
+                + " definite path is answered by the first value instead of the last, and a"
+                + " wildcard matches every value");
+    err.println("--lazy memory-maps the file and indexes its structure, parsing only the values"
+                + " on the way to the results; paths outside the simple subset load the whole"
+                + " document");
+    err.println("--index is --lazy with the structural index saved next to the file, as"
+                + " <filename>.idx, and reused while the file is unchanged");
+    err.println("--tape loads the document into a compact tape instead of a tree, converting"
+                + " only the results; paths outside the simple subset load the whole document");
+    err.println("--ndjson reads one document per line and evaluates the paths on the lines"
+                + " in parallel; --unordered writes results as they finish instead of in"
+                + " input order");
+    return 1;
+  }
+
+  /**
+   * Read paths from the given file, one per line.  Blank lines and lines starting with # are
+   * ignored.
+   */
+  private List<String> readPathsFile(String pathsFilename) throws IOException {
+    List<String> result = new ArrayList<>();
+
+    Path pathsFile = this.inputSource.resolve(pathsFilename);
+
+    for (String line : Files.readAllLines(pathsFile, StandardCharsets.UTF_8)) {
+      String trimmed = line.trim();
+      if ((!trimmed.isEmpty()) && (!trimmed.startsWith("#"))) {
+        result.add(trimmed);
+      }
     }
+
+    return result;
   }
 
-  private void init() {
-    this.gson = new GsonBuilder().create();
-    this.jsonPathConfiguration =
-        Configuration.builder()
-            .jsonProvider(new GsonJsonProvider())
-            .options(Option.ALWAYS_RETURN_LIST)
-            .build();
+  /**
+   * Read input filenames from the given file, or standard input when it is "-", one per line.
+   * Blank lines are ignored.
+   */
+  private List<String> readInputList(String listFilename) throws IOException {
+    List<String> result = new ArrayList<>();
 
+    try (BufferedReader reader = new BufferedReader(this.inputSource.openReader(listFilename))) {
+      String line = reader.readLine();
+      while (line != null) {
+        if (!line.trim().isEmpty()) {
+          result.add(line);
+        }
+
+        line = reader.readLine();
+      }
+    }
+
+    return result;
   }
 
-  private JsonElement parseInput(String filename) throws FileNotFoundException {
-    InputStream inputStream;
+  private void processInput(String filename, boolean printFilename, PrintWriter out)
+      throws IOException {
+
+    if ((printFilename) && (!this.raw)) {
+      out.println("FILE \"" + filename + "\"");
+    }
 
-    if (filename.equals("-")) {
-      inputStream = System.in;
+    if (this.streaming) {
+      this.processStream(filename, out);
+    } else if (this.ndjson) {
+      try (Reader input = this.inputSource.openReader(filename)) {
+        NdjsonPipeline pipeline = new NdjsonPipeline(this.threads, this.ordered);
+        pipeline.setKeyDictionary(this.inputSource.getKeyDictionary());
+        pipeline.process(input, this::processDocument, out);
+      }
+    } else if ((this.lazy) && (this.inputSource.isRegularFile(filename))) {
+      try (IndexedJsonDocument document = this.openIndexedDocument(filename)) {
+        this.processIndexedDocument(document.getRoot(), out);
+      }
+    } else if (this.tape) {
+      this.processTapeDocument(this.inputSource.parseTape(filename).getRootValue(), out);
     } else {
-      inputStream = new FileInputStream(filename);
+      JsonElement jsonDoc = this.inputSource.parse(filename);
+
+      this.processDocument(jsonDoc, out);
+    }
+  }
+
+  /**
+   * Compile the paths once for all of the documents to evaluate.  Paths in the subset supported by
+   * SimpleJsonPath are added to a trie so they are answered together in a single traversal of each
+   * document; the rest, and any the batch evaluation could not answer exactly, go through JsonPath.
+   * Streaming evaluation only has the trie, so every path must be in the subset.
+   */
+  private void preparePaths(List<String> paths) {
+    this.paths = paths;
+    this.trie = new JsonPathTrie();
+    this.trieIds = new int[paths.size()];
+    this.compiledPaths = new JsonPath[paths.size()];
+
+    int cur = 0;
+    while (cur < paths.size()) {
+      SimpleJsonPath simplePath = SimpleJsonPath.parse(paths.get(cur));
+      if (simplePath != null) {
+        this.trieIds[cur] = this.trie.add(simplePath);
+      } else if (this.streaming) {
+        throw new IllegalArgumentException(
+            "path is not supported in streaming mode: " + paths.get(cur));
+      } else {
+        this.trieIds[cur] = -1;
+      }
+
+      if (!this.streaming) {
+        this.compiledPaths[cur] = this.pathCache.get(paths.get(cur));
+      }
+
+      cur++;
+    }
+  }
+
+  /**
+   * Evaluate all of the prepared paths against the document and print the results.  Safe to call
+   * from multiple threads at once.
+   */
+  private void processDocument(JsonElement jsonDoc, PrintWriter out) {
+    BatchJsonPathEvaluator.Result batchResult =
+        new BatchJsonPathEvaluator(this.trie).evaluate(jsonDoc);
+
+    this.printDocumentResults(batchResult, () -> jsonDoc, out);
+  }
+
+  private IndexedJsonDocument openIndexedDocument(String filename) throws IOException {
+    Path path = this.inputSource.resolve(filename);
+
+    if (this.sidecarIndex) {
+      return IndexedJsonDocument.openWithSidecar(path);
+    }
+
+    return IndexedJsonDocument.open(path);
+  }
+
+  /**
+   * Evaluate the prepared paths against an indexed document.  The whole document is only loaded
+   * if some path has to go through JsonPath.
+   */
+  private void processIndexedDocument(IndexedJsonValue root, PrintWriter out) {
+    BatchJsonPathEvaluator.Result batchResult =
+        new BatchJsonPathEvaluator(this.trie).evaluate(root);
+
+    JsonElement[] jsonDoc = new JsonElement[1];
+    this.printDocumentResults(batchResult, () -> {
+      if (jsonDoc[0] == null) {
+        jsonDoc[0] = root.toJsonElement();
+      }
+      return jsonDoc[0];
+    }, out);
+  }
+
+  /**
+   * Evaluate the prepared paths against a document held as a tape.  The document is only
+   * converted into a tree if some path has to go through JsonPath.
+   */
+  private void processTapeDocument(JsonTapeValue root, PrintWriter out) {
+    BatchJsonPathEvaluator.Result batchResult =
+        new BatchJsonPathEvaluator(this.trie).evaluate(root);
+
+    JsonElement[] jsonDoc = new JsonElement[1];
+    this.printDocumentResults(batchResult, () -> {
+      if (jsonDoc[0] == null) {
+        jsonDoc[0] = root.toJsonElement();
+      }
+      return jsonDoc[0];
+    }, out);
+  }
+
+  /**
+   * Print the results of all the prepared paths, taking them from the batch evaluation when it
+   * answered the path and otherwise evaluating the path with JsonPath on the supplied document.
+   */
+  private void printDocumentResults(BatchJsonPathEvaluator.Result batchResult,
+                                    Supplier<JsonElement> jsonDoc, PrintWriter out) {
+    int cur = 0;
+    while (cur < this.paths.size()) {
+      int trieId = this.trieIds[cur];
+
+      JsonArray resultList;
+      if ((trieId >= 0) && (batchResult.isComplete(trieId))) {
+        resultList = this.convertBatchResults(batchResult.getMatches(trieId));
+      } else {
+        resultList = this.compiledPaths[cur].read(jsonDoc.get(), JSON_PATH_CONFIGURATION);
+      }
+
+      this.printResults(this.paths.get(cur), resultList, out);
+
+      cur++;
+    }
+  }
+
+  /**
+   * Evaluate the paths while reading the input, printing each match as it is found.  Reading stops
+   * as soon as every path is definite and has been answered.
+   */
+  private void processStream(String filename, PrintWriter out) throws IOException {
+    // Every path is in the trie, so the trie ids are the indexes of the paths.
+    List<String> paths = this.paths;
+
+    int[] matchCounts = new int[paths.size()];
+
+    JsonPathMatchListener listener = new JsonPathMatchListener() {
+      @Override
+      public void onMatch(int pathId, JsonElement value) {
+        matchCounts[pathId]++;
+        printStreamedResult(paths.get(pathId), convertResult(value), out);
+      }
+
+      @Override
+      public void onMissing(JsonPathTrie.Node node) {
+      }
+    };
+
+    try (JsonReader reader = new JsonReader(this.inputSource.openReader(filename))) {
+      new StreamingJsonPathEvaluator(this.trie).evaluate(reader, listener);
     }
 
-    Reader inputReader = new InputStreamReader(inputStream);
+    if (!this.raw) {
+      int cur = 0;
+      while (cur < paths.size()) {
+        if (matchCounts[cur] == 0) {
+          out.println("PATH \"" + paths.get(cur) + "\" 0 result(s)");
+        }
+
+        cur++;
+      }
+    }
+  }
+
+  /**
+   * JsonPath hands its results to the Gson provider, which unwraps primitives into Java values,
+   * numbers included, and re-serializes every result with a default Gson, dropping null object
+   * members; do the same for batch results so the output does not depend on which evaluator
+   * answered the path.  Numbers therefore print as the provider converts them: 1e2 as 100 and
+   * 1.50 as 1.5, with integers beyond long range and other large values losing precision.
+   */
+  private JsonArray convertBatchResults(JsonArray matches) {
+    JsonArray result = new JsonArray();
+
+    for (JsonElement match : matches) {
+      result.add(this.convertResult(match));
+    }
+
+    return result;
+  }
 
-    return new JsonParser().parse(inputReader);
+  private JsonElement convertResult(JsonElement match) {
+    return GSON.toJsonTree(GsonJsonProvider.unwrap(match));
+  }
+
+  private void printStreamedResult(String onePath, JsonElement oneResult, PrintWriter out) {
+    if ((raw) && (oneResult.isJsonPrimitive())) {
+      out.println(oneResult.getAsString());
+    } else if (raw) {
+      out.println(oneResult.toString());
+    } else {
+      out.println("PATH \"" + onePath + "\": " + oneResult.toString());
+    }
+  }
+
+  private void printResults(String onePath, JsonArray resultList, PrintWriter out) {
+    if (raw) {
+      for (JsonElement oneResult : resultList) {
+        if (oneResult.isJsonPrimitive()) {
+          out.println(oneResult.getAsString());
+        } else {
+          out.println(oneResult.toString());
+        }
+      }
+    } else {
+      out.println("PATH \"" + onePath + "\" " + resultList.size() + " result(s):");
+      for (JsonElement oneResult : resultList) {
+        out.println("\t" + oneResult.toString());
+      }
+    }
   }
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that JsonPathUtil prints the same results whichever evaluator answers a path.
+ */
+public class JsonPathUtilTest {
+
+  private static final String NUMBERS =
+      "{\"a\": [1e2, 1.50, 1E400, 12345678901234567890.5, -0.0], \"b\": 100000000000000000001}";
+
+  private static final String[] TREE_MODES = { null, "--lazy", "--tape" };
+
+  private String document;
+
+  /**
+   * Setup common test data and interactions.
+   */
+  @Before
+  public void setupTest() throws Exception {
+    this.document = NUMBERS;
+  }
+
+  @Test
+  public void testNumbersPrintAsJsonPathConvertsThem() {
+    String expected = "PATH \"$.a[*]\" 5 result(s):\n" +
+                      "\t100\n" +
+                      "\t1.5\n" +
+                      "\t0\n" +
+                      "\t1.2345678901234567E19\n" +
+                      "\t0.0\n";
+
+    assertEquals(expected, this.run(null, "$.a[*]"));
+  }
+
+  @Test
+  public void testDefinitePathsMatchTheFallback() {
+    // $..a and $..b are not handled by the batch evaluator and so always go through JsonPath.
+    for (String mode : TREE_MODES) {
+      assertEquals(this.resultsOf(null, "$..a[*]"), this.resultsOf(mode, "$.a[*]"));
+      assertEquals(this.resultsOf(null, "$..b"), this.resultsOf(mode, "$.b"));
+    }
+  }
+
+  @Test
+  public void testStreamedNumbers() {
+    assertEquals("PATH \"$.a[*]\": 100\n" +
+                 "PATH \"$.a[*]\": 1.5\n" +
+                 "PATH \"$.a[*]\": 0\n" +
+                 "PATH \"$.a[*]\": 1.2345678901234567E19\n" +
+                 "PATH \"$.a[*]\": 0.0\n",
+                 this.run("--streaming", "$.a[*]"));
+    assertEquals(this.resultsOf(null, "$..b"), this.resultsOf("--streaming", "$.b"));
+  }
+
+  @Test
+  public void testStreamingRepeatedNames() {
+    this.document = "{\"a\": 1, \"b\": {}, \"a\": 2}";
+
+    // The tree keeps the last value of a repeated name; streaming answers definite paths with the
+    // first and matches wildcards against each.
+    assertEquals("2\n", this.resultsOf(null, "$.a"));
+    assertEquals("1\n", this.resultsOf("--streaming", "$.a"));
+    assertEquals("2\n{}\n", this.resultsOf(null, "$.*"));
+    assertEquals("1\n{}\n2\n", this.resultsOf("--streaming", "$.*"));
+
+    this.document = "{\"a\": {\"x\": 1}, \"a\": {\"y\": 2}}";
+
+    assertEquals("2\n", this.resultsOf(null, "$.a.y"));
+    assertEquals("", this.resultsOf("--streaming", "$.a.y"));
+    assertEquals("1\n", this.resultsOf("--streaming", "$.a.x"));
+  }
+
+  @Test
+  public void testContainersAreNotConverted() {
+    this.document = "{\"a\": {\"b\": [1e2, 1.50], \"c\": null}}";
+
+    for (String mode : TREE_MODES) {
+      assertTrue(this.run(mode, "$.a").contains("{\"b\":[1e2,1.50]}"));
+    }
+    assertTrue(this.run("--streaming", "$.a").contains("{\"b\":[1e2,1.50]}"));
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  /**
+   * @return the results printed for the path in the given mode, without the header line.
+   */
+  private String resultsOf(String mode, String path) {
+    StringBuilder result = new StringBuilder();
+
+    for (String line : this.run(mode, path).split("\n")) {
+      if (line.startsWith("\t")) {
+        result.append(line.substring(1)).append('\n');
+      } else if (line.contains("\": ")) {
+        result.append(line.substring(line.indexOf("\": ") + 3)).append('\n');
+      }
+    }
+
+    return result.toString();
+  }
+
+  private String run(String mode, String path) {
+    ByteArrayInputStream in =
+        new ByteArrayInputStream(this.document.getBytes(StandardCharsets.UTF_8));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    String[] args;
+    if (mode == null) {
+      args = new String[] { "-", path };
+    } else {
+      args = new String[] { mode, "-", path };
+    }
+
+    int status = new JsonPathUtil().execute(args, new ToolContext(in, new PrintStream(out),
+                                                                  new PrintStream(err), null));
+
+    assertEquals(err.toString(), 0, status);
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util;
+
+import com.amlinv.json.util.diff.ArrayKeySpec;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Diff of two JSON documents that walks both token streams in lockstep instead of building the
+ * full trees first.  Output lines use the same format as JsonDiff.
+ *
+ * Only object members that do not line up between the two documents are buffered, so memory use
+ * is bounded by the largest reordered object rather than by the size of the documents.  Since
+ * members are reported in the order they are encountered, the order of the output lines may
+ * differ from the tree diff, which visits members in sorted order.
+ */
+public class JsonStreamingDiff {
+
+  private final JsonDiff treeDiff;
+  private final JsonParser parser = new JsonParser();
+
+  public JsonStreamingDiff(JsonDiff treeDiff) {
+    this.treeDiff = treeDiff;
+  }
+
+  public void diff(JsonReader first, JsonReader second, PrintWriter out) throws IOException {
+    first.setLenient(true);
+    second.setLenient(true);
+
+    this.diffLevel("$", first, second, out, 0);
+
+    this.verifyFullyConsumed(first);
+    this.verifyFullyConsumed(second);
+
+    out.flush();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void diffLevel(String path, JsonReader first, JsonReader second, PrintWriter out,
+                         int level) throws IOException {
+    JsonToken firstToken = first.peek();
+    JsonToken secondToken = second.peek();
+
+    if ((firstToken == JsonToken.BEGIN_OBJECT) && (secondToken == JsonToken.BEGIN_OBJECT)) {
+      this.diffObjectsLevel(path, first, second, out, level);
+    } else if ((firstToken == JsonToken.BEGIN_ARRAY) && (secondToken == JsonToken.BEGIN_ARRAY)) {
+      this.diffArraysLevel(path, first, second, out, level);
+    } else {
+      // Primitive values and type changes need the entire values anyway; use the tree diff on them
+      JsonElement firstElement = this.readElement(first);
+      JsonElement secondElement = this.readElement(second);
+
+      this.treeDiff.diffLevel(path, firstElement, secondElement, out, level);
+    }
+  }
+
+  private void diffObjectsLevel(String path, JsonReader first, JsonReader second,
+                                PrintWriter out, int level) throws IOException {
+    String prefix = this.treeDiff.createLevelPrefix(level);
+
+    Map<String, JsonElement> firstPending = new LinkedHashMap<>();
+    Map<String, JsonElement> secondPending = new LinkedHashMap<>();
+
+    String firstName = null;
+    String secondName = null;
+
+    first.beginObject();
+    second.beginObject();
+
+    while (true) {
+      if ((firstName == null) && (first.hasNext())) {
+        firstName = first.nextName();
+      }
+      if ((secondName == null) && (second.hasNext())) {
+        secondName = second.nextName();
+      }
+
+      if ((firstName == null) && (secondName == null)) {
+        break;
+      }
+
+      if ((firstName != null) && (firstName.equals(secondName))) {
+        this.diffLevel(this.memberPath(path, firstName), first, second, out, level + 1);
+
+        firstName = null;
+        secondName = null;
+      } else if ((firstName != null) && (secondPending.containsKey(firstName))) {
+        JsonElement secondElement = secondPending.remove(firstName);
+        this.treeDiff.diffLevel(this.memberPath(path, firstName), this.readElement(first),
+                                secondElement, out, level + 1);
+
+        firstName = null;
+      } else if ((secondName != null) && (firstPending.containsKey(secondName))) {
+        JsonElement firstElement = firstPending.remove(secondName);
+        this.treeDiff.diffLevel(this.memberPath(path, secondName), firstElement,
+                                this.readElement(second), out, level + 1);
+
+        secondName = null;
+      } else if (secondName == null) {
+        // The second object is exhausted and nothing is pending to match; the member was removed.
+        this.treeDiff.outputOneSidedDiff(out, "< ", this.memberPath(path, firstName), prefix,
+                                         this.readElement(first));
+
+        firstName = null;
+      } else if (firstName == null) {
+        this.treeDiff.outputOneSidedDiff(out, "> ", this.memberPath(path, secondName), prefix,
+                                         this.readElement(second));
+
+        secondName = null;
+      } else if (secondPending.size() <= firstPending.size()) {
+        // Members are out-of-order; buffer one side, alternating so a single insertion or
+        // removal only costs one buffered member.
+        secondPending.put(secondName, this.readElement(second));
+
+        secondName = null;
+      } else {
+        firstPending.put(firstName, this.readElement(first));
+
+        firstName = null;
+      }
+    }
+
+    first.endObject();
+    second.endObject();
+
+    for (Map.Entry<String, JsonElement> entry : firstPending.entrySet()) {
+      this.treeDiff.outputOneSidedDiff(out, "< ", this.memberPath(path, entry.getKey()), prefix,
+                                       entry.getValue());
+    }
+
+    for (Map.Entry<String, JsonElement> entry : secondPending.entrySet()) {
+      this.treeDiff.outputOneSidedDiff(out, "> ", this.memberPath(path, entry.getKey()), prefix,
+                                       entry.getValue());
+    }
+  }
+
+  private void diffArraysLevel(String path, JsonReader first, JsonReader second,
+                               PrintWriter out, int level) throws IOException {
+    String prefix = this.treeDiff.createLevelPrefix(level);
+
+    first.beginArray();
+    second.beginArray();
+
+    int cur = 0;
+    while ((first.hasNext()) && (second.hasNext())) {
+      this.diffLevel(path + "[" + cur + "]", first, second, out, level + 1);
+
+      cur++;
+    }
+
+    while (first.hasNext()) {
+      this.treeDiff.outputOneSidedDiff(out, "< ", path + "[" + cur + "]", prefix,
+                                       this.readElement(first));
+      cur++;
+    }
+
+    while (second.hasNext()) {
+      this.treeDiff.outputOneSidedDiff(out, "> ", path + "[" + cur + "]", prefix,
+                                       this.readElement(second));
+      cur++;
+    }
+
+    first.endArray();
+    second.endArray();
+  }
+
+  private JsonElement readElement(JsonReader reader) {
+    return this.parser.parse(reader);
+  }
+
+  private String memberPath(String path, String memberName) {
+    return ArrayKeySpec.memberPath(path, memberName);
+  }
+
+  private void verifyFullyConsumed(JsonReader reader) throws IOException {
+    if (reader.peek() != JsonToken.END_DOCUMENT) {
+      throw new JsonSyntaxException("Did not consume the entire document.");
+    }
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util;
+
+import com.amlinv.json.util.diff.ArrayKeySpec;
+import com.amlinv.json.util.tape.JsonTape;
+
+import com.google.gson.JsonElement;
+
+import java.io.PrintWriter;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Diffs two documents held as tapes, with the same output as the tree diff of the same documents,
+ * without building the trees.  Values are only written out as text once a difference is found.
+ * Arrays matched by key, or aligned, are converted into trees and handed to the tree diff, since
+ * the matchers work on trees.
+ */
+public class JsonTapeDiff {
+
+  private final JsonDiff treeDiff;
+
+  public JsonTapeDiff(JsonDiff treeDiff) {
+    this.treeDiff = treeDiff;
+  }
+
+  public void diff(JsonTape first, JsonTape second, PrintWriter out) {
+    this.diffLevel("$", first, first.getRoot(), second, second.getRoot(), out, 0);
+
+    out.flush();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void diffLevel(String path, JsonTape first, long firstNode, JsonTape second,
+                         long secondNode, PrintWriter out, int level) {
+    String prefix = this.treeDiff.createLevelPrefix(level);
+
+    JsonTape.Type firstType = first.getType(firstNode);
+    JsonTape.Type secondType = second.getType(secondNode);
+
+    switch (firstType) {
+      case OBJECT:
+        if (secondType == JsonTape.Type.OBJECT) {
+          this.diffObjectsLevel(path, first, firstNode, second, secondNode, out, prefix, level);
+          return;
+        }
+        break;
+
+      case ARRAY:
+        if (secondType == JsonTape.Type.ARRAY) {
+          this.diffArraysLevel(path, first, firstNode, second, secondNode, out, prefix, level);
+          return;
+        }
+        break;
+
+      case NULL:
+        if (secondType == JsonTape.Type.NULL) {
+          return;
+        }
+        break;
+
+      default:
+        if (this.isSameValue(first, firstNode, second, secondNode)) {
+          return;
+        }
+        break;
+    }
+
+    this.treeDiff.outputSimpleDiff(out, path, prefix, first.getValue(firstNode),
+                                   second.getValue(secondNode));
+  }
+
+  private void diffObjectsLevel(String path, JsonTape first, long firstNode, JsonTape second,
+                                long secondNode, PrintWriter out, String prefix, int level) {
+    TreeMap<String, Long> firstMembers = this.getMembers(first, firstNode);
+    TreeMap<String, Long> secondMembers = this.getMembers(second, secondNode);
+
+    Set<String> allMemberNames = new TreeSet<>(firstMembers.keySet());
+    allMemberNames.addAll(secondMembers.keySet());
+
+    for (String memberName : allMemberNames) {
+      Long firstChild = firstMembers.get(memberName);
+      Long secondChild = secondMembers.get(memberName);
+
+      String childPath = ArrayKeySpec.memberPath(path, memberName);
+
+      if (firstChild == null) {
+        this.treeDiff.outputOneSidedDiff(out, "> ", childPath, prefix,
+                                         second.getValue(secondChild));
+      } else if (secondChild == null) {
+        this.treeDiff.outputOneSidedDiff(out, "< ", childPath, prefix,
+                                         first.getValue(firstChild));
+      } else {
+        this.diffLevel(childPath, first, firstChild, second, secondChild, out, level + 1);
+      }
+    }
+  }
+
+  private void diffArraysLevel(String path, JsonTape first, long firstNode, JsonTape second,
+                               long secondNode, PrintWriter out, String prefix, int level) {
+    if ((this.treeDiff.getKeyedArrayMatcher().findKeyField(path) != null) ||
+        (this.treeDiff.getArrayAligner() != null)) {
+      JsonElement firstArray = first.toJsonElement(firstNode);
+      JsonElement secondArray = second.toJsonElement(secondNode);
+
+      this.treeDiff.diffLevel(path, firstArray, secondArray, out, level);
+      this.treeDiff.clearFingerprints();
+      return;
+    }
+
+    long firstEnd = first.next(firstNode);
+    long secondEnd = second.next(secondNode);
+    long firstChild = first.firstChild(firstNode);
+    long secondChild = second.firstChild(secondNode);
+
+    int index = 0;
+    while ((firstChild < firstEnd) && (secondChild < secondEnd)) {
+      this.diffLevel(path + "[" + index + "]", first, firstChild, second, secondChild, out,
+                     level + 1);
+
+      firstChild = first.next(firstChild);
+      secondChild = second.next(secondChild);
+      index++;
+    }
+
+    while (firstChild < firstEnd) {
+      this.treeDiff.outputOneSidedDiff(out, "< ", path + "[" + index + "]", prefix,
+                                       first.getValue(firstChild));
+
+      firstChild = first.next(firstChild);
+      index++;
+    }
+
+    while (secondChild < secondEnd) {
+      this.treeDiff.outputOneSidedDiff(out, "> ", path + "[" + index + "]", prefix,
+                                       second.getValue(secondChild));
+
+      secondChild = second.next(secondChild);
+      index++;
+    }
+  }
+
+  /**
+   * Same as JsonDiff.isSameValue(), for primitives: numbers are compared with the number
+   * comparator, other primitives by type and text.
+   */
+  private boolean isSameValue(JsonTape first, long firstNode, JsonTape second, long secondNode) {
+    if (first.isSamePrimitive(firstNode, second, secondNode)) {
+      return true;
+    }
+
+    if ((first.getType(firstNode) == JsonTape.Type.NUMBER) &&
+        (second.getType(secondNode) == JsonTape.Type.NUMBER)) {
+      return this.treeDiff.getNumberComparator()
+          .isSame(first.getAsString(firstNode), second.getAsString(secondNode));
+    }
+
+    return false;
+  }
+
+  /**
+   * @return the members of the object, by name, with the last value of repeated names.
+   */
+  private TreeMap<String, Long> getMembers(JsonTape tape, long node) {
+    TreeMap<String, Long> result = new TreeMap<>();
+
+    tape.forEachMember(node, result::put);
+
+    return result;
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util;
+
+import com.amlinv.json.util.diff.ArrayKeySpec;
+import com.amlinv.json.util.diff.JsonNumberComparator;
+import com.amlinv.json.util.diff.MyersArrayAligner;
+import com.amlinv.json.util.tape.JsonTape;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that diffing tapes writes exactly what diffing the trees of the same documents writes.
+ */
+public class JsonTapeDiffTest {
+
+  private static final String[] NAMES = { "a", "b", "id", "name", "a/b", "t~1", "it's" };
+
+  private static final String[] NUMBERS = {
+      "0", "-0", "1", "1.0", "1e0", "2", "-12.5E-3", "123456789012345678901234567890", "0.1"
+  };
+
+  private static final String[] STRINGS = {
+      "", "x", "1", "true", "1234567", "12345678", "é€", "a longer string held in the data pages"
+  };
+
+  private JsonParser parser;
+  private Random random;
+
+  /**
+   * Setup common test data and interactions.
+   */
+  @Before
+  public void setupTest() throws Exception {
+    this.parser = new JsonParser();
+    this.random = new Random(42);
+  }
+
+  @Test
+  public void testIdenticalDocuments() {
+    String document = "{\"a\": [1, {\"b\": \"x\"}], \"c\": null}";
+
+    assertEquals("", this.diffTapes(new JsonDiff(), document, document));
+  }
+
+  @Test
+  public void testSimpleDifferences() {
+    this.assertSameAsTreeDiff(JsonDiff::new,
+                              "{\"a\": [1, 2, 3], \"b\": \"x\", \"c\": {\"d\": null}, \"e\": 1}",
+                              "{\"a\": [1, 5], \"b\": 2, \"c\": {\"d\": false}, \"f\": 1.0}");
+  }
+
+  @Test
+  public void testEqualNumbersWithDifferentText() {
+    String first = "[1, 1.0, -0, 100, 123456789012345678901234567890, 0.1]";
+    String second = "[1.0, 1e0, 0, 1e2, 1.23456789012345678901234567890E29, 0.10]";
+
+    assertEquals("", this.diffTapes(new JsonDiff(), first, second));
+    this.assertSameAsTreeDiff(JsonDiff::new, first, second);
+  }
+
+  @Test
+  public void testRepeatedNames() {
+    this.assertSameAsTreeDiff(JsonDiff::new, "{\"a\": 1, \"b\": 2, \"a\": 3}",
+                              "{\"a\": 1, \"b\": 2}");
+  }
+
+  @Test
+  public void testGeneratedDocuments() {
+    this.assertGeneratedSameAsTreeDiff(JsonDiff::new);
+  }
+
+  @Test
+  public void testGeneratedDocumentsWithoutFingerprints() {
+    this.assertGeneratedSameAsTreeDiff(() -> {
+      JsonDiff result = new JsonDiff();
+      result.setFingerprintEnabled(false);
+      return result;
+    });
+  }
+
+  @Test
+  public void testGeneratedDocumentsWithNumericTolerance() {
+    this.assertGeneratedSameAsTreeDiff(() -> {
+      JsonDiff result = new JsonDiff();
+      result.setNumberComparator(new JsonNumberComparator(0.5));
+      return result;
+    });
+  }
+
+  @Test
+  public void testGeneratedDocumentsWithAlignedArrays() {
+    this.assertGeneratedSameAsTreeDiff(() -> {
+      JsonDiff result = new JsonDiff();
+      result.setArrayAligner(new MyersArrayAligner());
+      return result;
+    });
+  }
+
+  @Test
+  public void testGeneratedDocumentsWithKeyedArrays() {
+    this.assertGeneratedSameAsTreeDiff(() -> {
+      JsonDiff result = new JsonDiff();
+      result.addArrayKey(ArrayKeySpec.parse("$.*=id"));
+      result.addArrayKey(ArrayKeySpec.parse("$[*]=id"));
+      return result;
+    });
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void assertGeneratedSameAsTreeDiff(Supplier<JsonDiff> jsonDiffs) {
+    int cur = 0;
+    while (cur < 1000) {
+      JsonElement first = this.value(0);
+      JsonElement second = this.mutate(first);
+
+      this.assertSameAsTreeDiff(jsonDiffs, first.toString(), second.toString());
+      cur++;
+    }
+  }
+
+  private void assertSameAsTreeDiff(Supplier<JsonDiff> jsonDiffs, String first, String second) {
+    StringWriter buffer = new StringWriter();
+    PrintWriter out = new PrintWriter(buffer);
+    jsonDiffs.get().diff(this.parser.parse(first), this.parser.parse(second), out);
+
+    assertEquals(first + " vs " + second, buffer.toString(),
+                 this.diffTapes(jsonDiffs.get(), first, second));
+  }
+
+  private String diffTapes(JsonDiff jsonDiff, String first, String second) {
+    StringWriter buffer = new StringWriter();
+    jsonDiff.diff(JsonTape.parse(new StringReader(first)), JsonTape.parse(new StringReader(second)),
+                  new PrintWriter(buffer));
+
+    return buffer.toString();
+  }
+
+  private JsonElement value(int depth) {
+    switch (this.random.nextInt((depth > 3) ? 4 : 7)) {
+      case 0:
+        return new JsonPrimitive(STRINGS[this.random.nextInt(STRINGS.length)]);
+      case 1:
+        return this.parser.parse(NUMBERS[this.random.nextInt(NUMBERS.length)]);
+      case 2:
+        return new JsonPrimitive(this.random.nextBoolean());
+      case 3:
+        return JsonNull.INSTANCE;
+      case 4:
+      case 5:
+        JsonObject object = new JsonObject();
+        int members = this.random.nextInt(5);
+        while (object.entrySet().size() < members) {
+          object.add(NAMES[this.random.nextInt(NAMES.length)], this.value(depth + 1));
+        }
+        return object;
+      default:
+        JsonArray array = new JsonArray();
+        int elements = this.random.nextInt(6);
+        int index = 0;
+        while (index < elements) {
+          // Some elements carry an id, for the keyed arrays
+          if (this.random.nextInt(3) == 0) {
+            JsonObject keyed = new JsonObject();
+            keyed.addProperty("id", this.random.nextInt(4));
+            keyed.add("v", this.value(depth + 1));
+            array.add(keyed);
+          } else {
+            array.add(this.value(depth + 1));
+          }
+          index++;
+        }
+        return array;
+    }
+  }
+
+  /**
+   * @return a copy of the given value with some of its values changed, added or removed.
+   */
+  private JsonElement mutate(JsonElement element) {
+    if (this.random.nextInt(10) == 0) {
+      return this.value(2);
+    }
+
+    if (element.isJsonObject()) {
+      JsonObject result = new JsonObject();
+      for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+        if (this.random.nextInt(8) != 0) {
+          result.add(entry.getKey(), this.mutate(entry.getValue()));
+        }
+      }
+      if (this.random.nextInt(6) == 0) {
+        result.add(NAMES[this.random.nextInt(NAMES.length)], this.value(3));
+      }
+      return result;
+    } else if (element.isJsonArray()) {
+      JsonArray result = new JsonArray();
+      for (JsonElement child : element.getAsJsonArray()) {
+        if (this.random.nextInt(6) == 0) {
+          result.add(this.value(3));
+        }
+        if (this.random.nextInt(6) != 0) {
+          result.add(this.mutate(child));
+        }
+      }
+      return result;
+    }
+
+    return element;
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util;
+
+/**
+ * A command-line tool that can be run in-process any number of times, as the daemon does, instead
+ * of only once from main().
+ */
+public interface JsonTool {
+
+  /**
+   * Run the tool with the given arguments.  Standard input, standard output, standard error and
+   * the directory relative filenames are resolved against all come from the context; the tool
+   * never calls System.exit().
+   *
+   * @return the exit status; 0 for success.
+   */
+  int execute(String[] args, ToolContext context);
+}
@@ -19,118 +19,171 @@
 
 package com.amlinv.json.util;
 
-import com.google.gson.JsonArray;
+import com.amlinv.json.util.index.IndexedJsonDocument;
+import com.amlinv.json.util.input.JsonInputSource;
+import com.amlinv.json.util.output.JsonPathLister;
+import com.amlinv.json.util.parallel.NdjsonPipeline;
+import com.amlinv.json.util.parallel.ParallelOutputExecutor;
+
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.io.Reader;
 import java.util.Arrays;
-import java.util.Map;
 
 /**
  * Created by art on 1/31/18.
  */
-public class ListElementsByJsonPath {
+public class ListElementsByJsonPath implements JsonTool {
+
+  public static final int OUTPUT_BUFFER_SIZE = 1024 * 1024;
+
+  private final JsonInputSource inputSource = new JsonInputSource();
 
   private boolean includeValues = false;
+  private boolean streaming = false;
+  private boolean ndjson = false;
+  private boolean sidecarIndex = false;
+  private boolean tape = false;
+  private boolean ordered = true;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private int parallel = 1;
 
   public static void main(String[] args) {
     new ListElementsByJsonPath().instanceMain(args);
   }
 
   public void instanceMain(String[] args) {
-    if (args.length < 1) {
-      this.dumpUsageAndTerminate();
+    int status = this.execute(args, ToolContext.system());
+    if (status != 0) {
+      System.exit(status);
     }
+  }
 
-    if (args[0].equals("--include-values")) {
-      this.includeValues = true;
+  @Override
+  public int execute(String[] args, ToolContext context) {
+    context.configure(this.inputSource);
+
+    while ((args.length > 0) && (args[0].startsWith("--"))) {
+      String option = args[0];
       args = Arrays.copyOfRange(args, 1, args.length);
+
+      if (option.equals("--include-values")) {
+        this.includeValues = true;
+      } else if (option.equals("--streaming")) {
+        this.streaming = true;
+      } else if (option.equals("--ndjson")) {
+        this.ndjson = true;
+      } else if (option.equals("--index")) {
+        this.sidecarIndex = true;
+      } else if (option.equals("--tape")) {
+        this.tape = true;
+      } else if (option.equals("--unordered")) {
+        this.ordered = false;
+      } else if ((option.equals("--threads")) && (args.length > 0)) {
+        this.threads = Integer.parseInt(args[0]);
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else if ((option.equals("--parallel")) && (args.length > 0)) {
+        this.parallel = Integer.parseInt(args[0]);
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else {
+        return this.dumpUsage(context.getErr());
+      }
     }
 
-    if (args.length < 1) {
-      this.dumpUsageAndTerminate();
+    if ((args.length < 1) || (this.threads < 1) || (this.parallel < 1) ||
+        ((this.streaming) && (this.ndjson)) || ((this.parallel > 1) && (this.ndjson)) ||
+        ((this.sidecarIndex) && ((this.streaming) || (this.ndjson))) ||
+        ((this.tape) && ((this.sidecarIndex) || (this.streaming) || (this.ndjson)))) {
+      return this.dumpUsage(context.getErr());
     }
 
-    try {
-      for (String filename : args) {
-        JsonElement jsonElement = this.parseInput(filename);
+    PrintWriter out = new PrintWriter(
+        new BufferedWriter(new OutputStreamWriter(context.getOut()), OUTPUT_BUFFER_SIZE));
 
-        this.dumpJsonPath(jsonElement);
+    try {
+      if (this.parallel > 1) {
+        // Files are processed concurrently; each file's output is buffered and written whole, in
+        // argument order.
+        ParallelOutputExecutor executor = new ParallelOutputExecutor(this.parallel, true, out);
+
+        try {
+          for (String filename : args) {
+            executor.submit((fileOut) -> this.processFile(filename, fileOut));
+          }
+        } finally {
+          executor.finish();
+        }
+      } else {
+        for (String filename : args) {
+          try {
+            this.processFile(filename, out);
+          } finally {
+            out.flush();
+          }
+        }
       }
     } catch (Exception exc) {
-      exc.printStackTrace();
-      System.exit(1);
+      exc.printStackTrace(context.getErr());
+      return 1;
     }
+
+    return 0;
   }
 
 //========================================
 // Internal Methods
 //----------------------------------------
 
-  private void dumpUsageAndTerminate() {
-    System.err.println("Usage: ListElementsByJsonPath [--include-values] <filename1> ...");
-    System.err.println("Use filename - for standard input");
-    System.exit(1);
+  private int dumpUsage(PrintStream err) {
+    err.println("Usage: ListElementsByJsonPath [--include-values] [--parallel <n>] [--index |"
+                + " --tape | --streaming | --ndjson [--threads <n>] [--unordered]]"
+                + " <filename1> ...");
+    err.println("Use filename - for standard input");
+    err.println("--parallel processes up to n files at once; output stays in argument order");
+    err.println("--index reads the file through a structural index, saved next to the file as"
+                + " <filename>.idx and reused while the file is unchanged, without loading the"
+                + " document");
+    err.println("--tape loads the document into a compact tape instead of a tree");
+    err.println("--streaming lists the paths while reading, without loading the document; a"
+                + " member name repeated within an object is listed at every occurrence");
+    err.println("--ndjson reads one document per line and lists the lines in parallel;"
+                + " --unordered writes results as they finish instead of in input order");
+    return 1;
   }
 
-  private JsonElement parseInput(String filename) throws FileNotFoundException {
-    InputStream inputStream;
-
-    if (filename.equals("-")) {
-      inputStream = System.in;
-    } else {
-      inputStream = new FileInputStream(filename);
-    }
-
-    Reader inputReader = new InputStreamReader(inputStream);
-
-    return new JsonParser().parse(inputReader);
-  }
-
-  private void dumpJsonPath(JsonElement jsonElement) {
-    this.dumpJsonPathAtPath("$", jsonElement);
-  }
-
-  private void dumpJsonPathAtPath(String prefix, JsonElement jsonElement) {
-    if (jsonElement.isJsonNull()) {
-      System.out.print(prefix);
-
-      if (this.includeValues) {
-        System.out.print(": null");
-      }
-
-      System.out.println();
-    } else if (jsonElement.isJsonPrimitive()) {
-      System.out.print(prefix);
-
-      if (this.includeValues) {
-        System.out.print(": " + jsonElement.getAsString());
+  private void processFile(String filename, PrintWriter out) throws IOException {
+    if (this.ndjson) {
+      try (Reader input = this.inputSource.openReader(filename)) {
+        NdjsonPipeline pipeline = new NdjsonPipeline(this.threads, this.ordered);
+        pipeline.setKeyDictionary(this.inputSource.getKeyDictionary());
+        pipeline.process(input, this::dumpJsonPath, out);
       }
-
-      System.out.println();
-    } else if (jsonElement.isJsonObject()) {
-      JsonObject object = jsonElement.getAsJsonObject();
-
-      for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
-        this.dumpJsonPathAtPath(prefix + "." + entry.getKey(), entry.getValue());
+    } else if ((this.sidecarIndex) && (this.inputSource.isRegularFile(filename))) {
+      try (IndexedJsonDocument document =
+               IndexedJsonDocument.openWithSidecar(this.inputSource.resolve(filename))) {
+        new JsonPathLister(out, this.includeValues).list(document.getRoot());
       }
-    } else if (jsonElement.isJsonArray()) {
-      JsonArray jsonArray = jsonElement.getAsJsonArray();
-
-      int index = 0;
-      for (JsonElement entry : jsonArray) {
-        this.dumpJsonPathAtPath(prefix + "[" + index + "]", entry);
-        index++;
+    } else if (this.tape) {
+      new JsonPathLister(out, this.includeValues)
+          .list(this.inputSource.parseTape(filename).getRootValue());
+    } else if (this.streaming) {
+      try (JsonReader reader = new JsonReader(this.inputSource.openReader(filename))) {
+        new JsonPathLister(out, this.includeValues).list(reader);
       }
     } else {
-      System.out.println(
-          "UNKNOWN ELEMENT TYPE AT " + prefix + ": class=" + jsonElement.getClass().getName());
+      JsonElement jsonElement = this.inputSource.parse(filename);
+
+      this.dumpJsonPath(jsonElement, out);
     }
   }
+
+  private void dumpJsonPath(JsonElement jsonElement, PrintWriter out) {
+    new JsonPathLister(out, this.includeValues).list(jsonElement);
+  }
 }
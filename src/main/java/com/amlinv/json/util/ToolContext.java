@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util;
+
+import com.amlinv.json.util.input.JsonInputSource;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+
+/**
+ * The process environment a JsonTool runs in: its standard streams and working directory.
+ */
+public class ToolContext {
+
+  private final InputStream in;
+  private final PrintStream out;
+  private final PrintStream err;
+  private final Path workingDirectory;
+
+  /**
+   * @param workingDirectory directory relative filenames are resolved against; null for the
+   * directory of the process.
+   */
+  public ToolContext(InputStream in, PrintStream out, PrintStream err, Path workingDirectory) {
+    this.in = in;
+    this.out = out;
+    this.err = err;
+    this.workingDirectory = workingDirectory;
+  }
+
+  /**
+   * @return the context of the process itself, as used when a tool runs from its main().
+   */
+  public static ToolContext system() {
+    return new ToolContext(System.in, System.out, System.err, null);
+  }
+
+  public InputStream getIn() {
+    return in;
+  }
+
+  public PrintStream getOut() {
+    return out;
+  }
+
+  public PrintStream getErr() {
+    return err;
+  }
+
+  public Path getWorkingDirectory() {
+    return workingDirectory;
+  }
+
+  /**
+   * Point the given input source at this context's standard input and working directory.
+   */
+  public void configure(JsonInputSource inputSource) {
+    inputSource.setStandardInput(this.in);
+    inputSource.setWorkingDirectory(this.workingDirectory);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.daemon;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Standard input of one daemon request: a series of chunks on the connection, each a line with
+ * its length followed by that many bytes, ended by a chunk of length 0.  The client can send its
+ * standard input as it reads it, without knowing the total length up front.  Closing the stream
+ * leaves the connection open.
+ */
+public class ChunkedInputStream extends InputStream {
+
+  public static final int MAX_LENGTH_DIGITS = 18;
+
+  private final InputStream connection;
+  private long remaining = 0;
+  private boolean ended = false;
+
+  public ChunkedInputStream(InputStream connection) {
+    this.connection = connection;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!this.nextChunk()) {
+      return -1;
+    }
+
+    int result = this.connection.read();
+    if (result < 0) {
+      throw new EOFException("connection closed in the middle of standard input");
+    }
+
+    this.remaining--;
+    return result;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    if (!this.nextChunk()) {
+      return -1;
+    }
+
+    int count = this.connection.read(buffer, offset, (int) Math.min(length, this.remaining));
+    if (count < 0) {
+      throw new EOFException("connection closed in the middle of standard input");
+    }
+
+    this.remaining -= count;
+    return count;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return (int) Math.min(this.connection.available(), this.remaining);
+  }
+
+  @Override
+  public void close() {
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  /**
+   * Read the header of the next chunk once the current one is used up.
+   *
+   * @return true if there are bytes left to read; false at the end of standard input.
+   */
+  private boolean nextChunk() throws IOException {
+    while ((this.remaining == 0) && (!this.ended)) {
+      this.remaining = this.readLength();
+      this.ended = (this.remaining == 0);
+    }
+
+    return !this.ended;
+  }
+
+  private long readLength() throws IOException {
+    long result = 0;
+    int digits = 0;
+
+    int value = this.connection.read();
+    while (value != '\n') {
+      if (value < 0) {
+        throw new EOFException("connection closed in the middle of standard input");
+      }
+      if ((value < '0') || (value > '9') || (digits >= MAX_LENGTH_DIGITS)) {
+        throw new IOException("invalid standard input chunk length");
+      }
+
+      result = (result * 10) + (value - '0');
+      digits++;
+      value = this.connection.read();
+    }
+
+    if (digits == 0) {
+      throw new IOException("invalid standard input chunk length");
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.daemon;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Output stream that sends everything written to it to the daemon client as frames of one kind,
+ * so standard output and standard error can share the connection.  Each frame is a header line of
+ * the kind and the length in bytes, followed by the bytes themselves.
+ */
+public class FrameOutputStream extends OutputStream {
+
+  private final OutputStream connection;
+  private final char kind;
+  private final Object lock;
+
+  /**
+   * @param lock shared by all of the frame streams writing to the same connection.
+   */
+  public FrameOutputStream(OutputStream connection, char kind, Object lock) {
+    this.connection = connection;
+    this.kind = kind;
+    this.lock = lock;
+  }
+
+  @Override
+  public void write(int value) throws IOException {
+    this.write(new byte[]{(byte) value}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return;
+    }
+
+    byte[] header = (this.kind + " " + length + "\n").getBytes(StandardCharsets.US_ASCII);
+
+    synchronized (this.lock) {
+      this.connection.write(header);
+      this.connection.write(buffer, offset, length);
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    synchronized (this.lock) {
+      this.connection.flush();
+    }
+  }
+
+  /**
+   * The connection is shared, and is closed by the daemon once the request is complete.
+   */
+  @Override
+  public void close() throws IOException {
+    this.flush();
+  }
+}
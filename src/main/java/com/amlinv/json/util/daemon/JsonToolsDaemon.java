@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.daemon;
+
+import com.amlinv.json.util.JsonDeserialize;
+import com.amlinv.json.util.JsonDeserializeString;
+import com.amlinv.json.util.JsonDiff;
+import com.amlinv.json.util.JsonFullUnifiedDiff;
+import com.amlinv.json.util.JsonFullUnifiedDiff2;
+import com.amlinv.json.util.JsonPatchApply;
+import com.amlinv.json.util.JsonPathUtil;
+import com.amlinv.json.util.JsonTool;
+import com.amlinv.json.util.ListElementsByJsonPath;
+import com.amlinv.json.util.ToolContext;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Long-running server that runs the tools on behalf of the json-tools-client script, so each
+ * invocation is served by a warmed-up JVM instead of paying for JVM startup and class loading.
+ *
+ * Java 8 has no Unix domain sockets, so the daemon listens on a loopback TCP port instead.  Access
+ * is limited to the owner of the state file: the daemon writes its port and a random token to the
+ * file with owner-only permissions, and every request must present the token.
+ *
+ * A request is a series of lines: the protocol version, the token, the working directory, the
+ * tool name, the argument count and each argument, then standard input as a series of chunks,
+ * each a line with its length followed by that many bytes, ended by a chunk of length 0.  The
+ * client sends standard input while reading the response, so a tool can write output before it
+ * has read all of its input.  The response is a series of frames, "O" for standard output and
+ * "E" for standard error, each a header line of the kind and length followed by the bytes, and
+ * ends with an "X" line carrying the exit status.
+ */
+public class JsonToolsDaemon {
+
+  public static final String PROTOCOL_VERSION = "JSONTOOLS 2";
+  public static final String SHUTDOWN_TOOL = "--shutdown";
+  public static final String DEFAULT_STATE_FILENAME = ".json-tools-daemon";
+  public static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+  public static final int REQUEST_TIMEOUT_MS = 30000;
+  public static final int MAX_LINE_LENGTH = 1024 * 1024;
+
+  private final Map<String, Supplier<JsonTool>> tools = new LinkedHashMap<>();
+
+  private int port = 0;
+  private Path stateFile = Paths.get(System.getProperty("user.home"), DEFAULT_STATE_FILENAME);
+  private int threads = Runtime.getRuntime().availableProcessors() * 2;
+
+  private byte[] token;
+  private ServerSocket serverSocket;
+  private volatile boolean running;
+
+  public JsonToolsDaemon() {
+    // Tools are available under the names of their wrapper scripts in scripts/ and their class
+    // names.
+    this.addTool(JsonDeserialize::new, "json-deserialize", "JsonDeserialize");
+    this.addTool(JsonDeserializeString::new, "json-deserialize-string", "JsonDeserializeString");
+    this.addTool(JsonDiff::new, "json-diff", "JsonDiff");
+    this.addTool(JsonFullUnifiedDiff::new, "json-full-unified-diff", "JsonFullUnifiedDiff");
+    this.addTool(JsonFullUnifiedDiff2::new, "json-full-unified-diff2", "JsonFullUnifiedDiff2");
+    this.addTool(JsonPatchApply::new, "json-patch-apply", "JsonPatchApply");
+    this.addTool(JsonPathUtil::new, "json-path", "JsonPathUtil");
+    this.addTool(ListElementsByJsonPath::new, "json-list-elements", "ListElementsByJsonPath");
+  }
+
+  public static void main(String[] args) {
+    new JsonToolsDaemon().instanceMain(args);
+  }
+
+  public void instanceMain(String[] args) {
+    while ((args.length > 0) && (args[0].startsWith("--"))) {
+      String option = args[0];
+      args = Arrays.copyOfRange(args, 1, args.length);
+
+      if ((option.equals("--port")) && (args.length > 0)) {
+        this.port = Integer.parseInt(args[0]);
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else if ((option.equals("--state-file")) && (args.length > 0)) {
+        this.stateFile = Paths.get(args[0]);
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else if ((option.equals("--threads")) && (args.length > 0)) {
+        this.threads = Integer.parseInt(args[0]);
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else {
+        this.dumpUsageAndTerminate();
+      }
+    }
+
+    if ((args.length != 0) || (this.threads < 1)) {
+      this.dumpUsageAndTerminate();
+    }
+
+    try {
+      this.start();
+      this.serve();
+    } catch (Exception exc) {
+      exc.printStackTrace();
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Make the tool available under the given names.
+   */
+  public void addTool(Supplier<JsonTool> toolFactory, String... names) {
+    for (String name : names) {
+      this.tools.put(name, toolFactory);
+    }
+  }
+
+  /**
+   * Listen on the loopback interface and publish the port and token in the state file.
+   */
+  public void start() throws IOException {
+    this.token = new byte[16];
+    new SecureRandom().nextBytes(this.token);
+
+    this.serverSocket = new ServerSocket(this.port, 50, InetAddress.getLoopbackAddress());
+    this.running = true;
+
+    this.writeStateFile();
+
+    Runtime.getRuntime().addShutdownHook(new Thread(this::removeStateFile));
+  }
+
+  /**
+   * Accept and run requests until shut down.
+   */
+  public void serve() throws IOException {
+    ExecutorService executorService = Executors.newFixedThreadPool(this.threads);
+
+    try {
+      while (this.running) {
+        Socket socket;
+        try {
+          socket = this.serverSocket.accept();
+        } catch (IOException ioExc) {
+          if (!this.running) {
+            break;
+          }
+
+          throw ioExc;
+        }
+
+        executorService.execute(() -> this.handleConnection(socket));
+      }
+    } finally {
+      executorService.shutdown();
+      this.removeStateFile();
+    }
+  }
+
+  public void shutdown() {
+    this.running = false;
+
+    try {
+      this.serverSocket.close();
+    } catch (IOException ioExc) {
+      ioExc.printStackTrace();
+    }
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void dumpUsageAndTerminate() {
+    System.err.println("Usage: JsonToolsDaemon [--port <port>] [--state-file <file>]"
+                       + " [--threads <n>]");
+    System.err.println("The state file, ~/" + DEFAULT_STATE_FILENAME + " by default, receives the"
+                       + " port and access token for json-tools-client");
+    System.exit(1);
+  }
+
+  private void writeStateFile() throws IOException {
+    Files.deleteIfExists(this.stateFile);
+
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      Files.createFile(this.stateFile,
+                       PosixFilePermissions.asFileAttribute(
+                           PosixFilePermissions.fromString("rw-------")));
+    }
+
+    String content = this.serverSocket.getLocalPort() + " " + this.hex(this.token) + "\n";
+    Files.write(this.stateFile, content.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private void removeStateFile() {
+    try {
+      Files.deleteIfExists(this.stateFile);
+    } catch (IOException ioExc) {
+      // Nothing more to do while shutting down.
+    }
+  }
+
+  private void handleConnection(Socket socket) {
+    try (Socket connection = socket) {
+      connection.setSoTimeout(REQUEST_TIMEOUT_MS);
+
+      InputStream in = new BufferedInputStream(connection.getInputStream());
+      OutputStream rawOut = new BufferedOutputStream(connection.getOutputStream());
+
+      if (!this.readLine(in).equals(PROTOCOL_VERSION)) {
+        return;
+      }
+      if (!this.isValidToken(this.readLine(in))) {
+        return;
+      }
+
+      Path workingDirectory = Paths.get(this.readLine(in));
+      String toolName = this.readLine(in);
+
+      int argCount = Integer.parseInt(this.readLine(in));
+      String[] args = new String[argCount];
+
+      int cur = 0;
+      while (cur < argCount) {
+        args[cur] = this.readLine(in);
+        cur++;
+      }
+
+      // Standard input may take as long as the client needs to produce it.
+      connection.setSoTimeout(0);
+
+      int status = this.runTool(toolName, args, workingDirectory, new ChunkedInputStream(in),
+                                rawOut);
+
+      rawOut.write(("X " + status + "\n").getBytes(StandardCharsets.US_ASCII));
+      rawOut.flush();
+
+      this.lingeringClose(connection, in);
+    } catch (IOException | RuntimeException exc) {
+      // The client went away or sent a malformed request; there is no one left to tell.
+    }
+  }
+
+  /**
+   * Closing a socket with unread input resets the connection, which can discard response bytes
+   * the client has not read yet; that happens whenever the tool leaves standard input unread.
+   * Instead, end the response and wait, for a while at most, for the client to close its end.
+   */
+  private void lingeringClose(Socket connection, InputStream in) throws IOException {
+    connection.shutdownOutput();
+    connection.setSoTimeout(REQUEST_TIMEOUT_MS);
+
+    byte[] buffer = new byte[OUTPUT_BUFFER_SIZE];
+    while (in.read(buffer) >= 0) {
+      // Discard the rest of the request.
+    }
+  }
+
+  private int runTool(String toolName, String[] args, Path workingDirectory, InputStream stdin,
+                      OutputStream rawOut) {
+    Object lock = new Object();
+    PrintStream out = new PrintStream(
+        new BufferedOutputStream(new FrameOutputStream(rawOut, 'O', lock), OUTPUT_BUFFER_SIZE));
+    PrintStream err = new PrintStream(
+        new BufferedOutputStream(new FrameOutputStream(rawOut, 'E', lock), OUTPUT_BUFFER_SIZE));
+
+    int status;
+    try {
+      if (toolName.equals(SHUTDOWN_TOOL)) {
+        this.shutdown();
+        status = 0;
+      } else if (this.tools.containsKey(toolName)) {
+        JsonTool tool = this.tools.get(toolName).get();
+
+        status = tool.execute(args, new ToolContext(stdin, out, err, workingDirectory));
+      } else {
+        err.println("Unknown tool " + toolName + "; available tools: " + this.tools.keySet());
+        status = 1;
+      }
+    } catch (Throwable thrown) {
+      // The same failure would have ended the process of a tool run from the command line.
+      thrown.printStackTrace(err);
+      status = 1;
+    }
+
+    out.flush();
+    err.flush();
+
+    return status;
+  }
+
+  private boolean isValidToken(String presented) {
+    return MessageDigest.isEqual(this.hex(this.token).getBytes(StandardCharsets.US_ASCII),
+                                 presented.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Read one UTF-8 line of the request, without reading past its end.
+   */
+  private String readLine(InputStream in) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    int value = in.read();
+    while (value != '\n') {
+      if (value < 0) {
+        throw new EOFException("connection closed in the middle of a request");
+      }
+      if (line.size() >= MAX_LINE_LENGTH) {
+        throw new IOException("request line too long");
+      }
+
+      line.write(value);
+      value = in.read();
+    }
+
+    return new String(line.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private String hex(byte[] bytes) {
+    StringBuilder result = new StringBuilder(bytes.length * 2);
+
+    for (byte oneByte : bytes) {
+      result.append(String.format("%02x", oneByte & 0xff));
+    }
+
+    return result.toString();
+  }
+}
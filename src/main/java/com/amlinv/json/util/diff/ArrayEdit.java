@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.diff;
+
+/**
+ * One step of an array alignment: an element removed from the first array, an element inserted
+ * from the second array, or a pair of elements that line up with each other but differ.
+ */
+public final class ArrayEdit {
+
+  public enum Type {
+    DELETE,
+    INSERT,
+    CHANGE
+  }
+
+  private final Type type;
+  private final int firstIndex;
+  private final int secondIndex;
+
+  public ArrayEdit(Type type, int firstIndex, int secondIndex) {
+    this.type = type;
+    this.firstIndex = firstIndex;
+    this.secondIndex = secondIndex;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * @return index of the element in the first array; -1 for inserts.
+   */
+  public int getFirstIndex() {
+    return firstIndex;
+  }
+
+  /**
+   * @return index of the element in the second array; -1 for deletes.
+   */
+  public int getSecondIndex() {
+    return secondIndex;
+  }
+
+  @Override
+  public String toString() {
+    return this.type + "(" + this.firstIndex + ", " + this.secondIndex + ")";
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.diff;
+
+import java.util.regex.Pattern;
+
+/**
+ * Identifies the arrays, by JSONPath, whose elements are matched by the value of a key field
+ * rather than by position.  Written as {@code <jsonpath>=<field>}, for example
+ * {@code $.orders[*].lines=id}.
+ *
+ * Only definite paths and wildcards are supported; the path is compiled to a pattern that
+ * matches the {@code $['name'][0]} notation used by the diff engines.
+ */
+public final class ArrayKeySpec {
+
+  // One quoted name, in which ' and \ are escaped with \, or one index
+  private static final String WILDCARD_PATTERN = "\\[(?:'(?:[^'\\\\]|\\\\.)*'|\\d+)\\]";
+
+  private final String arrayPath;
+  private final String keyField;
+  private final Pattern pathPattern;
+
+  public ArrayKeySpec(String arrayPath, String keyField) {
+    this.arrayPath = arrayPath;
+    this.keyField = keyField;
+    this.pathPattern = Pattern.compile(compilePathPattern(arrayPath));
+  }
+
+  /**
+   * Parse a specification of the form {@code <jsonpath>=<field>}.
+   */
+  public static ArrayKeySpec parse(String spec) {
+    int separator = spec.lastIndexOf('=');
+    if ((separator <= 0) || (separator == spec.length() - 1)) {
+      throw new IllegalArgumentException("array key must be <jsonpath>=<field>: " + spec);
+    }
+
+    return new ArrayKeySpec(spec.substring(0, separator), spec.substring(separator + 1));
+  }
+
+  public String getArrayPath() {
+    return arrayPath;
+  }
+
+  public String getKeyField() {
+    return keyField;
+  }
+
+  /**
+   * @return the path of the named member of the value at the given path, in the {@code $['name']}
+   * notation used by the diff engines; ' and \ in the name are escaped with \, so that each step
+   * of the path can be told apart.
+   */
+  public static String memberPath(String path, String memberName) {
+    return path + "['" + escapeName(memberName) + "']";
+  }
+
+  public boolean matches(String path) {
+    return this.pathPattern.matcher(path).matches();
+  }
+
+  @Override
+  public String toString() {
+    return this.arrayPath + "=" + this.keyField;
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private static String compilePathPattern(String path) {
+    if (!path.startsWith("$")) {
+      throw new IllegalArgumentException("array key path must start with $: " + path);
+    }
+
+    StringBuilder result = new StringBuilder("\\$");
+
+    int pos = 1;
+    int len = path.length();
+    while (pos < len) {
+      char ch = path.charAt(pos);
+
+      if (ch == '.') {
+        pos++;
+        if ((pos < len) && (path.charAt(pos) == '.')) {
+          throw new IllegalArgumentException("deep scan is not supported in array key paths: "
+                                             + path);
+        }
+
+        int end = pos;
+        while ((end < len) && (path.charAt(end) != '.') && (path.charAt(end) != '[')) {
+          end++;
+        }
+
+        appendNameSegment(result, path.substring(pos, end));
+        pos = end;
+      } else if (ch == '[') {
+        int end = path.indexOf(']', pos);
+        if (end < 0) {
+          throw new IllegalArgumentException("unterminated bracket in array key path: " + path);
+        }
+
+        String content = path.substring(pos + 1, end).trim();
+        if ((content.length() >= 2) &&
+            (((content.startsWith("'")) && (content.endsWith("'"))) ||
+             ((content.startsWith("\"")) && (content.endsWith("\""))))) {
+          appendLiteralName(result, content.substring(1, content.length() - 1));
+        } else if (content.equals("*")) {
+          result.append(WILDCARD_PATTERN);
+        } else if (content.matches("\\d+")) {
+          result.append("\\[").append(Integer.parseInt(content)).append("\\]");
+        } else {
+          throw new IllegalArgumentException("unsupported selector in array key path: " + path);
+        }
+
+        pos = end + 1;
+      } else {
+        throw new IllegalArgumentException("unexpected character in array key path: " + path);
+      }
+    }
+
+    return result.toString();
+  }
+
+  private static void appendNameSegment(StringBuilder result, String name) {
+    if (name.isEmpty()) {
+      throw new IllegalArgumentException("empty member name in array key path");
+    }
+
+    if (name.equals("*")) {
+      result.append(WILDCARD_PATTERN);
+    } else {
+      appendLiteralName(result, name);
+    }
+  }
+
+  private static void appendLiteralName(StringBuilder result, String name) {
+    result.append("\\[").append(Pattern.quote("'" + escapeName(name) + "'")).append("\\]");
+  }
+
+  private static String escapeName(String name) {
+    if ((name.indexOf('\'') < 0) && (name.indexOf('\\') < 0)) {
+      return name;
+    }
+
+    return name.replace("\\", "\\\\").replace("'", "\\'");
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.diff;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for array key specifications and the diff paths they match.
+ */
+public class ArrayKeySpecTest {
+
+  @Test
+  public void testParse() {
+    ArrayKeySpec spec = ArrayKeySpec.parse("$.orders[*].lines=id");
+
+    assertEquals("$.orders[*].lines", spec.getArrayPath());
+    assertEquals("id", spec.getKeyField());
+    assertEquals("$.orders[*].lines=id", spec.toString());
+  }
+
+  @Test
+  public void testWildcardMatchesOneStep() {
+    ArrayKeySpec spec = ArrayKeySpec.parse("$.*=id");
+
+    assertTrue(spec.matches("$['a']"));
+    assertTrue(spec.matches("$[3]"));
+    assertFalse(spec.matches("$"));
+    assertFalse(spec.matches("$['a']['b']"));
+    assertFalse(spec.matches("$['a'][3]"));
+    assertFalse(spec.matches("$['a'][3]['b']"));
+  }
+
+  @Test
+  public void testWildcardBetweenNames() {
+    ArrayKeySpec spec = ArrayKeySpec.parse("$.orders[*].lines=id");
+
+    assertTrue(spec.matches("$['orders'][0]['lines']"));
+    assertTrue(spec.matches("$['orders']['x']['lines']"));
+    assertFalse(spec.matches("$['orders'][0]['x']['lines']"));
+    assertFalse(spec.matches("$['orders'][0]['lines'][1]"));
+  }
+
+  @Test
+  public void testNamesWithQuotesAndBackslashes() {
+    String path = ArrayKeySpec.memberPath(ArrayKeySpec.memberPath("$", "it's"), "a\\']['b");
+
+    assertEquals("$['it\\'s']['a\\\\\\'][\\'b']", path);
+
+    // The escaped name is a single step
+    assertFalse(ArrayKeySpec.parse("$.*.*.*=id").matches(path));
+    assertTrue(ArrayKeySpec.parse("$.*.*=id").matches(path));
+    assertTrue(ArrayKeySpec.parse("$[\"it's\"].*=id").matches(path));
+    assertTrue(ArrayKeySpec.parse("$[\"it's\"]=id")
+                   .matches(ArrayKeySpec.memberPath("$", "it's")));
+  }
+
+  @Test
+  public void testMemberPathOfPlainName() {
+    assertEquals("$['a b']", ArrayKeySpec.memberPath("$", "a b"));
+  }
+
+  @Test
+  public void testDefinitePaths() {
+    ArrayKeySpec spec = ArrayKeySpec.parse("$['a'].b[2]=key");
+
+    assertTrue(spec.matches("$['a']['b'][2]"));
+    assertFalse(spec.matches("$['a']['b'][3]"));
+    assertFalse(spec.matches("$['a']['b'][2][0]"));
+  }
+
+  @Test
+  public void testInvalidSpecs() {
+    this.assertInvalid("$.a");
+    this.assertInvalid("$.a=");
+    this.assertInvalid("a.b=id");
+    this.assertInvalid("$..a=id");
+    this.assertInvalid("$[?(@.x)]=id");
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void assertInvalid(String spec) {
+    try {
+      ArrayKeySpec.parse(spec);
+      fail("expected " + spec + " to be rejected");
+    } catch (IllegalArgumentException expected) {
+      // Expected
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.diff;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts of the differences found by a diff, per top-level branch of the documents.  Each
+ * reported difference counts once, so an added object counts as one added node no matter its
+ * size.  Thread-safe, for parallel diffs.
+ */
+public class DiffSummary {
+
+  public enum Type {
+    ADDED,
+    REMOVED,
+    CHANGED
+  }
+
+  private final Map<String, long[]> branchCounts = new TreeMap<>();
+  private final long[] totalCounts = new long[Type.values().length];
+
+  /**
+   * Count a difference at the given path, in the $['name'][0] notation of the diff engines.
+   */
+  public synchronized void record(String path, Type type) {
+    long[] counts = this.branchCounts.computeIfAbsent(getBranch(path),
+                                                      key -> new long[Type.values().length]);
+    counts[type.ordinal()]++;
+    this.totalCounts[type.ordinal()]++;
+  }
+
+  public synchronized long getTotal(Type type) {
+    return this.totalCounts[type.ordinal()];
+  }
+
+  public synchronized long getCount(String branch, Type type) {
+    long[] counts = this.branchCounts.get(branch);
+    if (counts == null) {
+      return 0;
+    }
+
+    return counts[type.ordinal()];
+  }
+
+  public synchronized boolean isEmpty() {
+    return this.branchCounts.isEmpty();
+  }
+
+  /**
+   * Print one line per branch, in sorted order, followed by the totals.
+   */
+  public synchronized void print(PrintWriter out) {
+    for (Map.Entry<String, long[]> entry : this.branchCounts.entrySet()) {
+      this.printCounts(out, entry.getKey(), entry.getValue());
+    }
+
+    this.printCounts(out, "total", this.totalCounts);
+  }
+
+  /**
+   * @return the top-level member or element of the given path, such as $['name'] or $[0]; $ for
+   * the root itself.
+   */
+  public static String getBranch(String path) {
+    if ((path.length() < 2) || (path.charAt(1) != '[')) {
+      return path;
+    }
+
+    int end = -1;
+    if ((path.length() > 2) && (path.charAt(2) == '\'')) {
+      // Names escape ' and \ with \
+      int cur = 3;
+      while (cur < path.length() - 1) {
+        char ch = path.charAt(cur);
+        if (ch == '\\') {
+          cur += 2;
+        } else if ((ch == '\'') && (path.charAt(cur + 1) == ']')) {
+          end = cur + 2;
+          break;
+        } else {
+          cur++;
+        }
+      }
+    } else {
+      end = path.indexOf(']', 2);
+      if (end >= 0) {
+        end++;
+      }
+    }
+
+    if (end < 0) {
+      return path;
+    }
+
+    return path.substring(0, end);
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void printCounts(PrintWriter out, String name, long[] counts) {
+    out.println(name + ": " + counts[Type.ADDED.ordinal()] + " added, "
+                + counts[Type.REMOVED.ordinal()] + " removed, "
+                + counts[Type.CHANGED.ordinal()] + " changed");
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.diff;
+
+import com.google.gson.JsonElement;
+
+/**
+ * Receives the events of a full diff walk, in document order.  Every value is announced by
+ * startMember() inside an object or startArrayMember() inside an array, except for the root,
+ * and is then either a nested object or array, or one of the value events.
+ */
+public interface JsonDiffEventSink {
+
+  void startObject();
+
+  void finishObject();
+
+  void startArray();
+
+  void finishArray();
+
+  void startMember(String name);
+
+  void startArrayMember();
+
+  /**
+   * The value is identical in both documents; the tree diff passes objects and arrays whole rather
+   * than walking them.  The tape diff walks them instead, with the events above, so sinks must
+   * treat both the same.
+   */
+  void unchangedValue(JsonElement value);
+
+  /**
+   * The value was replaced, either by a different primitive or by a value of another type.
+   */
+  void changedValue(JsonElement first, JsonElement second);
+
+  /**
+   * The member or element only exists in the first document.
+   */
+  void removedValue(JsonElement value);
+
+  /**
+   * The member or element only exists in the second document.
+   */
+  void addedValue(JsonElement value);
+}
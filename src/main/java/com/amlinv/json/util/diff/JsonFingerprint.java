@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.diff;
+
+/**
+ * 128-bit structural hash of a JSON value.  Two values with equal fingerprints are treated as
+ * having identical content.
+ */
+public final class JsonFingerprint {
+
+  private final long high;
+  private final long low;
+
+  public JsonFingerprint(long high, long low) {
+    this.high = high;
+    this.low = low;
+  }
+
+  public long getHigh() {
+    return high;
+  }
+
+  public long getLow() {
+    return low;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof JsonFingerprint)) {
+      return false;
+    }
+
+    JsonFingerprint otherFingerprint = (JsonFingerprint) other;
+
+    return (this.high == otherFingerprint.high) && (this.low == otherFingerprint.low);
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (this.low ^ (this.low >>> 32));
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%016x%016x", this.high, this.low);
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.diff;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Computes structural fingerprints of JSON values, caching the result for every object and array
+ * so that repeated lookups while walking a tree are O(1).  Object fingerprints ignore member
+ * order, matching the diff engines which compare members by name.
+ *
+ * The cache is keyed by identity, so the trees must not be modified while a fingerprinter is in
+ * use.  Not thread-safe while computing; once the roots have been fingerprinted, lookups only
+ * read the cache.
+ */
+public class JsonFingerprinter {
+
+  private static final long HIGH_SEED = 0x9e3779b97f4a7c15L;
+  private static final long LOW_SEED = 0xc2b2ae3d27d4eb4fL;
+
+  private static final long NULL_TAG = 1;
+  private static final long TRUE_TAG = 2;
+  private static final long FALSE_TAG = 3;
+  private static final long NUMBER_TAG = 4;
+  private static final long STRING_TAG = 6;
+  private static final long ARRAY_TAG = 7;
+  private static final long OBJECT_TAG = 8;
+
+  private final Map<JsonElement, JsonFingerprint> cache = new IdentityHashMap<>();
+
+  public JsonFingerprint fingerprint(JsonElement element) {
+    if (element.isJsonObject()) {
+      JsonFingerprint result = this.cache.get(element);
+      if (result == null) {
+        result = this.fingerprintObject(element.getAsJsonObject());
+        this.cache.put(element, result);
+      }
+
+      return result;
+    } else if (element.isJsonArray()) {
+      JsonFingerprint result = this.cache.get(element);
+      if (result == null) {
+        result = this.fingerprintArray(element.getAsJsonArray());
+        this.cache.put(element, result);
+      }
+
+      return result;
+    } else if (element.isJsonPrimitive()) {
+      return this.fingerprintPrimitive(element.getAsJsonPrimitive());
+    }
+
+    return new JsonFingerprint(mix(HIGH_SEED + NULL_TAG), mix(LOW_SEED + NULL_TAG));
+  }
+
+  /**
+   * Determine whether the two elements are both objects, or both arrays, with identical content.
+   * Primitives always return false; comparing them directly is cheaper than hashing.
+   */
+  public boolean isSameContent(JsonElement first, JsonElement second) {
+    if (((first.isJsonObject()) && (second.isJsonObject())) ||
+        ((first.isJsonArray()) && (second.isJsonArray()))) {
+      return this.fingerprint(first).equals(this.fingerprint(second));
+    }
+
+    return false;
+  }
+
+  public void clear() {
+    this.cache.clear();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private JsonFingerprint fingerprintObject(JsonObject object) {
+    long high = 0;
+    long low = 0;
+    int count = 0;
+
+    // Summing the member hashes makes the result independent of member order
+    for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+      JsonFingerprint valueFingerprint = this.fingerprint(entry.getValue());
+
+      String name = entry.getKey();
+
+      high += mix(hashString(name, HIGH_SEED) ^ Long.rotateLeft(valueFingerprint.getHigh(), 17));
+      low += mix(hashString(name, LOW_SEED) ^ Long.rotateLeft(valueFingerprint.getLow(), 29));
+      count++;
+    }
+
+    return new JsonFingerprint(mix(high ^ mix(HIGH_SEED + OBJECT_TAG + count)),
+                               mix(low ^ mix(LOW_SEED + OBJECT_TAG + count)));
+  }
+
+  private JsonFingerprint fingerprintArray(JsonArray array) {
+    long high = HIGH_SEED + ARRAY_TAG;
+    long low = LOW_SEED + ARRAY_TAG;
+
+    for (JsonElement element : array) {
+      JsonFingerprint elementFingerprint = this.fingerprint(element);
+
+      high = mix(high ^ elementFingerprint.getHigh()) + 0x9e3779b97f4a7c15L;
+      low = mix(low ^ elementFingerprint.getLow()) + 0x94d049bb133111ebL;
+    }
+
+    return new JsonFingerprint(mix(high + array.size()), mix(low + array.size()));
+  }
+
+  private JsonFingerprint fingerprintPrimitive(JsonPrimitive primitive) {
+    long tag;
+    long value;
+
+    if (primitive.isBoolean()) {
+      tag = primitive.getAsBoolean() ? TRUE_TAG : FALSE_TAG;
+      value = 0;
+    } else if (primitive.isNumber()) {
+      // Hash the numeric value from the text, matching the exact comparison of the diff engines
+      String text = primitive.getAsString();
+
+      return new JsonFingerprint(mix(JsonNumberComparator.hashNumber(text, HIGH_SEED + NUMBER_TAG)),
+                                 mix(JsonNumberComparator.hashNumber(text, LOW_SEED + NUMBER_TAG)));
+    } else {
+      String stringValue = primitive.getAsString();
+
+      return new JsonFingerprint(hashString(stringValue, HIGH_SEED + STRING_TAG),
+                                 hashString(stringValue, LOW_SEED + STRING_TAG));
+    }
+
+    return new JsonFingerprint(mix(HIGH_SEED + tag + mix(value)),
+                               mix(LOW_SEED + tag + mix(~value)));
+  }
+
+  private static long hashString(String value, long seed) {
+    long hash = seed ^ value.length();
+
+    int len = value.length();
+    for (int cur = 0; cur < len; cur++) {
+      hash = (hash ^ value.charAt(cur)) * 0x100000001b3L;
+    }
+
+    return mix(hash);
+  }
+
+  /**
+   * 64-bit finalizer from MurmurHash3.
+   */
+  private static long mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+
+    return value;
+  }
+}
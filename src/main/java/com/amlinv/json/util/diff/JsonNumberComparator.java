@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.diff;
+
+import com.google.gson.JsonPrimitive;
+
+import java.math.BigDecimal;
+
+/**
+ * Compares JSON primitives, comparing numbers by their numeric value straight from their text, so
+ * that 1, 1.0, and 1e0 are the same number and large integers or long fractions are compared
+ * exactly instead of through doubles.  Numbers of up to 4095 characters with exponents up to
+ * 99999 are compared without allocating; anything beyond falls back to BigDecimal.
+ *
+ * An optional tolerance treats numbers whose difference is no more than the tolerance as the
+ * same; that comparison goes through doubles.
+ */
+public class JsonNumberComparator {
+
+  private static final long INVALID = -1;
+  private static final long ZERO = -2;
+
+  private static final int MAX_LENGTH = 4095;
+  private static final int MAX_EXPONENT = 99999;
+
+  // Bit layout of the scanned number: see scan()
+  private static final int INT_START_SHIFT = 0;
+  private static final int INT_LENGTH_SHIFT = 1;
+  private static final int FIRST_DIGIT_SHIFT = 13;
+  private static final int LAST_DIGIT_SHIFT = 25;
+  private static final int NEGATIVE_SHIFT = 37;
+  private static final int POINT_EXPONENT_SHIFT = 38;
+  private static final int POSITION_MASK = 0xfff;
+  private static final int POINT_EXPONENT_OFFSET = 1 << 18;
+
+  private final double tolerance;
+
+  public JsonNumberComparator() {
+    this(0);
+  }
+
+  public JsonNumberComparator(double tolerance) {
+    this.tolerance = tolerance;
+  }
+
+  public double getTolerance() {
+    return tolerance;
+  }
+
+  /**
+   * Determine whether the two primitives are the same: numbers by numeric value, within the
+   * tolerance; strings and booleans by value.
+   */
+  public boolean isSame(JsonPrimitive first, JsonPrimitive second) {
+    if ((first.isNumber()) && (second.isNumber())) {
+      return this.isSame(first.getAsString(), second.getAsString());
+    }
+
+    return first.equals(second);
+  }
+
+  /**
+   * Determine whether the two number texts hold the same numeric value, within the tolerance.
+   */
+  public boolean isSame(String firstText, String secondText) {
+    if (isSameNumber(firstText, secondText)) {
+      return true;
+    }
+
+    return (this.tolerance > 0) && (this.isWithinTolerance(firstText, secondText));
+  }
+
+  /**
+   * Determine whether the two number texts hold exactly the same numeric value.  Zero and
+   * negative zero are the same.
+   */
+  public static boolean isSameNumber(String first, String second) {
+    if (first.equals(second)) {
+      return true;
+    }
+
+    long firstScan = scan(first);
+    long secondScan = scan(second);
+
+    if ((firstScan == INVALID) || (secondScan == INVALID)) {
+      return isSameBigDecimal(first, second);
+    }
+
+    if ((firstScan == ZERO) || (secondScan == ZERO)) {
+      return (firstScan == secondScan);
+    }
+
+    // Same sign and magnitude, and the same significant digits
+    if ((isNegative(firstScan) != isNegative(secondScan)) ||
+        (getPointExponent(firstScan) != getPointExponent(secondScan))) {
+      return false;
+    }
+
+    int firstDigit = getField(firstScan, FIRST_DIGIT_SHIFT);
+    int secondDigit = getField(secondScan, FIRST_DIGIT_SHIFT);
+    int count = getField(firstScan, LAST_DIGIT_SHIFT) - firstDigit;
+    if (count != getField(secondScan, LAST_DIGIT_SHIFT) - secondDigit) {
+      return false;
+    }
+
+    int cur = 0;
+    while (cur <= count) {
+      if (digitAt(first, firstScan, firstDigit + cur) !=
+          digitAt(second, secondScan, secondDigit + cur)) {
+        return false;
+      }
+
+      cur++;
+    }
+
+    return true;
+  }
+
+  /**
+   * Hash the numeric value of the given number text, consistent with isSameNumber(): numbers that
+   * are the same hash the same, including those that fall back to BigDecimal.
+   */
+  public static long hashNumber(String text, long seed) {
+    long scan = scan(text);
+
+    if (scan == INVALID) {
+      return hashBigDecimal(text, seed);
+    }
+
+    if (scan == ZERO) {
+      return seed ^ ZERO;
+    }
+
+    long hash = seed ^ ((long) getPointExponent(scan) << 1) ^ (isNegative(scan) ? 1 : 0);
+
+    int lastDigit = getField(scan, LAST_DIGIT_SHIFT);
+    for (int cur = getField(scan, FIRST_DIGIT_SHIFT); cur <= lastDigit; cur++) {
+      hash = (hash ^ digitAt(text, scan, cur)) * 0x100000001b3L;
+    }
+
+    return hash;
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private boolean isWithinTolerance(String first, String second) {
+    try {
+      double firstValue = Double.parseDouble(first);
+      double secondValue = Double.parseDouble(second);
+
+      return (Math.abs(firstValue - secondValue) <= this.tolerance);
+    } catch (NumberFormatException nfExc) {
+      return false;
+    }
+  }
+
+  private static boolean isSameBigDecimal(String first, String second) {
+    try {
+      return (new BigDecimal(first).compareTo(new BigDecimal(second)) == 0);
+    } catch (NumberFormatException nfExc) {
+      // Not a decimal number, such as NaN; the text already differs
+      return false;
+    }
+  }
+
+  /**
+   * Same as hashNumber(), for text that is too large to scan: the significant digits and point
+   * exponent come from the BigDecimal instead.  Text that is not a decimal number only matches
+   * the same text, so its characters are hashed.
+   */
+  private static long hashBigDecimal(String text, long seed) {
+    BigDecimal value;
+    try {
+      value = new BigDecimal(text);
+    } catch (NumberFormatException nfExc) {
+      long hash = seed ^ INVALID;
+      int len = text.length();
+      for (int cur = 0; cur < len; cur++) {
+        hash = (hash ^ text.charAt(cur)) * 0x100000001b3L;
+      }
+
+      return hash;
+    }
+
+    if (value.signum() == 0) {
+      return seed ^ ZERO;
+    }
+
+    value = value.stripTrailingZeros();
+    String digits = value.unscaledValue().abs().toString();
+    long pointExponent = (long) digits.length() - value.scale();
+
+    long hash = seed ^ (pointExponent << 1) ^ ((value.signum() < 0) ? 1 : 0);
+
+    int len = digits.length();
+    for (int cur = 0; cur < len; cur++) {
+      hash = (hash ^ digits.charAt(cur)) * 0x100000001b3L;
+    }
+
+    return hash;
+  }
+
+  /**
+   * Scan the number text, locating its digits without allocating.  The result packs:
+   *
+   * <ul>
+   *   <li>the position of the first integer digit (0 or 1, after any sign);</li>
+   *   <li>the number of integer digits, with the fraction digits following the decimal point;</li>
+   *   <li>the indexes of the first and last significant digits, counting the integer digits
+   *       followed by the fraction digits;</li>
+   *   <li>the sign;</li>
+   *   <li>the point exponent, so the value is 0.[significant digits] * 10^exponent.</li>
+   * </ul>
+   *
+   * @return the packed scan, ZERO for any zero, or INVALID when the text is not a decimal number
+   * or is too large to scan.
+   */
+  private static long scan(String text) {
+    int len = text.length();
+    if ((len == 0) || (len > MAX_LENGTH)) {
+      return INVALID;
+    }
+
+    int pos = 0;
+    boolean negative = false;
+
+    char ch = text.charAt(0);
+    if ((ch == '-') || (ch == '+')) {
+      negative = (ch == '-');
+      pos++;
+    }
+
+    int intStart = pos;
+    while ((pos < len) && (isDigit(text.charAt(pos)))) {
+      pos++;
+    }
+    int intLength = pos - intStart;
+
+    int fracLength = 0;
+    if ((pos < len) && (text.charAt(pos) == '.')) {
+      pos++;
+      int fracStart = pos;
+      while ((pos < len) && (isDigit(text.charAt(pos)))) {
+        pos++;
+      }
+      fracLength = pos - fracStart;
+    }
+
+    if (intLength + fracLength == 0) {
+      return INVALID;
+    }
+
+    int exponent = 0;
+    if ((pos < len) && ((text.charAt(pos) == 'e') || (text.charAt(pos) == 'E'))) {
+      pos++;
+
+      boolean negativeExponent = false;
+      if ((pos < len) && ((text.charAt(pos) == '-') || (text.charAt(pos) == '+'))) {
+        negativeExponent = (text.charAt(pos) == '-');
+        pos++;
+      }
+
+      int exponentStart = pos;
+      while ((pos < len) && (isDigit(text.charAt(pos)))) {
+        exponent = (exponent * 10) + (text.charAt(pos) - '0');
+        if (exponent > MAX_EXPONENT) {
+          return INVALID;
+        }
+        pos++;
+      }
+
+      if (pos == exponentStart) {
+        return INVALID;
+      }
+
+      if (negativeExponent) {
+        exponent = -exponent;
+      }
+    }
+
+    if (pos != len) {
+      return INVALID;
+    }
+
+    long scan = ((long) intStart << INT_START_SHIFT) | ((long) intLength << INT_LENGTH_SHIFT);
+
+    int digitCount = intLength + fracLength;
+    int firstDigit = 0;
+    while ((firstDigit < digitCount) && (digitAt(text, scan, firstDigit) == '0')) {
+      firstDigit++;
+    }
+
+    if (firstDigit == digitCount) {
+      return ZERO;
+    }
+
+    int lastDigit = digitCount - 1;
+    while (digitAt(text, scan, lastDigit) == '0') {
+      lastDigit--;
+    }
+
+    int pointExponent = intLength - firstDigit + exponent;
+
+    return scan | ((long) firstDigit << FIRST_DIGIT_SHIFT) | ((long) lastDigit << LAST_DIGIT_SHIFT)
+           | ((negative ? 1L : 0L) << NEGATIVE_SHIFT)
+           | ((long) (pointExponent + POINT_EXPONENT_OFFSET) << POINT_EXPONENT_SHIFT);
+  }
+
+  /**
+   * @return the digit at the given index, counting the integer digits followed by the fraction
+   * digits.
+   */
+  private static char digitAt(String text, long scan, int index) {
+    int intStart = (int) (scan & 1);
+    int intLength = getField(scan, INT_LENGTH_SHIFT);
+
+    if (index < intLength) {
+      return text.charAt(intStart + index);
+    }
+
+    // Skip the decimal point
+    return text.charAt(intStart + index + 1);
+  }
+
+  private static int getField(long scan, int shift) {
+    return (int) ((scan >>> shift) & POSITION_MASK);
+  }
+
+  private static boolean isNegative(long scan) {
+    return (((scan >>> NEGATIVE_SHIFT) & 1) != 0);
+  }
+
+  private static int getPointExponent(long scan) {
+    return (int) (scan >>> POINT_EXPONENT_SHIFT) - POINT_EXPONENT_OFFSET;
+  }
+
+  private static boolean isDigit(char ch) {
+    return ((ch >= '0') && (ch <= '9'));
+  }
+}
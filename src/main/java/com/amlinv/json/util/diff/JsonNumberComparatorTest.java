@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.diff;
+
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the number comparator.
+ */
+public class JsonNumberComparatorTest {
+
+  private static final long SEED = 0x1234567;
+
+  private JsonNumberComparator comparator;
+  private Random random;
+
+  /**
+   * Setup common test data and interactions.
+   */
+  @Before
+  public void setupTest() throws Exception {
+    this.comparator = new JsonNumberComparator();
+    this.random = new Random(42);
+  }
+
+  @Test
+  public void testSameValueWithDifferentText() {
+    this.assertAllSame("1", "1.0", "1e0", "1E+0", "10e-1", "0.1e1", "1.000", "00001",
+                       "0.0000001e7");
+    this.assertAllSame("-250", "-2.5e2", "-250.00", "-0.25E3", "-25000e-2");
+    this.assertAllSame("0.001", "1e-3", "0.0010", "100e-5");
+  }
+
+  @Test
+  public void testZeroAndNegativeZero() {
+    this.assertAllSame("0", "-0", "0.0", "-0.0", "0e5", "-0E-5", "000.000");
+
+    assertFalse(JsonNumberComparator.isSameNumber("0", "0.0000000000000000000001"));
+    assertFalse(JsonNumberComparator.isSameNumber("-0", "-1e-300"));
+  }
+
+  @Test
+  public void testDifferentValues() {
+    this.assertDifferent("1", "-1");
+    this.assertDifferent("1", "10");
+    this.assertDifferent("0.1", "0.01");
+    this.assertDifferent("12", "21");
+    this.assertDifferent("1e1", "1e2");
+    this.assertDifferent("1.5", "15e-2");
+  }
+
+  @Test
+  public void testIntegersBeyondLongRange() {
+    this.assertAllSame("123456789012345678901234567890", "1.23456789012345678901234567890e29",
+                       "12345678901234567890123456789000e-2");
+
+    // Equal as doubles, but not as numbers
+    this.assertDifferent("9223372036854775808", "9223372036854775807");
+    this.assertDifferent("123456789012345678901234567890", "123456789012345678901234567891");
+    this.assertDifferent("-18446744073709551616", "-18446744073709551617");
+  }
+
+  @Test
+  public void testLongFractions() {
+    this.assertAllSame("0.1000000000000000000000000000001",
+                       "1.000000000000000000000000000001e-1");
+
+    // Equal as doubles, but not as numbers
+    this.assertDifferent("0.1", "0.1000000000000000000000000000001");
+    this.assertDifferent("3.14159265358979323846", "3.14159265358979323847");
+  }
+
+  @Test
+  public void testExponentBeyondLimitFallsBackToBigDecimal() {
+    this.assertAllSame("1e100000", "10e99999", "0.1e100001", "1.0E+100000");
+    this.assertAllSame("-5e-100000", "-50e-100001", "-0.5e-99999");
+    this.assertAllSame("0e100000", "0", "-0.0e-123456");
+
+    this.assertDifferent("1e100000", "1e100001");
+    this.assertDifferent("1e100000", "-1e100000");
+    this.assertDifferent("1e100000", "1e99999");
+  }
+
+  @Test
+  public void testLengthBeyondLimitFallsBackToBigDecimal() {
+    String longInteger = "1" + this.repeat('0', 5000);
+    String longFraction = "0." + this.repeat('0', 5000) + "7";
+
+    this.assertAllSame(longInteger, "1e5000", "10e4999", longInteger + ".000");
+    this.assertAllSame(longFraction, "7e-5001", "0.7e-5000");
+
+    this.assertDifferent(longInteger, "1e5001");
+    this.assertDifferent(longFraction, "7e-5002");
+  }
+
+  @Test
+  public void testTextThatIsNotANumber() {
+    assertTrue(JsonNumberComparator.isSameNumber("NaN", "NaN"));
+    assertFalse(JsonNumberComparator.isSameNumber("NaN", "Infinity"));
+    assertFalse(JsonNumberComparator.isSameNumber("1", "1x"));
+    assertEquals(JsonNumberComparator.hashNumber("NaN", SEED),
+                 JsonNumberComparator.hashNumber("NaN", SEED));
+  }
+
+  @Test
+  public void testTolerance() {
+    JsonNumberComparator tolerant = new JsonNumberComparator(0.01);
+
+    assertTrue(tolerant.isSame("1.0", "1.005"));
+    assertTrue(tolerant.isSame("1e100000", "10e99999"));
+    assertFalse(tolerant.isSame("1.0", "1.02"));
+
+    assertFalse(this.comparator.isSame("1.0", "1.005"));
+    assertTrue(this.comparator.isSame("1.0", "1"));
+  }
+
+  @Test
+  public void testPrimitives() {
+    JsonPrimitive one = new JsonPrimitive(new LazilyParsedNumber("1"));
+
+    assertTrue(this.comparator.isSame(one, new JsonPrimitive(new LazilyParsedNumber("1.0"))));
+    assertFalse(this.comparator.isSame(one, new JsonPrimitive("1")));
+    assertTrue(this.comparator.isSame(new JsonPrimitive("1"), new JsonPrimitive("1")));
+    assertFalse(this.comparator.isSame(new JsonPrimitive(true), new JsonPrimitive("true")));
+  }
+
+  @Test
+  public void testGeneratedNumbersAgreeWithBigDecimal() {
+    int cur = 0;
+    while (cur < 5000) {
+      BigDecimal value = this.randomValue();
+
+      List<String> texts = this.notations(value);
+      this.assertAllSame(texts.toArray(new String[texts.size()]));
+
+      // Against a nearby value, which may or may not be the same
+      BigDecimal other = (this.random.nextBoolean()) ? this.randomValue() :
+                         value.add(BigDecimal.ONE.movePointLeft(this.random.nextInt(40)));
+      String otherText = this.notations(other).get(this.random.nextInt(4));
+
+      boolean expected = (value.compareTo(other) == 0);
+      for (String text : texts) {
+        assertEquals(text + " vs " + otherText, expected,
+                     JsonNumberComparator.isSameNumber(text, otherText));
+      }
+      cur++;
+    }
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  /**
+   * Assert that all the given numbers are the same, and hash the same, whichever order they are
+   * compared in.
+   */
+  private void assertAllSame(String... texts) {
+    for (String first : texts) {
+      for (String second : texts) {
+        assertTrue(first + " vs " + second, JsonNumberComparator.isSameNumber(first, second));
+        assertEquals(first + " vs " + second, JsonNumberComparator.hashNumber(first, SEED),
+                     JsonNumberComparator.hashNumber(second, SEED));
+      }
+    }
+  }
+
+  private void assertDifferent(String first, String second) {
+    assertFalse(first + " vs " + second, JsonNumberComparator.isSameNumber(first, second));
+    assertFalse(second + " vs " + first, JsonNumberComparator.isSameNumber(second, first));
+    assertNotEquals(first + " vs " + second, JsonNumberComparator.hashNumber(first, SEED),
+                    JsonNumberComparator.hashNumber(second, SEED));
+  }
+
+  private BigDecimal randomValue() {
+    BigInteger unscaled = new BigInteger(1 + this.random.nextInt(120), this.random);
+    if (this.random.nextBoolean()) {
+      unscaled = unscaled.negate();
+    }
+
+    return new BigDecimal(unscaled, this.random.nextInt(80) - 40);
+  }
+
+  /**
+   * @return the value written in several notations: plain, scientific, engineering, and with
+   * extra trailing zeros and a shifted exponent.
+   */
+  private List<String> notations(BigDecimal value) {
+    List<String> result = new ArrayList<>();
+    result.add(value.toPlainString());
+    result.add(value.toString());
+    result.add(value.toEngineeringString());
+
+    int shift = this.random.nextInt(10);
+    BigDecimal padded = value.setScale(Math.max(value.scale(), 0) + this.random.nextInt(5));
+    result.add(padded.movePointRight(shift).toPlainString() + "e-" + shift);
+
+    return result;
+  }
+
+  private String repeat(char ch, int count) {
+    StringBuilder result = new StringBuilder(count);
+    int cur = 0;
+    while (cur < count) {
+      result.append(ch);
+      cur++;
+    }
+
+    return result.toString();
+  }
+}
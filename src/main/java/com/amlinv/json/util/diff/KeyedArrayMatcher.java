@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.diff;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches array elements by the value of a key field, such as an "id" member, for the arrays
+ * selected by a set of ArrayKeySpec.  Matching uses a hash index of the second array, so it is
+ * O(n) and independent of element order.
+ */
+public class KeyedArrayMatcher {
+
+  private final List<ArrayKeySpec> arrayKeys = new ArrayList<>();
+
+  public void addArrayKey(ArrayKeySpec arrayKey) {
+    this.arrayKeys.add(arrayKey);
+  }
+
+  public List<ArrayKeySpec> getArrayKeys() {
+    return arrayKeys;
+  }
+
+  public boolean isEmpty() {
+    return this.arrayKeys.isEmpty();
+  }
+
+  /**
+   * @return the key field for the array at the given path; null if the array is not keyed.
+   */
+  public String findKeyField(String arrayPath) {
+    for (ArrayKeySpec arrayKey : this.arrayKeys) {
+      if (arrayKey.matches(arrayPath)) {
+        return arrayKey.getKeyField();
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Match the elements of the two arrays by their key field.  Elements of the first array are
+   * reported in order, as a CHANGE when a matching element exists in the second array (whether
+   * or not its content differs), otherwise as a DELETE.  Unmatched elements of the second array
+   * follow as INSERTs, in order.  Elements that repeat a key match the elements of the second
+   * array with the same key in order; elements that are not objects or lack the key field match
+   * the elements of the second array without a key in the same way.
+   */
+  public List<ArrayEdit> match(JsonArray first, JsonArray second, String keyField) {
+    Map<JsonElement, ArrayDeque<Integer>> secondIndex = new HashMap<>();
+    ArrayDeque<Integer> secondUnkeyed = new ArrayDeque<>();
+
+    int cur = 0;
+    while (cur < second.size()) {
+      JsonElement key = this.extractKey(second.get(cur), keyField);
+      if (key != null) {
+        secondIndex.computeIfAbsent(key, (unused) -> new ArrayDeque<>()).add(cur);
+      } else {
+        secondUnkeyed.add(cur);
+      }
+
+      cur++;
+    }
+
+    List<ArrayEdit> result = new ArrayList<>();
+    boolean[] matched = new boolean[second.size()];
+
+    cur = 0;
+    while (cur < first.size()) {
+      JsonElement key = this.extractKey(first.get(cur), keyField);
+      Integer match;
+      if (key != null) {
+        ArrayDeque<Integer> candidates = secondIndex.get(key);
+        if (candidates != null) {
+          match = candidates.poll();
+        } else {
+          match = null;
+        }
+      } else {
+        match = secondUnkeyed.poll();
+      }
+
+      if (match != null) {
+        result.add(new ArrayEdit(ArrayEdit.Type.CHANGE, cur, match));
+        matched[match] = true;
+      } else {
+        result.add(new ArrayEdit(ArrayEdit.Type.DELETE, cur, -1));
+      }
+
+      cur++;
+    }
+
+    cur = 0;
+    while (cur < matched.length) {
+      if (!matched[cur]) {
+        result.add(new ArrayEdit(ArrayEdit.Type.INSERT, -1, cur));
+      }
+
+      cur++;
+    }
+
+    return result;
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private JsonElement extractKey(JsonElement element, String keyField) {
+    if (element.isJsonObject()) {
+      return element.getAsJsonObject().get(keyField);
+    }
+
+    return null;
+  }
+}
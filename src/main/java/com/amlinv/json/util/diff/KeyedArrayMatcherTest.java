@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.diff;
+
+import com.amlinv.json.util.JsonDiff;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for matching array elements by key.
+ */
+public class KeyedArrayMatcherTest {
+
+  private KeyedArrayMatcher matcher;
+
+  /**
+   * Setup common test data and interactions.
+   */
+  @Before
+  public void setupTest() throws Exception {
+    this.matcher = new KeyedArrayMatcher();
+  }
+
+  @Test
+  public void testReorderedElementsMatchByKey() {
+    List<ArrayEdit> edits = this.match("[{\"id\": 1}, {\"id\": 2}]", "[{\"id\": 2}, {\"id\": 1}]");
+
+    assertEquals("[CHANGE(0, 1), CHANGE(1, 0)]", edits.toString());
+  }
+
+  @Test
+  public void testUnmatchedElements() {
+    List<ArrayEdit> edits = this.match("[{\"id\": 1}, {\"id\": 2}]", "[{\"id\": 3}, {\"id\": 1}]");
+
+    assertEquals("[CHANGE(0, 1), DELETE(1, -1), INSERT(-1, 0)]", edits.toString());
+  }
+
+  @Test
+  public void testDuplicateKeysMatchInOrder() {
+    String array = "[{\"id\": 4, \"v\": 2}, {\"id\": 0, \"v\": 2}, {\"id\": 0, \"v\": 3}]";
+
+    List<ArrayEdit> edits = this.match(array, array);
+
+    assertEquals("[CHANGE(0, 0), CHANGE(1, 1), CHANGE(2, 2)]", edits.toString());
+  }
+
+  @Test
+  public void testExtraDuplicateIsInserted() {
+    List<ArrayEdit> edits = this.match("[{\"id\": 0}]", "[{\"id\": 0}, {\"id\": 0}]");
+
+    assertEquals("[CHANGE(0, 0), INSERT(-1, 1)]", edits.toString());
+  }
+
+  @Test
+  public void testElementsWithoutKeyMatchInOrder() {
+    List<ArrayEdit> edits = this.match("[1, {\"id\": 1}, {\"x\": 2}, 3]",
+                                       "[{\"x\": 2}, {\"id\": 1}, 1]");
+
+    assertEquals("[CHANGE(0, 0), CHANGE(1, 1), CHANGE(2, 2), DELETE(3, -1)]", edits.toString());
+  }
+
+  @Test
+  public void testIdenticalDocumentsHaveNoDifferencesWithoutFingerprints() {
+    String document =
+        "{\"k\": [{\"id\": 4, \"v\": 2}, {\"id\": 0, \"v\": 2}, {\"id\": 0, \"v\": 3}, 7]}";
+
+    JsonDiff jsonDiff = new JsonDiff();
+    jsonDiff.setFingerprintEnabled(false);
+    jsonDiff.addArrayKey(ArrayKeySpec.parse("$.k=id"));
+
+    StringWriter buffer = new StringWriter();
+    PrintWriter out = new PrintWriter(buffer);
+    jsonDiff.diff(this.parse(document), this.parse(document), out);
+    out.flush();
+
+    assertEquals("", buffer.toString());
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private List<ArrayEdit> match(String first, String second) {
+    return this.matcher.match(this.parse(first).getAsJsonArray(),
+                              this.parse(second).getAsJsonArray(), "id");
+  }
+
+  private JsonElement parse(String text) {
+    return new JsonParser().parse(text);
+  }
+}
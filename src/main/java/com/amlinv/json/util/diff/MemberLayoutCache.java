@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.diff;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Supplies the sorted union of the member names of two objects, the order in which the diff
+ * engines visit members, caching it by the member layouts of the two objects.  Documents made of
+ * many records with the same members then sort their names once, instead of once per pair of
+ * objects; each lookup only walks the names of the two objects to check the layouts.  Names that
+ * were interned while parsing match by identity, which makes the check cheaper still.
+ *
+ * The cache has a fixed number of slots and a layout that misses replaces the one in its slot.
+ * It is safe to share between threads without locking.  Objects with more than
+ * MAX_CACHED_MEMBERS members are not cached.
+ */
+public class MemberLayoutCache {
+
+  public static final int DEFAULT_CAPACITY = 1024;
+  public static final int MAX_CACHED_MEMBERS = 256;
+
+  /**
+   * The member names of two objects, in order, and their sorted union.
+   */
+  private static final class Layout {
+    private final String[] firstNames;
+    private final String[] secondNames;
+    private final String[] mergedNames;
+
+    private Layout(String[] firstNames, String[] secondNames, String[] mergedNames) {
+      this.firstNames = firstNames;
+      this.secondNames = secondNames;
+      this.mergedNames = mergedNames;
+    }
+  }
+
+  private final AtomicReferenceArray<Layout> slots;
+  private final int mask;
+
+  public MemberLayoutCache() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity number of slots; rounded up to a power of two.
+   */
+  public MemberLayoutCache(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity, 1));
+    if (size < capacity) {
+      size <<= 1;
+    }
+
+    this.slots = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+  }
+
+  /**
+   * @return the names of the members of either object, sorted; the array is shared and must not
+   * be modified.
+   */
+  public String[] getMergedNames(JsonObject first, JsonObject second) {
+    Set<Map.Entry<String, JsonElement>> firstMembers = first.entrySet();
+    Set<Map.Entry<String, JsonElement>> secondMembers = second.entrySet();
+
+    if ((firstMembers.size() > MAX_CACHED_MEMBERS) ||
+        (secondMembers.size() > MAX_CACHED_MEMBERS)) {
+      return mergeNames(getNames(firstMembers), getNames(secondMembers));
+    }
+
+    int hash = (31 * layoutHash(firstMembers)) + layoutHash(secondMembers);
+    int slot = (hash ^ (hash >>> 16)) & this.mask;
+
+    Layout layout = this.slots.get(slot);
+    if ((layout != null) && (hasNames(firstMembers, layout.firstNames)) &&
+        (hasNames(secondMembers, layout.secondNames))) {
+      return layout.mergedNames;
+    }
+
+    String[] firstNames = getNames(firstMembers);
+    String[] secondNames = getNames(secondMembers);
+    String[] mergedNames = mergeNames(firstNames, secondNames);
+
+    this.slots.lazySet(slot, new Layout(firstNames, secondNames, mergedNames));
+
+    return mergedNames;
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private static int layoutHash(Set<Map.Entry<String, JsonElement>> members) {
+    int hash = members.size();
+    for (Map.Entry<String, JsonElement> entry : members) {
+      hash = (31 * hash) + entry.getKey().hashCode();
+    }
+
+    return hash;
+  }
+
+  private static boolean hasNames(Set<Map.Entry<String, JsonElement>> members, String[] names) {
+    if (members.size() != names.length) {
+      return false;
+    }
+
+    int cur = 0;
+    for (Map.Entry<String, JsonElement> entry : members) {
+      String name = entry.getKey();
+      if ((name != names[cur]) && (!name.equals(names[cur]))) {
+        return false;
+      }
+      cur++;
+    }
+
+    return true;
+  }
+
+  private static String[] getNames(Set<Map.Entry<String, JsonElement>> members) {
+    String[] result = new String[members.size()];
+
+    int cur = 0;
+    for (Map.Entry<String, JsonElement> entry : members) {
+      result[cur] = entry.getKey();
+      cur++;
+    }
+
+    return result;
+  }
+
+  private static String[] mergeNames(String[] firstNames, String[] secondNames) {
+    Set<String> allMemberNames = new TreeSet<>();
+
+    for (String name : firstNames) {
+      allMemberNames.add(name);
+    }
+    for (String name : secondNames) {
+      allMemberNames.add(name);
+    }
+
+    return allMemberNames.toArray(new String[allMemberNames.size()]);
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.diff;
+
+import com.google.gson.JsonArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aligns the elements of two arrays using the Myers O(ND) difference algorithm over element
+ * fingerprints, so that inserted and removed elements show up as single edits instead of
+ * shifting every following element.
+ *
+ * Common leading and trailing elements are trimmed before running the algorithm, keeping the
+ * cost near-linear for mostly-equal arrays.  When the number of edits exceeds the maximum cost,
+ * alignment gives up and the caller falls back to comparing elements by index.
+ */
+public class MyersArrayAligner {
+
+  public static final int DEFAULT_MAX_COST = 2000;
+
+  private final int maxCost;
+
+  public MyersArrayAligner() {
+    this(DEFAULT_MAX_COST);
+  }
+
+  public MyersArrayAligner(int maxCost) {
+    this.maxCost = maxCost;
+  }
+
+  public int getMaxCost() {
+    return maxCost;
+  }
+
+  /**
+   * Align the two arrays.
+   *
+   * @return the edits needed to turn the first array into the second, in array order, with
+   * adjacent removals and insertions paired up as changes; null if the arrays need more edits
+   * than the maximum cost.
+   */
+  public List<ArrayEdit> align(JsonArray first, JsonArray second, JsonFingerprinter fingerprinter) {
+    int firstSize = first.size();
+    int secondSize = second.size();
+
+    // Trim the common prefix and suffix
+    int start = 0;
+    while ((start < firstSize) && (start < secondSize) &&
+           (this.isSame(first, start, second, start, fingerprinter))) {
+      start++;
+    }
+
+    int firstEnd = firstSize;
+    int secondEnd = secondSize;
+    while ((firstEnd > start) && (secondEnd > start) &&
+           (this.isSame(first, firstEnd - 1, second, secondEnd - 1, fingerprinter))) {
+      firstEnd--;
+      secondEnd--;
+    }
+
+    JsonFingerprint[] firstPrints = this.fingerprintRange(first, start, firstEnd, fingerprinter);
+    JsonFingerprint[] secondPrints =
+        this.fingerprintRange(second, start, secondEnd, fingerprinter);
+
+    List<int[]> rawEdits = this.shortestEditScript(firstPrints, secondPrints, start);
+    if (rawEdits == null) {
+      return null;
+    }
+
+    return this.pairChanges(rawEdits);
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private boolean isSame(JsonArray first, int firstIndex, JsonArray second, int secondIndex,
+                         JsonFingerprinter fingerprinter) {
+    return fingerprinter.fingerprint(first.get(firstIndex))
+        .equals(fingerprinter.fingerprint(second.get(secondIndex)));
+  }
+
+  private JsonFingerprint[] fingerprintRange(JsonArray array, int start, int end,
+                                             JsonFingerprinter fingerprinter) {
+    JsonFingerprint[] result = new JsonFingerprint[end - start];
+
+    int cur = start;
+    while (cur < end) {
+      result[cur - start] = fingerprinter.fingerprint(array.get(cur));
+      cur++;
+    }
+
+    return result;
+  }
+
+  /**
+   * Greedy forward Myers search, keeping the frontier of each step for the backtrack.  Only the
+   * diagonals reachable at step d are kept, so the history is O(D^2).
+   *
+   * @return the edits as { type, x, y } triples, where x and y are the positions in the first
+   * and second arrays at which the edit starts; null if the maximum cost is exceeded.
+   */
+  private List<int[]> shortestEditScript(JsonFingerprint[] first, JsonFingerprint[] second,
+                                             int indexOffset) {
+    int firstLen = first.length;
+    int secondLen = second.length;
+
+    int limit = Math.min(firstLen + secondLen, this.maxCost);
+    int offset = limit + 1;
+    int[] frontier = new int[(2 * limit) + 3];
+
+    List<int[]> history = new ArrayList<>();
+    int finalStep = -1;
+
+    for (int step = 0; (step <= limit) && (finalStep < 0); step++) {
+      for (int diagonal = -step; diagonal <= step; diagonal += 2) {
+        int x;
+        if ((diagonal == -step) ||
+            ((diagonal != step) &&
+             (frontier[offset + diagonal - 1] < frontier[offset + diagonal + 1]))) {
+          x = frontier[offset + diagonal + 1];
+        } else {
+          x = frontier[offset + diagonal - 1] + 1;
+        }
+
+        int y = x - diagonal;
+        while ((x < firstLen) && (y < secondLen) && (first[x].equals(second[y]))) {
+          x++;
+          y++;
+        }
+
+        frontier[offset + diagonal] = x;
+
+        if ((x >= firstLen) && (y >= secondLen)) {
+          finalStep = step;
+          break;
+        }
+      }
+
+      history.add(Arrays.copyOfRange(frontier, offset - step, offset + step + 1));
+    }
+
+    if (finalStep < 0) {
+      return null;
+    }
+
+    // Walk back from the end, collecting the edits in reverse order
+    List<int[]> edits = new ArrayList<>(finalStep);
+
+    int x = firstLen;
+    int y = secondLen;
+    for (int step = finalStep; step > 0; step--) {
+      int[] previous = history.get(step - 1);
+      int diagonal = x - y;
+
+      int previousDiagonal;
+      if ((diagonal == -step) ||
+          ((diagonal != step) &&
+           (previous[diagonal - 1 + (step - 1)] < previous[diagonal + 1 + (step - 1)]))) {
+        previousDiagonal = diagonal + 1;
+      } else {
+        previousDiagonal = diagonal - 1;
+      }
+
+      int previousX = previous[previousDiagonal + (step - 1)];
+      int previousY = previousX - previousDiagonal;
+
+      ArrayEdit.Type type;
+      if (previousDiagonal == diagonal + 1) {
+        type = ArrayEdit.Type.INSERT;
+      } else {
+        type = ArrayEdit.Type.DELETE;
+      }
+
+      edits.add(new int[] { type.ordinal(), indexOffset + previousX, indexOffset + previousY });
+
+      x = previousX;
+      y = previousY;
+    }
+
+    List<int[]> result = new ArrayList<>(edits.size());
+    for (int cur = edits.size() - 1; cur >= 0; cur--) {
+      result.add(edits.get(cur));
+    }
+
+    return result;
+  }
+
+  /**
+   * Pair up removals and insertions that sit between the same two matching elements, so that
+   * modified elements are diffed against each other rather than reported as a removal and an
+   * insertion.
+   */
+  private List<ArrayEdit> pairChanges(List<int[]> rawEdits) {
+    List<ArrayEdit> result = new ArrayList<>(rawEdits.size());
+
+    List<Integer> deletes = new ArrayList<>();
+    List<Integer> inserts = new ArrayList<>();
+
+    int endX = -1;
+    int endY = -1;
+    for (int[] edit : rawEdits) {
+      int x = edit[1];
+      int y = edit[2];
+
+      // Any gap between the end of the previous edit and the start of this one is a run of
+      // matching elements, which ends the hunk.
+      if ((x != endX) || (y != endY)) {
+        this.flushHunk(deletes, inserts, result);
+      }
+
+      if (edit[0] == ArrayEdit.Type.DELETE.ordinal()) {
+        deletes.add(x);
+        endX = x + 1;
+        endY = y;
+      } else {
+        inserts.add(y);
+        endX = x;
+        endY = y + 1;
+      }
+    }
+
+    this.flushHunk(deletes, inserts, result);
+
+    return result;
+  }
+
+  private void flushHunk(List<Integer> deletes, List<Integer> inserts, List<ArrayEdit> result) {
+    int paired = Math.min(deletes.size(), inserts.size());
+
+    int cur = 0;
+    while (cur < paired) {
+      result.add(new ArrayEdit(ArrayEdit.Type.CHANGE, deletes.get(cur), inserts.get(cur)));
+      cur++;
+    }
+
+    while (cur < deletes.size()) {
+      result.add(new ArrayEdit(ArrayEdit.Type.DELETE, deletes.get(cur), -1));
+      cur++;
+    }
+
+    cur = paired;
+    while (cur < inserts.size()) {
+      result.add(new ArrayEdit(ArrayEdit.Type.INSERT, -1, inserts.get(cur)));
+      cur++;
+    }
+
+    deletes.clear();
+    inserts.clear();
+  }
+}
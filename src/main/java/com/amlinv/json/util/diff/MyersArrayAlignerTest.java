@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.diff;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the Myers array aligner.
+ */
+public class MyersArrayAlignerTest {
+
+  private MyersArrayAligner aligner;
+  private JsonFingerprinter fingerprinter;
+
+  /**
+   * Setup common test data and interactions.
+   */
+  @Before
+  public void setupTest() throws Exception {
+    this.aligner = new MyersArrayAligner();
+    this.fingerprinter = new JsonFingerprinter();
+  }
+
+  @Test
+  public void testIdenticalArrays() {
+    List<ArrayEdit> edits = this.align("[1, 2, {\"a\": 3}]", "[1, 2, {\"a\": 3}]");
+
+    assertTrue(edits.isEmpty());
+  }
+
+  @Test
+  public void testInsertAtFront() {
+    List<ArrayEdit> edits = this.align("[1, 2, 3, 4]", "[0, 1, 2, 3, 4]");
+
+    assertEquals("[INSERT(-1, 0)]", edits.toString());
+  }
+
+  @Test
+  public void testDeleteInMiddle() {
+    List<ArrayEdit> edits = this.align("[1, 2, 3, 4]", "[1, 2, 4]");
+
+    assertEquals("[DELETE(2, -1)]", edits.toString());
+  }
+
+  @Test
+  public void testChangedElementIsPaired() {
+    List<ArrayEdit> edits = this.align("[1, {\"a\": 2}, 3]", "[1, {\"a\": 5}, 3]");
+
+    assertEquals("[CHANGE(1, 1)]", edits.toString());
+  }
+
+  @Test
+  public void testMixedEdits() {
+    List<ArrayEdit> edits = this.align("[1, 2, 3, 4, 5, 6, 7, 8]", "[0, 1, 2, 4, 5, 66, 7, 8, 9]");
+
+    assertEquals("[INSERT(-1, 0), DELETE(2, -1), CHANGE(5, 5), INSERT(-1, 8)]",
+                 edits.toString());
+  }
+
+  @Test
+  public void testMaxCostExceeded() {
+    this.aligner = new MyersArrayAligner(2);
+
+    assertNull(this.align("[1, 2, 3, 4]", "[5, 6, 7, 8]"));
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private List<ArrayEdit> align(String first, String second) {
+    JsonArray firstArray = new JsonParser().parse(first).getAsJsonArray();
+    JsonArray secondArray = new JsonParser().parse(second).getAsJsonArray();
+
+    return this.aligner.align(firstArray, secondArray, this.fingerprinter);
+  }
+}
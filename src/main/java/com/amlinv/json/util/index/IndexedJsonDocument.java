@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.index;
+
+import com.google.gson.JsonSyntaxException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A JSON document in a memory-mapped file, read through a structural index: values are only
+ * parsed when they are accessed, so a lookup touches just the bytes on the way to the value and
+ * resident memory is limited to the index and the pages read.
+ */
+public class IndexedJsonDocument implements Closeable {
+
+  private final MappedBytes bytes;
+  private final StructuralIndex index;
+  private final IndexedJsonValue root;
+
+  public IndexedJsonDocument(MappedBytes bytes, StructuralIndex index) {
+    this.bytes = bytes;
+    this.index = index;
+    this.root = this.locateRoot();
+  }
+
+  /**
+   * Map the given file and build its structural index.
+   */
+  public static IndexedJsonDocument open(Path path) throws IOException {
+    MappedBytes bytes = MappedBytes.map(path);
+
+    try {
+      return new IndexedJsonDocument(bytes, StructuralIndex.build(bytes));
+    } catch (RuntimeException exc) {
+      bytes.close();
+      throw exc;
+    }
+  }
+
+  /**
+   * Map the given file, loading its structural index from the sidecar file when it is still valid,
+   * and otherwise building the index and saving it to the sidecar for the next time.  If the
+   * sidecar cannot be written, as in a read-only directory, the index built in memory is used.
+   */
+  public static IndexedJsonDocument openWithSidecar(Path path) throws IOException {
+    // Read before indexing, so a change made while indexing invalidates the sidecar
+    long modifiedTime = StructuralIndexFile.getModifiedTime(path);
+
+    MappedBytes bytes = MappedBytes.map(path);
+
+    try {
+      StructuralIndex index = StructuralIndexFile.load(path, bytes);
+      if (index == null) {
+        index = StructuralIndex.build(bytes);
+
+        try {
+          StructuralIndexFile.save(path, bytes, index, modifiedTime);
+
+          // Serve from the mapped sidecar so the tables built on the heap can be collected
+          StructuralIndex saved = StructuralIndexFile.load(path, bytes);
+          if (saved != null) {
+            index = saved;
+          }
+        } catch (IOException ioExc) {
+          // Still usable without the sidecar; the next run tries again
+        }
+      }
+
+      return new IndexedJsonDocument(bytes, index);
+    } catch (IOException | RuntimeException exc) {
+      bytes.close();
+      throw exc;
+    }
+  }
+
+  public IndexedJsonValue getRoot() {
+    return root;
+  }
+
+  public StructuralIndex getIndex() {
+    return index;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.bytes.close();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  MappedBytes getBytes() {
+    return this.bytes;
+  }
+
+  private IndexedJsonValue locateRoot() {
+    long start = IndexedJsonValue.skipWhitespace(this.bytes, 0);
+    if (start >= this.bytes.size()) {
+      throw new JsonSyntaxException("empty document");
+    }
+
+    byte ch = this.bytes.get(start);
+    if ((ch == '{') || (ch == '[')) {
+      if ((this.index.size() == 0) || (this.index.getOpen(0) != start)) {
+        throw new JsonSyntaxException("structural index does not match the document");
+      }
+
+      return new IndexedJsonValue(this, start, this.index.getClose(0) + 1, 0);
+    }
+
+    return new IndexedJsonValue(this, start, IndexedJsonValue.skipPrimitive(this.bytes, start),
+                                -1);
+  }
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.index;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * View of one value of an IndexedJsonDocument.  Creating a view is cheap; the members and elements
+ * are located by scanning the value's own bytes, jumping over nested objects and arrays with the
+ * structural index.  Looking up an array element by position scans the elements before it.
+ *
+ * Objects are seen the way JsonObject holds them: get() returns the last of duplicate member
+ * names, and forEachMember() reports each name once, at its first position, with its last value.
+ */
+public final class IndexedJsonValue implements NavigableJsonValue<IndexedJsonValue> {
+
+  public enum Type {
+    OBJECT,
+    ARRAY,
+    STRING,
+    NUMBER,
+    BOOLEAN,
+    NULL
+  }
+
+  /**
+   * Receives the children of an object or array; the name is null for array elements.
+   */
+  private interface ChildVisitor {
+    boolean visit(String name, IndexedJsonValue value);
+  }
+
+  private final IndexedJsonDocument document;
+  private final long start;
+  private final long end;
+  private final int ordinal;
+
+  IndexedJsonValue(IndexedJsonDocument document, long start, long end, int ordinal) {
+    this.document = document;
+    this.start = start;
+    this.end = end;
+    this.ordinal = ordinal;
+  }
+
+  public Type getType() {
+    switch (this.document.getBytes().get(this.start)) {
+      case '{':
+        return Type.OBJECT;
+      case '[':
+        return Type.ARRAY;
+      case '"':
+        return Type.STRING;
+      case 't':
+      case 'f':
+        return Type.BOOLEAN;
+      case 'n':
+        return Type.NULL;
+      default:
+        return Type.NUMBER;
+    }
+  }
+
+  @Override
+  public boolean isObject() {
+    return (this.getType() == Type.OBJECT);
+  }
+
+  @Override
+  public boolean isArray() {
+    return (this.getType() == Type.ARRAY);
+  }
+
+  /**
+   * @return the offset of the first byte of the value in the file.
+   */
+  public long getStart() {
+    return start;
+  }
+
+  /**
+   * @return the offset just past the last byte of the value in the file.
+   */
+  public long getEnd() {
+    return end;
+  }
+
+  /**
+   * @return the value of the named member; null if this is not an object or has no such member.
+   */
+  public IndexedJsonValue get(String name) {
+    if (!this.isObject()) {
+      return null;
+    }
+
+    IndexedJsonValue[] result = new IndexedJsonValue[1];
+    this.scanChildren((memberName, value) -> {
+      if (memberName.equals(name)) {
+        result[0] = value;
+      }
+      return true;
+    });
+
+    return result[0];
+  }
+
+  /**
+   * @return the element at the given position; null if this is not an array or the position is
+   * out of range.
+   */
+  public IndexedJsonValue get(int index) {
+    if ((!this.isArray()) || (index < 0)) {
+      return null;
+    }
+
+    IndexedJsonValue[] result = new IndexedJsonValue[1];
+    int[] position = new int[1];
+    this.scanChildren((memberName, value) -> {
+      if (position[0]++ == index) {
+        result[0] = value;
+        return false;
+      }
+      return true;
+    });
+
+    return result[0];
+  }
+
+  /**
+   * Pass the elements of this array, in order, to the given visitor until it returns false; only
+   * the elements visited are scanned.  Does nothing if this is not an array.
+   */
+  @Override
+  public void visitElements(ElementVisitor<IndexedJsonValue> visitor) {
+    if (this.isArray()) {
+      int[] position = new int[1];
+      this.scanChildren((memberName, value) -> visitor.visit(position[0]++, value));
+    }
+  }
+
+  /**
+   * @return the number of members of an object or elements of an array; 0 for other values.
+   */
+  public int size() {
+    if ((!this.isObject()) && (!this.isArray())) {
+      return 0;
+    }
+
+    int[] count = new int[1];
+    this.scanChildren((memberName, value) -> {
+      count[0]++;
+      return true;
+    });
+
+    return count[0];
+  }
+
+  /**
+   * Pass each member of this object, in document order, to the given consumer; a repeated name is
+   * passed once, at its first position, with its last value.  Does nothing if this is not an
+   * object.
+   */
+  @Override
+  public void forEachMember(BiConsumer<String, IndexedJsonValue> consumer) {
+    if (this.isObject()) {
+      Map<String, IndexedJsonValue> members = new LinkedHashMap<>();
+      this.scanChildren((memberName, value) -> {
+        members.put(memberName, value);
+        return true;
+      });
+
+      members.forEach(consumer);
+    }
+  }
+
+  /**
+   * Pass each element of this array, in order, to the given consumer.  Does nothing if this is not
+   * an array.
+   */
+  public void forEachElement(Consumer<IndexedJsonValue> consumer) {
+    if (this.isArray()) {
+      this.scanChildren((memberName, value) -> {
+        consumer.accept(value);
+        return true;
+      });
+    }
+  }
+
+  @Override
+  public String getAsString() {
+    if (this.getType() == Type.NULL) {
+      return "null";
+    }
+
+    return this.toJsonElement().getAsString();
+  }
+
+  /**
+   * Parse the value, and everything it contains, into a Gson tree.
+   */
+  @Override
+  public JsonElement toJsonElement() {
+    try (Reader reader = new InputStreamReader(
+        this.document.getBytes().openStream(this.start, this.end), StandardCharsets.UTF_8)) {
+      return new JsonParser().parse(reader);
+    } catch (IOException ioExc) {
+      throw new UncheckedIOException(ioExc);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.toJsonElement().toString();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void scanChildren(ChildVisitor visitor) {
+    MappedBytes bytes = this.document.getBytes();
+    StructuralIndex index = this.document.getIndex();
+
+    boolean object = (bytes.get(this.start) == '{');
+    byte closing = (byte) (object ? '}' : ']');
+    int nextOrdinal = this.ordinal + 1;
+
+    long pos = skipWhitespace(bytes, this.start + 1);
+    if (byteAt(bytes, pos) == closing) {
+      return;
+    }
+
+    while (true) {
+      String name = null;
+      if (object) {
+        if (byteAt(bytes, pos) != '"') {
+          throw syntaxError("expected a member name", pos);
+        }
+
+        long nameEnd = skipString(bytes, pos);
+        name = decodeString(bytes, pos, nameEnd);
+
+        pos = skipWhitespace(bytes, nameEnd);
+        if (byteAt(bytes, pos) != ':') {
+          throw syntaxError("expected ':'", pos);
+        }
+        pos = skipWhitespace(bytes, pos + 1);
+      }
+
+      IndexedJsonValue value;
+      byte ch = byteAt(bytes, pos);
+      if ((ch == '{') || (ch == '[')) {
+        if ((nextOrdinal >= index.size()) || (index.getOpen(nextOrdinal) != pos)) {
+          throw syntaxError("structural index does not match the document", pos);
+        }
+
+        value = new IndexedJsonValue(this.document, pos, index.getClose(nextOrdinal) + 1,
+                                     nextOrdinal);
+        nextOrdinal = index.nextSibling(nextOrdinal);
+      } else {
+        value = new IndexedJsonValue(this.document, pos, skipPrimitive(bytes, pos), -1);
+      }
+
+      if (!visitor.visit(name, value)) {
+        return;
+      }
+
+      pos = skipWhitespace(bytes, value.end);
+      ch = byteAt(bytes, pos);
+      if (ch == ',') {
+        pos = skipWhitespace(bytes, pos + 1);
+      } else if (ch == closing) {
+        return;
+      } else {
+        throw syntaxError("expected ',' or '" + (char) closing + "'", pos);
+      }
+    }
+  }
+
+  static long skipWhitespace(MappedBytes bytes, long pos) {
+    long size = bytes.size();
+    while (pos < size) {
+      byte ch = bytes.get(pos);
+      if ((ch != ' ') && (ch != '\n') && (ch != '\r') && (ch != '\t')) {
+        break;
+      }
+      pos++;
+    }
+
+    return pos;
+  }
+
+  /**
+   * @return the offset just past the string, number, or literal starting at the given offset.
+   */
+  static long skipPrimitive(MappedBytes bytes, long pos) {
+    if (bytes.get(pos) == '"') {
+      return skipString(bytes, pos);
+    }
+
+    long size = bytes.size();
+    while (pos < size) {
+      byte ch = bytes.get(pos);
+      if ((ch == ',') || (ch == '}') || (ch == ']') || (ch == ' ') || (ch == '\n') ||
+          (ch == '\r') || (ch == '\t')) {
+        break;
+      }
+      pos++;
+    }
+
+    return pos;
+  }
+
+  private static long skipString(MappedBytes bytes, long pos) {
+    long size = bytes.size();
+
+    pos++;
+    while (pos < size) {
+      byte ch = bytes.get(pos);
+      if (ch == '\\') {
+        pos += 2;
+      } else if (ch == '"') {
+        return pos + 1;
+      } else {
+        pos++;
+      }
+    }
+
+    throw syntaxError("unterminated string", pos);
+  }
+
+  /**
+   * Decode the quoted string between the given offsets; plain ASCII, the usual case for member
+   * names, is decoded directly.
+   */
+  private static String decodeString(MappedBytes bytes, long start, long end) {
+    int length = (int) (end - start - 2);
+    byte[] content = new byte[length];
+
+    boolean plain = true;
+    int cur = 0;
+    while (cur < length) {
+      byte ch = bytes.get(start + 1 + cur);
+      if ((ch < 0) || (ch == '\\')) {
+        plain = false;
+      }
+      content[cur] = ch;
+      cur++;
+    }
+
+    if (plain) {
+      return new String(content, StandardCharsets.ISO_8859_1);
+    }
+
+    try {
+      JsonReader reader = new JsonReader(new StringReader(
+          "\"" + new String(content, StandardCharsets.UTF_8) + "\""));
+      reader.setLenient(true);
+
+      return reader.nextString();
+    } catch (IOException ioExc) {
+      throw syntaxError("invalid string", start);
+    }
+  }
+
+  private static byte byteAt(MappedBytes bytes, long pos) {
+    if (pos >= bytes.size()) {
+      throw syntaxError("unexpected end of document", pos);
+    }
+
+    return bytes.get(pos);
+  }
+
+  private static JsonSyntaxException syntaxError(String message, long pos) {
+    return new JsonSyntaxException(message + " at offset " + pos);
+  }
+}
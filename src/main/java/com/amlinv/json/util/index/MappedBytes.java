@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only random access to the bytes of a memory-mapped file.  The file is mapped in chunks, so
+ * files beyond the 2GB limit of a single mapping are supported.  Safe for concurrent reads.
+ */
+public class MappedBytes implements Closeable {
+
+  static final int CHUNK_SHIFT = 30;
+  static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+  static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private final FileChannel channel;
+  private final long size;
+  private final MappedByteBuffer[] chunks;
+
+  private MappedBytes(FileChannel channel) throws IOException {
+    this.channel = channel;
+    this.size = channel.size();
+
+    int chunkCount = (int) ((this.size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+    this.chunks = new MappedByteBuffer[chunkCount];
+
+    int cur = 0;
+    while (cur < chunkCount) {
+      long start = (long) cur << CHUNK_SHIFT;
+      long chunkSize = Math.min(CHUNK_SIZE, this.size - start);
+
+      this.chunks[cur] = channel.map(FileChannel.MapMode.READ_ONLY, start, chunkSize);
+      cur++;
+    }
+  }
+
+  public static MappedBytes map(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+    try {
+      return new MappedBytes(channel);
+    } catch (IOException | RuntimeException exc) {
+      channel.close();
+      throw exc;
+    }
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public byte get(long position) {
+    return this.chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & CHUNK_MASK));
+  }
+
+  /**
+   * @return the number of chunks the file is mapped in.
+   */
+  public int getChunkCount() {
+    return this.chunks.length;
+  }
+
+  /**
+   * @return the offset in the file of the first byte of the given chunk.
+   */
+  public long getChunkStart(int chunk) {
+    return (long) chunk << CHUNK_SHIFT;
+  }
+
+  /**
+   * @return a view of the given chunk, positioned at its start; chunk i covers the bytes from
+   * i * CHUNK_SIZE.
+   */
+  public ByteBuffer getChunk(int chunk) {
+    return this.chunks[chunk].duplicate();
+  }
+
+  /**
+   * Open a stream over the bytes from start, inclusive, to end, exclusive.
+   */
+  public InputStream openStream(long start, long end) {
+    return new RangeInputStream(start, end);
+  }
+
+  @Override
+  public void close() throws IOException {
+    // Mappings are released once unreachable; Java 8 has no way to unmap them sooner
+    this.channel.close();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private class RangeInputStream extends InputStream {
+    private long position;
+    private final long end;
+
+    RangeInputStream(long start, long end) {
+      this.position = start;
+      this.end = end;
+    }
+
+    @Override
+    public int read() {
+      if (this.position >= this.end) {
+        return -1;
+      }
+
+      return get(this.position++) & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+
+      if (this.position >= this.end) {
+        return -1;
+      }
+
+      long chunkOffset = this.position & CHUNK_MASK;
+      int count = (int) Math.min(Math.min(length, this.end - this.position),
+                                 CHUNK_SIZE - chunkOffset);
+
+      ByteBuffer chunk = chunks[(int) (this.position >>> CHUNK_SHIFT)].duplicate();
+      chunk.position((int) chunkOffset);
+      chunk.get(buffer, offset, count);
+
+      this.position += count;
+
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(Integer.MAX_VALUE, this.end - this.position);
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.index;
+
+import com.google.gson.JsonElement;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Navigation shared by the document models that are not Gson trees, IndexedJsonValue and
+ * JsonTapeValue, so that code walking a document is written once for both.  Objects are seen the
+ * way JsonObject holds them: each member name once, at its first position, with its last value.
+ *
+ * @param <V> the type of the values themselves.
+ */
+public interface NavigableJsonValue<V extends NavigableJsonValue<V>> {
+
+  /**
+   * Receives the elements of an array, with their positions.
+   */
+  interface ElementVisitor<V> {
+    /**
+     * @return true to continue with the next element; false to stop.
+     */
+    boolean visit(int index, V element);
+  }
+
+  boolean isObject();
+
+  boolean isArray();
+
+  /**
+   * Pass each member of this object, in document order, to the given consumer.  Does nothing if
+   * this is not an object.
+   */
+  void forEachMember(BiConsumer<String, V> consumer);
+
+  /**
+   * Pass the elements of this array, in order, to the given visitor until it returns false.  Does
+   * nothing if this is not an array.
+   */
+  void visitElements(ElementVisitor<V> visitor);
+
+  /**
+   * @return the text of a string or number, as JsonElement.getAsString() returns it; "true" or
+   * "false" for booleans and "null" for null.
+   */
+  String getAsString();
+
+  /**
+   * Convert the value, and everything it contains, into a Gson tree.
+   */
+  JsonElement toJsonElement();
+}
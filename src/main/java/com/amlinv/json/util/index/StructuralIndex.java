@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.index;
+
+import com.google.gson.JsonSyntaxException;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Byte offsets of every object and array of a JSON document, numbered in the order they open, so
+ * that a reader can jump from the start of any container to its end without scanning the content.
+ * Built in a single pass that only tracks strings and brackets; the document must be strict JSON
+ * (double-quoted strings).
+ *
+ * The offsets are held in fixed-size blocks, so building never copies the tables to grow them,
+ * and the blocks can be views of a memory-mapped sidecar file.
+ */
+public class StructuralIndex {
+
+  static final int BLOCK_SHIFT = 16;
+  static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+  static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+  private final LongBuffer[] opens;
+  private final LongBuffer[] closes;
+  private final int size;
+
+  /**
+   * Create an index over the given offsets of the opening and closing brackets, indexed by the
+   * order in which the containers open.
+   */
+  public StructuralIndex(LongBuffer opens, LongBuffer closes) {
+    this(split(opens), split(closes), opens.remaining());
+  }
+
+  private StructuralIndex(LongBuffer[] opens, LongBuffer[] closes, int size) {
+    this.opens = opens;
+    this.closes = closes;
+    this.size = size;
+  }
+
+  /**
+   * Index every object and array of the given document.
+   *
+   * @throws JsonSyntaxException if the brackets do not balance.
+   */
+  public static StructuralIndex build(MappedBytes bytes) {
+    List<long[]> openBlocks = new ArrayList<>();
+    List<long[]> closeBlocks = new ArrayList<>();
+    long[] opens = null;
+    long[] closes = null;
+
+    int[] stack = new int[64];
+    int depth = 0;
+    int count = 0;
+
+    boolean inString = false;
+    boolean escaped = false;
+
+    int chunk = 0;
+    while (chunk < bytes.getChunkCount()) {
+      ByteBuffer buffer = bytes.getChunk(chunk);
+      long base = (long) chunk << MappedBytes.CHUNK_SHIFT;
+      int limit = buffer.limit();
+
+      int cur = 0;
+      while (cur < limit) {
+        byte ch = buffer.get(cur);
+
+        if (inString) {
+          if (escaped) {
+            escaped = false;
+          } else if (ch == '\\') {
+            escaped = true;
+          } else if (ch == '"') {
+            inString = false;
+          }
+        } else if (ch == '"') {
+          inString = true;
+        } else if ((ch == '{') || (ch == '[')) {
+          if ((count & BLOCK_MASK) == 0) {
+            opens = new long[BLOCK_SIZE];
+            closes = new long[BLOCK_SIZE];
+            openBlocks.add(opens);
+            closeBlocks.add(closes);
+          }
+          if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+          }
+
+          opens[count & BLOCK_MASK] = base + cur;
+          stack[depth++] = count;
+          count++;
+        } else if ((ch == '}') || (ch == ']')) {
+          if (depth == 0) {
+            throw new JsonSyntaxException(
+                "unbalanced '" + (char) ch + "' at offset " + (base + cur));
+          }
+
+          int ordinal = stack[--depth];
+          closeBlocks.get(ordinal >>> BLOCK_SHIFT)[ordinal & BLOCK_MASK] = base + cur;
+        }
+
+        cur++;
+      }
+
+      chunk++;
+    }
+
+    if ((depth > 0) || (inString)) {
+      throw new JsonSyntaxException("unexpected end of document");
+    }
+
+    return new StructuralIndex(wrap(openBlocks), wrap(closeBlocks), count);
+  }
+
+  /**
+   * @return the number of objects and arrays in the document.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the offset of the opening bracket of the given container.
+   */
+  public long getOpen(int ordinal) {
+    return this.opens[ordinal >>> BLOCK_SHIFT].get(ordinal & BLOCK_MASK);
+  }
+
+  /**
+   * @return the offset of the closing bracket of the given container.
+   */
+  public long getClose(int ordinal) {
+    return this.closes[ordinal >>> BLOCK_SHIFT].get(ordinal & BLOCK_MASK);
+  }
+
+  /**
+   * @return the ordinal of the first container that opens after the given one closes; size() if
+   * there is none.
+   */
+  public int nextSibling(int ordinal) {
+    long close = this.getClose(ordinal);
+
+    // Gallop forward, since most subtrees are small, then binary search the last step
+    int low = ordinal + 1;
+    int step = 1;
+    while ((low + step - 1 < this.size) && (this.getOpen(low + step - 1) < close)) {
+      low += step;
+      step <<= 1;
+    }
+
+    int high = Math.min(this.size, low + step - 1);
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (this.getOpen(mid) < close) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+
+    return low;
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private static LongBuffer[] split(LongBuffer table) {
+    int size = table.remaining();
+    LongBuffer[] blocks = new LongBuffer[(size + BLOCK_SIZE - 1) >>> BLOCK_SHIFT];
+
+    int cur = 0;
+    while (cur < blocks.length) {
+      LongBuffer block = table.duplicate();
+      block.position(table.position() + (cur << BLOCK_SHIFT));
+      block.limit(Math.min(table.limit(), block.position() + BLOCK_SIZE));
+      blocks[cur] = block.slice();
+      cur++;
+    }
+
+    return blocks;
+  }
+
+  private static LongBuffer[] wrap(List<long[]> blocks) {
+    LongBuffer[] result = new LongBuffer[blocks.size()];
+
+    int cur = 0;
+    while (cur < result.length) {
+      result[cur] = LongBuffer.wrap(blocks.get(cur));
+      cur++;
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Persists a StructuralIndex in a sidecar file next to the document, so repeated queries of the
+ * same file skip the indexing pass.  The sidecar records the size, modification time, and a hash
+ * of sampled blocks of the document; it is only used while all three still match.  Hashing the
+ * whole document would cost as much as indexing it again, so the hash covers evenly spaced blocks
+ * along with the start and the end of the file.
+ *
+ * Layout, in native byte order so the tables map straight into LongBuffers: a header of magic,
+ * document size, modification time, sample hash and container count, then the offsets of the
+ * opening brackets, then the offsets of the closing brackets.
+ */
+public class StructuralIndexFile {
+
+  public static final String SUFFIX = ".idx";
+
+  // "JSONIDX1"
+  private static final long MAGIC = 0x4a534f4e49445831L;
+  private static final int HEADER_SIZE = 5 * Long.BYTES;
+
+  private static final int SAMPLE_COUNT = 16;
+  private static final int SAMPLE_SIZE = 4096;
+  private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+  private StructuralIndexFile() {
+  }
+
+  /**
+   * @return the sidecar path for the given document: the document's name with .idx appended.
+   */
+  public static Path getSidecarPath(Path document) {
+    return document.resolveSibling(document.getFileName() + SUFFIX);
+  }
+
+  /**
+   * Load the index of the given document from its sidecar file.
+   *
+   * @return the index; null if there is no sidecar, or it does not match the document.
+   */
+  public static StructuralIndex load(Path document, MappedBytes bytes) throws IOException {
+    Path sidecar = getSidecarPath(document);
+
+    try (FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.READ)) {
+      long sidecarSize = channel.size();
+      if (sidecarSize < HEADER_SIZE) {
+        return null;
+      }
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.nativeOrder());
+      while (header.hasRemaining()) {
+        if (channel.read(header, header.position()) < 0) {
+          return null;
+        }
+      }
+      header.flip();
+
+      long count = header.getLong(4 * Long.BYTES);
+      if ((header.getLong(0) != MAGIC) || (header.getLong(Long.BYTES) != bytes.size()) ||
+          (header.getLong(2 * Long.BYTES) != getModifiedTime(document)) ||
+          (header.getLong(3 * Long.BYTES) != sampleHash(bytes)) ||
+          (count < 0) || (count > Integer.MAX_VALUE / Long.BYTES) ||
+          (sidecarSize != HEADER_SIZE + (count * 2 * Long.BYTES))) {
+        return null;
+      }
+
+      long tableSize = count * Long.BYTES;
+
+      return new StructuralIndex(mapTable(channel, HEADER_SIZE, tableSize),
+                                 mapTable(channel, HEADER_SIZE + tableSize, tableSize));
+    } catch (NoSuchFileException nsfExc) {
+      return null;
+    }
+  }
+
+  /**
+   * Save the index of the given document to its sidecar file.  The sidecar is written under a
+   * temporary name and moved into place, so concurrent readers never see a partial file.
+   */
+  public static void save(Path document, MappedBytes bytes, StructuralIndex index,
+                          long modifiedTime) throws IOException {
+    Path sidecar = getSidecarPath(document);
+    Path temp = sidecar.resolveSibling(sidecar.getFileName() + "." + System.nanoTime() + ".tmp");
+
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW,
+                                                  StandardOpenOption.WRITE)) {
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.nativeOrder());
+
+        buffer.putLong(MAGIC);
+        buffer.putLong(bytes.size());
+        buffer.putLong(modifiedTime);
+        buffer.putLong(sampleHash(bytes));
+        buffer.putLong(index.size());
+
+        writeTable(channel, buffer, index, true);
+        writeTable(channel, buffer, index, false);
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+
+      Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING,
+                 StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  public static long getModifiedTime(Path document) throws IOException {
+    return Files.getLastModifiedTime(document).toMillis();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private static LongBuffer mapTable(FileChannel channel, long position, long size)
+      throws IOException {
+
+    MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    table.order(ByteOrder.nativeOrder());
+
+    return table.asLongBuffer();
+  }
+
+  private static void writeTable(FileChannel channel, ByteBuffer buffer, StructuralIndex index,
+                                 boolean opens) throws IOException {
+
+    int size = index.size();
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      if (buffer.remaining() < Long.BYTES) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        buffer.clear();
+      }
+
+      buffer.putLong(opens ? index.getOpen(ordinal) : index.getClose(ordinal));
+    }
+  }
+
+  /**
+   * Hash SAMPLE_COUNT blocks spread evenly over the document, plus its last block.
+   */
+  static long sampleHash(MappedBytes bytes) {
+    long size = bytes.size();
+    long hash = 0xcbf29ce484222325L ^ size;
+
+    long stride = Math.max(SAMPLE_SIZE, size / SAMPLE_COUNT);
+    for (long start = 0; start < size; start += stride) {
+      hash = hashBlock(bytes, start, Math.min(size, start + SAMPLE_SIZE), hash);
+    }
+
+    return hashBlock(bytes, Math.max(0, size - SAMPLE_SIZE), size, hash);
+  }
+
+  private static long hashBlock(MappedBytes bytes, long start, long end, long hash) {
+    for (long pos = start; pos < end; pos++) {
+      hash = (hash ^ (bytes.get(pos) & 0xff)) * 0x100000001b3L;
+    }
+
+    return hash;
+  }
+}
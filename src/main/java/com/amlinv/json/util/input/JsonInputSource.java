@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.input;
+
+import com.amlinv.json.util.index.MappedBytes;
+import com.amlinv.json.util.parser.JsonTreeReader;
+import com.amlinv.json.util.parser.KeyDictionary;
+import com.amlinv.json.util.parser.StructuralJsonParser;
+import com.amlinv.json.util.tape.JsonTape;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Input handling shared by the command-line tools.  Regular files are memory-mapped and decoded
+ * as UTF-8 straight from the mapping; standard input, pipes and other special files are read
+ * through a large buffer.
+ *
+ * Documents are parsed with Gson unless the structural parser is selected, either through
+ * setParser() or the json.tools.parser system property ("structural"); it only applies to regular
+ * files, which it reads straight from the mapped bytes.
+ *
+ * Member names can be interned through a key dictionary shared by every document this source
+ * parses, selected through setKeyDictionary() or the json.tools.internKeys system property
+ * ("true"); documents with many objects of the same shape then hold one copy of each name.
+ */
+public class JsonInputSource {
+
+  public static final String STDIN_FILENAME = "-";
+  public static final int STREAM_BUFFER_SIZE = 1024 * 1024;
+  public static final String PARSER_PROPERTY = "json.tools.parser";
+  public static final String INTERN_KEYS_PROPERTY = "json.tools.internKeys";
+
+  public enum Parser {
+    GSON,
+    STRUCTURAL
+  }
+
+  private InputStream standardInput = System.in;
+  private Parser parser = getDefaultParser();
+  private KeyDictionary keyDictionary = getDefaultKeyDictionary();
+  private Path workingDirectory;
+
+  /**
+   * Open a reader for the given file, or standard input when the filename is "-".
+   */
+  public Reader openReader(String filename) throws IOException {
+    if (filename.equals(STDIN_FILENAME)) {
+      return this.openStreamReader(this.standardInput);
+    }
+
+    Path path = this.resolve(filename);
+    if (Files.isRegularFile(path)) {
+      return new MappedFileReader(path);
+    }
+
+    return this.openStreamReader(new FileInputStream(path.toFile()));
+  }
+
+  /**
+   * Determine whether the given filename names a regular file, which can be memory-mapped, as
+   * opposed to standard input, a pipe, or another special file.
+   */
+  public boolean isRegularFile(String filename) {
+    return (!filename.equals(STDIN_FILENAME)) && (Files.isRegularFile(this.resolve(filename)));
+  }
+
+  /**
+   * Resolve the given filename against the working directory, if one is set.
+   */
+  public Path resolve(String filename) {
+    if (this.workingDirectory == null) {
+      return Paths.get(filename);
+    }
+
+    return this.workingDirectory.resolve(filename);
+  }
+
+  /**
+   * Parse the entire content of the given file, or standard input when the filename is "-".
+   */
+  public JsonElement parse(String filename) throws IOException {
+    if ((this.parser == Parser.STRUCTURAL) && (this.isRegularFile(filename))) {
+      try (MappedBytes bytes = MappedBytes.map(this.resolve(filename))) {
+        return new StructuralJsonParser(bytes, this.keyDictionary).parse();
+      }
+    }
+
+    Reader inputReader = this.openReader(filename);
+
+    try {
+      if (this.keyDictionary != null) {
+        return new JsonTreeReader(this.keyDictionary).parse(inputReader);
+      }
+
+      return new JsonParser().parse(inputReader);
+    } finally {
+      if (!filename.equals(STDIN_FILENAME)) {
+        inputReader.close();
+      }
+    }
+  }
+
+  /**
+   * Parse the entire content of the given file, or standard input when the filename is "-", into
+   * a compact tape instead of a tree.
+   */
+  public JsonTape parseTape(String filename) throws IOException {
+    Reader inputReader = this.openReader(filename);
+
+    try {
+      return JsonTape.parse(inputReader);
+    } finally {
+      if (!filename.equals(STDIN_FILENAME)) {
+        inputReader.close();
+      }
+    }
+  }
+
+  public InputStream getStandardInput() {
+    return standardInput;
+  }
+
+  /**
+   * Set the stream read for the filename "-"; System.in by default.
+   */
+  public void setStandardInput(InputStream standardInput) {
+    this.standardInput = standardInput;
+  }
+
+  public Parser getParser() {
+    return parser;
+  }
+
+  /**
+   * Select the parser used by parse(); both produce the same trees for valid JSON.
+   */
+  public void setParser(Parser parser) {
+    this.parser = parser;
+  }
+
+  public KeyDictionary getKeyDictionary() {
+    return keyDictionary;
+  }
+
+  /**
+   * Set the dictionary member names are interned through by parse(); null, the default unless
+   * the system property is set, to not intern.
+   */
+  public void setKeyDictionary(KeyDictionary keyDictionary) {
+    this.keyDictionary = keyDictionary;
+  }
+
+  public Path getWorkingDirectory() {
+    return workingDirectory;
+  }
+
+  /**
+   * Set the directory relative filenames are resolved against; when null, the default, they are
+   * resolved against the directory of the process.
+   */
+  public void setWorkingDirectory(Path workingDirectory) {
+    this.workingDirectory = workingDirectory;
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private static Parser getDefaultParser() {
+    String name = System.getProperty(PARSER_PROPERTY);
+    if (name == null) {
+      return Parser.GSON;
+    }
+
+    return Parser.valueOf(name.toUpperCase());
+  }
+
+  private static KeyDictionary getDefaultKeyDictionary() {
+    if (Boolean.getBoolean(INTERN_KEYS_PROPERTY)) {
+      return new KeyDictionary();
+    }
+
+    return null;
+  }
+
+  private Reader openStreamReader(InputStream inputStream) {
+    return new InputStreamReader(new BufferedInputStream(inputStream, STREAM_BUFFER_SIZE),
+                                 StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.input;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader that decodes UTF-8 directly out of a memory-mapped file.  Files larger than the window
+ * size are mapped one window at a time, so files beyond the 2GB limit of a single mapping are
+ * supported.
+ */
+public class MappedFileReader extends Reader {
+
+  public static final long DEFAULT_WINDOW_SIZE = 256L * 1024L * 1024L;
+
+  private final FileChannel channel;
+  private final long fileSize;
+  private final long windowSize;
+  private final CharsetDecoder decoder;
+
+  private ByteBuffer window;
+  private long windowStart;
+  private long windowEnd;
+
+  // Holds the second half of a surrogate pair when the caller asks for a single char
+  private final CharBuffer spill = CharBuffer.allocate(2);
+
+  private boolean flushed = false;
+
+  public MappedFileReader(Path path) throws IOException {
+    this(path, DEFAULT_WINDOW_SIZE);
+  }
+
+  public MappedFileReader(Path path, long windowSize) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.fileSize = this.channel.size();
+    this.windowSize = windowSize;
+
+    this.decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    this.spill.flip();
+
+    this.mapWindow(0);
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+
+    if (this.spill.hasRemaining()) {
+      int count = Math.min(len, this.spill.remaining());
+      this.spill.get(cbuf, off, count);
+
+      return count;
+    }
+
+    CharBuffer target = CharBuffer.wrap(cbuf, off, len);
+
+    while (target.position() == off) {
+      if (this.flushed) {
+        return -1;
+      }
+
+      boolean endOfInput = (this.windowEnd == this.fileSize);
+      CoderResult result = this.decoder.decode(this.window, target, endOfInput);
+
+      if (result.isUnderflow()) {
+        if (endOfInput) {
+          this.decoder.flush(target);
+          this.flushed = true;
+        } else {
+          // Any partial character at the end of the window is picked up again by the next window
+          this.mapWindow(this.windowStart + this.window.position());
+        }
+      } else if ((result.isOverflow()) && (target.position() == off)) {
+        // Not enough room for a surrogate pair; decode into the spill buffer instead
+        this.spill.clear();
+        this.decoder.decode(this.window, this.spill, endOfInput);
+        this.spill.flip();
+
+        return this.read(cbuf, off, len);
+      }
+    }
+
+    return target.position() - off;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.window = null;
+    this.channel.close();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void mapWindow(long start) throws IOException {
+    long size = Math.min(this.windowSize, this.fileSize - start);
+
+    this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+    this.windowStart = start;
+    this.windowEnd = start + size;
+  }
+}
@@ -19,34 +19,87 @@
 
 package com.amlinv.json.util.output;
 
+import com.amlinv.json.util.diff.JsonDiffEventSink;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.BufferedWriter;
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Created by art on 7/6/16.
+ *
+ * Prints a diff as one JSON document, with removed and added lines marked by "- " and "+ " in
+ * place of the first two columns of indentation.  Member names are held back until their value
+ * starts so that a diff indicator given after startMember() still leads the line, and the comma
+ * after a line is only decided once the next value or the end of the container is known.
  */
-public class FullUnifiedJsonDiffPrinter implements Closeable
+public class FullUnifiedJsonDiffPrinter implements JsonDiffEventSink, Closeable
 {
-  private PrintWriter out;
+  public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+  private static final String LINE_SEPARATOR = System.lineSeparator();
+
+  // Shared run of spaces; indentation is written as a slice of it rather than built per line.
+  private static final char[] SPACES = new char[256];
+
+  static {
+    Arrays.fill(SPACES, ' ');
+  }
+
+  private final Writer out;
   private int currentLevel = 0;
   private boolean insideMember = false; // Waiting on member value
   private boolean firstValue = true;
 
   private boolean newOutputLine = true;
 
+  private String pendingMemberName;
+  private char pendingIndicator = 0;
+
+  // Replaced value waiting on its comma; both of its lines share the same one.
+  private String replacedMemberName;
+  private String replacedValue;
+  private String replacementValue;
+
+  /**
+   * Write straight through to the given writer, so that flushing it is enough to see the output.
+   */
   public FullUnifiedJsonDiffPrinter(PrintWriter out) {
     this.out = out;
   }
 
+  /**
+   * Write to the given writer through a buffer; call flush() or close() to empty it.
+   */
+  public FullUnifiedJsonDiffPrinter(Writer out) {
+    this.out = new BufferedWriter(out, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Write UTF-8 straight to the given stream through a byte buffer, without a charset encoder.
+   */
+  public FullUnifiedJsonDiffPrinter(OutputStream out) {
+    this.out = new Utf8OutputWriter(out, DEFAULT_BUFFER_SIZE);
+  }
+
+  @Override
   public void startObject() {
     this.closeLastField(true);
+    this.startEntryLine();
 
-    if (! this.insideMember) {
-      this.startLine();
-    }
-
-    out.println("{");
+    this.println("{");
 
     this.currentLevel++;
     this.firstValue = true;
@@ -55,27 +108,26 @@ public class FullUnifiedJsonDiffPrinter implements Closeable
     this.insideMember = false;
   }
 
+  @Override
   public void finishObject() {
     this.closeLastField(false);
 
     this.currentLevel--;
 
     this.startLine();
-    out.print("}");
+    this.print("}");
 
     this.firstValue = false;
     this.newOutputLine = false;
     this.insideMember = false;
   }
 
+  @Override
   public void startArray() {
     this.closeLastField(true);
+    this.startEntryLine();
 
-    if (! this.insideMember) {
-      this.startLine();
-    }
-
-    out.println("[");
+    this.println("[");
 
     this.currentLevel++;
 
@@ -84,116 +136,256 @@ public class FullUnifiedJsonDiffPrinter implements Closeable
     this.newOutputLine = true;
   }
 
+  @Override
   public void finishArray() {
     this.closeLastField(false);
 
     this.currentLevel--;
 
     this.startLine();
-    out.print("]");
+    this.print("]");
 
     this.firstValue = false;
     this.newOutputLine = false;
     this.insideMember = false;
   }
 
+  @Override
   public void startMember(String name) {
     this.closeLastField(true);
-    this.startLine();
 
-    out.print("\"");
-    out.print(name);
-    out.print("\": ");
+    this.pendingMemberName = name;
 
     this.newOutputLine = false;
     this.insideMember = true;
   }
 
+  @Override
   public void startArrayMember() {
     this.closeLastField(true);
 
-    this.startLine();
-
+    this.newOutputLine = false;
     this.insideMember = true;
   }
 
   public void printValue(String value) {
-    out.print(value);
+    this.closeLastField(true);
+    this.startEntryLine();
+
+    this.print(value);
 
     this.firstValue = false;
     this.insideMember = false;
   }
 
+  /**
+   * Mark the next line, which starts with the next member or value, as removed or added.
+   */
   public void printDiffIndicator(char indicator) {
-    // TBD999: this is tricky
-    // TBD999: CASE 1. diff on only element in object/array
-    // TBD999: CASE 2. diff on only 2 elements in object/array
-    // TBD999: CASE 3. diff on last element in object/array
-    // TBD999: CASE 4. value type change (e.g. from object to array)
     this.closeLastField(true);
 
-    out.print(indicator);
-    out.print(" ");
+    this.pendingIndicator = indicator;
+  }
+
+  /**
+   * Print a replaced value as a removed line holding the first value and an added line holding
+   * the second one.
+   */
+  public void printChangedValue(String first, String second) {
+    this.closeLastField(true);
+
+    this.replacedMemberName = this.pendingMemberName;
+    this.replacedValue = first;
+    this.replacementValue = second;
+
+    this.pendingMemberName = null;
+    this.pendingIndicator = 0;
+
+    this.firstValue = false;
+    this.newOutputLine = false;
+    this.insideMember = false;
+  }
+
+  /**
+   * Print the whole value; object members are printed in sorted order, matching the order the
+   * diff tools visit them in.
+   */
+  @Override
+  public void unchangedValue(JsonElement value) {
+    if (value.isJsonObject()) {
+      JsonObject object = (JsonObject) value;
+
+      Set<String> memberNames = new TreeSet<>();
+      object.entrySet().stream().map(Map.Entry::getKey).forEach(memberNames::add);
 
-    this.startLine(-2);
+      this.startObject();
+      for (String memberName : memberNames) {
+        this.startMember(memberName);
+        this.unchangedValue(object.get(memberName));
+      }
+      this.finishObject();
+    } else if (value.isJsonArray()) {
+      JsonArray array = (JsonArray) value;
+
+      this.startArray();
+      for (JsonElement element : array) {
+        this.startArrayMember();
+        this.unchangedValue(element);
+      }
+      this.finishArray();
+    } else {
+      this.printValue(value.toString());
+    }
+  }
+
+  @Override
+  public void changedValue(JsonElement first, JsonElement second) {
+    this.printChangedValue(first.toString(), second.toString());
+  }
+
+  @Override
+  public void removedValue(JsonElement value) {
+    this.printDiffIndicator('-');
+    this.printValue(value.toString());
+  }
+
+  @Override
+  public void addedValue(JsonElement value) {
+    this.printDiffIndicator('+');
+    this.printValue(value.toString());
   }
 
   @Override
   public void close() {
     this.closeLastField(false);
-    this.out.flush();
+    this.flush();
+  }
+
+  public void flush() {
+    try {
+      this.out.flush();
+    } catch (IOException ioExc) {
+      throw new UncheckedIOException(ioExc);
+    }
   }
 
 //========================================
 // Internal Methods
 //----------------------------------------
 
-  private void startValue() {
-    if (! this.firstValue) {
-      out.println(",");
-      this.startLine();
-    }
-  }
-
   private void closeLastField (boolean more) {
     if (this.newOutputLine) {
       return;
     }
 
     if (! this.insideMember) {
+      String terminator;
       if ((this.firstValue) || (!more)) {
-        out.println();
+        terminator = "";
       } else {
-        out.println(",");
+        terminator = ",";
         this.firstValue = false;
       }
 
+      if (this.replacedValue != null) {
+        this.printChangedLines(terminator);
+      } else {
+        this.println(terminator);
+      }
+
       this.newOutputLine = true;
     }
   }
 
-  private void startLine() {
-    this.startLine(0);
+  private void printChangedLines(String terminator) {
+    this.pendingIndicator = '-';
+    this.startLine();
+    this.printMemberName(this.replacedMemberName);
+    this.print(this.replacedValue);
+    this.println(terminator);
+
+    this.pendingIndicator = '+';
+    this.startLine();
+    this.printMemberName(this.replacedMemberName);
+    this.print(this.replacementValue);
+    this.println(terminator);
+
+    this.replacedMemberName = null;
+    this.replacedValue = null;
+    this.replacementValue = null;
   }
 
-  private void startLine(int prefixOffset) {
-    if (currentLevel > 0) {
-      out.print(this.createLevelPrefix(this.currentLevel, prefixOffset));
+  /**
+   * Start the line of a member or array element, including the member name, if any.
+   */
+  private void startEntryLine() {
+    this.startLine();
+
+    if (this.pendingMemberName != null) {
+      this.printMemberName(this.pendingMemberName);
+      this.pendingMemberName = null;
+    }
+  }
+
+  private void startLine() {
+    int indent = this.currentLevel * 4;
+
+    if (this.pendingIndicator != 0) {
+      this.print(this.pendingIndicator);
+      this.print(' ');
+
+      indent -= 2;
+      this.pendingIndicator = 0;
     }
 
+    this.printIndent(indent);
+
     this.newOutputLine = false;
   }
 
-  private String createLevelPrefix(int level, int prefixOffset) {
-    int len = ( level * 4 ) + prefixOffset;
-    if (len <= 0) {
-      return "";
+  private void printMemberName(String name) {
+    if (name != null) {
+      this.print("\"");
+      this.print(name);
+      this.print("\": ");
     }
+  }
 
-    char[] chars = new char[len];
+  private void printIndent(int len) {
+    try {
+      while (len > 0) {
+        int chunk = Math.min(len, SPACES.length);
+        this.out.write(SPACES, 0, chunk);
+        len -= chunk;
+      }
+    } catch (IOException ioExc) {
+      throw new UncheckedIOException(ioExc);
+    }
+  }
 
-    Arrays.fill(chars, ' ');
+  private void print(char ch) {
+    try {
+      this.out.write(ch);
+    } catch (IOException ioExc) {
+      throw new UncheckedIOException(ioExc);
+    }
+  }
 
-    return new String(chars);
+  private void print(String text) {
+    try {
+      // Same as PrintWriter for null values
+      this.out.write(String.valueOf(text));
+    } catch (IOException ioExc) {
+      throw new UncheckedIOException(ioExc);
+    }
+  }
+
+  private void println(String text) {
+    try {
+      this.out.write(text);
+      this.out.write(LINE_SEPARATOR);
+    } catch (IOException ioExc) {
+      throw new UncheckedIOException(ioExc);
+    }
   }
 }
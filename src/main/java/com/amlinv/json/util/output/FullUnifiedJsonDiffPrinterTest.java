@@ -113,6 +113,19 @@ public class FullUnifiedJsonDiffPrinterTest {
     assertEquals("[\n    [\n        123,\n        456\n    ]\n]\n", this.outBuffer.toString());
   }
 
+  @Test
+  public void testWritesStraightThroughToPrintWriter() {
+    this.printer.startArray();
+    this.printer.startArrayMember();
+    this.printer.printValue("123");
+    this.printer.finishArray();
+
+    // Flushing the caller's writer is enough; the last line break waits for close()
+    this.printWriter.flush();
+
+    assertEquals("[\n    123\n]", this.outBuffer.toString());
+  }
+
   @Test
   public void testComplexObject() {
     this.printer.startObject();
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.output;
+
+import com.amlinv.json.util.index.NavigableJsonValue;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Lists the path of every leaf value of a document, optionally with the value, one per line.
+ *
+ * The path of the current value is kept in a single growable character buffer used as a stack:
+ * each level appends its member name or index and truncates back to its own length when done, so
+ * no intermediate path strings are created.  The document can be a tree or a token stream; the
+ * output is the same either way, except for objects that repeat a member name: a tree lists the
+ * name once, with its last value, while a token stream lists every occurrence as it is read.
+ */
+public class JsonPathLister {
+
+  public static final int INITIAL_PATH_CAPACITY = 256;
+
+  private final PrintWriter out;
+  private final boolean includeValues;
+
+  private char[] path = new char[INITIAL_PATH_CAPACITY];
+  private int pathLength = 0;
+
+  public JsonPathLister(PrintWriter out, boolean includeValues) {
+    this.out = out;
+    this.includeValues = includeValues;
+  }
+
+  public void list(JsonElement jsonElement) {
+    this.pathLength = 0;
+    this.append('$');
+
+    this.listElement(jsonElement);
+  }
+
+  /**
+   * List an indexed document or a tape.
+   */
+  public <V extends NavigableJsonValue<V>> void list(V value) {
+    this.pathLength = 0;
+    this.append('$');
+
+    this.listValue(value);
+  }
+
+  public void list(JsonReader reader) throws IOException {
+    reader.setLenient(true);
+
+    this.pathLength = 0;
+    this.append('$');
+
+    this.listToken(reader);
+
+    if (reader.peek() != JsonToken.END_DOCUMENT) {
+      throw new JsonSyntaxException("Did not consume the entire document.");
+    }
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void listElement(JsonElement jsonElement) {
+    if (jsonElement.isJsonNull()) {
+      this.outputLeaf("null");
+    } else if (jsonElement.isJsonPrimitive()) {
+      this.outputLeaf(jsonElement.getAsString());
+    } else if (jsonElement.isJsonObject()) {
+      JsonObject object = jsonElement.getAsJsonObject();
+      int mark = this.pathLength;
+
+      for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+        this.appendMember(entry.getKey());
+        this.listElement(entry.getValue());
+        this.pathLength = mark;
+      }
+    } else if (jsonElement.isJsonArray()) {
+      JsonArray jsonArray = jsonElement.getAsJsonArray();
+      int mark = this.pathLength;
+
+      int index = 0;
+      for (JsonElement entry : jsonArray) {
+        this.appendIndex(index);
+        this.listElement(entry);
+        this.pathLength = mark;
+
+        index++;
+      }
+    } else {
+      this.out.println("UNKNOWN ELEMENT TYPE AT " + new String(this.path, 0, this.pathLength) +
+                       ": class=" + jsonElement.getClass().getName());
+    }
+  }
+
+  private <V extends NavigableJsonValue<V>> void listValue(V value) {
+    int mark = this.pathLength;
+
+    if (value.isObject()) {
+      value.forEachMember((name, member) -> {
+        this.appendMember(name);
+        this.listValue(member);
+        this.pathLength = mark;
+      });
+    } else if (value.isArray()) {
+      value.visitElements((index, element) -> {
+        this.appendIndex(index);
+        this.listValue(element);
+        this.pathLength = mark;
+        return true;
+      });
+    } else {
+      // Null lists as "null", the same as its text
+      this.outputLeaf(value.getAsString());
+    }
+  }
+
+  private void listToken(JsonReader reader) throws IOException {
+    int mark = this.pathLength;
+
+    switch (reader.peek()) {
+      case BEGIN_OBJECT:
+        reader.beginObject();
+        while (reader.hasNext()) {
+          this.appendMember(reader.nextName());
+          this.listToken(reader);
+          this.pathLength = mark;
+        }
+        reader.endObject();
+        break;
+
+      case BEGIN_ARRAY:
+        reader.beginArray();
+
+        int index = 0;
+        while (reader.hasNext()) {
+          this.appendIndex(index);
+          this.listToken(reader);
+          this.pathLength = mark;
+
+          index++;
+        }
+        reader.endArray();
+        break;
+
+      case NULL:
+        reader.nextNull();
+        this.outputLeaf("null");
+        break;
+
+      case BOOLEAN:
+        this.outputLeaf(reader.nextBoolean() ? "true" : "false");
+        break;
+
+      default:
+        // Strings and numbers; numbers come back as their text, as they do from the tree.
+        this.outputLeaf(reader.nextString());
+        break;
+    }
+  }
+
+  private void outputLeaf(String value) {
+    this.out.write(this.path, 0, this.pathLength);
+
+    if (this.includeValues) {
+      this.out.write(": ");
+      this.out.write(value);
+    }
+
+    this.out.println();
+  }
+
+  private void appendMember(String name) {
+    this.ensureCapacity(this.pathLength + 1 + name.length());
+
+    this.path[this.pathLength++] = '.';
+    name.getChars(0, name.length(), this.path, this.pathLength);
+    this.pathLength += name.length();
+  }
+
+  private void appendIndex(int index) {
+    // Room for the brackets and the digits of the largest int.
+    this.ensureCapacity(this.pathLength + 12);
+
+    this.path[this.pathLength++] = '[';
+
+    if (index == 0) {
+      this.path[this.pathLength++] = '0';
+    } else {
+      int digits = 0;
+      for (int remaining = index; remaining > 0; remaining /= 10) {
+        digits++;
+      }
+
+      int pos = this.pathLength + digits;
+      for (int remaining = index; remaining > 0; remaining /= 10) {
+        this.path[--pos] = (char) ('0' + (remaining % 10));
+      }
+
+      this.pathLength += digits;
+    }
+
+    this.path[this.pathLength++] = ']';
+  }
+
+  private void append(char ch) {
+    this.ensureCapacity(this.pathLength + 1);
+    this.path[this.pathLength++] = ch;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > this.path.length) {
+      this.path = Arrays.copyOf(this.path, Math.max(capacity, this.path.length * 2));
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Buffered writer that encodes UTF-8 directly into its own byte buffer, skipping the charset
+ * encoder and the intermediate char buffer of an OutputStreamWriter.  Unpaired surrogates are
+ * written as '?'.  Not thread-safe.
+ */
+public class Utf8OutputWriter extends Writer {
+
+  public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+  // Longest UTF-8 encoding of a single code point.
+  private static final int MAX_BYTES_PER_CHAR = 4;
+
+  private final OutputStream out;
+  private final byte[] buffer;
+  private int count = 0;
+  private char pendingHighSurrogate = 0;
+
+  public Utf8OutputWriter(OutputStream out) {
+    this(out, DEFAULT_BUFFER_SIZE);
+  }
+
+  public Utf8OutputWriter(OutputStream out, int bufferSize) {
+    this.out = out;
+    this.buffer = new byte[Math.max(bufferSize, MAX_BYTES_PER_CHAR)];
+  }
+
+  @Override
+  public void write(int ch) throws IOException {
+    this.encode((char) ch);
+  }
+
+  @Override
+  public void write(char[] chars, int offset, int length) throws IOException {
+    int end = offset + length;
+
+    int cur = offset;
+    while (cur < end) {
+      char ch = chars[cur];
+
+      // Plain ASCII is by far the most common; handle it without the general encoder.
+      if ((ch < 0x80) && (this.pendingHighSurrogate == 0) && (this.count < this.buffer.length)) {
+        this.buffer[this.count++] = (byte) ch;
+      } else {
+        this.encode(ch);
+      }
+
+      cur++;
+    }
+  }
+
+  @Override
+  public void write(String str, int offset, int length) throws IOException {
+    int end = offset + length;
+
+    int cur = offset;
+    while (cur < end) {
+      char ch = str.charAt(cur);
+
+      if ((ch < 0x80) && (this.pendingHighSurrogate == 0) && (this.count < this.buffer.length)) {
+        this.buffer[this.count++] = (byte) ch;
+      } else {
+        this.encode(ch);
+      }
+
+      cur++;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    this.flushBuffer();
+    this.out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (this.pendingHighSurrogate != 0) {
+      this.pendingHighSurrogate = 0;
+      this.encode('?');
+    }
+
+    this.flush();
+    this.out.close();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void encode(char ch) throws IOException {
+    if (this.buffer.length - this.count < MAX_BYTES_PER_CHAR) {
+      this.flushBuffer();
+    }
+
+    if (this.pendingHighSurrogate != 0) {
+      char high = this.pendingHighSurrogate;
+      this.pendingHighSurrogate = 0;
+
+      if (Character.isLowSurrogate(ch)) {
+        int codePoint = Character.toCodePoint(high, ch);
+
+        this.buffer[this.count++] = (byte) (0xf0 | (codePoint >> 18));
+        this.buffer[this.count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+        this.buffer[this.count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        this.buffer[this.count++] = (byte) (0x80 | (codePoint & 0x3f));
+        return;
+      }
+
+      this.buffer[this.count++] = (byte) '?';
+
+      if (this.buffer.length - this.count < MAX_BYTES_PER_CHAR) {
+        this.flushBuffer();
+      }
+    }
+
+    if (ch < 0x80) {
+      this.buffer[this.count++] = (byte) ch;
+    } else if (ch < 0x800) {
+      this.buffer[this.count++] = (byte) (0xc0 | (ch >> 6));
+      this.buffer[this.count++] = (byte) (0x80 | (ch & 0x3f));
+    } else if (Character.isHighSurrogate(ch)) {
+      this.pendingHighSurrogate = ch;
+    } else if (Character.isLowSurrogate(ch)) {
+      this.buffer[this.count++] = (byte) '?';
+    } else {
+      this.buffer[this.count++] = (byte) (0xe0 | (ch >> 12));
+      this.buffer[this.count++] = (byte) (0x80 | ((ch >> 6) & 0x3f));
+      this.buffer[this.count++] = (byte) (0x80 | (ch & 0x3f));
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    if (this.count > 0) {
+      this.out.write(this.buffer, 0, this.count);
+      this.count = 0;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.parallel;
+
+import com.amlinv.json.util.parser.JsonTreeReader;
+import com.amlinv.json.util.parser.KeyDictionary;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Processes newline-delimited JSON (JSON Lines / NDJSON) input in parallel.  The calling thread
+ * reads the input and splits it into chunks of whole lines; worker threads parse and process the
+ * records of each chunk, and the output of the chunks is written in input order, or in completion
+ * order when unordered.  Blank lines are skipped.
+ *
+ * With a key dictionary, all of the workers intern the member names of their records through it,
+ * so that records of the same shape share their names.
+ */
+public class NdjsonPipeline {
+
+  public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+  /**
+   * Processes one record of the input, writing its results to the given writer.
+   */
+  public interface RecordProcessor {
+    void process(JsonElement record, PrintWriter out) throws Exception;
+  }
+
+  private final int threads;
+  private final boolean ordered;
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+  private KeyDictionary keyDictionary;
+
+  public NdjsonPipeline(int threads, boolean ordered) {
+    this.threads = threads;
+    this.ordered = ordered;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * @param chunkSize approximate number of characters of input handed to a worker at a time.
+   */
+  public void setChunkSize(int chunkSize) {
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Process every record read from the input.
+   *
+   * @throws IOException if the input cannot be read, or a record cannot be parsed or processed; in
+   * the latter case the message gives the line number of the record.
+   */
+  public void process(Reader input, RecordProcessor processor, PrintWriter out)
+      throws IOException {
+
+    BufferedReader lineReader = new BufferedReader(input, this.chunkSize);
+    ParallelOutputExecutor executor = new ParallelOutputExecutor(this.threads, this.ordered, out);
+
+    try {
+      List<String> chunk = new ArrayList<>();
+      long chunkFirstLine = 1;
+      long lineNumber = 1;
+      int chunkChars = 0;
+
+      String line = lineReader.readLine();
+      while (line != null) {
+        chunk.add(line);
+        chunkChars += line.length();
+        lineNumber++;
+
+        if (chunkChars >= this.chunkSize) {
+          this.submitChunk(executor, chunk, chunkFirstLine, processor);
+
+          chunk = new ArrayList<>();
+          chunkFirstLine = lineNumber;
+          chunkChars = 0;
+        }
+
+        line = lineReader.readLine();
+      }
+
+      if (!chunk.isEmpty()) {
+        this.submitChunk(executor, chunk, chunkFirstLine, processor);
+      }
+    } finally {
+      executor.finish();
+    }
+  }
+
+  public KeyDictionary getKeyDictionary() {
+    return keyDictionary;
+  }
+
+  /**
+   * @param keyDictionary dictionary the member names of the records are interned through; null,
+   * the default, to not intern.
+   */
+  public void setKeyDictionary(KeyDictionary keyDictionary) {
+    this.keyDictionary = keyDictionary;
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void submitChunk(ParallelOutputExecutor executor, List<String> lines, long firstLine,
+                           RecordProcessor processor) throws IOException {
+    executor.submit((out) -> {
+      JsonParser parser = new JsonParser();
+      JsonTreeReader treeReader = null;
+      if (this.keyDictionary != null) {
+        treeReader = new JsonTreeReader(this.keyDictionary);
+      }
+
+      long lineNumber = firstLine;
+      for (String line : lines) {
+        if (!line.trim().isEmpty()) {
+          try {
+            JsonElement record;
+            if (treeReader != null) {
+              record = treeReader.parse(new StringReader(line));
+            } else {
+              record = parser.parse(line);
+            }
+
+            processor.process(record, out);
+          } catch (Exception exc) {
+            throw new IOException("line " + lineNumber + ": " + exc.getMessage(), exc);
+          }
+        }
+
+        lineNumber++;
+      }
+    });
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.parallel;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs tasks that produce text output on a pool of worker threads, and writes their output to a
+ * single destination.  Each task writes into its own buffer; the buffers are copied to the
+ * destination by the submitting thread, either in the order the tasks were submitted or, when
+ * unordered, in the order they complete.
+ *
+ * At most a few tasks per thread are in flight at a time; submit() blocks, writing out finished
+ * output, until there is room for another.  That keeps memory bounded when the submitter produces
+ * work faster than the workers can process it.
+ */
+public class ParallelOutputExecutor {
+
+  public static final int IN_FLIGHT_PER_THREAD = 4;
+
+  /**
+   * A unit of work that writes its results to the given writer.
+   */
+  public interface OutputTask {
+    void run(PrintWriter out) throws Exception;
+  }
+
+  private final ExecutorService executorService;
+  private final CompletionService<String> completionService;
+  private final Deque<Future<String>> pending = new ArrayDeque<>();
+  private final PrintWriter out;
+  private final boolean ordered;
+  private final int maxInFlight;
+
+  public ParallelOutputExecutor(int threads, boolean ordered, PrintWriter out) {
+    this.executorService = Executors.newFixedThreadPool(threads, (runnable) -> {
+      Thread thread = new Thread(runnable, "parallel-output-worker");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.completionService = new ExecutorCompletionService<>(this.executorService);
+    this.out = out;
+    this.ordered = ordered;
+    this.maxInFlight = threads * IN_FLIGHT_PER_THREAD;
+  }
+
+  /**
+   * Submit the task, first waiting for and writing the output of earlier tasks if too many are in
+   * flight.
+   *
+   * @throws IOException if an earlier task failed; the failure is the cause.
+   */
+  public void submit(OutputTask task) throws IOException {
+    while (this.pending.size() >= this.maxInFlight) {
+      this.writeNext();
+    }
+
+    Callable<String> bufferedTask = () -> {
+      StringWriter buffer = new StringWriter();
+      PrintWriter bufferOut = new PrintWriter(buffer);
+
+      task.run(bufferOut);
+
+      bufferOut.flush();
+      return buffer.toString();
+    };
+
+    // Only unordered output takes results from the completion service; submitting ordered tasks
+    // to it would leave every finished task queued there.
+    if (this.ordered) {
+      this.pending.add(this.executorService.submit(bufferedTask));
+    } else {
+      this.pending.add(this.completionService.submit(bufferedTask));
+    }
+  }
+
+  /**
+   * Wait for all of the submitted tasks, write their output, and shut down the worker threads.
+   * The output is flushed even when a task failed, so whatever was written before the failure
+   * is not left in the writer's buffer.
+   *
+   * @throws IOException if any of the tasks failed; the failure is the cause.
+   */
+  public void finish() throws IOException {
+    try {
+      while (!this.pending.isEmpty()) {
+        this.writeNext();
+      }
+    } finally {
+      this.out.flush();
+      this.executorService.shutdownNow();
+    }
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void writeNext() throws IOException {
+    try {
+      Future<String> next;
+      if (this.ordered) {
+        next = this.pending.removeFirst();
+      } else {
+        next = this.completionService.take();
+        this.pending.remove(next);
+      }
+
+      this.out.write(next.get());
+    } catch (InterruptedException intExc) {
+      Thread.currentThread().interrupt();
+      this.executorService.shutdownNow();
+
+      throw new IOException("interrupted waiting for output", intExc);
+    } catch (ExecutionException execExc) {
+      this.executorService.shutdownNow();
+
+      if (execExc.getCause() instanceof IOException) {
+        throw (IOException) execExc.getCause();
+      }
+
+      throw new IOException("task failed", execExc.getCause());
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.parser;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Builds the same Gson trees as JsonParser, with the member names passed through a KeyDictionary
+ * so that objects sharing names share the strings.
+ */
+public class JsonTreeReader {
+
+  private final KeyDictionary keyDictionary;
+
+  public JsonTreeReader(KeyDictionary keyDictionary) {
+    this.keyDictionary = keyDictionary;
+  }
+
+  /**
+   * Parse the entire content of the reader, with the same results and errors as
+   * JsonParser.parse(Reader): an empty document is null, and content after the first value is an
+   * error.
+   */
+  public JsonElement parse(Reader reader) {
+    JsonReader jsonReader = new JsonReader(reader);
+    jsonReader.setLenient(true);
+
+    JsonElement result;
+    try {
+      try {
+        jsonReader.peek();
+      } catch (EOFException eofExc) {
+        return JsonNull.INSTANCE;
+      }
+
+      try {
+        result = this.read(jsonReader);
+      } catch (StackOverflowError | OutOfMemoryError error) {
+        throw new JsonParseException("Failed parsing JSON source: " + jsonReader + " to Json",
+                                     error);
+      }
+
+      if ((!result.isJsonNull()) && (jsonReader.peek() != JsonToken.END_DOCUMENT)) {
+        throw new JsonSyntaxException("Did not consume the entire document.");
+      }
+    } catch (EOFException | MalformedJsonException | NumberFormatException syntaxExc) {
+      throw new JsonSyntaxException(syntaxExc);
+    } catch (IOException ioExc) {
+      throw new JsonIOException(ioExc);
+    }
+
+    return result;
+  }
+
+  /**
+   * Read the next value from the reader.
+   */
+  public JsonElement read(JsonReader reader) throws IOException {
+    switch (reader.peek()) {
+      case BEGIN_OBJECT:
+        JsonObject object = new JsonObject();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+          String name = this.keyDictionary.intern(reader.nextName());
+          object.add(name, this.read(reader));
+        }
+        reader.endObject();
+
+        return object;
+
+      case BEGIN_ARRAY:
+        JsonArray array = new JsonArray();
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+          array.add(this.read(reader));
+        }
+        reader.endArray();
+
+        return array;
+
+      case STRING:
+        return new JsonPrimitive(reader.nextString());
+
+      case NUMBER:
+        return new JsonPrimitive(new LazilyParsedNumber(reader.nextString()));
+
+      case BOOLEAN:
+        return new JsonPrimitive(reader.nextBoolean());
+
+      case NULL:
+        reader.nextNull();
+        return JsonNull.INSTANCE;
+
+      default:
+        throw new IllegalArgumentException();
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.parser;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for reading Gson trees with interned member names.
+ */
+public class JsonTreeReaderTest {
+
+  private KeyDictionary keyDictionary;
+  private JsonTreeReader treeReader;
+
+  /**
+   * Setup common test data and interactions.
+   */
+  @Before
+  public void setupTest() throws Exception {
+    this.keyDictionary = new KeyDictionary();
+    this.treeReader = new JsonTreeReader(this.keyDictionary);
+  }
+
+  @Test
+  public void testSameTreeAsJsonParser() {
+    String document = "{\"a\": [1, -0, 2.50, \"x\", true, null], \"b\": {\"c\": {}}, \"a\": 3}";
+
+    assertEquals(new JsonParser().parse(document).toString(), this.parse(document).toString());
+  }
+
+  @Test
+  public void testEmptyDocumentIsNull() {
+    assertTrue(this.parse("").isJsonNull());
+  }
+
+  @Test
+  public void testNamesAreShared() {
+    JsonArray records = this.parse("[{\"id\": 1, \"name\": \"a\"}, {\"id\": 2, \"name\": \"b\"}]")
+        .getAsJsonArray();
+
+    assertSame(this.firstName(records.get(0)), this.firstName(records.get(1)));
+    assertSame(this.firstName(records.get(0)), this.keyDictionary.intern(new String("id")));
+  }
+
+  @Test(expected = JsonSyntaxException.class)
+  public void testTrailingContentIsRejected() {
+    this.parse("{} {}");
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void testDeepNestingIsParseException() {
+    StringBuilder document = new StringBuilder();
+    int cur = 0;
+    while (cur < 200000) {
+      document.append('[');
+      cur++;
+    }
+
+    this.parse(document.toString());
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private JsonElement parse(String document) {
+    return this.treeReader.parse(new StringReader(document));
+  }
+
+  private String firstName(JsonElement element) {
+    JsonObject object = element.getAsJsonObject();
+    Map.Entry<String, JsonElement> first = object.entrySet().iterator().next();
+
+    return first.getKey();
+  }
+}
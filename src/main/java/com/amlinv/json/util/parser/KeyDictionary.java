@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded dictionary of member names, so that the many objects of a document that share the same
+ * names all hold the same String instances instead of a copy each.  It is safe to share between
+ * threads without locking: the table has a fixed number of slots, each holding one name, and a
+ * name that misses replaces whatever its slot held.  Frequent names therefore stay in the table,
+ * while documents with an unbounded variety of names, such as maps keyed by ids, cannot grow it.
+ *
+ * Names longer than MAX_NAME_LENGTH are returned as they are.
+ */
+public final class KeyDictionary {
+
+  public static final int DEFAULT_CAPACITY = 4096;
+  public static final int MAX_NAME_LENGTH = 64;
+
+  private final AtomicReferenceArray<String> slots;
+  private final int mask;
+
+  public KeyDictionary() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity number of slots; rounded up to a power of two.
+   */
+  public KeyDictionary(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity, 1));
+    if (size < capacity) {
+      size <<= 1;
+    }
+
+    this.slots = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+  }
+
+  /**
+   * @return the pooled instance equal to the given name, or the name itself after pooling it.
+   */
+  public String intern(String name) {
+    if (name.length() > MAX_NAME_LENGTH) {
+      return name;
+    }
+
+    int slot = spread(name.hashCode()) & this.mask;
+
+    String existing = this.slots.get(slot);
+    if ((existing != null) && (existing.equals(name))) {
+      return existing;
+    }
+
+    // Racing threads may each store their own copy; either one is a valid entry
+    this.slots.lazySet(slot, name);
+
+    return name;
+  }
+
+  /**
+   * Intern the name held, one character per byte, in the given range of the array.  No string is
+   * created when the name is already pooled.
+   */
+  public String intern(byte[] bytes, int offset, int length) {
+    if (length > MAX_NAME_LENGTH) {
+      return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    // Same as String.hashCode(), so that both forms of a name share a slot
+    int hash = 0;
+    int cur = 0;
+    while (cur < length) {
+      hash = (31 * hash) + (bytes[offset + cur] & 0xff);
+      cur++;
+    }
+
+    int slot = spread(hash) & this.mask;
+
+    String existing = this.slots.get(slot);
+    if ((existing != null) && (matches(existing, bytes, offset, length))) {
+      return existing;
+    }
+
+    String name = new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    this.slots.lazySet(slot, name);
+
+    return name;
+  }
+
+  /**
+   * @return the number of slots.
+   */
+  public int getCapacity() {
+    return this.slots.length();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private static boolean matches(String name, byte[] bytes, int offset, int length) {
+    if (name.length() != length) {
+      return false;
+    }
+
+    int cur = 0;
+    while (cur < length) {
+      if (name.charAt(cur) != (bytes[offset + cur] & 0xff)) {
+        return false;
+      }
+      cur++;
+    }
+
+    return true;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,508 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.parser;
+
+import com.amlinv.json.util.index.MappedBytes;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.internal.LazilyParsedNumber;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Parser backend that works on the raw UTF-8 bytes of a memory-mapped document in two stages: the
+ * StructuralScanner finds the structural characters, then this class walks them to build the same
+ * Gson tree JsonParser would, without decoding the document into characters first.  Strings are
+ * only decoded once they are known to hold non-ASCII bytes or escapes.
+ *
+ * The document must be strict JSON; Gson's lenient extensions, such as unquoted strings, single
+ * quotes, comments, and NaN, are rejected.
+ *
+ * With a KeyDictionary, member names are interned as they are read; plain ASCII names already in
+ * the dictionary are matched against the bytes without creating a string.
+ */
+public class StructuralJsonParser {
+
+  private static final int INITIAL_SCRATCH_SIZE = 256;
+
+  private final MappedBytes bytes;
+  private final StructuralScanner scanner;
+  private final KeyDictionary keyDictionary;
+
+  private byte[] scratch = new byte[INITIAL_SCRATCH_SIZE];
+
+  public StructuralJsonParser(MappedBytes bytes) {
+    this(bytes, null);
+  }
+
+  /**
+   * @param keyDictionary dictionary the member names are interned through; null to not intern.
+   */
+  public StructuralJsonParser(MappedBytes bytes, KeyDictionary keyDictionary) {
+    this.bytes = bytes;
+    this.scanner = new StructuralScanner(bytes);
+    this.keyDictionary = keyDictionary;
+  }
+
+  /**
+   * Parse the entire document.
+   *
+   * @return the root of the document; JsonNull for an empty document, as with JsonParser.
+   * @throws JsonSyntaxException if the document is not valid JSON.
+   * @throws JsonParseException if the document is nested too deeply to parse, as with JsonParser.
+   */
+  public JsonElement parse() {
+    long pos = this.scanner.next();
+    if ((pos == 0) && (this.hasByteOrderMark())) {
+      pos = this.skipByteOrderMark();
+    }
+
+    if (pos < 0) {
+      if (this.scanner.isInString()) {
+        throw syntaxError("unterminated string", this.bytes.size());
+      }
+
+      return JsonNull.INSTANCE;
+    }
+
+    JsonElement result;
+    try {
+      result = this.parseValue(pos);
+    } catch (StackOverflowError soe) {
+      throw new JsonParseException("Failed parsing JSON source to Json", soe);
+    }
+
+    pos = this.scanner.next();
+    if (pos >= 0) {
+      throw syntaxError("Did not consume the entire document", pos);
+    }
+
+    return result;
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private boolean hasByteOrderMark() {
+    return ((this.bytes.size() >= 3) && (this.bytes.get(0) == (byte) 0xef) &&
+            (this.bytes.get(1) == (byte) 0xbb) && (this.bytes.get(2) == (byte) 0xbf));
+  }
+
+  /**
+   * Skip the UTF-8 byte order mark that JsonReader skips.  The scanner takes the mark for the
+   * start of a number or literal, so a number or literal right after it has no position of its
+   * own.
+   *
+   * @return the position of the first value after the mark; -1 if there is none.
+   */
+  private long skipByteOrderMark() {
+    if (this.bytes.size() > 3) {
+      switch (this.bytes.get(3)) {
+        case ' ':
+        case '\n':
+        case '\r':
+        case '\t':
+        case '"':
+        case '{':
+        case '}':
+        case '[':
+        case ']':
+        case ':':
+        case ',':
+          break;
+
+        default:
+          return 3;
+      }
+    }
+
+    return this.scanner.next();
+  }
+
+  private JsonElement parseValue(long pos) {
+    switch (this.bytes.get(pos)) {
+      case '{':
+        return this.parseObject();
+
+      case '[':
+        return this.parseArray();
+
+      case '"':
+        return new JsonPrimitive(this.parseString(pos));
+
+      case 't':
+        this.expectLiteral(pos, "true");
+        return new JsonPrimitive(Boolean.TRUE);
+
+      case 'f':
+        this.expectLiteral(pos, "false");
+        return new JsonPrimitive(Boolean.FALSE);
+
+      case 'n':
+        this.expectLiteral(pos, "null");
+        return JsonNull.INSTANCE;
+
+      default:
+        return new JsonPrimitive(new LazilyParsedNumber(this.parseNumber(pos)));
+    }
+  }
+
+  private JsonObject parseObject() {
+    JsonObject result = new JsonObject();
+
+    long pos = this.nextPosition();
+    if (this.bytes.get(pos) == '}') {
+      return result;
+    }
+
+    while (true) {
+      if (this.bytes.get(pos) != '"') {
+        throw syntaxError("expected a member name", pos);
+      }
+      String name = this.parseName(pos);
+
+      pos = this.nextPosition();
+      if (this.bytes.get(pos) != ':') {
+        throw syntaxError("expected ':'", pos);
+      }
+
+      result.add(name, this.parseValue(this.nextPosition()));
+
+      pos = this.nextPosition();
+      byte ch = this.bytes.get(pos);
+      if (ch == '}') {
+        return result;
+      } else if (ch != ',') {
+        throw syntaxError("expected ',' or '}'", pos);
+      }
+
+      pos = this.nextPosition();
+    }
+  }
+
+  private JsonArray parseArray() {
+    JsonArray result = new JsonArray();
+
+    long pos = this.nextPosition();
+    if (this.bytes.get(pos) == ']') {
+      return result;
+    }
+
+    while (true) {
+      result.add(this.parseValue(pos));
+
+      pos = this.nextPosition();
+      byte ch = this.bytes.get(pos);
+      if (ch == ']') {
+        return result;
+      } else if (ch != ',') {
+        throw syntaxError("expected ',' or ']'", pos);
+      }
+
+      pos = this.nextPosition();
+    }
+  }
+
+  /**
+   * Parse the string with its opening quote at the given position.  Plain ASCII is turned into a
+   * string directly; anything else is decoded as UTF-8 and then unescaped.
+   */
+  private String parseString(long pos) {
+    int length = this.readString(pos);
+    if (length >= 0) {
+      return new String(this.scratch, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    return this.unescape(new String(this.scratch, 0, ~length, StandardCharsets.UTF_8), pos);
+  }
+
+  /**
+   * Parse the member name with its opening quote at the given position, interning it when there
+   * is a key dictionary.
+   */
+  private String parseName(long pos) {
+    if (this.keyDictionary == null) {
+      return this.parseString(pos);
+    }
+
+    int length = this.readString(pos);
+    if (length >= 0) {
+      return this.keyDictionary.intern(this.scratch, 0, length);
+    }
+
+    return this.keyDictionary.intern(
+        this.unescape(new String(this.scratch, 0, ~length, StandardCharsets.UTF_8), pos));
+  }
+
+  /**
+   * Copy the raw content of the string with its opening quote at the given position into the
+   * scratch buffer.
+   *
+   * @return the length of the content, or its complement when the content holds non-ASCII bytes
+   * or escapes.
+   */
+  private int readString(long pos) {
+    long size = this.bytes.size();
+    boolean plain = true;
+    int length = 0;
+
+    long cur = pos + 1;
+    while (true) {
+      if (cur >= size) {
+        throw syntaxError("unterminated string", pos);
+      }
+
+      byte ch = this.bytes.get(cur);
+      if (ch == '"') {
+        break;
+      }
+
+      if (length + 2 > this.scratch.length) {
+        this.scratch = Arrays.copyOf(this.scratch, this.scratch.length * 2);
+      }
+
+      if (ch == '\\') {
+        plain = false;
+        if (cur + 1 >= size) {
+          throw syntaxError("unterminated string", pos);
+        }
+
+        this.scratch[length++] = ch;
+        ch = this.bytes.get(++cur);
+      } else if (ch < 0) {
+        plain = false;
+      }
+
+      this.scratch[length++] = ch;
+      cur++;
+    }
+
+    if (plain) {
+      return length;
+    }
+
+    return ~length;
+  }
+
+  /**
+   * Replace the escape sequences of the given string content, the same as JsonReader does:
+   * characters without a special meaning are taken as they are.
+   */
+  private String unescape(String content, long pos) {
+    int backslash = content.indexOf('\\');
+    if (backslash < 0) {
+      return content;
+    }
+
+    StringBuilder result = new StringBuilder(content.length());
+    result.append(content, 0, backslash);
+
+    int cur = backslash;
+    int len = content.length();
+    while (cur < len) {
+      char ch = content.charAt(cur++);
+      if (ch != '\\') {
+        result.append(ch);
+        continue;
+      }
+
+      char escaped = content.charAt(cur++);
+      switch (escaped) {
+        case 'u':
+          if (cur + 4 > len) {
+            throw syntaxError("unterminated escape sequence", pos);
+          }
+
+          try {
+            result.append((char) Integer.parseInt(content.substring(cur, cur + 4), 16));
+          } catch (NumberFormatException nfExc) {
+            throw syntaxError("invalid escape sequence \\u" + content.substring(cur, cur + 4),
+                              pos);
+          }
+          cur += 4;
+          break;
+
+        case 't':
+          result.append('\t');
+          break;
+
+        case 'b':
+          result.append('\b');
+          break;
+
+        case 'n':
+          result.append('\n');
+          break;
+
+        case 'r':
+          result.append('\r');
+          break;
+
+        case 'f':
+          result.append('\f');
+          break;
+
+        default:
+          result.append(escaped);
+          break;
+      }
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * @return the text of the number starting at the given position, after checking its syntax.
+   */
+  private String parseNumber(long pos) {
+    long cur = pos;
+
+    if (this.byteAt(cur) == '-') {
+      cur++;
+    }
+
+    if (this.byteAt(cur) == '0') {
+      cur++;
+    } else {
+      cur = this.skipDigits(cur, pos);
+    }
+
+    if (this.byteAt(cur) == '.') {
+      cur = this.skipDigits(cur + 1, pos);
+    }
+
+    byte ch = this.byteAt(cur);
+    if ((ch == 'e') || (ch == 'E')) {
+      cur++;
+      ch = this.byteAt(cur);
+      if ((ch == '+') || (ch == '-')) {
+        cur++;
+      }
+      cur = this.skipDigits(cur, pos);
+    }
+
+    this.expectDelimiter(cur, pos);
+
+    int length = (int) (cur - pos);
+    if ((length == 2) && (this.bytes.get(pos) == '-') && (this.bytes.get(pos + 1) == '0')) {
+      // JsonReader reads integers that fit in a long as longs, which loses the sign of -0
+      return "0";
+    }
+
+    if (length > this.scratch.length) {
+      this.scratch = Arrays.copyOf(this.scratch, Math.max(length, this.scratch.length * 2));
+    }
+
+    int offset = 0;
+    while (offset < length) {
+      this.scratch[offset] = this.bytes.get(pos + offset);
+      offset++;
+    }
+
+    return new String(this.scratch, 0, length, StandardCharsets.ISO_8859_1);
+  }
+
+  private long skipDigits(long cur, long start) {
+    long first = cur;
+    while (isDigit(this.byteAt(cur))) {
+      cur++;
+    }
+
+    if (cur == first) {
+      throw syntaxError("invalid value", start);
+    }
+
+    return cur;
+  }
+
+  private void expectLiteral(long pos, String literal) {
+    int len = literal.length();
+
+    int cur = 0;
+    while (cur < len) {
+      if (this.byteAt(pos + cur) != literal.charAt(cur)) {
+        throw syntaxError("invalid value", pos);
+      }
+      cur++;
+    }
+
+    this.expectDelimiter(pos + len, pos);
+  }
+
+  /**
+   * Values end at whitespace, a separator, a closing bracket, or the end of the document.
+   */
+  private void expectDelimiter(long cur, long start) {
+    switch (this.byteAt(cur)) {
+      case ' ':
+      case '\t':
+      case '\n':
+      case '\r':
+      case ',':
+      case ':':
+      case '}':
+      case ']':
+      case '{':
+      case '[':
+      case '"':
+      case 0:
+        return;
+
+      default:
+        throw syntaxError("invalid value", start);
+    }
+  }
+
+  /**
+   * @return the byte at the given position; 0 past the end of the document.
+   */
+  private byte byteAt(long pos) {
+    if (pos >= this.bytes.size()) {
+      return 0;
+    }
+
+    return this.bytes.get(pos);
+  }
+
+  private long nextPosition() {
+    long pos = this.scanner.next();
+    if (pos < 0) {
+      throw syntaxError("unexpected end of document", this.bytes.size());
+    }
+
+    return pos;
+  }
+
+  private static boolean isDigit(byte ch) {
+    return ((ch >= '0') && (ch <= '9'));
+  }
+
+  private static JsonSyntaxException syntaxError(String message, long pos) {
+    return new JsonSyntaxException(message + " at offset " + pos);
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.parser;
+
+import com.amlinv.json.util.index.MappedBytes;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the structural parser, comparing its trees with those of JsonParser.
+ */
+public class StructuralJsonParserTest {
+
+  private static final String[] STRING_PIECES = {
+      "\\\\", "\\\"", "a", "\u00e9", "\\u00e9", "\\n", "\\/", "\\t", "\ud834\udd1e", " ", "{", "]",
+      ":", ",", "x"
+  };
+
+  private static final String[] NUMBERS = {
+      "0", "-0", "1", "-12", "3.5", "1e10", "1E-3", "-0.0e+5", "123456789012345678901234567890",
+      "0.1", "9223372036854775807", "9223372036854775808"
+  };
+
+  private static final String[] STRUCTURAL_PIECES = {"{", "}", "[", "]", ":", ",", " ", "\\\""};
+
+  private static final String[] WHITESPACE = {"", " ", "\n", "\t  ", "\r\n"};
+
+  private Path file;
+  private Random random;
+
+  /**
+   * Setup common test data and interactions.
+   */
+  @Before
+  public void setupTest() throws Exception {
+    this.file = Files.createTempFile("structural-parser-test", ".json");
+    this.random = new Random(42);
+  }
+
+  @After
+  public void cleanupTest() throws Exception {
+    Files.deleteIfExists(this.file);
+  }
+
+  @Test
+  public void testSimpleDocuments() throws Exception {
+    this.assertSameAsJsonParser("{\"a\": [1, 2.5, \"x\"], \"b\": {\"c\": null, \"d\": true}}");
+    this.assertSameAsJsonParser("[]");
+    this.assertSameAsJsonParser("  \"text\"  ");
+    this.assertSameAsJsonParser("-0");
+    this.assertSameAsJsonParser("{\"a\": 1, \"a\": 2}");
+  }
+
+  @Test
+  public void testEmptyDocumentIsNull() throws Exception {
+    assertTrue(this.parse("").isJsonNull());
+    assertTrue(this.parse(" \n ").isJsonNull());
+  }
+
+  @Test
+  public void testGeneratedDocuments() throws Exception {
+    int cur = 0;
+    while (cur < 2000) {
+      this.assertSameAsJsonParser(this.whitespace() + this.value(0) + this.whitespace());
+      cur++;
+    }
+  }
+
+  /**
+   * Runs of backslashes, and escaped quotes, placed at every offset around the first block
+   * boundaries, so that the escape and in-string state is carried from one block to the next.
+   */
+  @Test
+  public void testBackslashRunsAcrossBlocks() throws Exception {
+    int offset = 0;
+    while (offset < 2 * StructuralScanner.BLOCK_SIZE + 8) {
+      int backslashes = 1;
+      while (backslashes <= 9) {
+        StringBuilder content = new StringBuilder();
+        int cur = 0;
+        while (cur < offset) {
+          content.append('a');
+          cur++;
+        }
+
+        // An even run is all escaped backslashes; an odd run ends by escaping a quote
+        cur = 0;
+        while (cur < backslashes) {
+          content.append('\\');
+          cur++;
+        }
+        if ((backslashes % 2) != 0) {
+          content.append('"');
+        }
+
+        this.assertSameAsJsonParser("[\"" + content + "\", {\"k\": [1]}]");
+        this.assertSameAsJsonParser("{\"" + content + "\": \"" + content + "\"}");
+
+        backslashes++;
+      }
+
+      offset++;
+    }
+  }
+
+  @Test
+  public void testStructuralCharactersInsideStringsAcrossBlocks() throws Exception {
+    StringBuilder content = new StringBuilder();
+    int cur = 0;
+    while (cur < 3 * StructuralScanner.BLOCK_SIZE) {
+      content.append(STRUCTURAL_PIECES[cur % STRUCTURAL_PIECES.length]);
+      cur++;
+    }
+
+    this.assertSameAsJsonParser("[\"" + content + "\", 1]");
+  }
+
+  @Test
+  public void testByteOrderMarkIsSkipped() throws Exception {
+    this.assertSameAsJsonParser("\ufeff{\"a\": 1}");
+    this.assertSameAsJsonParser("\ufeff [1]");
+    this.assertSameAsJsonParser("\ufeff12");
+    this.assertSameAsJsonParser("\ufefftrue");
+    this.assertSameAsJsonParser("\ufeff\"s\"");
+
+    assertTrue(this.parse("\ufeff").isJsonNull());
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void testDeepNestingIsParseException() throws Exception {
+    StringBuilder document = new StringBuilder();
+    int cur = 0;
+    while (cur < 200000) {
+      document.append('[');
+      cur++;
+    }
+
+    this.parse(document.toString());
+  }
+
+  @Test
+  public void testRejectsInvalidDocuments() throws Exception {
+    this.assertRejected("{\"a\": 1} 2");
+    this.assertRejected("[1, 2");
+    this.assertRejected("{\"a\" 1}");
+    this.assertRejected("[1 2]");
+    this.assertRejected("\"unterminated");
+    this.assertRejected("[01]");
+    this.assertRejected("[tru]");
+    this.assertRejected("[\"\\u12\"]");
+  }
+
+  @Test
+  public void testRejectsLenientSyntax() throws Exception {
+    this.assertRejected("['single']");
+    this.assertRejected("[unquoted]");
+    this.assertRejected("[1] // comment");
+    this.assertRejected("[NaN]");
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void assertSameAsJsonParser(String document) throws IOException {
+    JsonElement expected = new JsonParser().parse(document);
+
+    assertEquals(document, expected.toString(), this.parse(document).toString());
+  }
+
+  private void assertRejected(String document) throws IOException {
+    try {
+      this.parse(document);
+      fail("expected a syntax error for " + document);
+    } catch (JsonSyntaxException expected) {
+      // Expected
+    }
+  }
+
+  private JsonElement parse(String document) throws IOException {
+    Files.write(this.file, document.getBytes(StandardCharsets.UTF_8));
+
+    try (MappedBytes bytes = MappedBytes.map(this.file)) {
+      return new StructuralJsonParser(bytes).parse();
+    }
+  }
+
+  private String value(int depth) {
+    switch (this.random.nextInt((depth > 4) ? 5 : 8)) {
+      case 0:
+        return this.string();
+      case 1:
+        return NUMBERS[this.random.nextInt(NUMBERS.length)];
+      case 2:
+        return "true";
+      case 3:
+        return "false";
+      case 4:
+        return "null";
+      case 5:
+      case 6:
+        StringBuilder object = new StringBuilder("{").append(this.whitespace());
+        int members = this.random.nextInt(5);
+        int cur = 0;
+        while (cur < members) {
+          if (cur > 0) {
+            object.append(this.whitespace()).append(',').append(this.whitespace());
+          }
+          object.append(this.string()).append(this.whitespace()).append(':')
+              .append(this.whitespace()).append(this.value(depth + 1));
+          cur++;
+        }
+        return object.append(this.whitespace()).append('}').toString();
+      default:
+        StringBuilder array = new StringBuilder("[").append(this.whitespace());
+        int elements = this.random.nextInt(5);
+        int index = 0;
+        while (index < elements) {
+          if (index > 0) {
+            array.append(',').append(this.whitespace());
+          }
+          array.append(this.value(depth + 1));
+          index++;
+        }
+        return array.append(this.whitespace()).append(']').toString();
+    }
+  }
+
+  private String string() {
+    StringBuilder result = new StringBuilder("\"");
+
+    int pieces = this.random.nextInt(12);
+    if (this.random.nextInt(8) == 0) {
+      pieces += 70;
+    }
+
+    int cur = 0;
+    while (cur < pieces) {
+      result.append(STRING_PIECES[this.random.nextInt(STRING_PIECES.length)]);
+      cur++;
+    }
+
+    return result.append('"').toString();
+  }
+
+  private String whitespace() {
+    return WHITESPACE[this.random.nextInt(WHITESPACE.length)];
+  }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.parser;
+
+import com.amlinv.json.util.index.MappedBytes;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * First stage of the structural parser: finds the positions of the structural characters of a
+ * document 64 bytes at a time, the way simdjson does, but with bit tricks on 64-bit words in place
+ * of SIMD instructions.  For each block of 64 bytes it builds bit masks of the quotes, backslashes,
+ * brackets, separators, and whitespace, works out which quotes are escaped and which bytes are
+ * inside strings, and reports:
+ *
+ * <ul>
+ *   <li>brackets, colons, and commas outside of strings;</li>
+ *   <li>the opening quote of every string;</li>
+ *   <li>the first byte of every number and literal.</li>
+ * </ul>
+ *
+ * Positions are produced in batches as the second stage consumes them, so memory use does not grow
+ * with the size of the document.
+ */
+public class StructuralScanner {
+
+  public static final int BLOCK_SIZE = 64;
+  public static final int DEFAULT_BATCH_BLOCKS = 256;
+
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGH_BITS = 0x8080808080808080L;
+  private static final long LOW_BITS = 0x7f7f7f7f7f7f7f7fL;
+  private static final long CASE_BIT = 0x2020202020202020L;
+  private static final long ODD_BITS = 0xaaaaaaaaaaaaaaaaL;
+
+  // Moves the high bit of each byte into the top byte, in byte order
+  private static final long GATHER = 0x0002040810204081L;
+
+  private final MappedBytes bytes;
+  private final int batchBlocks;
+  private final long[] positions;
+  private int count;
+  private int next;
+
+  private int chunk;
+  private int chunkOffset;
+  private boolean finished;
+
+  // Carried from one block to the next
+  private long nextIsEscaped;
+  private long inStringCarry;
+  private long scalarCarry;
+
+  public StructuralScanner(MappedBytes bytes) {
+    this(bytes, DEFAULT_BATCH_BLOCKS);
+  }
+
+  public StructuralScanner(MappedBytes bytes, int batchBlocks) {
+    this.bytes = bytes;
+    this.batchBlocks = batchBlocks;
+    this.positions = new long[batchBlocks * BLOCK_SIZE];
+    this.finished = (bytes.size() == 0);
+  }
+
+  /**
+   * @return the position of the next structural character; -1 at the end of the document.
+   */
+  public long next() {
+    if (this.next == this.count) {
+      if (!this.fill()) {
+        return -1;
+      }
+    }
+
+    return this.positions[this.next++];
+  }
+
+  /**
+   * @return true if the document ended inside a string.
+   */
+  public boolean isInString() {
+    return (this.inStringCarry != 0);
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  /**
+   * Scan the next batch of blocks, skipping blocks without structural characters.
+   *
+   * @return true if any positions were found; false at the end of the document.
+   */
+  private boolean fill() {
+    this.count = 0;
+    this.next = 0;
+
+    while ((this.count == 0) && (!this.finished)) {
+      ByteBuffer buffer = this.bytes.getChunk(this.chunk).order(ByteOrder.LITTLE_ENDIAN);
+      long base = this.bytes.getChunkStart(this.chunk);
+      int limit = buffer.limit();
+
+      int blocks = 0;
+      while ((blocks < this.batchBlocks) && (this.chunkOffset < limit)) {
+        if (this.chunkOffset + BLOCK_SIZE <= limit) {
+          this.scanBlock(buffer, this.chunkOffset, base + this.chunkOffset);
+        } else {
+          // Pad the last partial block with spaces
+          byte[] tail = new byte[BLOCK_SIZE];
+          Arrays.fill(tail, (byte) ' ');
+          ByteBuffer tailBuffer = buffer.duplicate();
+          tailBuffer.position(this.chunkOffset);
+          tailBuffer.get(tail, 0, limit - this.chunkOffset);
+
+          this.scanBlock(ByteBuffer.wrap(tail).order(ByteOrder.LITTLE_ENDIAN), 0,
+                         base + this.chunkOffset);
+        }
+
+        this.chunkOffset += BLOCK_SIZE;
+        blocks++;
+      }
+
+      if (this.chunkOffset >= limit) {
+        this.chunk++;
+        this.chunkOffset = 0;
+        this.finished = (this.chunk >= this.bytes.getChunkCount());
+      }
+    }
+
+    return (this.count > 0);
+  }
+
+  private void scanBlock(ByteBuffer buffer, int offset, long position) {
+    long quotes = 0;
+    long backslashes = 0;
+    long operators = 0;
+    long whitespace = 0;
+
+    int word = 0;
+    while (word < 8) {
+      long value = buffer.getLong(offset + (word << 3));
+      int shift = word << 3;
+
+      quotes |= gather(equalBytes(value, '"')) << shift;
+      backslashes |= gather(equalBytes(value, '\\')) << shift;
+
+      // Setting bit 5 folds [ and ] onto { and }
+      long folded = value | CASE_BIT;
+      operators |= gather(equalBytes(folded, '{') | equalBytes(folded, '}') |
+                          equalBytes(value, ':') | equalBytes(value, ',')) << shift;
+      whitespace |= gather(equalBytes(value, ' ') | equalBytes(value, '\n') |
+                           equalBytes(value, '\r') | equalBytes(value, '\t')) << shift;
+
+      word++;
+    }
+
+    long escaped = this.findEscaped(backslashes);
+    quotes &= ~escaped;
+
+    // Bytes from each opening quote up to, but not including, its closing quote
+    long inString = prefixXor(quotes) ^ this.inStringCarry;
+    this.inStringCarry = inString >> 63;
+
+    long scalars = ~(operators | whitespace | quotes | inString);
+    long scalarStarts = scalars & ~((scalars << 1) | this.scalarCarry);
+    this.scalarCarry = scalars >>> 63;
+
+    long structurals = (operators & ~inString) | (quotes & inString) | scalarStarts;
+
+    while (structurals != 0) {
+      this.positions[this.count++] = position + Long.numberOfTrailingZeros(structurals);
+      structurals &= structurals - 1;
+    }
+  }
+
+  /**
+   * @return a mask of the bytes escaped by a backslash, following the odd-length backslash runs;
+   * the escape state is carried over to the next block.
+   */
+  private long findEscaped(long backslashes) {
+    if (backslashes == 0) {
+      long escaped = this.nextIsEscaped;
+      this.nextIsEscaped = 0;
+      return escaped;
+    }
+
+    long potentialEscape = backslashes & ~this.nextIsEscaped;
+
+    // Subtraction turns runs starting on even bits into 1s and runs starting on odd bits into 0s;
+    // the xor with the odd bits then leaves the escape bits of both alternating, with the escaped
+    // byte after an odd-length run set.
+    long maybeEscaped = potentialEscape << 1;
+    long escapeAndTerminal = ((maybeEscaped | ODD_BITS) - potentialEscape) ^ ODD_BITS;
+
+    long escaped = escapeAndTerminal ^ (backslashes | this.nextIsEscaped);
+    long escapes = escapeAndTerminal & backslashes;
+    this.nextIsEscaped = escapes >>> 63;
+
+    return escaped;
+  }
+
+  /**
+   * @return the high bit of each byte of the word set where the byte equals the given character.
+   */
+  private static long equalBytes(long word, char ch) {
+    long value = word ^ (ONES * ch);
+
+    // High bit set in each non-zero byte, without carries between bytes
+    long nonZero = ((value & LOW_BITS) + LOW_BITS) | value;
+
+    return ~nonZero & HIGH_BITS;
+  }
+
+  /**
+   * @return the high bits of the eight bytes as the low eight bits, in byte order.
+   */
+  private static long gather(long highBits) {
+    return (highBits * GATHER) >>> 56;
+  }
+
+  /**
+   * @return each bit set to the xor of itself and all lower bits.
+   */
+  private static long prefixXor(long bits) {
+    bits ^= bits << 1;
+    bits ^= bits << 2;
+    bits ^= bits << 4;
+    bits ^= bits << 8;
+    bits ^= bits << 16;
+    bits ^= bits << 32;
+
+    return bits;
+  }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.patch;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One RFC 6902 operation, with its paths parsed into JSON Pointer reference tokens.
+ *
+ * The streaming patcher rewrites operations relative to the value they apply to as it descends
+ * into the document.  A move or copy whose source and target lie in different members is split
+ * into a MOVE_OUT or COPY_OUT at the source, which hands the value to a PendingValue, and an ADD
+ * at the target that takes its value from there.
+ */
+public final class JsonPatchOperation {
+
+  public enum Type {
+    ADD,
+    REMOVE,
+    REPLACE,
+    MOVE,
+    COPY,
+    TEST,
+    MOVE_OUT,
+    COPY_OUT
+  }
+
+  /**
+   * Value moved or copied out of one part of the document, waiting to be added to another.
+   */
+  public static final class PendingValue {
+    private JsonElement value;
+
+    public boolean isAvailable() {
+      return this.value != null;
+    }
+
+    public JsonElement getValue() {
+      return value;
+    }
+
+    public void setValue(JsonElement value) {
+      this.value = value;
+    }
+  }
+
+  private final Type type;
+  private final List<String> path;
+  private final List<String> from;
+  private final JsonElement value;
+  private final PendingValue pendingValue;
+  private final JsonPatchOperation origin;
+
+  public JsonPatchOperation(Type type, List<String> path, List<String> from, JsonElement value,
+                            PendingValue pendingValue, JsonPatchOperation origin) {
+    this.type = type;
+    this.path = path;
+    this.from = from;
+    this.value = value;
+    this.pendingValue = pendingValue;
+
+    if (origin != null) {
+      this.origin = origin;
+    } else {
+      this.origin = this;
+    }
+  }
+
+  /**
+   * Parse a JSON Patch document, which is an array of operation objects.
+   */
+  public static List<JsonPatchOperation> parsePatch(JsonElement patch) {
+    if (!patch.isJsonArray()) {
+      throw new JsonPatchException("JSON Patch must be an array of operations");
+    }
+
+    List<JsonPatchOperation> result = new ArrayList<>();
+    for (JsonElement operation : (JsonArray) patch) {
+      result.add(parseOperation(operation));
+    }
+
+    return result;
+  }
+
+  public static JsonPatchOperation parseOperation(JsonElement operation) {
+    if (!operation.isJsonObject()) {
+      throw new JsonPatchException("JSON Patch operation must be an object: " + operation);
+    }
+
+    JsonObject object = (JsonObject) operation;
+
+    Type type;
+    String op = getString(object, "op");
+    switch (op) {
+      case "add":
+        type = Type.ADD;
+        break;
+      case "remove":
+        type = Type.REMOVE;
+        break;
+      case "replace":
+        type = Type.REPLACE;
+        break;
+      case "move":
+        type = Type.MOVE;
+        break;
+      case "copy":
+        type = Type.COPY;
+        break;
+      case "test":
+        type = Type.TEST;
+        break;
+      default:
+        throw new JsonPatchException("unknown JSON Patch operation: " + op);
+    }
+
+    List<String> path = parsePointer(getString(object, "path"));
+
+    List<String> from = null;
+    if ((type == Type.MOVE) || (type == Type.COPY)) {
+      from = parsePointer(getString(object, "from"));
+
+      if ((type == Type.MOVE) && (from.size() < path.size()) &&
+          (path.subList(0, from.size()).equals(from))) {
+        throw new JsonPatchException("cannot move a value into one of its own children: "
+                                     + operation);
+      }
+    }
+
+    JsonElement value = null;
+    if ((type == Type.ADD) || (type == Type.REPLACE) || (type == Type.TEST)) {
+      value = object.get("value");
+      if (value == null) {
+        throw new JsonPatchException("JSON Patch operation is missing its value: " + operation);
+      }
+    }
+
+    return new JsonPatchOperation(type, path, from, value, null, null);
+  }
+
+  /**
+   * Parse a JSON Pointer into its reference tokens, with ~1 and ~0 unescaped.
+   */
+  public static List<String> parsePointer(String pointer) {
+    if (pointer.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    if (pointer.charAt(0) != '/') {
+      throw new JsonPatchException("JSON Pointer must start with /: " + pointer);
+    }
+
+    List<String> result = new ArrayList<>();
+
+    int start = 1;
+    while (true) {
+      int end = pointer.indexOf('/', start);
+      if (end < 0) {
+        end = pointer.length();
+      }
+
+      String token = pointer.substring(start, end);
+      if (token.indexOf('~') >= 0) {
+        token = token.replace("~1", "/").replace("~0", "~");
+      }
+      result.add(token);
+
+      if (end == pointer.length()) {
+        break;
+      }
+
+      start = end + 1;
+    }
+
+    return result;
+  }
+
+  public static String formatPointer(List<String> tokens) {
+    StringBuilder result = new StringBuilder();
+    for (String token : tokens) {
+      result.append('/').append(token.replace("~", "~0").replace("/", "~1"));
+    }
+
+    return result.toString();
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public List<String> getPath() {
+    return path;
+  }
+
+  /**
+   * @return the source path of a move or copy; null for all other operations.
+   */
+  public List<String> getFrom() {
+    return from;
+  }
+
+  /**
+   * @return the value of the operation; for an ADD fed by a PendingValue, the value handed over
+   * by its source.
+   */
+  public JsonElement getValue() {
+    if (this.pendingValue != null) {
+      if (!this.pendingValue.isAvailable()) {
+        throw new JsonPatchException("cannot stream a move or copy whose source comes after its"
+                                     + " target in the document; apply the patch in memory");
+      }
+
+      return this.pendingValue.getValue();
+    }
+
+    return value;
+  }
+
+  /**
+   * @return the operation of the patch this one was derived from, for error messages.
+   */
+  public JsonPatchOperation getOrigin() {
+    return origin;
+  }
+
+  public PendingValue getPendingValue() {
+    return pendingValue;
+  }
+
+  /**
+   * @return true if this operation still waits on a value moved or copied from elsewhere.
+   */
+  public boolean isWaiting() {
+    return (this.pendingValue != null) && (this.type == Type.ADD) &&
+           (!this.pendingValue.isAvailable());
+  }
+
+  /**
+   * @return the operation with the first reference token removed from its path and from.
+   */
+  public JsonPatchOperation descend() {
+    List<String> childFrom = null;
+    if (this.from != null) {
+      childFrom = this.from.subList(1, this.from.size());
+    }
+
+    return new JsonPatchOperation(this.type, this.path.subList(1, this.path.size()), childFrom,
+                                  this.value, this.pendingValue, this.origin);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    result.append(this.type.name().toLowerCase()).append(' ').append(formatPointer(this.path));
+    if (this.from != null) {
+      result.append(" from ").append(formatPointer(this.from));
+    }
+
+    return result.toString();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private static String getString(JsonObject object, String member) {
+    JsonElement value = object.get(member);
+    if ((value == null) || (!value.isJsonPrimitive()) ||
+        (!value.getAsJsonPrimitive().isString())) {
+      throw new JsonPatchException("JSON Patch operation needs a string " + member + ": "
+                                   + object);
+    }
+
+    return value.getAsString();
+  }
+}
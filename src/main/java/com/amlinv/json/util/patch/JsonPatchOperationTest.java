@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.patch;
+
+import com.google.gson.JsonParser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for parsing JSON Patch operations and JSON Pointers.
+ */
+public class JsonPatchOperationTest {
+
+  private JsonParser parser;
+
+  /**
+   * Setup common test data and interactions.
+   */
+  @Before
+  public void setupTest() throws Exception {
+    this.parser = new JsonParser();
+  }
+
+  @Test
+  public void testParsePointer() {
+    assertEquals(Collections.emptyList(), JsonPatchOperation.parsePointer(""));
+    assertEquals(Collections.singletonList(""), JsonPatchOperation.parsePointer("/"));
+    assertEquals(Arrays.asList("a", "0", "-"), JsonPatchOperation.parsePointer("/a/0/-"));
+    assertEquals(Arrays.asList("a/b", "m~n", "~1", ""),
+                 JsonPatchOperation.parsePointer("/a~1b/m~0n/~01/"));
+  }
+
+  @Test
+  public void testFormatPointerRoundTrips() {
+    List<String> tokens = Arrays.asList("a/b", "m~n", "~1", "", "0");
+
+    assertEquals("/a~1b/m~0n/~01//0", JsonPatchOperation.formatPointer(tokens));
+    assertEquals(tokens,
+                 JsonPatchOperation.parsePointer(JsonPatchOperation.formatPointer(tokens)));
+    assertEquals("", JsonPatchOperation.formatPointer(Collections.emptyList()));
+  }
+
+  @Test
+  public void testPointerMustStartWithSlash() {
+    this.assertInvalidPointer("a/b");
+    this.assertInvalidPointer("#/a");
+  }
+
+  @Test
+  public void testParseOperations() {
+    List<JsonPatchOperation> operations = JsonPatchOperation.parsePatch(this.parser.parse(
+        "[{\"op\": \"add\", \"path\": \"/a\", \"value\": null},"
+        + " {\"op\": \"remove\", \"path\": \"/b/0\"},"
+        + " {\"op\": \"replace\", \"path\": \"\", \"value\": [1]},"
+        + " {\"op\": \"move\", \"from\": \"/c\", \"path\": \"/d~1e\"},"
+        + " {\"op\": \"copy\", \"from\": \"/f\", \"path\": \"/g/-\"},"
+        + " {\"op\": \"test\", \"path\": \"/h\", \"value\": \"x\"}]"));
+
+    assertEquals("[add /a, remove /b/0, replace , move /d~1e from /c, copy /g/- from /f,"
+                 + " test /h]", operations.toString());
+
+    assertEquals(JsonPatchOperation.Type.ADD, operations.get(0).getType());
+    assertTrue(operations.get(0).getValue().isJsonNull());
+    assertNull(operations.get(1).getValue());
+    assertEquals(Arrays.asList("d/e"), operations.get(3).getPath());
+    assertEquals(Arrays.asList("c"), operations.get(3).getFrom());
+    assertNull(operations.get(5).getFrom());
+
+    for (JsonPatchOperation operation : operations) {
+      assertSame(operation, operation.getOrigin());
+      assertFalse(operation.isWaiting());
+    }
+  }
+
+  @Test
+  public void testDescend() {
+    JsonPatchOperation operation = JsonPatchOperation.parseOperation(
+        this.parser.parse("{\"op\": \"move\", \"from\": \"/a/b/c\", \"path\": \"/a/d\"}"));
+
+    JsonPatchOperation child = operation.descend();
+
+    assertEquals(Arrays.asList("d"), child.getPath());
+    assertEquals(Arrays.asList("b", "c"), child.getFrom());
+    assertEquals(JsonPatchOperation.Type.MOVE, child.getType());
+    assertSame(operation, child.getOrigin());
+    assertSame(operation, child.descend().getOrigin());
+  }
+
+  @Test
+  public void testPendingValue() {
+    JsonPatchOperation.PendingValue pendingValue = new JsonPatchOperation.PendingValue();
+    JsonPatchOperation add = new JsonPatchOperation(JsonPatchOperation.Type.ADD,
+                                                    Arrays.asList("a"), null, null, pendingValue,
+                                                    null);
+
+    assertTrue(add.isWaiting());
+    try {
+      add.getValue();
+      fail("expected the value to be unavailable");
+    } catch (JsonPatchException expected) {
+      assertTrue(expected.getMessage(),
+                 expected.getMessage().contains("apply the patch in memory"));
+    }
+
+    pendingValue.setValue(this.parser.parse("[1]"));
+
+    assertFalse(add.isWaiting());
+    assertEquals(this.parser.parse("[1]"), add.getValue());
+  }
+
+  @Test
+  public void testInvalidOperations() {
+    this.assertInvalid("{\"op\": \"add\", \"path\": \"/a\", \"value\": 1}");
+    this.assertInvalid("[{\"op\": \"frobnicate\", \"path\": \"/a\"}]");
+    this.assertInvalid("[{\"op\": \"add\", \"path\": \"/a\"}]");
+    this.assertInvalid("[{\"op\": \"test\", \"path\": \"/a\"}]");
+    this.assertInvalid("[{\"op\": \"remove\"}]");
+    this.assertInvalid("[{\"op\": \"remove\", \"path\": 1}]");
+    this.assertInvalid("[{\"op\": \"copy\", \"path\": \"/a\"}]");
+    this.assertInvalid("[{\"op\": \"move\", \"from\": \"/a\", \"path\": \"/a/b\"}]");
+    this.assertInvalid("[{\"op\": \"move\", \"from\": \"\", \"path\": \"/a\"}]");
+    this.assertInvalid("[[\"add\", \"/a\", 1]]");
+  }
+
+  @Test
+  public void testMoveOntoItselfOrSiblingIsValid() {
+    JsonPatchOperation.parsePatch(this.parser.parse(
+        "[{\"op\": \"move\", \"from\": \"/a\", \"path\": \"/a\"},"
+        + " {\"op\": \"move\", \"from\": \"/a/b\", \"path\": \"/a\"},"
+        + " {\"op\": \"move\", \"from\": \"/a\", \"path\": \"/ab\"}]"));
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void assertInvalid(String patch) {
+    try {
+      JsonPatchOperation.parsePatch(this.parser.parse(patch));
+      fail("expected " + patch + " to be rejected");
+    } catch (JsonPatchException expected) {
+      // Expected
+    }
+  }
+
+  private void assertInvalidPointer(String pointer) {
+    try {
+      JsonPatchOperation.parsePointer(pointer);
+      fail("expected " + pointer + " to be rejected");
+    } catch (JsonPatchException expected) {
+      // Expected
+    }
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.patch;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies JSON Patch operations to an in-memory value.  Used by the streaming patcher for the
+ * values it has to load, and usable on its own for small documents.
+ */
+public class JsonPatchTree {
+
+  // The value being patched is held as the only member of a holder object, so that operations
+  // on the whole value, including adding it or removing it, work like those on any member.
+  private static final String HOLDER_MEMBER = "value";
+
+  /**
+   * Apply the operations, in order, to the given value.
+   *
+   * @param target the value to patch; null if the value does not exist yet.
+   * @return the patched value; null if the operations removed it.
+   */
+  public JsonElement apply(JsonElement target, List<JsonPatchOperation> operations) {
+    JsonObject holder = new JsonObject();
+    if (target != null) {
+      holder.add(HOLDER_MEMBER, target);
+    }
+
+    for (JsonPatchOperation operation : operations) {
+      try {
+        this.applyOperation(holder, operation);
+      } catch (JsonPatchException patchExc) {
+        throw new JsonPatchException(patchExc.getMessage() + " in operation "
+                                     + operation.getOrigin());
+      }
+    }
+
+    return holder.get(HOLDER_MEMBER);
+  }
+
+  /**
+   * Copy the given value, so that a copied value can be patched independently of its source.
+   */
+  public static JsonElement deepCopy(JsonElement element) {
+    if (element.isJsonObject()) {
+      JsonObject result = new JsonObject();
+      for (Map.Entry<String, JsonElement> entry : ((JsonObject) element).entrySet()) {
+        result.add(entry.getKey(), deepCopy(entry.getValue()));
+      }
+
+      return result;
+    } else if (element.isJsonArray()) {
+      JsonArray result = new JsonArray();
+      for (JsonElement child : (JsonArray) element) {
+        result.add(deepCopy(child));
+      }
+
+      return result;
+    }
+
+    // Primitives and null are immutable
+    return element;
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void applyOperation(JsonObject holder, JsonPatchOperation operation) {
+    List<String> path = operation.getPath();
+
+    switch (operation.getType()) {
+      case ADD:
+        this.add(holder, path, deepCopy(operation.getValue()));
+        break;
+
+      case REMOVE:
+        this.remove(holder, path);
+        break;
+
+      case REPLACE:
+        this.remove(holder, path);
+        this.add(holder, path, deepCopy(operation.getValue()));
+        break;
+
+      case MOVE:
+        this.add(holder, path, this.remove(holder, operation.getFrom()));
+        break;
+
+      case COPY:
+        this.add(holder, path, deepCopy(this.get(holder, operation.getFrom())));
+        break;
+
+      case TEST:
+        JsonElement actual = this.get(holder, path);
+        if (!actual.equals(operation.getValue())) {
+          throw new JsonPatchException("test failed: expected " + operation.getValue()
+                                       + ", found " + actual);
+        }
+        break;
+
+      case MOVE_OUT:
+        operation.getPendingValue().setValue(this.remove(holder, path));
+        break;
+
+      case COPY_OUT:
+        operation.getPendingValue().setValue(deepCopy(this.get(holder, path)));
+        break;
+    }
+  }
+
+  private JsonElement get(JsonObject holder, List<String> path) {
+    JsonElement parent = this.getParent(holder, path);
+    String token = this.lastToken(path);
+
+    JsonElement result;
+    if (parent.isJsonObject()) {
+      result = ((JsonObject) parent).get(token);
+    } else {
+      JsonArray array = (JsonArray) parent;
+      result = array.get(this.parseIndex(token, array.size() - 1));
+    }
+
+    if (result == null) {
+      throw this.notFound();
+    }
+
+    return result;
+  }
+
+  private void add(JsonObject holder, List<String> path, JsonElement value) {
+    JsonElement parent = this.getParent(holder, path);
+    String token = this.lastToken(path);
+
+    if (parent.isJsonObject()) {
+      ((JsonObject) parent).add(token, value);
+      return;
+    }
+
+    JsonArray array = (JsonArray) parent;
+    if (token.equals("-")) {
+      array.add(value);
+      return;
+    }
+
+    int index = this.parseIndex(token, array.size());
+
+    // Append, then shift the tail up by one
+    array.add(value);
+
+    int cur = array.size() - 1;
+    while (cur > index) {
+      array.set(cur, array.get(cur - 1));
+      cur--;
+    }
+    array.set(index, value);
+  }
+
+  private JsonElement remove(JsonObject holder, List<String> path) {
+    JsonElement parent = this.getParent(holder, path);
+    String token = this.lastToken(path);
+
+    JsonElement result;
+    if (parent.isJsonObject()) {
+      result = ((JsonObject) parent).remove(token);
+    } else {
+      JsonArray array = (JsonArray) parent;
+      result = array.remove(this.parseIndex(token, array.size() - 1));
+    }
+
+    if (result == null) {
+      throw this.notFound();
+    }
+
+    return result;
+  }
+
+  /**
+   * @return the object or array holding the value at the given path.
+   */
+  private JsonElement getParent(JsonObject holder, List<String> path) {
+    JsonElement cur = holder;
+    String token = HOLDER_MEMBER;
+
+    for (String next : path) {
+      if (cur.isJsonObject()) {
+        cur = ((JsonObject) cur).get(token);
+      } else if (cur.isJsonArray()) {
+        JsonArray array = (JsonArray) cur;
+        cur = array.get(this.parseIndex(token, array.size() - 1));
+      } else {
+        cur = null;
+      }
+
+      if ((cur == null) || ((!cur.isJsonObject()) && (!cur.isJsonArray()))) {
+        throw this.notFound();
+      }
+
+      token = next;
+    }
+
+    return cur;
+  }
+
+  private String lastToken(List<String> path) {
+    if (path.isEmpty()) {
+      return HOLDER_MEMBER;
+    }
+
+    return path.get(path.size() - 1);
+  }
+
+  private int parseIndex(String token, int max) {
+    int index = JsonPatchTree.parseArrayIndex(token);
+    if ((index < 0) || (index > max)) {
+      throw new JsonPatchException("array index out of bounds");
+    }
+
+    return index;
+  }
+
+  /**
+   * @return the array index given by the reference token; -1 if it is not a valid index.
+   */
+  static int parseArrayIndex(String token) {
+    int len = token.length();
+    if ((len == 0) || (len > 9) || ((len > 1) && (token.charAt(0) == '0'))) {
+      return -1;
+    }
+
+    int result = 0;
+    int cur = 0;
+    while (cur < len) {
+      char ch = token.charAt(cur);
+      if ((ch < '0') || (ch > '9')) {
+        return -1;
+      }
+
+      result = (result * 10) + (ch - '0');
+      cur++;
+    }
+
+    return result;
+  }
+
+  private JsonPatchException notFound() {
+    return new JsonPatchException("path not found");
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.patch;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for applying JSON Patch operations in memory, using the examples of RFC 6902.
+ */
+public class JsonPatchTreeTest {
+
+  private JsonParser parser;
+  private JsonPatchTree tree;
+
+  /**
+   * Setup common test data and interactions.
+   */
+  @Before
+  public void setupTest() throws Exception {
+    this.parser = new JsonParser();
+    this.tree = new JsonPatchTree();
+  }
+
+  @Test
+  public void testAddMember() {
+    this.assertPatched("{\"foo\": \"bar\", \"baz\": \"qux\"}", "{\"foo\": \"bar\"}",
+                       "[{\"op\": \"add\", \"path\": \"/baz\", \"value\": \"qux\"}]");
+  }
+
+  @Test
+  public void testAddArrayElement() {
+    this.assertPatched("{\"foo\": [\"bar\", \"qux\", \"baz\"]}", "{\"foo\": [\"bar\", \"baz\"]}",
+                       "[{\"op\": \"add\", \"path\": \"/foo/1\", \"value\": \"qux\"}]");
+    this.assertPatched("[1, 2, 3]", "[1, 2]",
+                       "[{\"op\": \"add\", \"path\": \"/-\", \"value\": 3}]");
+    this.assertPatched("[1, 2, 3]", "[1, 2]",
+                       "[{\"op\": \"add\", \"path\": \"/2\", \"value\": 3}]");
+  }
+
+  @Test
+  public void testAddNestedMember() {
+    this.assertPatched("{\"foo\": \"bar\", \"child\": {\"grandchild\": {}}}", "{\"foo\": \"bar\"}",
+                       "[{\"op\": \"add\", \"path\": \"/child\","
+                       + " \"value\": {\"grandchild\": {}}}]");
+  }
+
+  @Test
+  public void testRemove() {
+    this.assertPatched("{\"foo\": \"bar\"}", "{\"baz\": \"qux\", \"foo\": \"bar\"}",
+                       "[{\"op\": \"remove\", \"path\": \"/baz\"}]");
+    this.assertPatched("{\"foo\": [\"bar\", \"baz\"]}", "{\"foo\": [\"bar\", \"qux\", \"baz\"]}",
+                       "[{\"op\": \"remove\", \"path\": \"/foo/1\"}]");
+  }
+
+  @Test
+  public void testReplace() {
+    this.assertPatched("{\"baz\": \"boo\", \"foo\": \"bar\"}",
+                       "{\"baz\": \"qux\", \"foo\": \"bar\"}",
+                       "[{\"op\": \"replace\", \"path\": \"/baz\", \"value\": \"boo\"}]");
+  }
+
+  @Test
+  public void testMove() {
+    this.assertPatched("{\"foo\": {\"bar\": \"baz\"}, \"qux\": {\"corge\": \"grault\","
+                       + " \"thud\": \"fred\"}}",
+                       "{\"foo\": {\"bar\": \"baz\", \"waldo\": \"fred\"},"
+                       + " \"qux\": {\"corge\": \"grault\"}}",
+                       "[{\"op\": \"move\", \"from\": \"/foo/waldo\", \"path\": \"/qux/thud\"}]");
+    this.assertPatched("{\"foo\": [\"all\", \"cows\", \"eat\", \"grass\"]}",
+                       "{\"foo\": [\"all\", \"grass\", \"cows\", \"eat\"]}",
+                       "[{\"op\": \"move\", \"from\": \"/foo/1\", \"path\": \"/foo/3\"}]");
+  }
+
+  @Test
+  public void testCopyIsIndependentOfItsSource() {
+    this.assertPatched("{\"a\": {\"x\": 1}, \"b\": {\"x\": 1, \"y\": 2}}", "{\"a\": {\"x\": 1}}",
+                       "[{\"op\": \"copy\", \"from\": \"/a\", \"path\": \"/b\"},"
+                       + " {\"op\": \"add\", \"path\": \"/b/y\", \"value\": 2}]");
+  }
+
+  @Test
+  public void testTest() {
+    String document = "{\"baz\": \"qux\", \"foo\": [\"a\", 2, \"c\"]}";
+
+    this.assertPatched(document, document,
+                       "[{\"op\": \"test\", \"path\": \"/baz\", \"value\": \"qux\"},"
+                       + " {\"op\": \"test\", \"path\": \"/foo/1\", \"value\": 2}]");
+    this.assertFails("test failed", document,
+                     "[{\"op\": \"test\", \"path\": \"/baz\", \"value\": \"bar\"}]");
+    this.assertFails("test failed", document,
+                     "[{\"op\": \"test\", \"path\": \"/foo/1\", \"value\": \"2\"}]");
+  }
+
+  @Test
+  public void testEscapedNames() {
+    this.assertPatched("{\"/\": 9, \"~1\": 10, \"~\": 1}", "{\"/\": 9, \"~1\": 10}",
+                       "[{\"op\": \"test\", \"path\": \"/~01\", \"value\": 10},"
+                       + " {\"op\": \"copy\", \"from\": \"/~1\", \"path\": \"/~0\"},"
+                       + " {\"op\": \"replace\", \"path\": \"/~0\", \"value\": 1}]");
+  }
+
+  @Test
+  public void testWholeDocument() {
+    this.assertPatched("[1]", "{\"a\": 1}",
+                       "[{\"op\": \"replace\", \"path\": \"\", \"value\": [1]}]");
+    this.assertPatched("{\"a\": {\"a\": 1}}", "{\"a\": 1}",
+                       "[{\"op\": \"copy\", \"from\": \"\", \"path\": \"/a\"}]");
+    this.assertPatched("1", "{\"a\": 1}",
+                       "[{\"op\": \"move\", \"from\": \"/a\", \"path\": \"\"}]");
+
+    assertNull(this.apply("{\"a\": 1}", "[{\"op\": \"remove\", \"path\": \"\"}]"));
+    assertEquals(this.parser.parse("[]"),
+                 this.tree.apply(null, JsonPatchOperation.parsePatch(this.parser.parse(
+                     "[{\"op\": \"add\", \"path\": \"\", \"value\": []}]"))));
+  }
+
+  @Test
+  public void testMissingTargets() {
+    this.assertFails("path not found", "{\"foo\": \"bar\"}",
+                     "[{\"op\": \"add\", \"path\": \"/baz/bat\", \"value\": \"qux\"}]");
+    this.assertFails("path not found", "{\"foo\": \"bar\"}",
+                     "[{\"op\": \"remove\", \"path\": \"/baz\"}]");
+    this.assertFails("path not found", "{\"foo\": \"bar\"}",
+                     "[{\"op\": \"add\", \"path\": \"/foo/x\", \"value\": 1}]");
+    this.assertFails("out of bounds", "[1, 2]",
+                     "[{\"op\": \"add\", \"path\": \"/3\", \"value\": 1}]");
+    this.assertFails("out of bounds", "[1, 2]",
+                     "[{\"op\": \"remove\", \"path\": \"/2\"}]");
+    this.assertFails("out of bounds", "[1, 2]",
+                     "[{\"op\": \"remove\", \"path\": \"/01\"}]");
+    this.assertFails("out of bounds", "[1, 2]",
+                     "[{\"op\": \"replace\", \"path\": \"/-\", \"value\": 1}]");
+  }
+
+  @Test
+  public void testErrorNamesTheOperation() {
+    this.assertFails("in operation remove /b", "{\"a\": 1}",
+                     "[{\"op\": \"remove\", \"path\": \"/a\"},"
+                     + " {\"op\": \"remove\", \"path\": \"/b\"}]");
+  }
+
+  @Test
+  public void testDeepCopy() {
+    JsonElement original = this.parser.parse("{\"a\": [1, {\"b\": null}], \"c\": \"d\"}");
+    JsonElement copy = JsonPatchTree.deepCopy(original);
+
+    assertEquals(original, copy);
+    assertNotSame(original, copy);
+
+    copy.getAsJsonObject().getAsJsonArray("a").get(1).getAsJsonObject().addProperty("b", 2);
+
+    assertEquals(this.parser.parse("{\"a\": [1, {\"b\": null}], \"c\": \"d\"}"), original);
+  }
+
+  @Test
+  public void testParseArrayIndex() {
+    assertEquals(0, JsonPatchTree.parseArrayIndex("0"));
+    assertEquals(123456789, JsonPatchTree.parseArrayIndex("123456789"));
+    assertEquals(-1, JsonPatchTree.parseArrayIndex(""));
+    assertEquals(-1, JsonPatchTree.parseArrayIndex("01"));
+    assertEquals(-1, JsonPatchTree.parseArrayIndex("-"));
+    assertEquals(-1, JsonPatchTree.parseArrayIndex("-1"));
+    assertEquals(-1, JsonPatchTree.parseArrayIndex("1e2"));
+    assertEquals(-1, JsonPatchTree.parseArrayIndex("1234567890"));
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void assertPatched(String expected, String document, String patch) {
+    assertEquals(this.parser.parse(expected), this.apply(document, patch));
+  }
+
+  private void assertFails(String message, String document, String patch) {
+    try {
+      this.apply(document, patch);
+      fail("expected " + patch + " to fail");
+    } catch (JsonPatchException expected) {
+      assertTrue(expected.getMessage(), expected.getMessage().contains(message));
+    }
+  }
+
+  private JsonElement apply(String document, String patch) {
+    return this.tree.apply(this.parser.parse(document),
+                           JsonPatchOperation.parsePatch(this.parser.parse(patch)));
+  }
+}
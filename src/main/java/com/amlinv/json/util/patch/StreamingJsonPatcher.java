@@ -0,0 +1,668 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.patch;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies a JSON Patch while copying a document from a JsonReader to a JsonWriter.  Only the
+ * values that operations replace, test, move or reorder are loaded into memory; everything else
+ * is copied token by token, so memory use follows the patch rather than the document.
+ *
+ * Operations are split up by member or array element as the copy descends.  Members of an
+ * object are independent of each other, so each member is patched with its own operations;
+ * members added by the patch, and members waiting on a value moved or copied from a later
+ * sibling, are written at the end of the object.  Array indexes are resolved in patch order
+ * against a plan of the array, so operations on arrays of unknown length need not see the whole
+ * array.  A move or copy from a later part of the document into an earlier array, or into an
+ * object that ends before the source is reached, cannot be streamed and fails.
+ */
+public class StreamingJsonPatcher {
+
+  // Writes loaded values the same way the copied tokens are written: nulls kept, no HTML escaping
+  private static final Gson GSON =
+      new GsonBuilder().serializeNulls().disableHtmlEscaping().create();
+
+  private final JsonPatchTree tree = new JsonPatchTree();
+  private final JsonParser parser = new JsonParser();
+
+  public void apply(JsonReader in, JsonWriter out, List<JsonPatchOperation> patch)
+      throws IOException {
+
+    in.setLenient(true);
+    out.setLenient(true);
+
+    if (this.needsLoading(patch)) {
+      JsonElement result = this.loadAndApply(in, patch);
+      if (result == null) {
+        throw new JsonPatchException("patch removes the whole document");
+      }
+
+      GSON.toJson(result, out);
+    } else {
+      this.patchValue(in, out, patch);
+    }
+
+    if (in.peek() != JsonToken.END_DOCUMENT) {
+      throw new JsonSyntaxException("Did not consume the entire document.");
+    }
+
+    out.flush();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  /**
+   * Copy the next value, applying the given operations, none of which apply to the value as a
+   * whole.
+   */
+  private void patchValue(JsonReader in, JsonWriter out, List<JsonPatchOperation> operations)
+      throws IOException {
+
+    if (operations.isEmpty()) {
+      this.copyValue(in, out);
+      return;
+    }
+
+    JsonToken token = in.peek();
+    if (token == JsonToken.BEGIN_OBJECT) {
+      this.patchObject(in, out, operations);
+    } else if (token == JsonToken.BEGIN_ARRAY) {
+      this.patchArray(in, out, operations);
+    } else {
+      // Paths into a primitive; let the tree patcher report them
+      this.writeValue(out, this.loadAndApply(in, operations));
+    }
+  }
+
+  private void patchObject(JsonReader in, JsonWriter out, List<JsonPatchOperation> operations)
+      throws IOException {
+
+    Map<String, List<JsonPatchOperation>> memberOperations = new LinkedHashMap<>();
+    for (JsonPatchOperation operation : operations) {
+      String name = operation.getPath().get(0);
+      List<String> from = operation.getFrom();
+
+      if ((from != null) && (!from.get(0).equals(name))) {
+        JsonPatchOperation.PendingValue pendingValue = new JsonPatchOperation.PendingValue();
+
+        this.addOperation(memberOperations, from.get(0),
+                          this.createSourceOperation(operation, pendingValue));
+        this.addOperation(memberOperations, name,
+                          this.createTargetOperation(operation, pendingValue));
+      } else {
+        this.addOperation(memberOperations, name, operation.descend());
+      }
+    }
+
+    List<HeldMember> heldMembers = new ArrayList<>();
+
+    in.beginObject();
+    out.beginObject();
+
+    while (in.hasNext()) {
+      String name = in.nextName();
+      List<JsonPatchOperation> childOperations = memberOperations.remove(name);
+
+      if (childOperations == null) {
+        out.name(name);
+        this.copyValue(in, out);
+      } else if (this.isWaiting(childOperations)) {
+        heldMembers.add(new HeldMember(name, this.parser.parse(in), childOperations));
+      } else if (this.needsLoading(childOperations)) {
+        this.writeMember(out, name, this.loadAndApply(in, childOperations));
+      } else {
+        out.name(name);
+        this.patchValue(in, out, childOperations);
+      }
+    }
+
+    in.endObject();
+
+    // Members the patch adds
+    for (Map.Entry<String, List<JsonPatchOperation>> entry : memberOperations.entrySet()) {
+      heldMembers.add(new HeldMember(entry.getKey(), null, entry.getValue()));
+    }
+
+    // Members can wait on each other; write those that are ready until none are left
+    while (!heldMembers.isEmpty()) {
+      boolean progress = false;
+
+      Iterator<HeldMember> iterator = heldMembers.iterator();
+      while (iterator.hasNext()) {
+        HeldMember member = iterator.next();
+        if (!this.isWaiting(member.operations)) {
+          this.writeMember(out, member.name, this.tree.apply(member.value, member.operations));
+          iterator.remove();
+          progress = true;
+        }
+      }
+
+      if (!progress) {
+        // Fails, reporting the value that is not available
+        HeldMember member = heldMembers.get(0);
+        this.tree.apply(member.value, member.operations);
+      }
+    }
+
+    out.endObject();
+  }
+
+  private void patchArray(JsonReader in, JsonWriter out, List<JsonPatchOperation> operations)
+      throws IOException {
+
+    ArrayPlan plan = new ArrayPlan();
+    for (JsonPatchOperation operation : operations) {
+      plan.addOperation(operation);
+    }
+
+    ArrayCopy copy = new ArrayCopy(in, out, plan);
+
+    // Elements added and then removed or moved again by the patch; they can still feed a move
+    // or copy, or fail a test
+    List<ArrayEntry> waitingDetached = new ArrayList<>();
+    for (ArrayEntry entry : plan.detachedEntries) {
+      if (this.isWaiting(entry.operations)) {
+        waitingDetached.add(entry);
+      } else {
+        this.tree.apply(null, entry.operations);
+      }
+    }
+
+    in.beginArray();
+    out.beginArray();
+
+    for (ArraySegment segment : plan.segments) {
+      if (segment.entry != null) {
+        copy.writeEntry(segment.entry);
+      } else if (segment.end == ArraySegment.UNBOUNDED) {
+        copy.advanceTo(segment.start);
+        while (in.hasNext()) {
+          this.copyValue(in, out);
+          copy.readIndex++;
+        }
+      } else {
+        int cur = segment.start;
+        while (cur < segment.end) {
+          copy.writeOriginal(cur, null);
+          cur++;
+        }
+      }
+    }
+
+    for (ArrayEntry entry : plan.appendedEntries) {
+      copy.writeEntry(entry);
+    }
+
+    in.endArray();
+    out.endArray();
+
+    for (ArrayEntry entry : waitingDetached) {
+      this.tree.apply(null, entry.operations);
+    }
+  }
+
+  private JsonPatchOperation createSourceOperation(JsonPatchOperation operation,
+                                                   JsonPatchOperation.PendingValue pendingValue) {
+    JsonPatchOperation.Type type = JsonPatchOperation.Type.COPY_OUT;
+    if (operation.getType() == JsonPatchOperation.Type.MOVE) {
+      type = JsonPatchOperation.Type.MOVE_OUT;
+    }
+
+    List<String> from = operation.getFrom();
+    return new JsonPatchOperation(type, from.subList(1, from.size()), null, null, pendingValue,
+                                  operation.getOrigin());
+  }
+
+  private JsonPatchOperation createTargetOperation(JsonPatchOperation operation,
+                                                   JsonPatchOperation.PendingValue pendingValue) {
+    List<String> path = operation.getPath();
+    return new JsonPatchOperation(JsonPatchOperation.Type.ADD, path.subList(1, path.size()), null,
+                                  null, pendingValue, operation.getOrigin());
+  }
+
+  private void addOperation(Map<String, List<JsonPatchOperation>> memberOperations, String name,
+                            JsonPatchOperation operation) {
+    memberOperations.computeIfAbsent(name, key -> new ArrayList<>()).add(operation);
+  }
+
+  /**
+   * @return true if any of the operations applies to the value as a whole, so that the value
+   * has to be loaded.
+   */
+  private boolean needsLoading(List<JsonPatchOperation> operations) {
+    for (JsonPatchOperation operation : operations) {
+      if ((operation.getPath().isEmpty()) ||
+          ((operation.getFrom() != null) && (operation.getFrom().isEmpty()))) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private boolean isWaiting(List<JsonPatchOperation> operations) {
+    for (JsonPatchOperation operation : operations) {
+      if (operation.isWaiting()) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Read the next value and apply the operations to it.  A value that is replaced outright by
+   * the first operation is skipped rather than loaded.
+   */
+  private JsonElement loadAndApply(JsonReader in, List<JsonPatchOperation> operations)
+      throws IOException {
+
+    JsonPatchOperation first = operations.get(0);
+    if ((first.getPath().isEmpty()) && (!first.isWaiting()) &&
+        ((first.getType() == JsonPatchOperation.Type.REPLACE) ||
+         (first.getType() == JsonPatchOperation.Type.ADD))) {
+      in.skipValue();
+
+      return this.tree.apply(JsonPatchTree.deepCopy(first.getValue()),
+                             operations.subList(1, operations.size()));
+    }
+
+    return this.tree.apply(this.parser.parse(in), operations);
+  }
+
+  private void writeMember(JsonWriter out, String name, JsonElement value) throws IOException {
+    if (value != null) {
+      out.name(name);
+      GSON.toJson(value, out);
+    }
+  }
+
+  private void writeValue(JsonWriter out, JsonElement value) throws IOException {
+    if (value != null) {
+      GSON.toJson(value, out);
+    }
+  }
+
+  private void copyValue(JsonReader in, JsonWriter out) throws IOException {
+    int depth = 0;
+
+    do {
+      switch (in.peek()) {
+        case BEGIN_OBJECT:
+          in.beginObject();
+          out.beginObject();
+          depth++;
+          break;
+
+        case END_OBJECT:
+          in.endObject();
+          out.endObject();
+          depth--;
+          break;
+
+        case BEGIN_ARRAY:
+          in.beginArray();
+          out.beginArray();
+          depth++;
+          break;
+
+        case END_ARRAY:
+          in.endArray();
+          out.endArray();
+          depth--;
+          break;
+
+        case NAME:
+          out.name(in.nextName());
+          break;
+
+        case STRING:
+          out.value(in.nextString());
+          break;
+
+        case NUMBER:
+          // Keep the original text of the number
+          out.value(new LazilyParsedNumber(in.nextString()));
+          break;
+
+        case BOOLEAN:
+          out.value(in.nextBoolean());
+          break;
+
+        case NULL:
+          in.nextNull();
+          out.nullValue();
+          break;
+
+        default:
+          throw new JsonSyntaxException("unexpected end of document");
+      }
+    } while (depth > 0);
+  }
+
+  private static final class HeldMember {
+    private final String name;
+    private final JsonElement value;
+    private final List<JsonPatchOperation> operations;
+
+    private HeldMember(String name, JsonElement value, List<JsonPatchOperation> operations) {
+      this.name = name;
+      this.value = value;
+      this.operations = operations;
+    }
+  }
+
+  /**
+   * One element of the patched array: an element of the original array, identified by its
+   * index there, or an element added by the patch.
+   */
+  private static final class ArrayEntry {
+    private final int original;
+    private final List<JsonPatchOperation> operations = new ArrayList<>();
+    private boolean removed;
+
+    private ArrayEntry(int original) {
+      this.original = original;
+    }
+  }
+
+  /**
+   * Either a single entry, or a run of untouched elements of the original array.
+   */
+  private static final class ArraySegment {
+    private static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private final ArrayEntry entry;
+    private int start;
+    private int end;
+
+    private ArraySegment(ArrayEntry entry) {
+      this.entry = entry;
+    }
+
+    private ArraySegment(int start, int end) {
+      this.entry = null;
+      this.start = start;
+      this.end = end;
+    }
+
+    private int size() {
+      if (this.entry != null) {
+        return 1;
+      }
+
+      return this.end - this.start;
+    }
+  }
+
+  /**
+   * Order of the patched array, built by applying the array-level operations in patch order.
+   * Untouched elements stay in runs, the last of which extends to the end of the original array,
+   * whose length is not known until it is read.
+   */
+  private final class ArrayPlan {
+    private final List<ArraySegment> segments = new ArrayList<>();
+    private final List<ArrayEntry> appendedEntries = new ArrayList<>();
+    private final List<ArrayEntry> detachedEntries = new ArrayList<>();
+    private final Map<Integer, ArrayEntry> originalEntries = new HashMap<>();
+
+    private ArrayPlan() {
+      this.segments.add(new ArraySegment(0, ArraySegment.UNBOUNDED));
+    }
+
+    private void addOperation(JsonPatchOperation operation) {
+      List<String> path = operation.getPath();
+      List<String> from = operation.getFrom();
+      String token = path.get(0);
+
+      if (from != null) {
+        if ((operation.getType() == JsonPatchOperation.Type.MOVE) && (path.size() == 1) &&
+            (from.size() == 1)) {
+          // Reordering within the array
+          ArrayEntry entry = this.detachEntry(from.get(0));
+          this.insertEntry(token, entry);
+        } else if ((path.size() == 1) || (!from.get(0).equals(token))) {
+          // A target of a single index inserts a new element, even when the source lies within
+          // the element currently at that index
+          JsonPatchOperation.PendingValue pendingValue = new JsonPatchOperation.PendingValue();
+
+          JsonPatchOperation.Type sourceType = JsonPatchOperation.Type.COPY_OUT;
+          if (operation.getType() == JsonPatchOperation.Type.MOVE) {
+            sourceType = JsonPatchOperation.Type.MOVE_OUT;
+          }
+
+          this.addOperation(new JsonPatchOperation(sourceType, from, null, null, pendingValue,
+                                                   operation.getOrigin()));
+          this.addOperation(new JsonPatchOperation(JsonPatchOperation.Type.ADD, path, null,
+                                                   null, pendingValue, operation.getOrigin()));
+        } else {
+          this.findEntry(token).operations.add(operation.descend());
+        }
+
+        return;
+      }
+
+      JsonPatchOperation.Type type = operation.getType();
+      if ((path.size() == 1) && (type == JsonPatchOperation.Type.ADD)) {
+        ArrayEntry entry = new ArrayEntry(-1);
+        entry.operations.add(operation.descend());
+
+        this.insertEntry(token, entry);
+      } else if ((path.size() == 1) && ((type == JsonPatchOperation.Type.REMOVE) ||
+                                        (type == JsonPatchOperation.Type.MOVE_OUT))) {
+        ArrayEntry entry = this.detachEntry(token);
+        entry.operations.add(operation.descend());
+
+        if (entry.original >= 0) {
+          entry.removed = true;
+        } else {
+          this.detachedEntries.add(entry);
+        }
+      } else {
+        this.findEntry(token).operations.add(operation.descend());
+      }
+    }
+
+    private ArrayEntry findEntry(String token) {
+      return this.segments.get(this.locate(this.parseIndex(token))).entry;
+    }
+
+    private ArrayEntry detachEntry(String token) {
+      return this.segments.remove(this.locate(this.parseIndex(token))).entry;
+    }
+
+    private void insertEntry(String token, ArrayEntry entry) {
+      if (token.equals("-")) {
+        this.appendedEntries.add(entry);
+      } else {
+        this.segments.add(this.splitAt(this.parseIndex(token)), new ArraySegment(entry));
+      }
+    }
+
+    /**
+     * @return position in the segments of the entry at the given index, split out of its run if
+     * needed.
+     */
+    private int locate(int index) {
+      int position = this.splitAt(index);
+      ArraySegment segment = this.segments.get(position);
+
+      if (segment.entry == null) {
+        ArrayEntry entry = new ArrayEntry(segment.start);
+        this.originalEntries.put(segment.start, entry);
+
+        segment.start++;
+        if (segment.size() == 0) {
+          this.segments.set(position, new ArraySegment(entry));
+        } else {
+          this.segments.add(position, new ArraySegment(entry));
+        }
+      }
+
+      return position;
+    }
+
+    /**
+     * @return position in the segments of the segment starting at the given index, splitting a
+     * run if needed.
+     */
+    private int splitAt(int index) {
+      int offset = 0;
+      int position = 0;
+
+      while (true) {
+        ArraySegment segment = this.segments.get(position);
+
+        if ((segment.end == ArraySegment.UNBOUNDED) && (!this.appendedEntries.isEmpty())) {
+          throw new JsonPatchException("cannot stream an operation on an array index after"
+                                       + " appending to the same array; apply the patch in"
+                                       + " memory");
+        }
+
+        if (index == offset) {
+          return position;
+        }
+
+        // The unbounded run holds every index from its offset on
+        if ((segment.end == ArraySegment.UNBOUNDED) || (index < offset + segment.size())) {
+          int splitIndex = segment.start + (index - offset);
+
+          this.segments.add(position + 1, new ArraySegment(splitIndex, segment.end));
+          segment.end = splitIndex;
+
+          return position + 1;
+        }
+
+        offset += segment.size();
+        position++;
+      }
+    }
+
+    private int parseIndex(String token) {
+      int index = JsonPatchTree.parseArrayIndex(token);
+      if (index < 0) {
+        throw new JsonPatchException("invalid array index: " + token);
+      }
+
+      return index;
+    }
+  }
+
+  /**
+   * Writes the entries of an ArrayPlan while reading the original array in order.  Original
+   * elements that are written later than they are read are buffered.
+   */
+  private final class ArrayCopy {
+    private final JsonReader in;
+    private final JsonWriter out;
+    private final ArrayPlan plan;
+    private final Map<Integer, JsonElement> buffered = new HashMap<>();
+    private int readIndex = 0;
+
+    private ArrayCopy(JsonReader in, JsonWriter out, ArrayPlan plan) {
+      this.in = in;
+      this.out = out;
+      this.plan = plan;
+    }
+
+    private void writeEntry(ArrayEntry entry) throws IOException {
+      if (entry.original >= 0) {
+        this.writeOriginal(entry.original, entry.operations);
+      } else {
+        writeValue(this.out, tree.apply(null, entry.operations));
+      }
+    }
+
+    private void writeOriginal(int index, List<JsonPatchOperation> operations)
+        throws IOException {
+
+      if (index < this.readIndex) {
+        JsonElement value = this.buffered.remove(index);
+        if (operations != null) {
+          value = tree.apply(value, operations);
+        }
+
+        writeValue(this.out, value);
+        return;
+      }
+
+      this.advanceTo(index);
+      this.checkAvailable(index);
+
+      if ((operations == null) || (operations.isEmpty())) {
+        copyValue(this.in, this.out);
+      } else if ((needsLoading(operations)) || (isWaiting(operations))) {
+        writeValue(this.out, loadAndApply(this.in, operations));
+      } else {
+        patchValue(this.in, this.out, operations);
+      }
+
+      this.readIndex++;
+    }
+
+    /**
+     * Read up to the given index, dropping removed elements and buffering the others.
+     */
+    private void advanceTo(int index) throws IOException {
+      while (this.readIndex < index) {
+        this.checkAvailable(this.readIndex);
+
+        ArrayEntry entry = this.plan.originalEntries.get(this.readIndex);
+        if ((entry != null) && (entry.removed)) {
+          if ((entry.operations.size() == 1) &&
+              (entry.operations.get(0).getType() == JsonPatchOperation.Type.REMOVE)) {
+            this.in.skipValue();
+          } else {
+            tree.apply(parser.parse(this.in), entry.operations);
+          }
+        } else {
+          this.buffered.put(this.readIndex, parser.parse(this.in));
+        }
+
+        this.readIndex++;
+      }
+    }
+
+    private void checkAvailable(int index) throws IOException {
+      if (!this.in.hasNext()) {
+        throw new JsonPatchException("array index out of bounds: " + index);
+      }
+    }
+  }
+}
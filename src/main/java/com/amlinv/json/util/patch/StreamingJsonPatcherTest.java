@@ -0,0 +1,450 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.patch;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the streaming patcher, against the same patches applied in memory.
+ */
+public class StreamingJsonPatcherTest {
+
+  private static final String[] NAMES = { "a", "b", "c", "a/b", "t~1", "" };
+
+  private static final String IN_MEMORY = "apply the patch in memory";
+
+  private JsonParser parser;
+  private Random random;
+
+  /**
+   * Setup common test data and interactions.
+   */
+  @Before
+  public void setupTest() throws Exception {
+    this.parser = new JsonParser();
+    this.random = new Random(42);
+  }
+
+  @Test
+  public void testUntouchedValuesAreCopiedAsTheyAre() throws IOException {
+    String document = "{\"n\": 1.50, \"big\": 123456789012345678901234567890, \"x\": null,"
+                      + " \"h\": \"<a&b>\", \"s\": [1e2, -0.0]}";
+
+    assertEquals("{\"n\":1.50,\"big\":123456789012345678901234567890,\"x\":null,\"h\":\"<a&b>\","
+                 + "\"s\":[1e2,-0.0],\"t\":true}",
+                 this.applyStreaming(document, "[{\"op\": \"add\", \"path\": \"/t\","
+                                               + " \"value\": true}]"));
+  }
+
+  @Test
+  public void testLoadedValuesKeepNullsAndMarkup() throws IOException {
+    this.assertSameAsInMemory("{\"a\": 1, \"c\": \"<>\", \"n\": null}",
+                              "[{\"op\": \"add\", \"path\": \"/b\", \"value\":"
+                              + " {\"x\": null, \"h\": \"<a&b>\"}},"
+                              + " {\"op\": \"replace\", \"path\": \"/a\", \"value\": null}]");
+
+    assertEquals("{\"a\":null,\"c\":\"<>\",\"n\":null,\"b\":{\"x\":null,\"h\":\"<a&b>\"}}",
+                 this.applyStreaming("{\"a\": 1, \"c\": \"<>\", \"n\": null}",
+                                     "[{\"op\": \"add\", \"path\": \"/b\", \"value\":"
+                                     + " {\"x\": null, \"h\": \"<a&b>\"}},"
+                                     + " {\"op\": \"replace\", \"path\": \"/a\","
+                                     + " \"value\": null}]"));
+  }
+
+  @Test
+  public void testWholeDocument() throws IOException {
+    this.assertSameAsInMemory("{\"a\": 1}",
+                              "[{\"op\": \"replace\", \"path\": \"\", \"value\": [1]},"
+                              + " {\"op\": \"add\", \"path\": \"/-\", \"value\": 2}]");
+    this.assertSameAsInMemory("{\"a\": {\"b\": 1}}",
+                              "[{\"op\": \"move\", \"from\": \"/a\", \"path\": \"\"}]");
+    this.assertSameAsInMemory("{\"a\": 1}",
+                              "[{\"op\": \"copy\", \"from\": \"\", \"path\": \"/b\"}]");
+
+    this.assertStreamingFails("removes the whole document", "{\"a\": 1}",
+                              "[{\"op\": \"remove\", \"path\": \"\"}]");
+  }
+
+  @Test
+  public void testMoveToLaterMember() throws IOException {
+    String document = "{\"a\": {\"x\": 1}, \"b\": {}}";
+    String patch = "[{\"op\": \"move\", \"from\": \"/a/x\", \"path\": \"/b/x\"}]";
+
+    this.assertSameAsInMemory(document, patch);
+    assertEquals("{\"a\":{},\"b\":{\"x\":1}}", this.applyStreaming(document, patch));
+  }
+
+  @Test
+  public void testMemberWaitsOnLaterSibling() throws IOException {
+    String document = "{\"a\": {}, \"b\": {\"x\": 1}, \"c\": 2}";
+    String patch = "[{\"op\": \"move\", \"from\": \"/b/x\", \"path\": \"/a/x\"}]";
+
+    // The waiting member is held and written at the end of the object
+    this.assertSameAsInMemory(document, patch);
+    assertEquals("{\"b\":{},\"c\":2,\"a\":{\"x\":1}}", this.applyStreaming(document, patch));
+  }
+
+  @Test
+  public void testWaitingSiblingsAreWrittenInTurn() throws IOException {
+    String document = "{\"a\": {}, \"b\": {}, \"c\": {\"x\": 1}}";
+    String patch = "[{\"op\": \"copy\", \"from\": \"/c/x\", \"path\": \"/b/x\"},"
+                   + " {\"op\": \"move\", \"from\": \"/b/x\", \"path\": \"/a/y\"},"
+                   + " {\"op\": \"add\", \"path\": \"/d\", \"value\": 3}]";
+
+    // Each pass over the held and added members writes those that are ready
+    this.assertSameAsInMemory(document, patch);
+    assertEquals("{\"c\":{\"x\":1},\"b\":{},\"d\":3,\"a\":{\"y\":1}}",
+                 this.applyStreaming(document, patch));
+  }
+
+  @Test
+  public void testMoveIntoValueOfLaterSibling() throws IOException {
+    this.assertSameAsInMemory("{\"a\": [1, 2, 3], \"b\": {\"c\": [4]}}",
+                              "[{\"op\": \"copy\", \"from\": \"/a/0\", \"path\": \"/b/c/-\"},"
+                              + " {\"op\": \"move\", \"from\": \"/a/1\", \"path\": \"/b/d\"}]");
+  }
+
+  @Test
+  public void testArrayPlan() throws IOException {
+    String document = "[0, 1, 2, 3, 4, 5, 6]";
+    String patch = "[{\"op\": \"move\", \"from\": \"/0\", \"path\": \"/4\"},"
+                   + " {\"op\": \"remove\", \"path\": \"/1\"},"
+                   + " {\"op\": \"add\", \"path\": \"/2\", \"value\": \"x\"},"
+                   + " {\"op\": \"replace\", \"path\": \"/5\", \"value\": \"y\"},"
+                   + " {\"op\": \"move\", \"from\": \"/6\", \"path\": \"/0\"},"
+                   + " {\"op\": \"test\", \"path\": \"/1\", \"value\": 1},"
+                   + " {\"op\": \"add\", \"path\": \"/-\", \"value\": \"z\"}]";
+
+    this.assertSameAsInMemory(document, patch);
+    assertEquals("[6,1,3,\"x\",4,0,\"y\",\"z\"]", this.applyStreaming(document, patch));
+  }
+
+  @Test
+  public void testArrayPlanOfNestedValues() throws IOException {
+    this.assertSameAsInMemory("[{\"a\": 1}, [2, 3], {\"b\": [4]}]",
+                              "[{\"op\": \"add\", \"path\": \"/0/c\", \"value\": 5},"
+                              + " {\"op\": \"move\", \"from\": \"/0\", \"path\": \"/2\"},"
+                              + " {\"op\": \"remove\", \"path\": \"/0/0\"},"
+                              + " {\"op\": \"move\", \"from\": \"/1/b/0\", \"path\": \"/2/d\"},"
+                              + " {\"op\": \"copy\", \"from\": \"/0\", \"path\": \"/1/e\"}]");
+  }
+
+  @Test
+  public void testAddedElementsRemovedAgain() throws IOException {
+    this.assertSameAsInMemory("[1, 2]",
+                              "[{\"op\": \"add\", \"path\": \"/0\", \"value\": {\"a\": 3}},"
+                              + " {\"op\": \"move\", \"from\": \"/0/a\", \"path\": \"/2\"},"
+                              + " {\"op\": \"remove\", \"path\": \"/0\"}]");
+  }
+
+  @Test
+  public void testMoveFromLaterIntoEarlierArrayCannotBeStreamed() throws IOException {
+    this.assertRejected("[[1], 5]", "[{\"op\": \"move\", \"from\": \"/1\", \"path\": \"/0/0\"}]");
+    this.assertRejected("{\"a\": [[1], {\"b\": 2}]}",
+                        "[{\"op\": \"copy\", \"from\": \"/a/1/b\", \"path\": \"/a/0/-\"}]");
+  }
+
+  @Test
+  public void testMoveFromLaterIntoEndedObjectCannotBeStreamed() throws IOException {
+    this.assertRejected("[{\"a\": 1}, {\"b\": 2}]",
+                        "[{\"op\": \"move\", \"from\": \"/1/b\", \"path\": \"/0/b\"}]");
+    this.assertRejected("[{\"a\": {}}, 7]",
+                        "[{\"op\": \"copy\", \"from\": \"/1\", \"path\": \"/0/a/x\"}]");
+  }
+
+  @Test
+  public void testSiblingsWaitingOnEachOtherCannotBeStreamed() throws IOException {
+    this.assertRejected("{\"a\": [1, 2, 3], \"b\": {\"c\": [4]}}",
+                        "[{\"op\": \"move\", \"from\": \"/b/c/0\", \"path\": \"/a/1\"},"
+                        + " {\"op\": \"copy\", \"from\": \"/a/0\", \"path\": \"/b/c/-\"}]");
+  }
+
+  @Test
+  public void testIndexAfterAppendCannotBeStreamed() throws IOException {
+    this.assertRejected("[1, 2]",
+                        "[{\"op\": \"add\", \"path\": \"/-\", \"value\": 3},"
+                        + " {\"op\": \"replace\", \"path\": \"/0\", \"value\": 4}]");
+  }
+
+  @Test
+  public void testFailures() throws IOException {
+    this.assertStreamingFails("test failed", "{\"a\": [1, 2]}",
+                              "[{\"op\": \"test\", \"path\": \"/a/1\", \"value\": 3}]");
+    this.assertStreamingFails("out of bounds", "{\"a\": [1, 2]}",
+                              "[{\"op\": \"remove\", \"path\": \"/a/2\"}]");
+    this.assertStreamingFails("path not found", "{\"a\": [1, 2]}",
+                              "[{\"op\": \"remove\", \"path\": \"/b\"}]");
+    this.assertStreamingFails("path not found", "{\"a\": 1}",
+                              "[{\"op\": \"add\", \"path\": \"/a/b\", \"value\": 1}]");
+    this.assertStreamingFails("invalid array index", "[1, 2]",
+                              "[{\"op\": \"remove\", \"path\": \"/x\"}]");
+  }
+
+  @Test
+  public void testGeneratedPatches() throws IOException {
+    int streamed = 0;
+
+    int cur = 0;
+    while (cur < 2000) {
+      JsonElement document = this.value(0);
+      JsonArray patch = new JsonArray();
+      JsonElement expected = this.generatePatch(document, patch);
+
+      String documentText = document.toString();
+      String patchText = patch.toString();
+
+      assertEquals(expected, this.applyInMemory(documentText, patchText));
+
+      try {
+        JsonElement actual = this.parser.parse(this.applyStreaming(documentText, patchText));
+        assertEquals(documentText + " patched with " + patchText, expected, actual);
+        streamed++;
+      } catch (JsonPatchException patchExc) {
+        // Only moves and copies backwards across the document may be refused
+        assertTrue(documentText + " patched with " + patchText + ": " + patchExc.getMessage(),
+                   patchExc.getMessage().contains(IN_MEMORY));
+      }
+
+      cur++;
+    }
+
+    assertTrue("only " + streamed + " patches streamed", streamed > 1500);
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void assertSameAsInMemory(String document, String patch) throws IOException {
+    assertEquals(this.applyInMemory(document, patch),
+                 this.parser.parse(this.applyStreaming(document, patch)));
+  }
+
+  /**
+   * Assert that the patch applies in memory, but cannot be streamed.
+   */
+  private void assertRejected(String document, String patch) throws IOException {
+    assertNotNull(this.applyInMemory(document, patch));
+    this.assertStreamingFails(IN_MEMORY, document, patch);
+  }
+
+  private void assertStreamingFails(String message, String document, String patch)
+      throws IOException {
+
+    try {
+      this.applyStreaming(document, patch);
+      fail("expected " + patch + " to fail");
+    } catch (JsonPatchException expected) {
+      assertTrue(expected.getMessage(), expected.getMessage().contains(message));
+    }
+  }
+
+  private JsonElement applyInMemory(String document, String patch) {
+    return new JsonPatchTree().apply(this.parser.parse(document),
+                                     JsonPatchOperation.parsePatch(this.parser.parse(patch)));
+  }
+
+  private String applyStreaming(String document, String patch) throws IOException {
+    StringWriter buffer = new StringWriter();
+
+    new StreamingJsonPatcher().apply(new JsonReader(new StringReader(document)),
+                                     new JsonWriter(buffer),
+                                     JsonPatchOperation.parsePatch(this.parser.parse(patch)));
+
+    return buffer.toString();
+  }
+
+  /**
+   * Add up to five random operations that apply to the document to the patch.
+   *
+   * @return the document patched by them.
+   */
+  private JsonElement generatePatch(JsonElement document, JsonArray patch) {
+    JsonElement result = JsonPatchTree.deepCopy(document);
+    JsonPatchTree tree = new JsonPatchTree();
+
+    int count = 1 + this.random.nextInt(5);
+    while (patch.size() < count) {
+      JsonObject operation = this.operation(result);
+
+      JsonArray single = new JsonArray();
+      single.add(operation);
+
+      // Keep only the operations that apply; the tree patcher is tested on its own
+      try {
+        JsonElement patched = tree.apply(JsonPatchTree.deepCopy(result),
+                                         JsonPatchOperation.parsePatch(single));
+        if (patched != null) {
+          result = patched;
+          patch.add(operation);
+        }
+      } catch (JsonPatchException invalid) {
+        // Try another
+      }
+    }
+
+    return result;
+  }
+
+  private JsonObject operation(JsonElement document) {
+    List<List<String>> paths = new ArrayList<>();
+    this.collectPaths(document, new ArrayList<>(), paths);
+
+    List<String> path = paths.get(this.random.nextInt(paths.size()));
+    List<String> target = this.childPath(paths.get(this.random.nextInt(paths.size())), document);
+
+    JsonObject result = new JsonObject();
+    switch (this.random.nextInt(6)) {
+      case 0:
+        result.addProperty("op", "add");
+        result.addProperty("path", JsonPatchOperation.formatPointer(target));
+        result.add("value", this.value(3));
+        break;
+      case 1:
+        result.addProperty("op", "remove");
+        result.addProperty("path", JsonPatchOperation.formatPointer(path));
+        break;
+      case 2:
+        result.addProperty("op", "replace");
+        result.addProperty("path", JsonPatchOperation.formatPointer(path));
+        result.add("value", this.value(3));
+        break;
+      case 3:
+        result.addProperty("op", "move");
+        result.addProperty("from", JsonPatchOperation.formatPointer(path));
+        result.addProperty("path", JsonPatchOperation.formatPointer(target));
+        break;
+      case 4:
+        result.addProperty("op", "copy");
+        result.addProperty("from", JsonPatchOperation.formatPointer(path));
+        result.addProperty("path", JsonPatchOperation.formatPointer(target));
+        break;
+      default:
+        result.addProperty("op", "test");
+        result.addProperty("path", JsonPatchOperation.formatPointer(path));
+        result.add("value", this.valueAt(document, path));
+        break;
+    }
+
+    return result;
+  }
+
+  /**
+   * @return a path within the container at the given path, for adding a value: a new or
+   * existing member, or an index of the array including its end; the path itself otherwise.
+   */
+  private List<String> childPath(List<String> path, JsonElement document) {
+    JsonElement container = this.valueAt(document, path);
+
+    List<String> result = new ArrayList<>(path);
+    if (container.isJsonObject()) {
+      result.add(NAMES[this.random.nextInt(NAMES.length)]);
+    } else if (container.isJsonArray()) {
+      int size = container.getAsJsonArray().size();
+      if (this.random.nextInt(4) == 0) {
+        result.add("-");
+      } else {
+        result.add(Integer.toString(this.random.nextInt(size + 1)));
+      }
+    }
+
+    return result;
+  }
+
+  private void collectPaths(JsonElement element, List<String> path, List<List<String>> result) {
+    result.add(path);
+
+    if (element.isJsonObject()) {
+      for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+        List<String> child = new ArrayList<>(path);
+        child.add(entry.getKey());
+        this.collectPaths(entry.getValue(), child, result);
+      }
+    } else if (element.isJsonArray()) {
+      int index = 0;
+      for (JsonElement entry : element.getAsJsonArray()) {
+        List<String> child = new ArrayList<>(path);
+        child.add(Integer.toString(index));
+        this.collectPaths(entry, child, result);
+        index++;
+      }
+    }
+  }
+
+  private JsonElement valueAt(JsonElement document, List<String> path) {
+    JsonElement result = document;
+    for (String token : path) {
+      if (result.isJsonObject()) {
+        result = result.getAsJsonObject().get(token);
+      } else {
+        result = result.getAsJsonArray().get(Integer.parseInt(token));
+      }
+    }
+
+    return result;
+  }
+
+  private JsonElement value(int depth) {
+    switch (this.random.nextInt((depth > 2) ? 3 : 6)) {
+      case 0:
+        return new JsonPrimitive(this.random.nextInt(10));
+      case 1:
+        return new JsonPrimitive(Arrays.asList("x", "<y>", "").get(this.random.nextInt(3)));
+      case 2:
+        return JsonNull.INSTANCE;
+      case 3:
+      case 4:
+        JsonObject object = new JsonObject();
+        int members = this.random.nextInt(4);
+        while (object.entrySet().size() < members) {
+          object.add(NAMES[this.random.nextInt(NAMES.length)], this.value(depth + 1));
+        }
+        return object;
+      default:
+        JsonArray array = new JsonArray();
+        int elements = this.random.nextInt(5);
+        while (array.size() < elements) {
+          array.add(this.value(depth + 1));
+        }
+        return array;
+    }
+  }
+}
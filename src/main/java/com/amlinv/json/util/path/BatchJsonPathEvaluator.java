@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.path;
+
+import com.amlinv.json.util.index.NavigableJsonValue;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates every path of a JsonPathTrie in a single traversal of a document.
+ *
+ * JsonPath has its own rules for missing members, out-of-range indexes and type mismatches,
+ * which differ between definite and wildcard paths.  Rather than reproduce them, any path that
+ * runs into one of those is marked incomplete; callers re-evaluate just those paths with
+ * JsonPath.  Paths that are complete have exactly the results JsonPath produces.
+ */
+public class BatchJsonPathEvaluator {
+
+  private final JsonPathTrie trie;
+
+  public BatchJsonPathEvaluator(JsonPathTrie trie) {
+    this.trie = trie;
+  }
+
+  public Result evaluate(JsonElement document) {
+    Result result = new Result(this.trie.size());
+
+    this.evaluate(this.trie.getRoot(), document, result);
+
+    return result;
+  }
+
+  /**
+   * Evaluate the paths against an indexed document or a tape, converting only the matched values
+   * into trees; an indexed document parses just those values and the members and elements on the
+   * way to them.
+   */
+  public <V extends NavigableJsonValue<V>> Result evaluate(V document) {
+    Result result = new Result(this.trie.size());
+
+    this.visit(this.trie.getRoot(), document, result);
+
+    return result;
+  }
+
+  /**
+   * Evaluate the paths below the given node against the given element, which is the value found
+   * at the node, reporting the outcome to the listener.
+   */
+  public void evaluate(JsonPathTrie.Node node, JsonElement element,
+                       JsonPathMatchListener listener) {
+    this.visit(node, element, listener);
+  }
+
+  /**
+   * Results of one evaluation, indexed by path id.
+   */
+  public static final class Result implements JsonPathMatchListener {
+    private final List<JsonArray> matches;
+    private final boolean[] incomplete;
+
+    private Result(int pathCount) {
+      this.matches = new ArrayList<>(pathCount);
+      this.incomplete = new boolean[pathCount];
+
+      int cur = 0;
+      while (cur < pathCount) {
+        this.matches.add(new JsonArray());
+        cur++;
+      }
+    }
+
+    public JsonArray getMatches(int pathId) {
+      return this.matches.get(pathId);
+    }
+
+    /**
+     * @return true if the path was evaluated without running into a missing member, an
+     * out-of-range index or a type mismatch.
+     */
+    public boolean isComplete(int pathId) {
+      return !this.incomplete[pathId];
+    }
+
+    @Override
+    public void onMatch(int pathId, JsonElement value) {
+      this.matches.get(pathId).add(value);
+    }
+
+    @Override
+    public void onMissing(JsonPathTrie.Node node) {
+      for (int pathId : node.getPathsBelow()) {
+        this.incomplete[pathId] = true;
+      }
+    }
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void visit(JsonPathTrie.Node node, JsonElement element, JsonPathMatchListener listener) {
+    for (int pathId : node.getTerminalPaths()) {
+      listener.onMatch(pathId, element);
+    }
+
+    if (!node.getMemberChildren().isEmpty()) {
+      if (element.isJsonObject()) {
+        JsonObject object = element.getAsJsonObject();
+
+        for (Map.Entry<String, JsonPathTrie.Node> entry : node.getMemberChildren().entrySet()) {
+          JsonElement value = object.get(entry.getKey());
+          if (value != null) {
+            this.visit(entry.getValue(), value, listener);
+          } else {
+            listener.onMissing(entry.getValue());
+          }
+        }
+      } else {
+        node.getMemberChildren().values().forEach(listener::onMissing);
+      }
+    }
+
+    if (!node.getIndexChildren().isEmpty()) {
+      if (element.isJsonArray()) {
+        JsonArray array = element.getAsJsonArray();
+
+        for (Map.Entry<Integer, JsonPathTrie.Node> entry : node.getIndexChildren().entrySet()) {
+          if (entry.getKey() < array.size()) {
+            this.visit(entry.getValue(), array.get(entry.getKey()), listener);
+          } else {
+            listener.onMissing(entry.getValue());
+          }
+        }
+      } else {
+        node.getIndexChildren().values().forEach(listener::onMissing);
+      }
+    }
+
+    JsonPathTrie.Node wildcardChild = node.getWildcardChild();
+    if (wildcardChild != null) {
+      if (element.isJsonObject()) {
+        for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+          this.visit(wildcardChild, entry.getValue(), listener);
+        }
+      } else if (element.isJsonArray()) {
+        for (JsonElement child : element.getAsJsonArray()) {
+          this.visit(wildcardChild, child, listener);
+        }
+      } else {
+        listener.onMissing(wildcardChild);
+      }
+    }
+  }
+
+  /**
+   * Same as the visit of a JsonElement, but over an indexed document or a tape; the children
+   * each node needs are collected in a single scan of the object or array.
+   */
+  private <V extends NavigableJsonValue<V>> void visit(JsonPathTrie.Node node, V element,
+                                                      JsonPathMatchListener listener) {
+    if (!node.getTerminalPaths().isEmpty()) {
+      JsonElement value = element.toJsonElement();
+
+      for (int pathId : node.getTerminalPaths()) {
+        listener.onMatch(pathId, value);
+      }
+    }
+
+    Map<String, JsonPathTrie.Node> memberChildren = node.getMemberChildren();
+    if (!memberChildren.isEmpty()) {
+      if (element.isObject()) {
+        Map<String, V> members = new HashMap<>();
+        element.forEachMember((name, value) -> {
+          if (memberChildren.containsKey(name)) {
+            members.put(name, value);
+          }
+        });
+
+        for (Map.Entry<String, JsonPathTrie.Node> entry : memberChildren.entrySet()) {
+          V value = members.get(entry.getKey());
+          if (value != null) {
+            this.visit(entry.getValue(), value, listener);
+          } else {
+            listener.onMissing(entry.getValue());
+          }
+        }
+      } else {
+        memberChildren.values().forEach(listener::onMissing);
+      }
+    }
+
+    Map<Integer, JsonPathTrie.Node> indexChildren = node.getIndexChildren();
+    if (!indexChildren.isEmpty()) {
+      if (element.isArray()) {
+        int last = indexChildren.keySet().stream().mapToInt(Integer::intValue).max().getAsInt();
+
+        Map<Integer, V> elements = new HashMap<>();
+        element.visitElements((index, value) -> {
+          if (indexChildren.containsKey(index)) {
+            elements.put(index, value);
+          }
+          return (index < last);
+        });
+
+        for (Map.Entry<Integer, JsonPathTrie.Node> entry : indexChildren.entrySet()) {
+          V value = elements.get(entry.getKey());
+          if (value != null) {
+            this.visit(entry.getValue(), value, listener);
+          } else {
+            listener.onMissing(entry.getValue());
+          }
+        }
+      } else {
+        indexChildren.values().forEach(listener::onMissing);
+      }
+    }
+
+    JsonPathTrie.Node wildcardChild = node.getWildcardChild();
+    if (wildcardChild != null) {
+      if (element.isObject()) {
+        element.forEachMember((name, value) -> this.visit(wildcardChild, value, listener));
+      } else if (element.isArray()) {
+        element.visitElements((index, value) -> {
+          this.visit(wildcardChild, value, listener);
+          return true;
+        });
+      } else {
+        listener.onMissing(wildcardChild);
+      }
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.path;
+
+import com.jayway.jsonpath.JsonPath;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of compiled JsonPath expressions, evicting the least recently used expression
+ * when full.  Compiled paths are immutable, so one cache can serve every document, input file and,
+ * in the daemon, every request.  Safe for use by multiple threads.
+ */
+public class CompiledPathCache {
+
+  public static final int DEFAULT_MAX_SIZE = 1024;
+
+  private static final CompiledPathCache SHARED = new CompiledPathCache(DEFAULT_MAX_SIZE);
+
+  private final int maxSize;
+  private final Map<String, JsonPath> entries;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public CompiledPathCache(int maxSize) {
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<String, JsonPath>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, JsonPath> eldest) {
+        return this.size() > CompiledPathCache.this.maxSize;
+      }
+    };
+  }
+
+  /**
+   * @return the cache shared by everything in the process.
+   */
+  public static CompiledPathCache getShared() {
+    return SHARED;
+  }
+
+  /**
+   * Get the compiled form of the given expression, compiling it on a miss.  Expressions that fail
+   * to compile are not cached.
+   */
+  public JsonPath get(String expression) {
+    synchronized (this.entries) {
+      JsonPath cached = this.entries.get(expression);
+      if (cached != null) {
+        this.hits.incrementAndGet();
+        return cached;
+      }
+    }
+
+    this.misses.incrementAndGet();
+
+    // Compile outside the lock; two threads missing on the same expression at once both compile
+    // it, which is harmless.
+    JsonPath compiled = JsonPath.compile(expression);
+
+    synchronized (this.entries) {
+      this.entries.put(expression, compiled);
+    }
+
+    return compiled;
+  }
+
+  public long getHits() {
+    return this.hits.get();
+  }
+
+  public long getMisses() {
+    return this.misses.get();
+  }
+
+  public int size() {
+    synchronized (this.entries) {
+      return this.entries.size();
+    }
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public void clear() {
+    synchronized (this.entries) {
+      this.entries.clear();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "compiled path cache: " + this.getHits() + " hit(s), " + this.getMisses() +
+           " miss(es), " + this.size() + " of " + this.maxSize + " entries";
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.path;
+
+import com.google.gson.JsonElement;
+
+/**
+ * Receives the outcome of evaluating the paths of a JsonPathTrie.
+ */
+public interface JsonPathMatchListener {
+
+  /**
+   * The path with the given id matched the given value.
+   */
+  void onMatch(int pathId, JsonElement value);
+
+  /**
+   * The document has no value at the given node, either because a member or index is missing or
+   * because the value there has the wrong type; none of the paths below the node can match
+   * through it.
+   */
+  void onMissing(JsonPathTrie.Node node);
+}
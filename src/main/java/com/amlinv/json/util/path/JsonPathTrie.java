@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.path;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prefix tree of a set of simple JSONPath expressions, so that paths sharing a prefix are
+ * evaluated together in one traversal of the document.  Each path is identified by the order in
+ * which it was added.
+ */
+public class JsonPathTrie {
+
+  /**
+   * One position in the trie, reached by following the same segments from the root.
+   */
+  public static final class Node {
+    private final int depth;
+    private final Map<String, Node> memberChildren = new LinkedHashMap<>();
+    private final Map<Integer, Node> indexChildren = new LinkedHashMap<>();
+    private Node wildcardChild;
+
+    private final List<Integer> terminalPaths = new ArrayList<>();
+    private final List<Integer> pathsBelow = new ArrayList<>();
+
+    private Node(int depth) {
+      this.depth = depth;
+    }
+
+    public int getDepth() {
+      return depth;
+    }
+
+    public Map<String, Node> getMemberChildren() {
+      return memberChildren;
+    }
+
+    public Map<Integer, Node> getIndexChildren() {
+      return indexChildren;
+    }
+
+    public Node getWildcardChild() {
+      return wildcardChild;
+    }
+
+    /**
+     * @return ids of the paths that end at this node.
+     */
+    public List<Integer> getTerminalPaths() {
+      return terminalPaths;
+    }
+
+    /**
+     * @return ids of all the paths that pass through, or end at, this node.
+     */
+    public List<Integer> getPathsBelow() {
+      return pathsBelow;
+    }
+
+    public boolean hasChildren() {
+      return (!this.memberChildren.isEmpty()) || (!this.indexChildren.isEmpty()) ||
+             (this.wildcardChild != null);
+    }
+  }
+
+  private final Node root = new Node(0);
+  private final List<SimpleJsonPath> paths = new ArrayList<>();
+
+  /**
+   * Add the given path to the trie.
+   *
+   * @return the id of the path.
+   */
+  public int add(SimpleJsonPath path) {
+    int id = this.paths.size();
+    this.paths.add(path);
+
+    Node node = this.root;
+    node.pathsBelow.add(id);
+
+    for (SimpleJsonPath.Segment segment : path.getSegments()) {
+      node = this.child(node, segment);
+      node.pathsBelow.add(id);
+    }
+
+    node.terminalPaths.add(id);
+
+    return id;
+  }
+
+  public Node getRoot() {
+    return root;
+  }
+
+  public List<SimpleJsonPath> getPaths() {
+    return Collections.unmodifiableList(paths);
+  }
+
+  public int size() {
+    return this.paths.size();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private Node child(Node node, SimpleJsonPath.Segment segment) {
+    int depth = node.depth + 1;
+
+    switch (segment.getType()) {
+      case MEMBER:
+        return node.memberChildren.computeIfAbsent(segment.getName(), (name) -> new Node(depth));
+
+      case INDEX:
+        return node.indexChildren.computeIfAbsent(segment.getIndex(), (index) -> new Node(depth));
+
+      default:
+        if (node.wildcardChild == null) {
+          node.wildcardChild = new Node(depth);
+        }
+
+        return node.wildcardChild;
+    }
+  }
+}
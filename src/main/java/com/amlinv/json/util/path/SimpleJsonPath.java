@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.path;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JSONPath restricted to the subset that can be evaluated in a single pass over a document:
+ * member names ({@code .name}, {@code ['name']}), non-negative array indexes ({@code [3]}) and
+ * wildcards ({@code .*}, {@code [*]}).  Filters, slices, unions, deep scans and functions are not
+ * supported; parse() returns null for them so callers can fall back to the full JsonPath library.
+ */
+public final class SimpleJsonPath {
+
+  public enum SegmentType {
+    MEMBER,
+    INDEX,
+    WILDCARD
+  }
+
+  /**
+   * One step of the path.
+   */
+  public static final class Segment {
+    private final SegmentType type;
+    private final String name;
+    private final int index;
+
+    private Segment(SegmentType type, String name, int index) {
+      this.type = type;
+      this.name = name;
+      this.index = index;
+    }
+
+    public static Segment member(String name) {
+      return new Segment(SegmentType.MEMBER, name, -1);
+    }
+
+    public static Segment index(int index) {
+      return new Segment(SegmentType.INDEX, null, index);
+    }
+
+    public static Segment wildcard() {
+      return new Segment(SegmentType.WILDCARD, null, -1);
+    }
+
+    public SegmentType getType() {
+      return type;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getIndex() {
+      return index;
+    }
+
+    @Override
+    public String toString() {
+      switch (this.type) {
+        case MEMBER:
+          return "['" + this.name + "']";
+        case INDEX:
+          return "[" + this.index + "]";
+        default:
+          return "[*]";
+      }
+    }
+  }
+
+  private final String expression;
+  private final List<Segment> segments;
+  private final boolean definite;
+
+  private SimpleJsonPath(String expression, List<Segment> segments) {
+    this.expression = expression;
+    this.segments = Collections.unmodifiableList(segments);
+
+    boolean allDefinite = true;
+    for (Segment segment : segments) {
+      if (segment.getType() == SegmentType.WILDCARD) {
+        allDefinite = false;
+      }
+    }
+
+    this.definite = allDefinite;
+  }
+
+  /**
+   * Parse the given JSONPath expression.
+   *
+   * @return the parsed path; null if the expression is outside of the supported subset.
+   */
+  public static SimpleJsonPath parse(String expression) {
+    if (!expression.startsWith("$")) {
+      return null;
+    }
+
+    List<Segment> segments = new ArrayList<>();
+
+    int pos = 1;
+    int len = expression.length();
+    while (pos < len) {
+      char ch = expression.charAt(pos);
+
+      if (ch == '.') {
+        pos++;
+
+        int end = pos;
+        while ((end < len) && (isNameChar(expression.charAt(end)))) {
+          end++;
+        }
+
+        if (end == pos) {
+          if ((end < len) && (expression.charAt(end) == '*')) {
+            segments.add(Segment.wildcard());
+            pos = end + 1;
+            continue;
+          }
+
+          // Deep scan ("..") or an empty name
+          return null;
+        }
+
+        segments.add(Segment.member(expression.substring(pos, end)));
+        pos = end;
+      } else if (ch == '[') {
+        int end = expression.indexOf(']', pos);
+        if (end < 0) {
+          return null;
+        }
+
+        Segment segment = parseBracket(expression.substring(pos + 1, end));
+        if (segment == null) {
+          return null;
+        }
+
+        segments.add(segment);
+        pos = end + 1;
+      } else {
+        return null;
+      }
+    }
+
+    return new SimpleJsonPath(expression, segments);
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  public List<Segment> getSegments() {
+    return segments;
+  }
+
+  /**
+   * @return true if the path contains no wildcards and so matches at most one value.
+   */
+  public boolean isDefinite() {
+    return definite;
+  }
+
+  @Override
+  public String toString() {
+    return this.expression;
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private static boolean isNameChar(char ch) {
+    return (Character.isLetterOrDigit(ch)) || (ch == '_') || (ch == '-') || (ch == '$');
+  }
+
+  private static Segment parseBracket(String content) {
+    if (content.equals("*")) {
+      return Segment.wildcard();
+    }
+
+    if ((content.length() >= 2) && (content.startsWith("'")) && (content.endsWith("'"))) {
+      String name = content.substring(1, content.length() - 1);
+
+      // Quotes, escapes and commas imply unions or escaping; leave those to JsonPath
+      if ((name.indexOf('\'') >= 0) || (name.indexOf('\\') >= 0) || (name.indexOf(',') >= 0)) {
+        return null;
+      }
+
+      return Segment.member(name);
+    }
+
+    if ((!content.isEmpty()) && (content.length() <= 9) && (isDigits(content))) {
+      return Segment.index(Integer.parseInt(content));
+    }
+
+    return null;
+  }
+
+  private static boolean isDigits(String content) {
+    int len = content.length();
+    for (int cur = 0; cur < len; cur++) {
+      char ch = content.charAt(cur);
+      if ((ch < '0') || (ch > '9')) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
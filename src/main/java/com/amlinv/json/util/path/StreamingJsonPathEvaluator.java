@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amlinv.json.util.path;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evaluates every path of a JsonPathTrie over a token stream, without building the document.
+ * Values no path can reach are skipped; only values that are matched are read into elements.
+ *
+ * Matches are reported as they are found, so the matches of different paths interleave in
+ * document order.  A definite path matches at most once, so once every path is definite and has
+ * either matched or been found missing, evaluation stops without reading the rest of the input.
+ *
+ * Because of that, an object that repeats a member name is not evaluated as a parsed tree would
+ * be.  A tree keeps only the last value of the name, while here each value is visited in turn: a
+ * definite path is answered by the first one, matching or missing there, and a wildcard matches
+ * every one of them.
+ */
+public class StreamingJsonPathEvaluator {
+
+  private final JsonPathTrie trie;
+  private final BatchJsonPathEvaluator treeEvaluator;
+  private final JsonParser parser = new JsonParser();
+
+  public StreamingJsonPathEvaluator(JsonPathTrie trie) {
+    this.trie = trie;
+    this.treeEvaluator = new BatchJsonPathEvaluator(trie);
+  }
+
+  /**
+   * Evaluate the paths against the document read from the given reader.
+   *
+   * @return true if the entire document was read; false if evaluation stopped early.
+   */
+  public boolean evaluate(JsonReader reader, JsonPathMatchListener listener) throws IOException {
+    reader.setLenient(true);
+
+    Tracker tracker = new Tracker(this.trie.getPaths(), listener);
+    if (tracker.isFinished()) {
+      return false;
+    }
+
+    return !this.visit(this.trie.getRoot(), reader, tracker);
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  /**
+   * Evaluate the paths below the given node against the next value of the reader.
+   *
+   * @return true if every path is done and the evaluation can stop.
+   */
+  private boolean visit(JsonPathTrie.Node node, JsonReader reader, Tracker tracker)
+      throws IOException {
+
+    if (!node.getTerminalPaths().isEmpty()) {
+      // The value itself is a match; read it whole and evaluate any longer paths on the tree.
+      this.treeEvaluator.evaluate(node, this.parser.parse(reader), tracker);
+
+      return tracker.isFinished();
+    }
+
+    JsonToken token = reader.peek();
+    if (token == JsonToken.BEGIN_OBJECT) {
+      node.getIndexChildren().values().forEach(tracker::onMissing);
+
+      return this.visitObject(node, reader, tracker);
+    } else if (token == JsonToken.BEGIN_ARRAY) {
+      node.getMemberChildren().values().forEach(tracker::onMissing);
+
+      return this.visitArray(node, reader, tracker);
+    }
+
+    node.getMemberChildren().values().forEach(tracker::onMissing);
+    node.getIndexChildren().values().forEach(tracker::onMissing);
+    if (node.getWildcardChild() != null) {
+      tracker.onMissing(node.getWildcardChild());
+    }
+
+    reader.skipValue();
+
+    return tracker.isFinished();
+  }
+
+  private boolean visitObject(JsonPathTrie.Node node, JsonReader reader, Tracker tracker)
+      throws IOException {
+
+    Map<String, JsonPathTrie.Node> memberChildren = node.getMemberChildren();
+    JsonPathTrie.Node wildcardChild = node.getWildcardChild();
+    Set<String> seen = new HashSet<>();
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      JsonPathTrie.Node memberChild = memberChildren.get(name);
+
+      if (memberChild != null) {
+        seen.add(name);
+      }
+
+      if ((memberChild != null) && (wildcardChild != null)) {
+        // Both the member and the wildcard need this value; read it once for both of them.
+        JsonElement value = this.parser.parse(reader);
+        this.treeEvaluator.evaluate(memberChild, value, tracker);
+        this.treeEvaluator.evaluate(wildcardChild, value, tracker);
+
+        if (tracker.isFinished()) {
+          return true;
+        }
+      } else if ((memberChild != null) && (!tracker.isDone(memberChild))) {
+        if (this.visit(memberChild, reader, tracker)) {
+          return true;
+        }
+      } else if (wildcardChild != null) {
+        if (this.visit(wildcardChild, reader, tracker)) {
+          return true;
+        }
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    for (Map.Entry<String, JsonPathTrie.Node> entry : memberChildren.entrySet()) {
+      if (!seen.contains(entry.getKey())) {
+        tracker.onMissing(entry.getValue());
+      }
+    }
+
+    return tracker.isFinished();
+  }
+
+  private boolean visitArray(JsonPathTrie.Node node, JsonReader reader, Tracker tracker)
+      throws IOException {
+
+    Map<Integer, JsonPathTrie.Node> indexChildren = node.getIndexChildren();
+    JsonPathTrie.Node wildcardChild = node.getWildcardChild();
+
+    reader.beginArray();
+
+    int cur = 0;
+    while (reader.hasNext()) {
+      JsonPathTrie.Node indexChild = indexChildren.get(cur);
+
+      if ((indexChild != null) && (wildcardChild != null)) {
+        JsonElement value = this.parser.parse(reader);
+        this.treeEvaluator.evaluate(indexChild, value, tracker);
+        this.treeEvaluator.evaluate(wildcardChild, value, tracker);
+
+        if (tracker.isFinished()) {
+          return true;
+        }
+      } else if ((indexChild != null) && (!tracker.isDone(indexChild))) {
+        if (this.visit(indexChild, reader, tracker)) {
+          return true;
+        }
+      } else if (wildcardChild != null) {
+        if (this.visit(wildcardChild, reader, tracker)) {
+          return true;
+        }
+      } else {
+        reader.skipValue();
+      }
+
+      cur++;
+    }
+    reader.endArray();
+
+    for (Map.Entry<Integer, JsonPathTrie.Node> entry : indexChildren.entrySet()) {
+      if (entry.getKey() >= cur) {
+        tracker.onMissing(entry.getValue());
+      }
+    }
+
+    return tracker.isFinished();
+  }
+
+  /**
+   * Passes results on to the caller's listener while keeping track of which definite paths are
+   * done, so their subtrees can be skipped.
+   */
+  private static final class Tracker implements JsonPathMatchListener {
+    private final JsonPathMatchListener listener;
+    private final boolean[] definite;
+    private final boolean[] done;
+    private boolean anyWildcards = false;
+    private int remaining = 0;
+
+    private Tracker(List<SimpleJsonPath> paths, JsonPathMatchListener listener) {
+      this.listener = listener;
+      this.definite = new boolean[paths.size()];
+      this.done = new boolean[paths.size()];
+
+      // Paths with wildcards can match any number of times, so they are never done.
+      int cur = 0;
+      while (cur < paths.size()) {
+        if (paths.get(cur).isDefinite()) {
+          this.definite[cur] = true;
+          this.remaining++;
+        } else {
+          this.anyWildcards = true;
+        }
+
+        cur++;
+      }
+    }
+
+    @Override
+    public void onMatch(int pathId, JsonElement value) {
+      this.listener.onMatch(pathId, value);
+      this.markDone(pathId);
+    }
+
+    @Override
+    public void onMissing(JsonPathTrie.Node node) {
+      this.listener.onMissing(node);
+
+      for (int pathId : node.getPathsBelow()) {
+        this.markDone(pathId);
+      }
+    }
+
+    private boolean isDone(JsonPathTrie.Node node) {
+      for (int pathId : node.getPathsBelow()) {
+        if (!this.done[pathId]) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    private boolean isFinished() {
+      return (!this.anyWildcards) && (this.remaining == 0);
+    }
+
+    private void markDone(int pathId) {
+      if ((this.definite[pathId]) && (!this.done[pathId])) {
+        this.done[pathId] = true;
+        this.remaining--;
+      }
+    }
+  }
+}
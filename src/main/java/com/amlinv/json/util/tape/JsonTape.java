@@ -0,0 +1,855 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.tape;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A parsed document held in flat arrays instead of a tree of Gson objects, so that large
+ * documents fit in a fraction of the heap.
+ *
+ * Every value is a node: one long, or two for objects and arrays, in document order.  The top
+ * four bits of a node hold its tag and the rest its payload:
+ *
+ *   OBJECT, ARRAY: the index of the node following the container, so that it can be skipped;
+ *                  the second long holds the number of members or elements, and for objects
+ *                  whether any member name repeats.
+ *   KEY:           the id of a member name in the key pool; every object member is a KEY node
+ *                  followed by the member's value.
+ *   STRING, NUMBER: the location of the value's text in the data pages, or, when it encodes in
+ *                  at most seven bytes, the text itself.
+ *   TRUE, FALSE, NULL: nothing.
+ *
+ * Member names are pooled, so each distinct name is held once.  String values are kept unescaped,
+ * with each UTF-16 character encoded separately in one to three bytes, so equal strings have
+ * equal bytes; numbers are kept as their text, exactly as Gson keeps them.  Nodes are addressed by
+ * their index; navigation through JsonTapeValue handles is provided for convenience.
+ *
+ * Objects keep duplicate member names as they appear in the document, but are otherwise seen
+ * the way JsonObject holds them: each name once, at its first position, with its last value.
+ */
+public final class JsonTape {
+
+  public enum Type {
+    OBJECT,
+    ARRAY,
+    STRING,
+    NUMBER,
+    BOOLEAN,
+    NULL
+  }
+
+  /**
+   * Receives the members of an object, with the index of each member's value.
+   */
+  public interface MemberVisitor {
+    void visit(String name, long value);
+  }
+
+  static final int TAG_SHIFT = 60;
+  static final long PAYLOAD_MASK = (1L << TAG_SHIFT) - 1;
+
+  static final long TAG_OBJECT = 1L << TAG_SHIFT;
+  static final long TAG_ARRAY = 2L << TAG_SHIFT;
+  static final long TAG_KEY = 3L << TAG_SHIFT;
+  static final long TAG_STRING = 4L << TAG_SHIFT;
+  static final long TAG_NUMBER = 5L << TAG_SHIFT;
+  static final long TAG_TRUE = 6L << TAG_SHIFT;
+  static final long TAG_FALSE = 7L << TAG_SHIFT;
+  static final long TAG_NULL = 8L << TAG_SHIFT;
+
+  static final long TAG_MASK = ~PAYLOAD_MASK;
+
+  // Set in the payload of a string or number whose text is held in the node itself, with the
+  // length in the three bits below it and the bytes in the low seven bytes.
+  static final long INLINE_TEXT = 1L << 59;
+  static final int INLINE_LENGTH_SHIFT = 56;
+  static final int MAX_INLINE_LENGTH = 7;
+
+  // Set in the count of an object that has repeated member names.
+  static final long DUPLICATE_NAMES = 1L << 32;
+
+  static final int NODE_BLOCK_SHIFT = 16;
+  static final int NODE_BLOCK_SIZE = 1 << NODE_BLOCK_SHIFT;
+  static final int NODE_BLOCK_MASK = NODE_BLOCK_SIZE - 1;
+
+  static final int PAGE_SHIFT = 20;
+  static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+  static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private long[][] nodeBlocks = new long[16][];
+  private long nodeCount;
+
+  private byte[][] pages = new byte[16][];
+  private int pageCount;
+  private int currentPage = -1;
+  private int pagePosition = PAGE_SIZE;
+  private long dataSize;
+
+  private Map<String, Integer> keyIds = new HashMap<>();
+  private String[] keys = new String[64];
+  private int keyCount;
+
+  // Per key id, the object it was last seen in while checking for repeated names.
+  private long[] nameStamps;
+
+  JsonTape() {
+  }
+
+  /**
+   * Parse the entire content of the reader, with the same results and errors as
+   * JsonParser.parse(Reader): an empty document is null, and content after the first value is an
+   * error.
+   */
+  public static JsonTape parse(Reader reader) {
+    JsonReader jsonReader = new JsonReader(reader);
+    jsonReader.setLenient(true);
+
+    JsonTape result;
+    try {
+      try {
+        jsonReader.peek();
+      } catch (EOFException eofExc) {
+        result = new JsonTape();
+        result.appendNode(TAG_NULL);
+        result.finish();
+        return result;
+      }
+
+      result = JsonTapeBuilder.build(jsonReader);
+
+      if ((result.getType(0) != Type.NULL) && (jsonReader.peek() != JsonToken.END_DOCUMENT)) {
+        throw new JsonSyntaxException("Did not consume the entire document.");
+      }
+    } catch (EOFException | MalformedJsonException | NumberFormatException syntaxExc) {
+      throw new JsonSyntaxException(syntaxExc);
+    } catch (IOException ioExc) {
+      throw new JsonIOException(ioExc);
+    }
+
+    return result;
+  }
+
+  /**
+   * Read the next value from the reader.
+   */
+  public static JsonTape read(JsonReader reader) throws IOException {
+    return JsonTapeBuilder.build(reader);
+  }
+
+  /**
+   * @return the index of the root node, which is always 0.
+   */
+  public long getRoot() {
+    return 0;
+  }
+
+  public JsonTapeValue getRootValue() {
+    return new JsonTapeValue(this, 0);
+  }
+
+  public JsonTapeValue getValue(long node) {
+    return new JsonTapeValue(this, node);
+  }
+
+  /**
+   * @return the number of nodes, counting two for each object and array.
+   */
+  public long getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * @return the number of bytes used by string and number values.
+   */
+  public long getDataSize() {
+    return dataSize;
+  }
+
+  /**
+   * @return the number of distinct member names.
+   */
+  public int getKeyCount() {
+    return keyCount;
+  }
+
+  public Type getType(long node) {
+    long tag = this.getNode(node) & TAG_MASK;
+
+    if (tag == TAG_OBJECT) {
+      return Type.OBJECT;
+    } else if (tag == TAG_ARRAY) {
+      return Type.ARRAY;
+    } else if (tag == TAG_STRING) {
+      return Type.STRING;
+    } else if (tag == TAG_NUMBER) {
+      return Type.NUMBER;
+    } else if ((tag == TAG_TRUE) || (tag == TAG_FALSE)) {
+      return Type.BOOLEAN;
+    } else if (tag == TAG_NULL) {
+      return Type.NULL;
+    }
+
+    throw new IllegalArgumentException("node " + node + " is not a value");
+  }
+
+  public boolean isContainer(long node) {
+    long tag = this.getNode(node) & TAG_MASK;
+
+    return ((tag == TAG_OBJECT) || (tag == TAG_ARRAY));
+  }
+
+  /**
+   * @return the number of members of an object or elements of an array; 0 for other values.
+   */
+  public int size(long node) {
+    if (!this.isContainer(node)) {
+      return 0;
+    }
+
+    return (int) this.getNode(node + 1);
+  }
+
+  /**
+   * @return true if the given object repeats any of its member names.
+   */
+  public boolean hasDuplicateNames(long node) {
+    return (this.isContainer(node)) && ((this.getNode(node + 1) & DUPLICATE_NAMES) != 0);
+  }
+
+  /**
+   * Pass each member of the given object to the visitor: each name once, at the position it first
+   * appears, with its last value, as JsonObject holds them.
+   */
+  public void forEachMember(long node, MemberVisitor visitor) {
+    long end = this.next(node);
+    long child = this.firstChild(node);
+
+    if (!this.hasDuplicateNames(node)) {
+      while (child < end) {
+        long value = this.getMemberValue(child);
+        visitor.visit(this.getName(child), value);
+        child = this.next(value);
+      }
+
+      return;
+    }
+
+    for (Map.Entry<String, Long> entry : this.collapseMembers(node).entrySet()) {
+      visitor.visit(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * @return the index of the first child of an object or array; the KEY node of the first member
+   * for objects.  Equal to next(node) when the container is empty.
+   */
+  public long firstChild(long node) {
+    return node + 2;
+  }
+
+  /**
+   * @return the index of the node following the given value and everything it contains.
+   */
+  public long next(long node) {
+    long word = this.getNode(node);
+    long tag = word & TAG_MASK;
+
+    if ((tag == TAG_OBJECT) || (tag == TAG_ARRAY)) {
+      return word & PAYLOAD_MASK;
+    }
+
+    return node + 1;
+  }
+
+  /**
+   * @return the member name of the given KEY node.
+   */
+  public String getName(long keyNode) {
+    return this.keys[(int) (this.getNode(keyNode) & PAYLOAD_MASK)];
+  }
+
+  /**
+   * @return the value of the member that follows the given KEY node.
+   */
+  public long getMemberValue(long keyNode) {
+    return keyNode + 1;
+  }
+
+  /**
+   * @return the text of a string or number, as JsonElement.getAsString() returns it; "true" or
+   * "false" for booleans and "null" for null.
+   */
+  public String getAsString(long node) {
+    long word = this.getNode(node);
+    long tag = word & TAG_MASK;
+
+    if ((tag == TAG_STRING) || (tag == TAG_NUMBER)) {
+      return this.decodeText(word);
+    } else if (tag == TAG_TRUE) {
+      return "true";
+    } else if (tag == TAG_FALSE) {
+      return "false";
+    } else if (tag == TAG_NULL) {
+      return "null";
+    }
+
+    throw new IllegalStateException("node " + node + " is not a primitive");
+  }
+
+  /**
+   * Determine whether the two primitives have the same type and the same text; numbers with
+   * different text may still have the same value.
+   */
+  public boolean isSamePrimitive(long node, JsonTape other, long otherNode) {
+    long word = this.getNode(node);
+    long otherWord = other.getNode(otherNode);
+
+    long tag = word & TAG_MASK;
+    if (tag != (otherWord & TAG_MASK)) {
+      return false;
+    }
+
+    if ((tag != TAG_STRING) && (tag != TAG_NUMBER)) {
+      return true;
+    }
+
+    // Text is inlined whenever it fits, so equal text is either inlined on both or on neither
+    if (((word | otherWord) & INLINE_TEXT) != 0) {
+      return (word == otherWord);
+    }
+
+    long location = word & PAYLOAD_MASK;
+    long otherLocation = otherWord & PAYLOAD_MASK;
+
+    byte[] page = this.pages[pageOf(location)];
+    int pos = offsetOf(location);
+    int length = readPrefix(page, pos);
+    pos += prefixSize(length);
+
+    byte[] otherPage = other.pages[pageOf(otherLocation)];
+    int otherPos = offsetOf(otherLocation);
+    int otherLength = readPrefix(otherPage, otherPos);
+    otherPos += prefixSize(otherLength);
+
+    if (length != otherLength) {
+      return false;
+    }
+
+    int cur = 0;
+    while (cur < length) {
+      if (page[pos + cur] != otherPage[otherPos + cur]) {
+        return false;
+      }
+      cur++;
+    }
+
+    return true;
+  }
+
+  /**
+   * Convert the value, and everything it contains, into a Gson tree.
+   */
+  public JsonElement toJsonElement(long node) {
+    long word = this.getNode(node);
+    long tag = word & TAG_MASK;
+
+    if (tag == TAG_OBJECT) {
+      JsonObject result = new JsonObject();
+
+      long end = word & PAYLOAD_MASK;
+      long child = this.firstChild(node);
+      while (child < end) {
+        long value = this.getMemberValue(child);
+        result.add(this.getName(child), this.toJsonElement(value));
+        child = this.next(value);
+      }
+
+      return result;
+    } else if (tag == TAG_ARRAY) {
+      JsonArray result = new JsonArray();
+
+      long end = word & PAYLOAD_MASK;
+      long child = this.firstChild(node);
+      while (child < end) {
+        result.add(this.toJsonElement(child));
+        child = this.next(child);
+      }
+
+      return result;
+    } else if (tag == TAG_STRING) {
+      return new JsonPrimitive(this.decodeText(word));
+    } else if (tag == TAG_NUMBER) {
+      return new JsonPrimitive(new LazilyParsedNumber(this.decodeText(word)));
+    } else if (tag == TAG_TRUE) {
+      return new JsonPrimitive(Boolean.TRUE);
+    } else if (tag == TAG_FALSE) {
+      return new JsonPrimitive(Boolean.FALSE);
+    }
+
+    return JsonNull.INSTANCE;
+  }
+
+  /**
+   * @return the value as compact JSON text, the same as JsonElement.toString().
+   */
+  public String toJson(long node) {
+    StringWriter result = new StringWriter();
+
+    JsonWriter writer = new JsonWriter(result);
+    writer.setLenient(true);
+
+    try {
+      this.write(node, writer);
+    } catch (IOException ioExc) {
+      throw new UncheckedIOException(ioExc);
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * Write the value, and everything it contains, to the given writer.
+   */
+  public void write(long node, JsonWriter writer) throws IOException {
+    long word = this.getNode(node);
+    long tag = word & TAG_MASK;
+
+    if (tag == TAG_OBJECT) {
+      writer.beginObject();
+
+      if (this.hasDuplicateNames(node)) {
+        for (Map.Entry<String, Long> entry : this.collapseMembers(node).entrySet()) {
+          writer.name(entry.getKey());
+          this.write(entry.getValue(), writer);
+        }
+      } else {
+        long end = word & PAYLOAD_MASK;
+        long child = this.firstChild(node);
+        while (child < end) {
+          long value = this.getMemberValue(child);
+          writer.name(this.getName(child));
+          this.write(value, writer);
+          child = this.next(value);
+        }
+      }
+
+      writer.endObject();
+    } else if (tag == TAG_ARRAY) {
+      writer.beginArray();
+
+      long end = word & PAYLOAD_MASK;
+      long child = this.firstChild(node);
+      while (child < end) {
+        this.write(child, writer);
+        child = this.next(child);
+      }
+
+      writer.endArray();
+    } else if (tag == TAG_STRING) {
+      writer.value(this.decodeText(word));
+    } else if (tag == TAG_NUMBER) {
+      writer.value(new LazilyParsedNumber(this.decodeText(word)));
+    } else if (tag == TAG_TRUE) {
+      writer.value(true);
+    } else if (tag == TAG_FALSE) {
+      writer.value(false);
+    } else {
+      writer.nullValue();
+    }
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  long getNode(long node) {
+    if ((node < 0) || (node >= this.nodeCount)) {
+      throw new IndexOutOfBoundsException("node " + node + " of " + this.nodeCount);
+    }
+
+    return this.nodeBlocks[(int) (node >>> NODE_BLOCK_SHIFT)][(int) (node & NODE_BLOCK_MASK)];
+  }
+
+  void setNode(long node, long word) {
+    this.nodeBlocks[(int) (node >>> NODE_BLOCK_SHIFT)][(int) (node & NODE_BLOCK_MASK)] = word;
+  }
+
+  /**
+   * @return the index of the new node.
+   */
+  long appendNode(long word) {
+    int block = (int) (this.nodeCount >>> NODE_BLOCK_SHIFT);
+    if (block >= this.nodeBlocks.length) {
+      this.nodeBlocks = Arrays.copyOf(this.nodeBlocks, this.nodeBlocks.length * 2);
+    }
+
+    if (this.nodeBlocks[block] == null) {
+      this.nodeBlocks[block] = new long[NODE_BLOCK_SIZE];
+    }
+
+    this.nodeBlocks[block][(int) (this.nodeCount & NODE_BLOCK_MASK)] = word;
+
+    return this.nodeCount++;
+  }
+
+  /**
+   * @return the pool id of the given member name, adding it when new.
+   */
+  long internKey(String name) {
+    Integer id = this.keyIds.get(name);
+    if (id != null) {
+      return id;
+    }
+
+    if (this.keyCount >= this.keys.length) {
+      this.keys = Arrays.copyOf(this.keys, this.keys.length * 2);
+    }
+
+    this.keys[this.keyCount] = name;
+    this.keyIds.put(name, this.keyCount);
+
+    return this.keyCount++;
+  }
+
+  /**
+   * Fill in the end of a completed object or array and its count, which for objects is the number
+   * of distinct member names.
+   */
+  void completeContainer(long container, int count) {
+    long tag = this.getNode(container) & TAG_MASK;
+    long end = this.nodeCount;
+
+    this.setNode(container, tag | end);
+
+    if (tag != TAG_OBJECT) {
+      this.setNode(container + 1, count);
+      return;
+    }
+
+    if ((this.nameStamps == null) || (this.nameStamps.length < this.keyCount)) {
+      this.nameStamps = new long[Math.max(this.keyCount, this.keys.length)];
+    }
+
+    // Objects are checked as they complete, one at a time, so one stamp per name is enough
+    long stamp = container + 1;
+    int distinct = 0;
+
+    long child = this.firstChild(container);
+    while (child < end) {
+      int keyId = (int) (this.getNode(child) & PAYLOAD_MASK);
+      if (this.nameStamps[keyId] != stamp) {
+        this.nameStamps[keyId] = stamp;
+        distinct++;
+      }
+
+      child = this.next(this.getMemberValue(child));
+    }
+
+    long countWord = distinct;
+    if (distinct != count) {
+      countWord |= DUPLICATE_NAMES;
+    }
+
+    this.setNode(container + 1, countWord);
+  }
+
+  /**
+   * @return the node for a string or number with the given tag and text, holding the text itself
+   * when it is short enough, and otherwise its location in the data pages.
+   */
+  long textNode(long tag, String text) {
+    int length = encodedLength(text);
+
+    if (length <= MAX_INLINE_LENGTH) {
+      byte[] bytes = new byte[MAX_INLINE_LENGTH];
+      encode(text, bytes, 0);
+
+      long word = tag | INLINE_TEXT | ((long) length << INLINE_LENGTH_SHIFT);
+
+      int cur = 0;
+      while (cur < length) {
+        word |= (bytes[cur] & 0xffL) << (cur * 8);
+        cur++;
+      }
+
+      return word;
+    }
+
+    return tag | this.appendData(text, length);
+  }
+
+  /**
+   * Store the given text, which encodes in the given number of bytes, in the data pages.
+   *
+   * @return the location of the text.
+   */
+  private long appendData(String text, int length) {
+    int size = prefixSize(length) + length;
+
+    byte[] page;
+    int pageIndex;
+    int pos;
+
+    if (size > PAGE_SIZE) {
+      // Too large for a shared page; give it one of its own and keep filling the current page
+      page = new byte[size];
+      pageIndex = this.addPage(page);
+      pos = 0;
+    } else {
+      if (this.pagePosition + size > PAGE_SIZE) {
+        this.currentPage = this.addPage(new byte[PAGE_SIZE]);
+        this.pagePosition = 0;
+      }
+
+      page = this.pages[this.currentPage];
+      pageIndex = this.currentPage;
+      pos = this.pagePosition;
+      this.pagePosition += size;
+    }
+
+    long location = ((long) pageIndex << PAGE_SHIFT) | pos;
+
+    pos = writePrefix(page, pos, length);
+    encode(text, page, pos);
+
+    this.dataSize += size;
+
+    return location;
+  }
+
+  /**
+   * Release what is only needed while building, and the unused end of the last page.
+   */
+  void finish() {
+    this.keyIds = null;
+    this.keys = Arrays.copyOf(this.keys, this.keyCount);
+
+    if (this.currentPage >= 0) {
+      this.pages[this.currentPage] =
+          Arrays.copyOf(this.pages[this.currentPage], this.pagePosition);
+      this.pagePosition = PAGE_SIZE;
+    }
+
+    this.nameStamps = null;
+
+    if (this.nodeCount > 0) {
+      int lastBlock = (int) ((this.nodeCount - 1) >>> NODE_BLOCK_SHIFT);
+      int used = (int) (((this.nodeCount - 1) & NODE_BLOCK_MASK) + 1);
+      this.nodeBlocks[lastBlock] = Arrays.copyOf(this.nodeBlocks[lastBlock], used);
+    }
+  }
+
+  /**
+   * @return the members of the object by name, in the order the names first appear, with the last
+   * value of each name.
+   */
+  private Map<String, Long> collapseMembers(long node) {
+    Map<String, Long> result = new LinkedHashMap<>();
+
+    long end = this.next(node);
+    long child = this.firstChild(node);
+    while (child < end) {
+      long value = this.getMemberValue(child);
+      result.put(this.getName(child), value);
+      child = this.next(value);
+    }
+
+    return result;
+  }
+
+  private int addPage(byte[] page) {
+    if (this.pageCount >= this.pages.length) {
+      this.pages = Arrays.copyOf(this.pages, this.pages.length * 2);
+    }
+
+    this.pages[this.pageCount] = page;
+
+    return this.pageCount++;
+  }
+
+  private String decodeText(long word) {
+    if ((word & INLINE_TEXT) != 0) {
+      int length = (int) ((word >>> INLINE_LENGTH_SHIFT) & MAX_INLINE_LENGTH);
+
+      byte[] bytes = new byte[length];
+
+      int cur = 0;
+      while (cur < length) {
+        bytes[cur] = (byte) (word >>> (cur * 8));
+        cur++;
+      }
+
+      return decode(bytes, 0, length);
+    }
+
+    long location = word & PAYLOAD_MASK;
+
+    byte[] page = this.pages[pageOf(location)];
+    int pos = offsetOf(location);
+    int length = readPrefix(page, pos);
+
+    return decode(page, pos + prefixSize(length), length);
+  }
+
+  private static String decode(byte[] page, int pos, int length) {
+    int end = pos + length;
+
+    int cur = pos;
+    while ((cur < end) && (page[cur] >= 0)) {
+      cur++;
+    }
+
+    if (cur == end) {
+      return new String(page, pos, length, StandardCharsets.ISO_8859_1);
+    }
+
+    char[] chars = new char[length];
+    int count = 0;
+
+    cur = pos;
+    while (cur < end) {
+      int first = page[cur++] & 0xff;
+
+      if (first < 0x80) {
+        chars[count++] = (char) first;
+      } else if (first < 0xe0) {
+        chars[count++] = (char) (((first & 0x1f) << 6) | (page[cur++] & 0x3f));
+      } else {
+        chars[count++] = (char) (((first & 0x0f) << 12) | ((page[cur] & 0x3f) << 6) |
+                                 (page[cur + 1] & 0x3f));
+        cur += 2;
+      }
+    }
+
+    return new String(chars, 0, count);
+  }
+
+  private static int encodedLength(String text) {
+    int len = text.length();
+    int result = len;
+
+    int cur = 0;
+    while (cur < len) {
+      char ch = text.charAt(cur);
+      if (ch >= 0x800) {
+        result += 2;
+      } else if (ch >= 0x80) {
+        result += 1;
+      }
+      cur++;
+    }
+
+    return result;
+  }
+
+  /**
+   * Encode each UTF-16 character of the text on its own, as UTF-8 would encode it as a code
+   * point; unlike UTF-8, unpaired surrogates survive the round trip.
+   */
+  private static void encode(String text, byte[] page, int pos) {
+    int len = text.length();
+
+    int cur = 0;
+    while (cur < len) {
+      char ch = text.charAt(cur);
+
+      if (ch < 0x80) {
+        page[pos++] = (byte) ch;
+      } else if (ch < 0x800) {
+        page[pos++] = (byte) (0xc0 | (ch >> 6));
+        page[pos++] = (byte) (0x80 | (ch & 0x3f));
+      } else {
+        page[pos++] = (byte) (0xe0 | (ch >> 12));
+        page[pos++] = (byte) (0x80 | ((ch >> 6) & 0x3f));
+        page[pos++] = (byte) (0x80 | (ch & 0x3f));
+      }
+
+      cur++;
+    }
+  }
+
+  private static int prefixSize(int length) {
+    int result = 1;
+    while (length >= 0x80) {
+      length >>>= 7;
+      result++;
+    }
+
+    return result;
+  }
+
+  private static int writePrefix(byte[] page, int pos, int length) {
+    while (length >= 0x80) {
+      page[pos++] = (byte) (0x80 | (length & 0x7f));
+      length >>>= 7;
+    }
+
+    page[pos++] = (byte) length;
+
+    return pos;
+  }
+
+  private static int readPrefix(byte[] page, int pos) {
+    int result = 0;
+    int shift = 0;
+
+    while (true) {
+      int value = page[pos++];
+      result |= (value & 0x7f) << shift;
+
+      if (value >= 0) {
+        return result;
+      }
+
+      shift += 7;
+    }
+  }
+
+  private static int pageOf(long location) {
+    return (int) (location >>> PAGE_SHIFT);
+  }
+
+  private static int offsetOf(long location) {
+    return (int) (location & PAGE_MASK);
+  }
+}
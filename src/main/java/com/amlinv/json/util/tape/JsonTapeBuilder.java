@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.tape;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads one value from a JsonReader into a new tape, without building any Gson objects.  Tokens
+ * are turned into the same values the Gson tree would hold: numbers keep the text JsonReader
+ * returns for them.  Nesting is tracked with an explicit stack, so deep documents do not recurse.
+ */
+final class JsonTapeBuilder {
+
+  private static final int INITIAL_DEPTH = 32;
+
+  private final JsonReader reader;
+  private final JsonTape tape = new JsonTape();
+
+  // Node index and member, or element, count of each open container.
+  private long[] containers = new long[INITIAL_DEPTH];
+  private int[] counts = new int[INITIAL_DEPTH];
+  private int depth = 0;
+
+  private JsonTapeBuilder(JsonReader reader) {
+    this.reader = reader;
+  }
+
+  static JsonTape build(JsonReader reader) throws IOException {
+    return new JsonTapeBuilder(reader).build();
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private JsonTape build() throws IOException {
+    do {
+      if (this.depth > 0) {
+        long container = this.containers[this.depth - 1];
+        long tag = this.tape.getNode(container) & JsonTape.TAG_MASK;
+        boolean object = (tag == JsonTape.TAG_OBJECT);
+
+        if (!this.reader.hasNext()) {
+          if (object) {
+            this.reader.endObject();
+          } else {
+            this.reader.endArray();
+          }
+
+          this.tape.completeContainer(container, this.counts[this.depth - 1]);
+          this.depth--;
+          continue;
+        }
+
+        this.counts[this.depth - 1]++;
+
+        if (object) {
+          this.tape.appendNode(JsonTape.TAG_KEY | this.tape.internKey(this.reader.nextName()));
+        }
+      }
+
+      this.readValue();
+    } while (this.depth > 0);
+
+    this.tape.finish();
+
+    return this.tape;
+  }
+
+  private void readValue() throws IOException {
+    switch (this.reader.peek()) {
+      case BEGIN_OBJECT:
+        this.reader.beginObject();
+        this.startContainer(JsonTape.TAG_OBJECT);
+        break;
+
+      case BEGIN_ARRAY:
+        this.reader.beginArray();
+        this.startContainer(JsonTape.TAG_ARRAY);
+        break;
+
+      case STRING:
+        this.tape.appendNode(this.tape.textNode(JsonTape.TAG_STRING, this.reader.nextString()));
+        break;
+
+      case NUMBER:
+        this.tape.appendNode(this.tape.textNode(JsonTape.TAG_NUMBER, this.reader.nextString()));
+        break;
+
+      case BOOLEAN:
+        if (this.reader.nextBoolean()) {
+          this.tape.appendNode(JsonTape.TAG_TRUE);
+        } else {
+          this.tape.appendNode(JsonTape.TAG_FALSE);
+        }
+        break;
+
+      case NULL:
+        this.reader.nextNull();
+        this.tape.appendNode(JsonTape.TAG_NULL);
+        break;
+
+      default:
+        throw new IllegalArgumentException();
+    }
+  }
+
+  private void startContainer(long tag) {
+    if (this.depth >= this.containers.length) {
+      this.containers = Arrays.copyOf(this.containers, this.containers.length * 2);
+      this.counts = Arrays.copyOf(this.counts, this.counts.length * 2);
+    }
+
+    // The end of the container and its count are filled in once it is complete
+    this.containers[this.depth] = this.tape.appendNode(tag);
+    this.tape.appendNode(0);
+    this.counts[this.depth] = 0;
+    this.depth++;
+  }
+}
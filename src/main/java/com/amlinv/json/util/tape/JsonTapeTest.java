@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.tape;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the tape and the builder that fills it, against the trees JsonParser builds.
+ */
+public class JsonTapeTest {
+
+  private static final String[] NAMES = { "a", "b", "id", "name", "value", "a/b", "t~1" };
+
+  private static final String[] STRING_PIECES = {
+      "x", "abc", "1234567", "\\\"", "\\\\", "\\n", "\\u00e9", "\\u20ac", "\\ud83d\\ude00", "é",
+      "€", " "
+  };
+
+  private static final String[] NUMBERS = {
+      "0", "-0", "1", "1.0", "1e0", "-12.5E-3", "123456789012345678901234567890", "3.14159265358979"
+  };
+
+  private Random random;
+
+  /**
+   * Setup common test data and interactions.
+   */
+  @Before
+  public void setupTest() throws Exception {
+    this.random = new Random(42);
+  }
+
+  @Test
+  public void testGeneratedDocumentsMatchJsonParser() {
+    int cur = 0;
+    while (cur < 2000) {
+      this.assertSameAsJsonParser(this.value(0));
+      cur++;
+    }
+  }
+
+  @Test
+  public void testEmptyDocumentIsNull() {
+    JsonTape tape = this.parse("  ");
+
+    assertEquals(JsonTape.Type.NULL, tape.getType(tape.getRoot()));
+    assertEquals(JsonNull.INSTANCE, tape.getRootValue().toJsonElement());
+  }
+
+  @Test
+  public void testTrailingContentIsRejected() {
+    try {
+      this.parse("[1] [2]");
+      fail("expected a syntax error");
+    } catch (JsonSyntaxException expected) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testShortTextIsInline() {
+    // Each UTF-16 character is one to three bytes; up to seven bytes are held in the node itself
+    assertInline(true, "\"\"");
+    assertInline(true, "\"1234567\"");
+    assertInline(true, "\"€€\"");
+    assertInline(true, "\"\\ud83d\\ude00\"");
+    assertInline(true, "-1.5e10");
+    assertInline(false, "\"12345678\"");
+    assertInline(false, "\"€€€\"");
+    assertInline(false, "\"\\ud83d\\ude00x\\ud83d\\ude00\"");
+    assertInline(false, "123456789012");
+  }
+
+  @Test
+  public void testLongTextIsPaged() {
+    List<String> strings = new ArrayList<>();
+    strings.add(this.repeat('a', 100));
+    strings.add(this.repeat('b', JsonTape.PAGE_SIZE + 10));
+    strings.add(this.repeat('c', 50));
+
+    // Enough to fill several shared pages
+    int cur = 0;
+    while (cur < 5000) {
+      strings.add(this.repeat((char) ('d' + (cur % 20)), 400 + cur % 7) + "é€" + cur);
+      cur++;
+    }
+
+    StringBuilder document = new StringBuilder("[");
+    for (String string : strings) {
+      if (document.length() > 1) {
+        document.append(',');
+      }
+      document.append('"').append(string).append('"');
+    }
+    document.append(']');
+
+    JsonTape tape = this.parse(document.toString());
+
+    assertTrue(tape.getDataSize() > 2 * JsonTape.PAGE_SIZE);
+    assertEquals(new JsonParser().parse(document.toString()), tape.getRootValue().toJsonElement());
+
+    long child = tape.firstChild(tape.getRoot());
+    for (String string : strings) {
+      assertEquals(string, tape.getAsString(child));
+      child = tape.next(child);
+    }
+    assertEquals(tape.next(tape.getRoot()), child);
+  }
+
+  @Test
+  public void testInlineDocumentHasNoData() {
+    JsonTape tape = this.parse("{\"a\": [1, \"abc\", true, null, -0.5], \"b\": {\"c\": \"\"}}");
+
+    assertEquals(0, tape.getDataSize());
+  }
+
+  @Test
+  public void testMemberNamesArePooled() {
+    StringBuilder document = new StringBuilder("[");
+    int cur = 0;
+    while (cur < 1000) {
+      if (cur > 0) {
+        document.append(',');
+      }
+      document.append("{\"name\":").append(cur).append(",\"value\":{\"name\":null}}");
+      cur++;
+    }
+    document.append(']');
+
+    JsonTape tape = this.parse(document.toString());
+
+    assertEquals(2, tape.getKeyCount());
+
+    long first = tape.firstChild(tape.getRoot());
+    long last = first;
+    long element = first;
+    while (element < tape.next(tape.getRoot())) {
+      last = element;
+      element = tape.next(element);
+    }
+
+    assertSame(tape.getName(tape.firstChild(first)), tape.getName(tape.firstChild(last)));
+  }
+
+  @Test
+  public void testRepeatedNamesCollapse() {
+    String document = "{\"a\": 1, \"b\": {\"x\": 1}, \"a\": {\"y\": [1, 2]}, \"c\": 3}";
+    JsonTape tape = this.parse(document);
+
+    assertTrue(tape.hasDuplicateNames(tape.getRoot()));
+    assertEquals(3, tape.size(tape.getRoot()));
+
+    List<String> members = new ArrayList<>();
+    tape.forEachMember(tape.getRoot(),
+                       (name, value) -> members.add(name + "=" + tape.toJson(value)));
+
+    assertEquals("[a={\"y\":[1,2]}, b={\"x\":1}, c=3]", members.toString());
+    assertEquals(new JsonParser().parse(document).toString(), tape.toJson(tape.getRoot()));
+    assertFalse(tape.hasDuplicateNames(tape.firstChild(tape.getRoot()) + 1));
+  }
+
+  @Test
+  public void testSamePrimitive() {
+    JsonTape first = this.parse("[\"abc\", \"abcdefghij\", 1, \"1\", true, null, 1.0, \"xyz\"]");
+    JsonTape second = this.parse("[\"abc\", \"abcdefghij\", \"1\", 1, true, null, 1, \"xyzw\"]");
+
+    boolean[] expected = { true, true, false, false, true, true, false, false };
+
+    long firstChild = first.firstChild(first.getRoot());
+    long secondChild = second.firstChild(second.getRoot());
+    for (boolean same : expected) {
+      assertEquals(first.toJson(firstChild), same,
+                   first.isSamePrimitive(firstChild, second, secondChild));
+
+      firstChild = first.next(firstChild);
+      secondChild = second.next(secondChild);
+    }
+  }
+
+  @Test
+  public void testNodesSpanBlocks() {
+    StringBuilder document = new StringBuilder("[");
+    int cur = 0;
+    while (cur < 3 * JsonTape.NODE_BLOCK_SIZE) {
+      if (cur > 0) {
+        document.append(',');
+      }
+      document.append(cur % 3 == 0 ? "[" + cur + "]" : Integer.toString(cur));
+      cur++;
+    }
+    document.append(']');
+
+    this.assertSameAsJsonParser(document.toString());
+  }
+
+  @Test
+  public void testDeepNestingDoesNotRecurse() {
+    int depth = 100000;
+
+    StringBuilder document = new StringBuilder();
+    int cur = 0;
+    while (cur < depth) {
+      document.append(cur % 2 == 0 ? "[" : "{\"a\":");
+      cur++;
+    }
+    document.append('0');
+    while (cur > 0) {
+      cur--;
+      document.append(cur % 2 == 0 ? "]" : "}");
+    }
+
+    JsonTape tape = this.parse(document.toString());
+
+    // Containers take two nodes and members one more for their key
+    assertEquals(2 * depth + depth / 2 + 1, tape.getNodeCount());
+    assertEquals(tape.getNodeCount(), tape.next(tape.getRoot()));
+  }
+
+//========================================
+// Internal Methods
+//----------------------------------------
+
+  private void assertSameAsJsonParser(String document) {
+    JsonElement expected = new JsonParser().parse(document);
+    JsonTape tape = this.parse(document);
+
+    assertEquals(document, expected, tape.getRootValue().toJsonElement());
+    assertEquals(document, expected.toString(), tape.toJson(tape.getRoot()));
+  }
+
+  private void assertInline(boolean inline, String document) {
+    JsonTape tape = this.parse(document);
+    long word = tape.getNode(tape.getRoot());
+
+    assertEquals(document, inline, (word & JsonTape.INLINE_TEXT) != 0);
+    assertEquals(document, inline, (tape.getDataSize() == 0));
+    assertEquals(new JsonParser().parse(document), tape.getRootValue().toJsonElement());
+  }
+
+  private JsonTape parse(String document) {
+    return JsonTape.parse(new StringReader(document));
+  }
+
+  private String repeat(char ch, int count) {
+    StringBuilder result = new StringBuilder(count);
+    int cur = 0;
+    while (cur < count) {
+      result.append(ch);
+      cur++;
+    }
+
+    return result.toString();
+  }
+
+  private String value(int depth) {
+    switch (this.random.nextInt((depth > 4) ? 5 : 8)) {
+      case 0:
+        return this.string();
+      case 1:
+        return NUMBERS[this.random.nextInt(NUMBERS.length)];
+      case 2:
+        return "true";
+      case 3:
+        return "false";
+      case 4:
+        return "null";
+      case 5:
+      case 6:
+        StringBuilder object = new StringBuilder("{");
+        int members = this.random.nextInt(6);
+        int cur = 0;
+        while (cur < members) {
+          if (cur > 0) {
+            object.append(',');
+          }
+          // Names are drawn from a small set, so they repeat within and across objects
+          object.append('"').append(NAMES[this.random.nextInt(NAMES.length)]).append("\":")
+              .append(this.value(depth + 1));
+          cur++;
+        }
+        return object.append('}').toString();
+      default:
+        StringBuilder array = new StringBuilder("[");
+        int elements = this.random.nextInt(6);
+        int index = 0;
+        while (index < elements) {
+          if (index > 0) {
+            array.append(',');
+          }
+          array.append(this.value(depth + 1));
+          index++;
+        }
+        return array.append(']').toString();
+    }
+  }
+
+  private String string() {
+    StringBuilder result = new StringBuilder("\"");
+
+    int pieces = this.random.nextInt(6);
+    if (this.random.nextInt(8) == 0) {
+      pieces += 200;
+    }
+
+    int cur = 0;
+    while (cur < pieces) {
+      result.append(STRING_PIECES[this.random.nextInt(STRING_PIECES.length)]);
+      cur++;
+    }
+
+    return result.append('"').toString();
+  }
+}
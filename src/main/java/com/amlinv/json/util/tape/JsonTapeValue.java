@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018 Arthur Naseef
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amlinv.json.util.tape;
+
+import com.amlinv.json.util.index.NavigableJsonValue;
+
+import com.google.gson.JsonElement;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A handle on one value of a JsonTape, with the same navigation as IndexedJsonValue.  Handles are
+ * small and created on demand; the tape holds all of the content.
+ *
+ * As with JsonObject, repeated member names are seen once, at their first position, with their
+ * last value.
+ */
+public final class JsonTapeValue implements NavigableJsonValue<JsonTapeValue> {
+
+  private final JsonTape tape;
+  private final long node;
+
+  JsonTapeValue(JsonTape tape, long node) {
+    this.tape = tape;
+    this.node = node;
+  }
+
+  public JsonTape getTape() {
+    return tape;
+  }
+
+  public long getNode() {
+    return node;
+  }
+
+  public JsonTape.Type getType() {
+    return this.tape.getType(this.node);
+  }
+
+  @Override
+  public boolean isObject() {
+    return (this.getType() == JsonTape.Type.OBJECT);
+  }
+
+  @Override
+  public boolean isArray() {
+    return (this.getType() == JsonTape.Type.ARRAY);
+  }
+
+  /**
+   * @return the number of members of an object or elements of an array; 0 for other values.
+   */
+  public int size() {
+    return this.tape.size(this.node);
+  }
+
+  /**
+   * @return the value of the named member; null if this is not an object or has no such member.
+   */
+  public JsonTapeValue get(String name) {
+    if (!this.isObject()) {
+      return null;
+    }
+
+    JsonTapeValue result = null;
+
+    long end = this.tape.next(this.node);
+    long child = this.tape.firstChild(this.node);
+    while (child < end) {
+      long value = this.tape.getMemberValue(child);
+      if (this.tape.getName(child).equals(name)) {
+        result = new JsonTapeValue(this.tape, value);
+      }
+
+      child = this.tape.next(value);
+    }
+
+    return result;
+  }
+
+  /**
+   * @return the element at the given position; null if this is not an array or the position is
+   * out of range.
+   */
+  public JsonTapeValue get(int index) {
+    if ((!this.isArray()) || (index < 0) || (index >= this.size())) {
+      return null;
+    }
+
+    long child = this.tape.firstChild(this.node);
+
+    int cur = 0;
+    while (cur < index) {
+      child = this.tape.next(child);
+      cur++;
+    }
+
+    return new JsonTapeValue(this.tape, child);
+  }
+
+  /**
+   * Pass the elements of this array, in order, to the given visitor until it returns false.  Does
+   * nothing if this is not an array.
+   */
+  @Override
+  public void visitElements(ElementVisitor<JsonTapeValue> visitor) {
+    if (!this.isArray()) {
+      return;
+    }
+
+    long end = this.tape.next(this.node);
+    long child = this.tape.firstChild(this.node);
+
+    int index = 0;
+    while (child < end) {
+      if (!visitor.visit(index, new JsonTapeValue(this.tape, child))) {
+        return;
+      }
+
+      child = this.tape.next(child);
+      index++;
+    }
+  }
+
+  /**
+   * Pass each member of this object, in document order, to the given consumer.  Does nothing if
+   * this is not an object.
+   */
+  @Override
+  public void forEachMember(BiConsumer<String, JsonTapeValue> consumer) {
+    if (!this.isObject()) {
+      return;
+    }
+
+    this.tape.forEachMember(this.node, (name, value) -> {
+      consumer.accept(name, new JsonTapeValue(this.tape, value));
+    });
+  }
+
+  /**
+   * Pass each element of this array, in order, to the given consumer.  Does nothing if this is not
+   * an array.
+   */
+  public void forEachElement(Consumer<JsonTapeValue> consumer) {
+    this.visitElements((index, element) -> {
+      consumer.accept(element);
+      return true;
+    });
+  }
+
+  @Override
+  public String getAsString() {
+    return this.tape.getAsString(this.node);
+  }
+
+  /**
+   * Convert the value, and everything it contains, into a Gson tree.
+   */
+  @Override
+  public JsonElement toJsonElement() {
+    return this.tape.toJsonElement(this.node);
+  }
+
+  /**
+   * @return the value as compact JSON text, the same as JsonElement.toString().
+   */
+  @Override
+  public String toString() {
+    return this.tape.toJson(this.node);
+  }
+}